@@ -0,0 +1,52 @@
+#!/usr/bin/env python3
+"""Compare two JMH JSON result files (./gradlew jmh writes build/reports/jmh/results-<commit>.json).
+
+Usage: scripts/compare-jmh.py <base.json> <head.json> [threshold-percent]
+
+Prints every benchmark/param combination present in both files with the relative change of
+its score. Exits 1 if any got slower by more than the threshold (default 10%), so it can
+gate a branch against main. Only time-per-op modes (avgt, sample, ss) are supported.
+"""
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for run in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted((run.get("params") or {}).items()))
+            key = run["benchmark"].rsplit(".", 2)[-2:]
+            metric = run["primaryMetric"]
+            results[(".".join(key), params)] = (metric["score"], metric["scoreError"], metric["scoreUnit"])
+        return results
+
+
+def main():
+    if len(sys.argv) < 3:
+        print(__doc__.strip().splitlines()[2], file=sys.stderr)
+        sys.exit(2)
+    base, head = load(sys.argv[1]), load(sys.argv[2])
+    threshold = float(sys.argv[3]) if len(sys.argv) > 3 else 10.0
+
+    regressions = 0
+    print(f"{'benchmark':<50} {'params':<32} {'base':>12} {'head':>12} {'change':>8}")
+    for key in sorted(base.keys() & head.keys()):
+        (b, _, unit), (h, h_err, _) = base[key], head[key]
+        change = (h - b) / b * 100 if b else 0.0
+        flag = ""
+        # Only flag changes that clear both the threshold and the run's own error margin
+        if change > threshold and h - h_err > b:
+            flag = "  REGRESSION"
+            regressions += 1
+        print(f"{key[0]:<50} {key[1]:<32} {b:>10.3f}{unit[:2]} {h:>10.3f}{unit[:2]} {change:>+7.1f}%{flag}")
+
+    for key in sorted(base.keys() ^ head.keys()):
+        print(f"only in {'base' if key in base else 'head'}: {key[0]} {key[1]}")
+    if regressions:
+        print(f"\n{regressions} benchmark(s) slower by more than {threshold:g}%")
+        sys.exit(1)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,30 @@
+#!/usr/bin/env bash
+# Stub Sentry sender: posts a signed integration webhook to a local backend so the
+# webhook -> prewarm path can be tested without a Sentry integration.
+#
+# Usage: SENTRY_WEBHOOK_SECRET=<webhook.sentry.client-secret> \
+#          scripts/send-sentry-webhook.sh <issueId> [issue|event_alert|error] [url]
+# Send the same issue twice in a row to see the duplicate being dropped.
+set -euo pipefail
+
+ISSUE_ID=${1:?usage: $0 <issueId> [issue|event_alert|error] [url]}
+RESOURCE=${2:-issue}
+URL=${3:-http://localhost:8081/api/sentry-webhook}
+SECRET=${SENTRY_WEBHOOK_SECRET:?set SENTRY_WEBHOOK_SECRET to webhook.sentry.client-secret}
+
+case "$RESOURCE" in
+  issue)       BODY="{\"action\":\"created\",\"data\":{\"issue\":{\"id\":\"$ISSUE_ID\"}}}" ;;
+  event_alert) BODY="{\"action\":\"triggered\",\"data\":{\"event\":{\"issue_id\":\"$ISSUE_ID\"}}}" ;;
+  error)       BODY="{\"action\":\"created\",\"data\":{\"error\":{\"issue_id\":\"$ISSUE_ID\"}}}" ;;
+  *) echo "unknown resource: $RESOURCE" >&2; exit 1 ;;
+esac
+
+# Sentry signs the raw body: hex HMAC-SHA256 keyed with the integration's client secret
+SIGNATURE=$(printf '%s' "$BODY" | openssl dgst -sha256 -hmac "$SECRET" | sed 's/^.*= //')
+
+curl -sS -i -X POST "$URL" \
+  -H "Content-Type: application/json" \
+  -H "Sentry-Hook-Resource: $RESOURCE" \
+  -H "Sentry-Hook-Signature: $SIGNATURE" \
+  --data-binary "$BODY"
+echo
@@ -0,0 +1,66 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.service.BitbucketPrService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BitbucketPrService.applyReplacementsToContent: applying a Gemini pull request's line
+ * replacements to a file before it is committed. Replacements are spread over the file, each
+ * swapping 1-5 lines for 1-8 new ones, in the order Gemini lists them (top to bottom).
+ *
+ *   ./gradlew jmh -Pjmh.includes=ApplyReplacementsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApplyReplacementsBenchmark {
+
+    @Param({"500", "5000", "50000"})
+    public int fileLines;
+
+    @Param({"1", "20"})
+    public int replacements;
+
+    private String content;
+    private List<Map<String, Object>> changes;
+
+    @Setup
+    public void setUp() {
+        content = SnippetExtractionBenchmark.generateSource(fileLines, 42);
+        Random random = new Random(31);
+        changes = new ArrayList<>();
+        int stride = fileLines / replacements;
+        for (int i = 0; i < replacements; i++) {
+            int start = 1 + i * stride + random.nextInt(Math.max(1, stride - 5));
+            StringBuilder code = new StringBuilder();
+            int newLines = 1 + random.nextInt(8);
+            for (int l = 0; l < newLines; l++) {
+                code.append(l == 0 ? "" : "\n").append("        if (value == null) { return Optional.empty(); } // fix ").append(i);
+            }
+            Map<String, Object> change = new LinkedHashMap<>();
+            change.put("start_line", start);
+            change.put("end_line", start + random.nextInt(5));
+            change.put("replacement_code", code.toString());
+            changes.add(change);
+        }
+    }
+
+    @Benchmark
+    public String apply() {
+        return BitbucketPrService.applyReplacementsToContent(content, changes);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.service.SentryDataFetcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SentryDataFetcher.extractEnhancedContext: breadcrumbs, request, tags, user and contexts
+ * pulled out of an already parsed event for the Gemini prompt. Breadcrumbs dominate, so
+ * their count is the size parameter (Sentry keeps at most 100 per event).
+ *
+ *   ./gradlew jmh -Pjmh.includes=EnhancedContextBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnhancedContextBenchmark {
+
+    @Param({"0", "20", "100"})
+    public int breadcrumbs;
+
+    private final SentryDataFetcher fetcher = new SentryDataFetcher();
+    private JsonNode event;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        event = new ObjectMapper().readTree(SentryPayloads.event(60, breadcrumbs, false, 19));
+    }
+
+    @Benchmark
+    public Map<String, Object> extract() {
+        return fetcher.extractEnhancedContext(event);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.util.FrameClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying every frame of a trace: the old StackTraceGenerator helpers (String.matches per
+ * frame, prefix loop over a Set, six contains() scans) vs FrameClassifier, with and without its
+ * (module, function) memo.
+ *
+ * The frames are taken from real traces: an Android login crash (R8 lambdas, androidx and
+ * ZygoteInit frames) and a Spring MVC request failing in a controller (Tomcat filter chain,
+ * CGLIB proxy, reflection frames).
+ *
+ *   ./gradlew jmh -Pjmh.includes=FrameClassificationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FrameClassificationBenchmark {
+
+    @Param({"android", "spring"})
+    public String trace;
+
+    private String[][] frames;          // {module, function, lineno}
+    private int[] linenos;
+    private FrameClassifier memoized;
+    private FrameClassifier uncached;
+
+    @Setup
+    public void setUp() {
+        String projectRoot = "android".equals(trace) ? "com.example.demologinapp" : "com.example.sentrytestbackend";
+        frames = "android".equals(trace) ? ANDROID_TRACE : SPRING_TRACE;
+        linenos = new int[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            linenos[i] = Integer.parseInt(frames[i][2]);
+        }
+        memoized = new FrameClassifier(FrameClassifier.DEFAULT_FRAMEWORK_PREFIXES, List.of(projectRoot), null, 20_000);
+        uncached = new FrameClassifier(FrameClassifier.DEFAULT_FRAMEWORK_PREFIXES, List.of(projectRoot), null, 0);
+        projectRootForLegacy = projectRoot;
+    }
+
+    private String projectRootForLegacy;
+
+    @Benchmark
+    public void legacyHelpers(Blackhole bh) {
+        for (int i = 0; i < frames.length; i++) {
+            String module = frames[i][0];
+            String function = frames[i][1];
+            bh.consume(isAndroidFrameworkModule(module));
+            bh.consume(isSyntheticFrame(module) || isSyntheticFrame(function));
+            bh.consume(isObfuscatedFrame(function, linenos[i]));
+            bh.consume(module.startsWith(projectRootForLegacy));
+        }
+    }
+
+    @Benchmark
+    public void classifierMemoized(Blackhole bh) {
+        for (int i = 0; i < frames.length; i++) {
+            bh.consume(memoized.classify(frames[i][0], frames[i][1], linenos[i]));
+        }
+    }
+
+    @Benchmark
+    public void classifierUncached(Blackhole bh) {
+        for (int i = 0; i < frames.length; i++) {
+            bh.consume(uncached.classify(frames[i][0], frames[i][1], linenos[i]));
+        }
+    }
+
+// LEGACY HELPERS //
+// Copied from StackTraceGenerator before FrameClassifier
+
+    private static final Set<String> ANDROID_FRAMEWORK_PREFIXES = Set.of(
+            "androidx.", "android.", "java.", "kotlin.", "kotlinx.", "dalvik.", "com.android.", "sun.",
+            "org.jetbrains.kotlin");
+
+    static boolean isAndroidFrameworkModule(String module) {
+        if (module == null) return false;
+        for (String p : ANDROID_FRAMEWORK_PREFIXES) {
+            if (module.startsWith(p)) return true;
+        }
+        return false;
+    }
+
+    static boolean isSyntheticFrame(String functionOrModule) {
+        if (functionOrModule == null) return false;
+        return functionOrModule.contains("$$ExternalSyntheticLambda")
+                || functionOrModule.contains("$r8$lambda$")
+                || functionOrModule.contains("$$Lambda$")
+                || functionOrModule.contains("$$SyntheticClass")
+                || functionOrModule.contains("D8$$SyntheticClass")
+                || functionOrModule.contains("$$ExternalSynthetic");
+    }
+
+    static boolean isObfuscatedFrame(String function, int lineno) {
+        if (lineno == 0) return true;
+        return function.matches(".*\\$[a-zA-Z0-9_]{10,}.*") || function.matches("^[a-zA-Z]$");
+    }
+
+// TRACES //
+// Outermost frame first, as Sentry sends them
+
+    static final String[][] ANDROID_TRACE = {
+            {"com.android.internal.os.ZygoteInit", "main", "947"},
+            {"com.android.internal.os.RuntimeInit$MethodAndArgsCaller", "run", "548"},
+            {"java.lang.reflect.Method", "invoke", "-1"},
+            {"android.app.ActivityThread", "main", "8177"},
+            {"android.os.Looper", "loop", "288"},
+            {"android.os.Looper", "loopOnce", "201"},
+            {"android.os.Handler", "dispatchMessage", "99"},
+            {"android.os.Handler", "handleCallback", "942"},
+            {"android.view.View$PerformClick", "run", "29503"},
+            {"android.view.View", "performClickInternal", "7441"},
+            {"android.view.View", "performClick", "7441"},
+            {"com.example.demologinapp.ui.login.LoginActivity$$ExternalSyntheticLambda2", "onClick", "0"},
+            {"com.example.demologinapp.ui.login.LoginActivity", "onCreate$lambda$3", "0"},
+            {"com.example.demologinapp.ui.login.LoginActivity", "onCreate$lambda$3$a1b2c3d4e5f6", "112"},
+            {"com.example.demologinapp.ui.login.LoginViewModel", "login", "41"},
+            {"com.example.demologinapp.data.LoginRepository", "login", "37"},
+            {"com.example.demologinapp.data.LoginDataSource", "login", "22"},
+            {"kotlinx.coroutines.BuildersKt", "runBlocking", "1"},
+            {"kotlinx.coroutines.BuildersKt__BuildersKt", "runBlocking$default", "48"},
+            {"kotlin.coroutines.jvm.internal.BaseContinuationImpl", "resumeWith", "33"},
+            {"com.example.demologinapp.data.LoginDataSource$login$1", "invokeSuspend", "29"},
+            {"androidx.lifecycle.ViewModelKt$viewModelScope$1", "a", "-1"},
+            {"com.example.demologinapp.data.model.LoggedInUser", "<init>", "9"},
+            {"java.util.Objects", "requireNonNull", "233"},
+    };
+
+    static final String[][] SPRING_TRACE = {
+            {"java.lang.Thread", "run", "840"},
+            {"org.apache.tomcat.util.threads.TaskThread$WrappingRunnable", "run", "61"},
+            {"org.apache.tomcat.util.threads.ThreadPoolExecutor$Worker", "run", "659"},
+            {"org.apache.tomcat.util.threads.ThreadPoolExecutor", "runWorker", "1190"},
+            {"org.apache.tomcat.util.net.SocketProcessorBase", "run", "52"},
+            {"org.apache.tomcat.util.net.NioEndpoint$SocketProcessor", "doRun", "1744"},
+            {"org.apache.coyote.AbstractProtocol$ConnectionHandler", "process", "896"},
+            {"org.apache.coyote.AbstractProcessorLight", "process", "63"},
+            {"org.apache.coyote.http11.Http11Processor", "service", "391"},
+            {"org.apache.catalina.connector.CoyoteAdapter", "service", "344"},
+            {"org.apache.catalina.core.StandardEngineValve", "invoke", "74"},
+            {"org.apache.catalina.valves.ErrorReportValve", "invoke", "93"},
+            {"org.apache.catalina.core.StandardHostValve", "invoke", "115"},
+            {"org.apache.catalina.authenticator.AuthenticatorBase", "invoke", "482"},
+            {"org.apache.catalina.core.StandardContextValve", "invoke", "90"},
+            {"org.apache.catalina.core.StandardWrapperValve", "invoke", "167"},
+            {"org.apache.catalina.core.ApplicationFilterChain", "doFilter", "162"},
+            {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter", "206"},
+            {"org.springframework.web.filter.OncePerRequestFilter", "doFilter", "116"},
+            {"org.springframework.web.filter.CharacterEncodingFilter", "doFilterInternal", "201"},
+            {"org.apache.catalina.core.ApplicationFilterChain", "doFilter", "162"},
+            {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter", "206"},
+            {"org.springframework.web.filter.OncePerRequestFilter", "doFilter", "116"},
+            {"org.springframework.web.filter.RequestContextFilter", "doFilterInternal", "100"},
+            {"org.apache.catalina.core.ApplicationFilterChain", "doFilter", "162"},
+            {"org.apache.catalina.core.ApplicationFilterChain", "internalDoFilter", "206"},
+            {"org.apache.tomcat.websocket.server.WsFilter", "doFilter", "51"},
+            {"jakarta.servlet.http.HttpServlet", "service", "658"},
+            {"org.springframework.web.servlet.FrameworkServlet", "service", "885"},
+            {"jakarta.servlet.http.HttpServlet", "service", "564"},
+            {"org.springframework.web.servlet.FrameworkServlet", "doGet", "903"},
+            {"org.springframework.web.servlet.FrameworkServlet", "processRequest", "1011"},
+            {"org.springframework.web.servlet.DispatcherServlet", "doService", "979"},
+            {"org.springframework.web.servlet.DispatcherServlet", "doDispatch", "1072"},
+            {"org.springframework.web.servlet.mvc.method.AbstractHandlerMethodAdapter", "handle", "87"},
+            {"org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter", "handleInternal", "791"},
+            {"org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter", "invokeHandlerMethod", "884"},
+            {"org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod", "invokeAndHandle", "118"},
+            {"org.springframework.web.method.support.InvocableHandlerMethod", "invokeForRequest", "150"},
+            {"org.springframework.web.method.support.InvocableHandlerMethod", "doInvoke", "254"},
+            {"java.lang.reflect.Method", "invoke", "568"},
+            {"jdk.internal.reflect.DelegatingMethodAccessorImpl", "invoke", "43"},
+            {"jdk.internal.reflect.NativeMethodAccessorImpl", "invoke", "77"},
+            {"jdk.internal.reflect.NativeMethodAccessorImpl", "invoke0", "-2"},
+            {"com.example.sentrytestbackend.controller.TestController$$SpringCGLIB$$0", "testError", "-1"},
+            {"com.example.sentrytestbackend.controller.TestController", "testError", "48"},
+            {"com.example.sentrytestbackend.service.ErrorService", "processOrder", "31"},
+            {"com.example.sentrytestbackend.service.ErrorService$$Lambda$1214/0x000000080150d1b8", "apply", "-1"},
+            {"java.util.Optional", "map", "260"},
+            {"com.example.sentrytestbackend.service.ErrorService", "validate", "57"},
+    };
+}
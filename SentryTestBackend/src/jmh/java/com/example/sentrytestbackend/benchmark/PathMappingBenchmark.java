@@ -0,0 +1,90 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.service.RepoConfig;
+import com.example.sentrytestbackend.util.BitbucketUrlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Module -> Bitbucket URL mapping, one call per invocation:
+ *   repoConfigBuildFileUrl   RepoConfig.buildFileUrl static path mapping (no BitbucketCodeFetcher)
+ *   parseUrl                 BitbucketUrlParser.parseUrl of a project's configured URL
+ *   parserBuildFileUrl       BitbucketUrlParser.buildFileUrl from parsed components
+ * modules is the number of distinct (module, file, line) inputs cycled through.
+ *
+ * Both classes log on every call; stdout is discarded in the fork, the formatting is not.
+ *
+ *   ./gradlew jmh -Pjmh.includes=PathMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PathMappingBenchmark {
+
+    @Param({"16", "256"})
+    public int modules;
+
+    private RepoConfig repo;
+    private BitbucketUrlParser.BitbucketUrlComponents components;
+    private String[] moduleNames;
+    private String[] fileNames;
+    private int[] lines;
+    private String[] urls;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        String url = "https://bitbucket.org/acme/sentry-test-backend/src/main/src/main/java/";
+        repo = new RepoConfig("backend", SentryPayloads.BACKEND_ROOT, null, null, "src/main/java/", url, null);
+        components = BitbucketUrlParser.parseUrl(url);
+
+        Random random = new Random(23);
+        String[] packages = {"controller", "service", "util", "config", "service.internal", "controller.admin"};
+        moduleNames = new String[modules];
+        fileNames = new String[modules];
+        lines = new int[modules];
+        urls = new String[modules];
+        for (int i = 0; i < modules; i++) {
+            String className = "Component" + i;
+            moduleNames[i] = SentryPayloads.BACKEND_ROOT + "." + packages[random.nextInt(packages.length)] + "." + className;
+            fileNames[i] = className + ".java";
+            lines[i] = 1 + random.nextInt(900);
+            urls[i] = "https://bitbucket.org/workspace" + (i % 8) + "/repo-" + i + "/src/" + (i % 2 == 0 ? "main" : "develop")
+                    + "/" + (i % 3 == 0 ? "" : "module" + i + "/src/main/java/");
+        }
+    }
+
+    @Benchmark
+    public String repoConfigBuildFileUrl() {
+        int i = nextIndex();
+        return repo.buildFileUrl(moduleNames[i], fileNames[i], lines[i]);
+    }
+
+    @Benchmark
+    public BitbucketUrlParser.BitbucketUrlComponents parseUrl() {
+        return BitbucketUrlParser.parseUrl(urls[nextIndex()]);
+    }
+
+    @Benchmark
+    public String parserBuildFileUrl() {
+        int i = nextIndex();
+        return BitbucketUrlParser.buildFileUrl(components, moduleNames[i], fileNames[i], lines[i]);
+    }
+
+    private int nextIndex() {
+        next = next + 1 == modules ? 0 : next + 1;
+        return next;
+    }
+}
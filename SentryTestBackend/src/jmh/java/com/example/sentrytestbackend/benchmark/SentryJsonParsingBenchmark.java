@@ -0,0 +1,117 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.SentryIssue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing Sentry responses the ways SentryDataFetcher does:
+ *   readTreeIssueList   whole issue list into a tree (how the issue-list cache read it)
+ *   readValueIssueList  whole issue list into SentryIssue records in one call
+ *   streamTreeIssueList one tree per element off a JsonParser (how iterateIssuesByProject used to read)
+ *   streamIssueList     one SentryIssue per element off a JsonParser (SentryPageIterator + iterateIssuesByProject)
+ *   streamIdsOnly       one field per element, skipping the rest (iterateEventIds)
+ *   readTreeEvent       a full event as a tree (how fetchLatestEvent used to read it)
+ *   readValueEvent      the same event into a SentryEvent (fetchLatestEvent)
+ *
+ * Run with -prof gc to compare allocation per operation as well.
+ *
+ * Sizes: small = 25 issues / 30 frames, medium = 100 / 100, large = 500 / 400 (with 10, 50
+ * and 100 breadcrumbs).
+ *
+ *   ./gradlew jmh -Pjmh.includes=SentryJsonParsingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SentryJsonParsingBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] issueList;
+    private byte[] event;
+
+    @Setup
+    public void setUp() {
+        int issues = "small".equals(size) ? 25 : "medium".equals(size) ? 100 : 500;
+        int frames = "small".equals(size) ? 30 : "medium".equals(size) ? 100 : 400;
+        int breadcrumbs = "small".equals(size) ? 10 : "medium".equals(size) ? 50 : 100;
+        issueList = SentryPayloads.issueList(issues, 11).getBytes();
+        event = SentryPayloads.event(frames, breadcrumbs, false, 13).getBytes();
+    }
+
+    @Benchmark
+    public JsonNode readTreeIssueList() throws IOException {
+        return objectMapper.readTree(issueList);
+    }
+
+    @Benchmark
+    public SentryIssue[] readValueIssueList() throws IOException {
+        return objectMapper.readValue(issueList, SentryIssue[].class);
+    }
+
+    @Benchmark
+    public void streamTreeIssueList(Blackhole bh) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(issueList)) {
+            parser.nextToken(); // START_ARRAY
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                bh.consume(objectMapper.readTree(parser));
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamIssueList(Blackhole bh) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(issueList)) {
+            parser.nextToken(); // START_ARRAY
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                bh.consume(objectMapper.readValue(parser, SentryIssue.class));
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamIdsOnly(Blackhole bh) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(issueList)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("id".equals(field)) {
+                        bh.consume(parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public JsonNode readTreeEvent() throws IOException {
+        return objectMapper.readTree(event);
+    }
+
+    @Benchmark
+    public SentryEvent readValueEvent() throws IOException {
+        return objectMapper.readValue(event, SentryEvent.class);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Generated Sentry API payloads shaped like the ones SentryDataFetcher receives: issue lists
+ * (GET /projects/{org}/{project}/issues/) and full events (GET /issues/{id}/events/latest/)
+ * with exception, breadcrumbs and request entries. Seeded, so every fork sees the same input.
+ */
+final class SentryPayloads {
+
+    static final String ANDROID_ROOT = "com.example.demologinapp";
+    static final String BACKEND_ROOT = "com.example.sentrytestbackend";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] ANDROID_FRAMEWORK = {
+            "android.os.Handler", "android.os.Looper", "android.app.ActivityThread", "androidx.lifecycle.LiveData",
+            "androidx.fragment.app.Fragment", "kotlinx.coroutines.DispatchedTask", "kotlin.coroutines.jvm.internal.BaseContinuationImpl",
+            "java.lang.reflect.Method", "com.android.internal.os.ZygoteInit", "dalvik.system.VMStack"};
+    private static final String[] ANDROID_APP = {
+            ".ui.login.LoginViewModel", ".ui.login.LoginActivity", ".data.LoginRepository", ".data.LoginDataSource",
+            ".ui.login.LoginFragment$onViewCreated$$inlined$observe$1", ".ui.login.LoginViewModel$$ExternalSyntheticLambda0"};
+    private static final String[] BACKEND_FRAMEWORK = {
+            "org.apache.catalina.core.StandardWrapperValve", "org.apache.catalina.core.ApplicationFilterChain",
+            "org.springframework.web.servlet.DispatcherServlet", "org.springframework.web.servlet.FrameworkServlet",
+            "org.springframework.web.method.support.InvocableHandlerMethod", "org.springframework.aop.framework.CglibAopProxy",
+            "jdk.internal.reflect.DirectMethodHandleAccessor", "java.lang.Thread", "org.apache.tomcat.util.threads.ThreadPoolExecutor"};
+    private static final String[] BACKEND_APP = {
+            ".controller.SentryDataGeminiController", ".service.SentryDataFetcher", ".service.StackTraceGenerator",
+            ".service.BitbucketCodeFetcher", ".service.AIAnalysisService", ".util.FrameClassifier"};
+    private static final String[] LEVELS = {"error", "error", "error", "warning", "fatal", "info"};
+
+    private SentryPayloads() {}
+
+    /** A page of issues as returned by the issue list endpoint. */
+    static String issueList(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayNode issues = MAPPER.createArrayNode();
+        Instant now = Instant.parse("2025-08-01T12:00:00Z");
+        for (int i = 0; i < count; i++) {
+            String id = String.valueOf(6_700_000_000L + random.nextInt(100_000_000));
+            String type = random.nextBoolean() ? "NullPointerException" : "IllegalStateException";
+            ObjectNode issue = issues.addObject();
+            issue.put("id", id);
+            issue.put("shortId", "BACKEND-" + Integer.toString(i + 100, 36).toUpperCase());
+            issue.put("title", type + ": " + words(random, 6 + random.nextInt(10)));
+            issue.put("culprit", BACKEND_ROOT + BACKEND_APP[random.nextInt(BACKEND_APP.length)] + " in handle");
+            issue.put("permalink", "https://sentry.example.com/organizations/acme/issues/" + id + "/");
+            issue.put("level", LEVELS[random.nextInt(LEVELS.length)]);
+            issue.put("status", "unresolved");
+            issue.put("platform", "java");
+            issue.put("count", String.valueOf(1 + random.nextInt(5000)));
+            issue.put("userCount", random.nextInt(300));
+            issue.put("firstSeen", now.minusSeconds(86_400L * (1 + random.nextInt(60))).toString());
+            issue.put("lastSeen", now.minusSeconds(random.nextInt(86_400)).toString());
+            ObjectNode project = issue.putObject("project");
+            project.put("id", "4");
+            project.put("name", "backend");
+            project.put("slug", "backend");
+            project.put("platform", "java");
+            ObjectNode metadata = issue.putObject("metadata");
+            metadata.put("type", type);
+            metadata.put("value", words(random, 8));
+            metadata.put("filename", "SentryDataFetcher.java");
+            ArrayNode stats = issue.putObject("stats").putArray("24h");
+            for (int h = 0; h < 24; h++) {
+                stats.addArray().add(now.getEpochSecond() - 3600L * h).add(random.nextInt(40));
+            }
+        }
+        return issues.toString();
+    }
+
+    /** A full event whose exception has the given number of frames (oldest first, as Sentry sends them). */
+    static String event(int frames, int breadcrumbs, boolean android, long seed) {
+        Random random = new Random(seed);
+        ObjectNode event = MAPPER.createObjectNode();
+        event.put("id", Long.toHexString(random.nextLong()));
+        event.put("eventID", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+        event.put("groupID", String.valueOf(6_700_000_000L + random.nextInt(100_000_000)));
+        event.put("title", "IllegalStateException: " + words(random, 8));
+        event.put("message", "");
+        event.put("platform", android ? "android" : "java");
+        event.put("dateCreated", "2025-08-01T11:59:12Z");
+        event.put("release", "5e1f0c2");
+
+        ArrayNode entries = event.putArray("entries");
+        ObjectNode exception = entries.addObject();
+        exception.put("type", "exception");
+        ObjectNode value = exception.putObject("data").putArray("values").addObject();
+        value.put("type", "IllegalStateException");
+        value.put("module", "java.lang");
+        value.put("value", words(random, 8));
+        value.set("stacktrace", MAPPER.createObjectNode().set("frames", frames(frames, android, random)));
+        value.putObject("mechanism").put("type", "UncaughtExceptionHandler").put("handled", false);
+
+        ObjectNode crumbsEntry = entries.addObject();
+        crumbsEntry.put("type", "breadcrumbs");
+        ArrayNode crumbs = crumbsEntry.putObject("data").putArray("values");
+        for (int i = 0; i < breadcrumbs; i++) {
+            ObjectNode crumb = crumbs.addObject();
+            crumb.put("timestamp", "2025-08-01T11:5" + (i % 10) + ":0" + (i % 10) + ".123Z");
+            crumb.put("level", "info");
+            crumb.put("category", i % 3 == 0 ? "http" : "ui.click");
+            crumb.put("type", i % 3 == 0 ? "http" : "default");
+            crumb.put("message", words(random, 5));
+            if (i % 3 == 0) {
+                ObjectNode data = crumb.putObject("data");
+                data.put("method", "GET");
+                data.put("url", "https://api.example.com/v1/users/" + random.nextInt(10_000));
+                data.put("status_code", 200);
+            }
+        }
+
+        ObjectNode request = entries.addObject();
+        request.put("type", "request");
+        ObjectNode data = request.putObject("data");
+        data.put("method", "GET");
+        data.put("url", "http://localhost:8081/api/gemini-suggest/project/backend/errorId/6779537685");
+        data.putArray("query").addArray().add("useBitbucket").add("true");
+        ArrayNode headers = data.putArray("headers");
+        headers.addArray().add("Accept").add("application/json");
+        headers.addArray().add("User-Agent").add("Mozilla/5.0 (Macintosh; Intel Mac OS X 14_5)");
+        headers.addArray().add("Content-Type").add("application/json");
+        headers.addArray().add("X-Request-Id").add(Long.toHexString(random.nextLong()));
+
+        ArrayNode tags = event.putArray("tags");
+        String[][] tagValues = {{"environment", "production"}, {"release", "5e1f0c2"}, {"transaction", "/api/gemini-suggest"},
+                {"url", "http://localhost:8081/api/gemini-suggest"}, {"level", "error"}, {"os", "Linux"}, {"runtime", "OpenJDK 17"}};
+        for (String[] tag : tagValues) {
+            tags.addObject().put("key", tag[0]).put("value", tag[1]);
+        }
+        ObjectNode user = event.putObject("user");
+        user.put("ip_address", "10.0." + random.nextInt(255) + "." + random.nextInt(255));
+        user.putObject("geo").put("country_code", "US").put("city", "Atlanta");
+        ObjectNode contexts = event.putObject("contexts");
+        contexts.putObject("runtime").put("name", "OpenJDK Runtime Environment").put("version", "17.0.9");
+        contexts.putObject("os").put("name", android ? "Android" : "Linux").put("version", android ? "14" : "6.1");
+        event.putObject("sdk").put("name", android ? "sentry.java.android" : "sentry.java.spring-boot.jakarta").put("version", "7.3.0");
+        return event.toString();
+    }
+
+    private static ArrayNode frames(int count, boolean android, Random random) {
+        String root = android ? ANDROID_ROOT : BACKEND_ROOT;
+        String[] framework = android ? ANDROID_FRAMEWORK : BACKEND_FRAMEWORK;
+        String[] app = android ? ANDROID_APP : BACKEND_APP;
+        ArrayNode frames = MAPPER.createArrayNode();
+        for (int i = 0; i < count; i++) {
+            // About a quarter app frames, clustered near the top of the trace like real crashes
+            boolean appFrame = random.nextInt(4) == 0 || i >= count - 3;
+            String module = appFrame ? root + app[random.nextInt(app.length)] : framework[random.nextInt(framework.length)];
+            String simpleName = module.substring(module.lastIndexOf('.') + 1).replaceAll("\\$.*", "");
+            ObjectNode frame = frames.addObject();
+            frame.put("module", module);
+            frame.put("function", appFrame ? "on" + words(random, 1) : "invoke");
+            frame.put("filename", simpleName + (android && appFrame ? ".kt" : ".java"));
+            int line = android && !appFrame && random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(900);
+            frame.put("lineno", line);
+            frame.put("inApp", appFrame);
+            // The parts of a real frame the backend never reads: source context, locals, symbolication data
+            frame.put("absPath", simpleName + ".java");
+            frame.putNull("colNo");
+            frame.putNull("instructionAddr");
+            frame.put("rawFunction", module + "." + simpleName);
+            ArrayNode context = frame.putArray("context");
+            for (int c = Math.max(1, line - 2); c <= line + 2; c++) {
+                context.addArray().add(c).add("        " + words(random, 6) + ";");
+            }
+            if (appFrame) {
+                ObjectNode vars = frame.putObject("vars");
+                vars.put("this", module + "@" + Integer.toHexString(random.nextInt()));
+                vars.put("request", words(random, 4));
+            }
+            frame.putObject("data").put("orig_in_app", appFrame ? 1 : -1);
+        }
+        return frames;
+    }
+
+    private static String words(Random random, int count) {
+        String[] vocabulary = {"request", "user", "token", "session", "cache", "issue", "frame", "commit", "branch", "null",
+                "timeout", "response", "payload", "parser", "login", "repository", "snippet", "release", "project", "event"};
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            out.append(i == 0 ? "" : " ").append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return out.toString();
+    }
+}
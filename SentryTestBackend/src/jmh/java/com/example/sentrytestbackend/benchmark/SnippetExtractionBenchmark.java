@@ -0,0 +1,109 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.util.SourceFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snippet extraction from a cached source file: split("\n") on every request (old path in
+ * mapToBitbucketCode / mapToGithubCode) vs slicing with SourceFile's line-offset index.
+ *
+ * Each invocation extracts a snippet of 2 * context + 1 lines around a random line of a
+ * generated Java-like file. buildIndex measures the one-time cost paid when a file is cached.
+ *
+ *   ./gradlew jmh -Pjmh.includes=SnippetExtractionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnippetExtractionBenchmark {
+
+    @Param({"2000", "20000"})
+    public int fileLines;
+
+    @Param({"3", "10"})
+    public int context;
+
+    private String content;
+    private SourceFile indexed;
+    private int[] targetLines;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        content = generateSource(fileLines, 42);
+        indexed = new SourceFile(content);
+        Random random = new Random(7);
+        targetLines = new int[1024];
+        for (int i = 0; i < targetLines.length; i++) {
+            targetLines[i] = 1 + random.nextInt(fileLines);
+        }
+    }
+
+    @Benchmark
+    public String splitPerRequest() {
+        int lineNumber = nextTarget();
+        String[] lines = content.split("\n");
+        int targetIdx = lineNumber - 1;
+        int startIdx = Math.max(0, targetIdx - context);
+        int endExclusive = Math.min(lines.length, targetIdx + context + 1);
+
+        StringBuilder snippet = new StringBuilder();
+        for (int i = startIdx; i < endExclusive; i++) {
+            snippet.append((i + 1)).append(": ").append(lines[i]).append("\n");
+        }
+        return snippet.toString();
+    }
+
+    @Benchmark
+    public String lineIndexSlice() {
+        int targetIdx = nextTarget() - 1;
+        return indexed.numberedLines(targetIdx - context, targetIdx + context + 1);
+    }
+
+    @Benchmark
+    public SourceFile buildIndex() {
+        return new SourceFile(content);
+    }
+
+    private int nextTarget() {
+        next = (next + 1) & (targetLines.length - 1);
+        return targetLines[next];
+    }
+
+    // Deterministic Java-looking source: indentation, varied line lengths, some blank lines
+    static String generateSource(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(lines * 48);
+        sb.append("package com.example.generated;\n");
+        for (int i = 1; i < lines; i++) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                sb.append('\n');
+                continue;
+            }
+            int indent = 4 * (1 + random.nextInt(3));
+            for (int s = 0; s < indent; s++) {
+                sb.append(' ');
+            }
+            if (kind < 4) {
+                sb.append("// comment line ").append(i).append(" describing the next statement");
+            } else if (kind < 8) {
+                sb.append("String value").append(i).append(" = service.lookup(\"key-").append(random.nextInt(1000)).append("\");");
+            } else {
+                sb.append("if (value").append(i - 1).append(" != null) { counter += ").append(random.nextInt(100)).append("; }");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.sentrytestbackend.benchmark;
+
+import com.example.sentrytestbackend.service.RepoConfig;
+import com.example.sentrytestbackend.service.StackTraceGenerator;
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.StackTrace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StackTraceGenerator.buildAndroidStyleTrace / buildBackendStyleTrace on generated events:
+ * frame classification plus a static Bitbucket location per app frame (RepoConfig without a
+ * BitbucketCodeFetcher, so no search calls).
+ *
+ * RepoConfig logs every location it builds; stdout is discarded in the fork, but the string
+ * formatting is still paid, as in production.
+ *
+ *   ./gradlew jmh -Pjmh.includes=StackTraceBuildBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StackTraceBuildBenchmark {
+
+    @Param({"android", "backend"})
+    public String style;
+
+    @Param({"30", "120", "400"})
+    public int frames;
+
+    private final StackTraceGenerator generator = new StackTraceGenerator();
+    private SentryEvent.ExceptionValue exception;
+    private RepoConfig repo;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        boolean android = "android".equals(style);
+        SentryEvent event = new ObjectMapper().readValue(SentryPayloads.event(frames, 0, android, 17), SentryEvent.class);
+        exception = generator.getException(event);
+        repo = android
+                ? new RepoConfig("android", SentryPayloads.ANDROID_ROOT, null, null, "app/src/main/java/",
+                        "https://bitbucket.org/acme/demo-login-app/src/main/app/src/main/java/", null)
+                : new RepoConfig("backend", SentryPayloads.BACKEND_ROOT, null, null, "src/main/java/",
+                        "https://bitbucket.org/acme/sentry-test-backend/src/main/src/main/java/", null);
+    }
+
+    @Benchmark
+    public StackTrace build() {
+        return "android".equals(style)
+                ? generator.buildAndroidStyleTrace(exception, null, repo, "5e1f0c2")
+                : generator.buildBackendStyleTrace(exception, null, repo, "5e1f0c2");
+    }
+}
@@ -1,14 +1,90 @@
 package com.example.sentrytestbackend.config;
 
+import com.example.sentrytestbackend.service.GeminiRateLimitInterceptor;
+import com.example.sentrytestbackend.service.RequestCoalescingInterceptor;
+import com.example.sentrytestbackend.service.UpstreamMetricsInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Shared outbound HTTP layer for every upstream (Sentry, Bitbucket, GitHub, Gemini).
+ *
+ * All services inject the single RestTemplate below instead of creating their own, so
+ * connections are pooled per host and kept alive between requests. The JDK HttpClient
+ * negotiates HTTP/2 via ALPN where the upstream supports it and falls back to HTTP/1.1.
+ * Identical concurrent requests are collapsed into one by RequestCoalescingInterceptor;
+ * the calls that then reach the network take a Gemini token where needed
+ * (GeminiRateLimitInterceptor) and are timed by UpstreamMetricsInterceptor.
+ *
+ * Tunable via application.properties:
+ *   http.client.connect-timeout-ms=5000
+ *   http.client.read-timeout-ms=60000     (Gemini generateContent can take tens of seconds)
+ *   http.client.pool.size=50              (idle keep-alive connections kept per host)
+ *   http.client.keep-alive-seconds=300
+ *
+ * The pool settings map to the JVM-wide jdk.httpclient.connectionPoolSize and
+ * jdk.httpclient.keepalive.timeout, which the JDK reads once, when the first HttpClient is
+ * created. They are set just before this bean builds the application's only client, so they
+ * apply however the app is launched (bootRun, java -jar); a -D option of the same name wins.
+ */
 @Configuration
 public class AppConfig {
-    
+
+    @Value("${http.client.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    @Value("${http.client.pool.size:50}")
+    private int poolSize;
+
+    @Value("${http.client.keep-alive-seconds:300}")
+    private int keepAliveSeconds;
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient outboundHttpClient() {
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(poolSize));
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+
+        System.out.println("[HttpClient] Outbound client: HTTP/2 preferred, connectTimeout=" + connectTimeoutMs
+                + "ms, readTimeout=" + readTimeoutMs + "ms, poolSize="
+                + System.getProperty("jdk.httpclient.connectionPoolSize") + ", keepAliveSeconds="
+                + System.getProperty("jdk.httpclient.keepalive.timeout"));
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, HttpClient outboundHttpClient,
+                                     RequestCoalescingInterceptor requestCoalescingInterceptor,
+                                     GeminiRateLimitInterceptor geminiRateLimitInterceptor,
+                                     UpstreamMetricsInterceptor upstreamMetricsInterceptor) {
+        // Built through RestTemplateBuilder so Sentry's tracing customizer is still applied
+        return builder
+                .additionalInterceptors(requestCoalescingInterceptor, geminiRateLimitInterceptor, upstreamMetricsInterceptor) // coalesce, rate-limit, then time
+                .requestFactory(() -> {
+                    JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(outboundHttpClient);
+                    factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+                    return factory;
+                })
+                .build();
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
     }
 }
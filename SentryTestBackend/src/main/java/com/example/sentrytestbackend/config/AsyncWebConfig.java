@@ -0,0 +1,32 @@
+package com.example.sentrytestbackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Servlet async settings for handlers that return CompletableFuture.
+ *
+ * The container timeout is only a backstop: EndpointRunner completes every response at its
+ * per-endpoint timeout (with a partial result), so this must stay above the largest of those.
+ *
+ *   endpoint.async.request-timeout-seconds=300
+ */
+@Configuration
+public class AsyncWebConfig {
+
+    @Value("${endpoint.async.request-timeout-seconds:300}")
+    private long requestTimeoutSeconds;
+
+    @Bean
+    public WebMvcConfigurer asyncSupportConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setDefaultTimeout(requestTimeoutSeconds * 1000L);
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.sentrytestbackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker pools for fan-out work that is mostly blocked on upstream I/O.
+ *
+ * The project targets Java 17, so these are bounded platform-thread pools rather than
+ * virtual threads. Per-upstream concurrency is still enforced by UpstreamLimiter and the
+ * per-workspace cap in BitbucketCodeFetcher; pool sizes only cap how much is in flight.
+ *
+ *   review.batch.parallelism=8         (errors of one batch reviewed at once)
+ *   review.batch.queue=100             (reviews waiting for a thread before batches get a 503)
+ *   bitbucket.fetch.parallelism=16     (stack-trace snippet downloads, all traces combined)
+ *   bitbucket.fetch.queue=200          (downloads waiting for a thread before a review fails with 503)
+ *
+ * Every pool has a bounded queue and AbortPolicy, so overload surfaces as a
+ * RejectedExecutionException (answered with 503) instead of an ever-growing backlog.
+ *   endpoint.executor.threads=32       (async controller handlers, see EndpointRunner)
+ *   endpoint.executor.queue=200        (handlers waiting for a thread before requests get a 503)
+ *   webhook.prewarm.threads=2          (webhook-triggered cache warm-ups run at once)
+ *   webhook.prewarm.queue=100          (warm-ups waiting before webhooks get a 503)
+ */
+@Configuration
+public class ConcurrencyConfig {
+
+    @Value("${review.batch.parallelism:8}")
+    private int batchParallelism;
+
+    @Value("${review.batch.queue:100}")
+    private int batchQueue;
+
+    @Value("${bitbucket.fetch.parallelism:16}")
+    private int snippetFetchParallelism;
+
+    @Value("${bitbucket.fetch.queue:200}")
+    private int snippetFetchQueue;
+
+    @Value("${endpoint.executor.threads:32}")
+    private int endpointThreads;
+
+    @Value("${endpoint.executor.queue:200}")
+    private int endpointQueue;
+
+    @Value("${webhook.prewarm.threads:2}")
+    private int prewarmThreads;
+
+    @Value("${webhook.prewarm.queue:100}")
+    private int prewarmQueue;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchReviewExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(batchParallelism, batchParallelism,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchQueue),
+                namedDaemonThreads("batch-review-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService snippetFetchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(snippetFetchParallelism, snippetFetchParallelism,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(snippetFetchQueue),
+                namedDaemonThreads("snippet-fetch-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Bounded queue with AbortPolicy: when it is full EndpointRunner answers 503 instead of
+    // letting requests pile up behind the upstream calls
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService endpointExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(endpointThreads, endpointThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(endpointQueue),
+                namedDaemonThreads("endpoint-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Background work only, so it stays small and sheds load (AbortPolicy) instead of
+    // competing with request handlers for the upstream limits
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService prewarmExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(prewarmThreads, prewarmThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(prewarmQueue),
+                namedDaemonThreads("prewarm-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
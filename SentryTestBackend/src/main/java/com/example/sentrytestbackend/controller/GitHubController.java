@@ -7,6 +7,13 @@ import org.springframework.web.bind.annotation.*;
 import com.example.sentrytestbackend.service.AIAnalysisService;
 import java.util.List;
 import com.example.sentrytestbackend.service.StackTraceGenerator;
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.service.BatchStreamService;
+import com.example.sentrytestbackend.service.BatchStreamService.BatchStream;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @RestController
@@ -21,6 +28,12 @@ public class GitHubController {
 
    @Autowired
    private AIAnalysisService aiAnalysisService;
+
+   @Autowired
+   private BatchStreamService batchStreamService;
+
+   @Autowired
+   private ExecutorService endpointExecutor;
  
    // GET REQUEST TO GITHUB API TO TEST LINK TO GET CODE SNIPPET
    // http://localhost:8081/api/github/test
@@ -28,7 +41,7 @@ public class GitHubController {
    public String testGitHubFetcher() {
        String stackTrace = "[https://github.com/DoubtfulCoder/SentryTest/blob/backend/SentryTestBackend/src/main/java/com/example/sentrytestbackend/controller/TestController.java#L100] at jdk.internal.reflect.DirectMethodHandleAccessor.invoke(DirectMethodHandleAccessor.java:104)";
        try {
-           String result = gitHubCodeFetcher.getGithubCode(stackTrace);
+           String result = CodeSnippet.render(gitHubCodeFetcher.getGithubCodeFromText(stackTrace));
            return "<html><body><h2>GitHubCodeFetcher Test Result</h2><pre>" + result + "</pre></body></html>";
        } catch (Exception e) {
            return "<html><body><h2>Error</h2><pre>" + e.getMessage() + "</pre></body></html>";
@@ -51,10 +64,29 @@ public class GitHubController {
     return ResponseEntity.ok(gemini_response);
    }
 
+    // SSE VARIANT: ONE "result" EVENT PER ANALYSIS AS SOON AS GEMINI ANSWERS
+    // http://localhost:8081/api/github/gemini-review-multiple/stream?maxErrors=4
+   @GetMapping(value = "/gemini-review-multiple/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+   public SseEmitter geminiCodeReviewAllStream(@RequestParam(defaultValue = "4") int maxErrors) {
+    BatchStream stream = batchStreamService.open("gemini-review-multiple", -1);
+    try {
+        endpointExecutor.execute(() -> {
+            aiAnalysisService.forEachGithubCodeAnalysis(stackTraceGenerator, maxErrors, analysis -> {
+                stream.result(analysis);
+                return stream.isOpen();
+            });
+            stream.complete();
+        });
+    } catch (RejectedExecutionException e) {
+        stream.completeWithError("Server busy, try again shortly");
+    }
+    return stream.emitter();
+   }
+
    @PostMapping("/fetch-code")
    public String fetchCode(@RequestBody String stackTrace) {
        try {
-           return gitHubCodeFetcher.getGithubCode(stackTrace);
+           return CodeSnippet.render(gitHubCodeFetcher.getGithubCodeFromText(stackTrace));
        } catch (Exception e) {
            return "Error: " + e.getMessage();
        }
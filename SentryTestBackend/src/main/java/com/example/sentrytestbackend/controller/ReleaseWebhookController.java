@@ -0,0 +1,90 @@
+package com.example.sentrytestbackend.controller;
+
+import com.example.sentrytestbackend.service.ReleaseTracker;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives Bitbucket push webhooks and hands new branch HEADs to the ReleaseTracker, so a
+ * deploy is picked up right away instead of at the next poll.
+ *
+ * Endpoint: POST http://localhost:8081/api/release-webhook
+ * Headers:  X-Event-Key: repo:push, X-Hub-Signature: sha256=<HMAC of the body with release.webhook.secret>
+ * Body:     repository.full_name plus push.changes[].new {type: branch, name, target.hash}
+ *
+ * Refused with 503 while release.webhook.secret is unset (the tracker then polls).
+ */
+@RestController
+@RequestMapping("/api/release-webhook")
+public class ReleaseWebhookController {
+
+    @Autowired
+    private ReleaseTracker releaseTracker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> receive(
+            @RequestBody byte[] body,
+            @RequestHeader(value = "X-Event-Key", required = false) String eventKey,
+            @RequestHeader(value = "X-Hub-Signature", required = false) String signature) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (!releaseTracker.isWebhookEnabled()) {
+            response.put("status", "disabled");
+            return ResponseEntity.status(503).body(response);
+        }
+        if (!releaseTracker.verifySignature(body, signature)) {
+            System.err.println("[ReleaseWebhook] Rejected " + eventKey + " webhook with invalid signature");
+            response.put("status", "invalid-signature");
+            return ResponseEntity.status(401).body(response);
+        }
+        if (!"repo:push".equals(eventKey)) {
+            response.put("status", "ignored");
+            return ResponseEntity.ok(response);
+        }
+
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(body);
+        } catch (IOException e) {
+            response.put("status", "malformed");
+            return ResponseEntity.badRequest().body(response);
+        }
+        String[] fullName = payload.path("repository").path("full_name").asText("").split("/", 2);
+        if (fullName.length < 2) {
+            response.put("status", "malformed");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<String> updated = new ArrayList<>();
+        for (JsonNode change : payload.path("push").path("changes")) {
+            JsonNode newRef = change.path("new"); // null when a branch was deleted
+            if (!"branch".equals(newRef.path("type").asText())) {
+                continue;
+            }
+            String branch = newRef.path("name").asText();
+            String commit = newRef.path("target").path("hash").asText("");
+            if (!commit.isEmpty() && releaseTracker.onPush(fullName[0], fullName[1], branch, commit)) {
+                updated.add(branch);
+            }
+        }
+        response.put("status", updated.isEmpty() ? "untracked" : "updated");
+        response.put("branches", updated);
+        response.put("currentRelease", releaseTracker.currentRelease());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.sentrytestbackend.controller;
 
 import com.example.sentrytestbackend.service.SentryDataFetcher;
+import com.example.sentrytestbackend.service.SentryPageIterator;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,6 +16,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import java.util.HashMap;
 import com.example.sentrytestbackend.service.StackTraceGenerator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -23,6 +25,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.sentrytestbackend.service.SentryReleaseService;
 import com.example.sentrytestbackend.service.RepoResolver;
 import com.example.sentrytestbackend.service.RepoConfig;
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.SentryIssue;
+import com.example.sentrytestbackend.util.StackTrace;
+import com.example.sentrytestbackend.service.EndpointRunner;
+import com.example.sentrytestbackend.service.IssueSyncService;
+import com.example.sentrytestbackend.service.UpstreamLimiter;
+import com.example.sentrytestbackend.util.IssueStore;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @RestController
@@ -50,6 +65,21 @@ public class SentryDataController {
     @Autowired
     private RepoResolver repoResolver;
 
+    // Upstream-bound handlers run on its pool with per-endpoint timeouts (endpoint.timeout.*)
+    @Autowired
+    private EndpointRunner endpointRunner;
+
+    // Bounds the per-id issue lookups of /errors; each lookup also takes a Sentry permit
+    @Autowired
+    private ExecutorService batchReviewExecutor;
+
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
+
+    // Local copy of the synced projects' issues; list endpoints read it when fresh (issue.sync.*)
+    @Autowired
+    private IssueSyncService issueSyncService;
+
     @Value("${stacktrace.project.root}")
     private String stacktraceProjectRoot;
     @Value("${sentry.organization.id}")
@@ -58,26 +88,31 @@ public class SentryDataController {
     // GET REQUEST TO GET ALL PROJECT NAMES
     // http://localhost:8081/api/sentry-errors/projects
     @GetMapping("/projects")
-    public ResponseEntity<List<Map<String, String>>> fetchAllErrorsNames() {
-        List<Map<String, String>> projects = sentryDataFetcher.fetchAllSentryProjects();
-        return ResponseEntity.ok(projects);
+    public CompletableFuture<ResponseEntity<List<Map<String, String>>>> fetchAllErrorsNames() {
+        return endpointRunner.respond("projects", 15,
+            () -> ResponseEntity.ok(sentryDataFetcher.fetchAllSentryProjects()),
+            () -> ResponseEntity.status(504).build());
     }
 
     // GET REQUEST TO FETCH BITBUCKET CODE SNIPPET
     // Format: http://localhost:8081/api/sentry-errors/bitbucket-code?url={bitbucketUrl}&context={context}&timestamp={errorTimestamp}
     @GetMapping("/bitbucket-code")
-    public ResponseEntity<Map<String, Object>> fetchBitbucketCode(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> fetchBitbucketCode(
             @RequestParam("url") String bitbucketUrl,
             @RequestParam(value = "context", defaultValue = "10") int context,
             @RequestParam("timestamp") String errorTimestamp) {
-        try {
-            String codeSnippet = bitbucketCodeFetcher.mapToBitbucketCode(bitbucketUrl, context, errorTimestamp);
-            return ResponseEntity.ok(Map.of("code", codeSnippet));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                "error", "Failed to fetch Bitbucket code: " + e.getMessage()
-            ));
-        }
+        return endpointRunner.respond("bitbucket-code", 20, () -> {
+            try {
+                String codeSnippet = bitbucketCodeFetcher.mapToBitbucketCode(bitbucketUrl, context, errorTimestamp);
+                return ResponseEntity.ok(Map.of("code", codeSnippet));
+            } catch (Exception e) {
+                return ResponseEntity.status(500).body(Map.of(
+                    "error", "Failed to fetch Bitbucket code: " + e.getMessage()
+                ));
+            }
+        }, () -> ResponseEntity.status(504).body(Map.of(
+            "error", "Timed out fetching Bitbucket code"
+        )));
     }
 
     // GET REQUEST TO TEST PROJECT CONFIGURATIONS
@@ -147,26 +182,51 @@ public class SentryDataController {
     }
 
     // GET REQUEST TO GET ALL ERROR NAMES FROM PROJECT WITH OCCURRENCE COUNTS
-    // Format: http://localhost:8081/api/sentry-errors?project={projectSlug}
+    // Format: http://localhost:8081/api/sentry-errors?project={projectSlug}&limit={maxIssues}
     // http://localhost:8081/api/sentry-errors?project=sentry-demo-app
+    // Streams issues page by page; stops after `limit` issues (defaults to 1000)
+    // On timeout returns the issues read so far, with X-Partial-Result: true
+    // Answered from the local issue store when the project is synced and the store holds `limit` issues
     @GetMapping
-    public ResponseEntity<List<Map<String, Object>>> fetchAllErrorTitlesByProject(@RequestParam("project") String projectName) {
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> fetchAllErrorTitlesByProject(
+            @RequestParam("project") String projectName,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        IssueStore store = issueSyncService.storeFor(projectName);
+        if (store != null && (!store.isTruncated() || store.size() >= limit)) {
+            List<Map<String, Object>> stored = new ArrayList<>();
+            for (IssueStore.Issue issue : store.latest(limit)) {
+                Map<String, Object> errorInfo = new HashMap<>();
+                errorInfo.put("id", issue.id());
+                errorInfo.put("title", issue.title());
+                errorInfo.put("count", issue.count());
+                errorInfo.put("lastSeen", issue.lastSeen());
+                errorInfo.put("userCount", issue.userCount());
+                stored.add(errorInfo);
+            }
+            return CompletableFuture.completedFuture(ResponseEntity.ok(stored));
+        }
+        List<Map<String, Object>> errorList = Collections.synchronizedList(new ArrayList<>());
+        return endpointRunner.respond("issues", 20,
+            () -> listErrorTitles(projectName, limit, errorList),
+            () -> EndpointRunner.partial(copyOf(errorList)));
+    }
+
+    private ResponseEntity<List<Map<String, Object>>> listErrorTitles(String projectName, int limit,
+                                                                      List<Map<String, Object>> errorList) {
         try {
-            String issuesJson = sentryDataFetcher.curlForSentryErrorDataByProject(organizationId, projectName);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode issues = mapper.readTree(issuesJson);
-            
-            List<Map<String, Object>> errorList = new ArrayList<>();
-            for (JsonNode issue : issues) {
+            SentryPageIterator<SentryIssue> issues = sentryDataFetcher.iterateIssuesByProject(organizationId, projectName);
+
+            while (errorList.size() < limit && issues.hasNext()) {
+                SentryIssue issue = issues.next();
                 Map<String, Object> errorInfo = new HashMap<>();
-                errorInfo.put("id", issue.path("id").asText());
-                errorInfo.put("title", issue.path("title").asText());
-                errorInfo.put("count", issue.path("count").asInt());
-                errorInfo.put("lastSeen", issue.path("lastSeen").asText());
-                errorInfo.put("userCount", issue.path("userCount").asInt()); // Add userCount
+                errorInfo.put("id", issue.id());
+                errorInfo.put("title", issue.title());
+                errorInfo.put("count", issue.count());
+                errorInfo.put("lastSeen", issue.lastSeen());
+                errorInfo.put("userCount", issue.userCount()); // Add userCount
                 errorList.add(errorInfo);
             }
-            return ResponseEntity.ok(errorList);
+            return ResponseEntity.ok(copyOf(errorList));
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -175,30 +235,42 @@ public class SentryDataController {
     // GET REQUEST TO MAP GROUPED ERRROR ID TO ERROR NAME
     // Format: http://localhost:8081/api/sentry-errors/id-error-map/project/{project}
     // http://localhost:8081/api/sentry-errors/id-error-map/project/sentry-demo-app
+    // Answered from the local issue store (title index) when the project is synced and the store holds every issue
     @GetMapping("/id-error-map/project/{project}")
-    public ResponseEntity<Map<String, String>> mapIdsWithErrorName(
+    public CompletableFuture<ResponseEntity<Map<String, String>>> mapIdsWithErrorName(
         @PathVariable String project) {
-        // Fetch all issues for the project
-        String issuesJson = sentryDataFetcher.curlForSentryErrorDataByProject(organizationId, project);
+        IssueStore store = issueSyncService.storeFor(project);
+        // A truncated store lacks the oldest issues, and with them the titles seen only there
+        if (store != null && !store.isTruncated()) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(store.mostRecentIdByTitle()));
+        }
+        return endpointRunner.respond("id-error-map", 20,
+            () -> buildIdErrorMap(project),
+            () -> ResponseEntity.status(504).build());
+    }
+
+    private ResponseEntity<Map<String, String>> buildIdErrorMap(String project) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode issues = mapper.readTree(issuesJson);
+            // Streams every page of the project's issues
+            SentryPageIterator<SentryIssue> issues = sentryDataFetcher.iterateIssuesByProject(organizationId, project);
+
             // Map to keep only the most recent issue for each title
             Map<String, IssueWithDate> mostRecentByTitle = new HashMap<>();
 
-                    for (JsonNode issue : issues) {
-            String issueId = issue.path("id").asText();
-            String title = issue.path("title").asText();
-            String lastSeen = issue.path("lastSeen").asText("");
-            
-            // The issues endpoint already provides all the data we need!
-            // No need for additional API calls to get event data
-            
-            IssueWithDate prev = mostRecentByTitle.get(title);
-            if (prev == null || lastSeen.compareTo(prev.lastSeen) > 0) {
-                mostRecentByTitle.put(title, new IssueWithDate(issueId, lastSeen));
+            while (issues.hasNext()) {
+                SentryIssue issue = issues.next();
+                String issueId = issue.id();
+                String title = issue.title();
+                String lastSeen = issue.lastSeen();
+
+                // The issues endpoint already provides all the data we need!
+                // No need for additional API calls to get event data
+
+                IssueWithDate prev = mostRecentByTitle.get(title);
+                if (prev == null || lastSeen.compareTo(prev.lastSeen) > 0) {
+                    mostRecentByTitle.put(title, new IssueWithDate(issueId, lastSeen));
+                }
             }
-        }
 
             Map<String, String> dataMap = new HashMap<>();
             for (Map.Entry<String, IssueWithDate> entry : mostRecentByTitle.entrySet()) {
@@ -213,53 +285,60 @@ public class SentryDataController {
     // GET REQUEST TO GET ERROR MESSAGE + STACK TRACE BY PROJECT NAME & EVENT ID WITH OCCURRENCE COUNT
     // Format: http://localhost:8081/api/sentry-errors/project/{projectSlug}/errorId/{errorId}
     // http://localhost:8081/api/sentry-errors/project/sentry-demo-app/errorId/6810289382
+    // On timeout returns the fields gathered so far with "partial": true (504 if the issue itself was not fetched)
     @GetMapping("/project/{project}/errorId/{errorId}")
-    public ResponseEntity<Map<String, Object>> fetchErrorByProjectAndId(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> fetchErrorByProjectAndId(
         @PathVariable String project,
         @PathVariable String errorId) {
+        Map<String, Object> info = Collections.synchronizedMap(new LinkedHashMap<>());
+        return endpointRunner.respond("error-detail", 30,
+            () -> fetchErrorDetail(project, errorId, info),
+            () -> partialErrorInfo(info, endpointRunner.timeoutSeconds("error-detail", 30), "codeSnippet"));
+    }
+
+    // Fills info stage by stage so a timeout can return what is already known
+    private ResponseEntity<Map<String, Object>> fetchErrorDetail(String project, String errorId, Map<String, Object> info) {
         // (Global release is now set at startup, no need to set per-request)
         try {
             JsonNode errorData = sentryDataFetcher.fetchEventsByProject(
                 organizationId, project, errorId);
+            putIssueFields(info, errorData);
+
+            // Fetch the latest event (with stacktrace)
+            SentryEvent eventJson = sentryDataFetcher.fetchLatestEvent(errorData.path("id").asText());
 
-            // Fetch the full event JSON (with stacktrace)
-            JsonNode eventJson = sentryDataFetcher.curlForStacktraceByEventId(
-                errorData.path("id").asText(), // issueId
-                sentryDataFetcher.getEventIds(errorData.path("id").asText()).get(0) // first eventId
-            );
+            // Extract commit hash from event data
+            String commitHash = stackTraceGenerator.extractCommitHashFromEvent(eventJson);
+            info.put("commitHash", commitHash != null ? commitHash : "not-found");
 
-            // Extract the exception node
-            JsonNode exceptionNode = stackTraceGenerator.getExceptionNode(eventJson);
+            // Extract the exception
+            SentryEvent.ExceptionValue exceptionNode = stackTraceGenerator.getException(eventJson);
 
             String stackTrace;
             String codeSnippet = "";
             if ("bitbucket".equalsIgnoreCase(codeHost)) {
+                StackTrace trace = null;
                 try {
-                    stackTrace = stackTraceGenerator.buildStackTraceStringAuto(exceptionNode, bitbucketCodeFetcher, eventJson, project);
+                    trace = stackTraceGenerator.buildStackTraceAuto(exceptionNode, bitbucketCodeFetcher, eventJson, project);
+                    stackTrace = trace.render();
                     System.out.println("[DEBUG] Stack trace with Bitbucket links:\n" + stackTrace);
                 } catch (Exception e) {
                     System.err.println("[ERROR] Failed to build stack trace for project: " + project + " - " + e.getMessage());
                     stackTrace = "Error building stack trace: " + e.getMessage();
                 }
+                info.put("stackTrace", stackTrace);
                 
                 try {
                     // Safely resolve repository configuration
                     RepoConfig repoConfig = repoResolver.resolve(project);
                     String srcRootFilter = repoConfig != null ? repoConfig.getSrcRoot() : "";
                     
-                    String raw = bitbucketCodeFetcher.getBitbucketCodeFromStackTrace(stackTrace, 3, errorData.path("lastSeen").asText(), srcRootFilter);
-                    StringBuilder filtered = new StringBuilder();
-                    String[] snippets = raw.split("\\n\\nSnippet for:");
-                    for (String snippet : snippets) {
-                        String fullSnippet = snippet;
-                        if (!snippet.startsWith("Snippet for:")) {
-                            fullSnippet = "Snippet for:" + snippet;
-                        }
-                        if (srcRootFilter == null || srcRootFilter.isEmpty() || fullSnippet.contains(srcRootFilter.replace("/", "/"))) {
-                            filtered.append(fullSnippet.trim()).append("\n\n");
-                        }
-                    }
-                    codeSnippet = filtered.length() > 0 ? filtered.toString().trim() : "No project code snippets found.";
+                    // Frames are already limited to the project's source root by the fetcher
+                    List<CodeSnippet> snippets = trace != null
+                        ? bitbucketCodeFetcher.getBitbucketCode(trace, 3, errorData.path("lastSeen").asText(), srcRootFilter)
+                        : List.of();
+                    String rendered = CodeSnippet.render(snippets).trim();
+                    codeSnippet = !rendered.isEmpty() ? rendered : "No project code snippets found.";
                 } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
                     codeSnippet = "Bitbucket file not found for one or more frames.";
                 } catch (Exception e) {
@@ -267,42 +346,24 @@ public class SentryDataController {
                     codeSnippet = "Error fetching Bitbucket code: " + e.getMessage();
                 }
             } else {
-                stackTrace = stackTraceGenerator.buildStackTraceString(exceptionNode, true); // true = with GitHub links
+                StackTrace trace = stackTraceGenerator.buildStackTrace(exceptionNode, true); // true = with GitHub links
+                stackTrace = trace.render();
                 System.out.println("[DEBUG] Stack trace with GitHub links:\n" + stackTrace);
+                info.put("stackTrace", stackTrace);
                 try {
-                    String raw = githubCodeFetcher.getGithubCode(stackTrace);
-                    StringBuilder filtered = new StringBuilder();
-                    String[] snippets = raw.split("\\n\\nSnippet for:");
-                    for (String snippet : snippets) {
-                        String fullSnippet = snippet;
-                        if (!snippet.startsWith("Snippet for:")) {
-                            fullSnippet = "Snippet for:" + snippet;
-                        }
-                        if (fullSnippet.contains(stacktraceProjectRoot)) {
-                            filtered.append(fullSnippet.trim()).append("\n\n");
-                        }
-                    }
-                    codeSnippet = filtered.length() > 0 ? filtered.toString().trim() : "No project code snippets found.";
+                    List<CodeSnippet> snippets = githubCodeFetcher.getGithubCode(trace);
+                    String rendered = CodeSnippet.render(snippets, snippet ->
+                        snippet.location().url().contains(stacktraceProjectRoot) || snippet.code().contains(stacktraceProjectRoot)).trim();
+                    codeSnippet = !rendered.isEmpty() ? rendered : "No project code snippets found.";
                 } catch (Exception e) {
                     codeSnippet = "Error fetching GitHub code: " + e.getMessage();
                 }
             }
-
-            // Extract commit hash from event data
-            String commitHash = stackTraceGenerator.extractCommitHashFromEvent(eventJson);
-
-            Map<String, Object> info = new LinkedHashMap<>();
-            info.put("id", errorData.path("id").asText());
-            info.put("title", errorData.path("title").asText());
-            info.put("timestamp", errorData.path("lastSeen").asText());
-            info.put("projectId", errorData.path("project").path("id").asText());
-            info.put("count", errorData.path("count").asInt());
-            info.put("userCount", errorData.path("userCount").asInt()); // Add userCount
-            info.put("commitHash", commitHash != null ? commitHash : "not-found");
-            info.put("stackTrace", stackTrace);
             info.put("codeSnippet", codeSnippet);
-            System.out.println("[DEBUG] Returning error info: " + info);
-            return ResponseEntity.ok(info);
+
+            Map<String, Object> result = EndpointRunner.snapshot(info);
+            System.out.println("[DEBUG] Returning error info: " + result);
+            return ResponseEntity.ok(result);
         } catch (Exception e) {
             Map<String, Object> errorInfo = new LinkedHashMap<>();
             errorInfo.put("error", "Failed to fetch error details: " + e.getMessage());
@@ -310,11 +371,52 @@ public class SentryDataController {
         }
     }
 
+    private static void putIssueFields(Map<String, Object> info, JsonNode issue) {
+        synchronized (info) {
+            info.put("id", issue.path("id").asText());
+            info.put("title", issue.path("title").asText());
+            info.put("timestamp", issue.path("lastSeen").asText());
+            info.put("projectId", issue.path("project").path("id").asText());
+            info.put("count", issue.path("count").asInt());
+            info.put("userCount", issue.path("userCount").asInt()); // Add userCount
+        }
+    }
+
+    // Timeout response for one error: the fields gathered so far, missing ones filled with a notice
+    private static ResponseEntity<Map<String, Object>> partialErrorInfo(Map<String, Object> info, long timeoutSeconds, String codeField) {
+        Map<String, Object> result = completePartial(info, timeoutSeconds, codeField);
+        if (!result.containsKey("id")) {
+            result.put("error", "Failed to fetch error details: timed out after " + timeoutSeconds + "s");
+            return ResponseEntity.status(504).body(result);
+        }
+        return EndpointRunner.partial(result);
+    }
+
+    // Snapshot of one error's fields; if it is not finished, the missing ones are filled with a notice
+    private static Map<String, Object> completePartial(Map<String, Object> info, long timeoutSeconds, String codeField) {
+        Map<String, Object> result = EndpointRunner.snapshot(info);
+        if (result.containsKey(codeField) || !result.containsKey("id")) {
+            return result;
+        }
+        String notice = "Timed out after " + timeoutSeconds + "s";
+        result.putIfAbsent("commitHash", "not-found");
+        result.putIfAbsent("stackTrace", notice);
+        result.put(codeField, notice);
+        result.put("partial", true);
+        return result;
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        synchronized (list) {
+            return new ArrayList<>(list);
+        }
+    }
+
     // GET REQUEST TO GET ERROR MESSAGE + STACK TRACE BY PROJECT NAME & EVENT ID WITH OCCURRENCE COUNT
     // Format: http://localhost:8081/api/sentry-errors/project/{project}/errors?ids={id1},{id2},{id3}
     // http://localhost:8081/api/sentry-errors/project/android/errors?ids=6748881802,6744676878
     @GetMapping("/project/{project}/errors")
-    public ResponseEntity<List<Map<String, Object>>> fetchErrorsByIds(
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> fetchErrorsByIds(
         @PathVariable String project,
         @RequestParam("ids") String idsCsv) {
 
@@ -363,74 +465,107 @@ public class SentryDataController {
         // }
 
         // --- New implementation: id, title, timestamp, projectId, count, stackTrace, bitbucketCode ---
+        // On timeout returns every requested error; unfinished ones carry "partial": true
         Set<String> ids = Arrays.stream(idsCsv.split(","))
             .map(String::trim)
-            .collect(Collectors.toSet());
-
-        String issuesJson = sentryDataFetcher.curlForSentryErrorDataByProject(organizationId, project);
-        List<Map<String, Object>> result = new ArrayList<>();
+            .filter(id -> !id.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        List<Map<String, Object>> result = Collections.synchronizedList(new ArrayList<>());
+        long timeoutSeconds = endpointRunner.timeoutSeconds("errors", 60);
+        return endpointRunner.respond("errors", timeoutSeconds,
+            () -> fetchErrorDetails(project, ids, result),
+            () -> {
+                List<Map<String, Object>> partial = new ArrayList<>();
+                for (Map<String, Object> info : copyOf(result)) {
+                    partial.add(completePartial(info, timeoutSeconds, "bitbucketCode"));
+                }
+                return EndpointRunner.partial(partial);
+            });
+    }
 
+    // Adds one synchronized info map per found issue up front, then fills each in turn
+    // Each id is looked up on its own (id index, else /issues/{id}/) on the batch pool, one Sentry
+    // permit per call; ids that are unknown or belong to another project are left out
+    private ResponseEntity<List<Map<String, Object>>> fetchErrorDetails(String project, Set<String> ids,
+                                                                        List<Map<String, Object>> result) {
+        Map<String, CompletableFuture<JsonNode>> lookups = new LinkedHashMap<>();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode issues = mapper.readTree(issuesJson);
+            for (String id : ids) {
+                lookups.put(id, CompletableFuture.supplyAsync(() -> upstreamLimiter.withSentry(
+                    () -> sentryDataFetcher.fetchEventsByProject(organizationId, project, id)), batchReviewExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            lookups.values().forEach(lookup -> lookup.cancel(true));
+            return EndpointRunner.serviceUnavailable();
+        }
+        try {
+            List<JsonNode> matched = new ArrayList<>();
+            try {
+                for (Map.Entry<String, CompletableFuture<JsonNode>> lookup : lookups.entrySet()) {
+                    try {
+                        JsonNode issue = lookup.getValue().get();
+                        Map<String, Object> info = Collections.synchronizedMap(new LinkedHashMap<>());
+                        putIssueFields(info, issue);
+                        matched.add(issue);
+                        result.add(info);
+                    } catch (ExecutionException e) {
+                        System.err.println("[ERROR] Skipping issue " + lookup.getKey() + ": " + e.getCause().getMessage());
+                    }
+                }
+            } finally {
+                lookups.values().forEach(lookup -> lookup.cancel(true)); // only the unfinished ones, on timeout
+            }
 
-            for (JsonNode issue : issues) {
+            for (int i = 0; i < matched.size(); i++) {
+                JsonNode issue = matched.get(i);
+                Map<String, Object> info = result.get(i);
                 String issueId = issue.path("id").asText();
-                if (ids.contains(issueId)) {
-                    String title = issue.path("title").asText();
-                    String timestamp = issue.path("lastSeen").asText();
-                    String projectId = issue.path("project").path("id").asText();
-
-                    // Get first eventId for this issue
-                    List<String> eventIds = sentryDataFetcher.getEventIds(issueId);
-                    String stackTrace = "";
-                    String bitbucketCodeOnly = "";
-                    String commitHash = null;
-                    if (!eventIds.isEmpty()) {
-                        JsonNode eventJson = sentryDataFetcher.curlForStacktraceByEventId(issueId, eventIds.get(0));
-                        JsonNode exceptionNode = stackTraceGenerator.getExceptionNode(eventJson);
-                        
-                        // Extract commit hash from event data
-                        commitHash = stackTraceGenerator.extractCommitHashFromEvent(eventJson);
-                        
-                        stackTrace = stackTraceGenerator.buildStackTraceStringAuto(exceptionNode, bitbucketCodeFetcher, eventJson, project);
-                        try {
-                            String raw = bitbucketCodeFetcher.getBitbucketCodeFromStackTrace(stackTrace, 3, issue.path("lastSeen").asText(), repoResolver.resolve(project).getSrcRoot());
-                            StringBuilder filtered = new StringBuilder();
-                            String[] snippets = raw.split("\\n\\nSnippet for:");
-                            for (String snippet : snippets) {
-                                String fullSnippet = snippet;
-                                if (!snippet.startsWith("Snippet for:")) {
-                                    fullSnippet = "Snippet for:" + snippet;
-                                }
-                                String srcRootFilter = repoResolver.resolve(project).getSrcRoot();
-                                if (srcRootFilter == null || srcRootFilter.isEmpty() || fullSnippet.contains(srcRootFilter.replace("/", "/"))) {
-                                    filtered.append(fullSnippet.trim()).append("\n\n");
-                                }
-                            }
-                            bitbucketCodeOnly = filtered.length() > 0 ? filtered.toString().trim() : "No project code snippets found.";
-                        } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
-                            bitbucketCodeOnly = "Bitbucket file not found for one or more frames.";
-                        } catch (Exception e) {
-                            bitbucketCodeOnly = "Error fetching Bitbucket code: " + e.getMessage();
-                        }
+
+                // Latest event for this issue (with stacktrace) in one call
+                SentryEvent eventJson = null;
+                try {
+                    eventJson = sentryDataFetcher.fetchLatestEvent(issueId);
+                } catch (RuntimeException e) {
+                    System.err.println("[ERROR] No event available for issue " + issueId + ": " + e.getMessage());
+                }
+                String stackTrace = "";
+                String bitbucketCodeOnly = "";
+                String commitHash = null;
+                if (eventJson != null) {
+                    SentryEvent.ExceptionValue exceptionNode = stackTraceGenerator.getException(eventJson);
+                    
+                    // Extract commit hash from event data
+                    commitHash = stackTraceGenerator.extractCommitHashFromEvent(eventJson);
+                    info.put("commitHash", commitHash != null ? commitHash : "not-found");
+                    
+                    StackTrace trace = stackTraceGenerator.buildStackTraceAuto(exceptionNode, bitbucketCodeFetcher, eventJson, project);
+                    stackTrace = trace.render();
+                    info.put("stackTrace", stackTrace);
+                    try {
+                        List<CodeSnippet> snippets = bitbucketCodeFetcher.getBitbucketCode(trace, 3, issue.path("lastSeen").asText(), repoResolver.resolve(project).getSrcRoot());
+                        String rendered = CodeSnippet.render(snippets).trim();
+                        bitbucketCodeOnly = !rendered.isEmpty() ? rendered : "No project code snippets found.";
+                    } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
+                        bitbucketCodeOnly = "Bitbucket file not found for one or more frames.";
+                    } catch (Exception e) {
+                        bitbucketCodeOnly = "Error fetching Bitbucket code: " + e.getMessage();
                     }
+                }
 
-                    Map<String, Object> info = new LinkedHashMap<>();
-                    info.put("id", issueId);
-                    info.put("title", title);
-                    info.put("timestamp", timestamp);
-                    info.put("projectId", projectId);
-                    info.put("count", issue.path("count").asInt());
-                    info.put("userCount", issue.path("userCount").asInt()); // Add userCount
+                synchronized (info) {
                     info.put("commitHash", commitHash != null ? commitHash : "not-found");
                     info.put("stackTrace", stackTrace);
                     info.put("bitbucketCode", bitbucketCodeOnly);
-                    System.out.println("[DEBUG] Returning batch error info: " + info);
-                    result.add(info);
                 }
+                System.out.println("[DEBUG] Returning batch error info: " + EndpointRunner.snapshot(info));
             }
-            return ResponseEntity.ok(result);
+
+            List<Map<String, Object>> finished = new ArrayList<>();
+            for (Map<String, Object> info : copyOf(result)) {
+                finished.add(EndpointRunner.snapshot(info));
+            }
+            return ResponseEntity.ok(finished);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
@@ -441,23 +576,48 @@ public class SentryDataController {
     // Format: http://localhost:8081/api/sentry-errors/recent?project={projectSlug}&hours={hours}
     // http://localhost:8081/api/sentry-errors/recent?project=codemap-testing (defaults to 24 hours)
     // http://localhost:8081/api/sentry-errors/recent?project=sentry-demo-app&hours=168 (1 week)
+    // Optional: level=error|warning|... filters by level, newOnly=true keeps only errors first seen in the window
+    // Answered from the local issue store when the project is synced and the store reaches back to the cutoff
     @GetMapping("/recent")
-    public ResponseEntity<List<Map<String, Object>>> fetchRecentErrorsByProject(
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> fetchRecentErrorsByProject(
             @RequestParam("project") String projectName,
-            @RequestParam(value = "hours", defaultValue = "24") int hours) {
+            @RequestParam(value = "hours", defaultValue = "24") int hours,
+            @RequestParam(value = "level", required = false) String level,
+            @RequestParam(value = "newOnly", defaultValue = "false") boolean newOnly) {
+        java.time.Instant cutoffTime = java.time.Instant.ofEpochMilli(System.currentTimeMillis() - (hours * 60L * 60L * 1000L));
+        IssueStore store = issueSyncService.storeFor(projectName);
+        if (store != null && store.coversSince(cutoffTime)) {
+            List<IssueStore.Issue> issues = newOnly ? store.firstSeenSince(cutoffTime) : store.seenSince(cutoffTime, level);
+            List<Map<String, Object>> stored = new ArrayList<>();
+            for (IssueStore.Issue issue : issues) {
+                if (level == null || level.equals(issue.level())) {
+                    stored.add(recentErrorInfo(issue.id(), issue.title(), issue.count(), issue.userCount(),
+                        issue.lastSeen(), issue.firstSeen(), issue.level(), issue.status(), hours));
+                }
+            }
+            return CompletableFuture.completedFuture(ResponseEntity.ok(stored));
+        }
+        List<Map<String, Object>> recentErrorList = Collections.synchronizedList(new ArrayList<>());
+        return endpointRunner.respond("recent", 20,
+            () -> listRecentErrors(projectName, hours, level, newOnly, recentErrorList),
+            () -> EndpointRunner.partial(copyOf(recentErrorList)));
+    }
+
+    private ResponseEntity<List<Map<String, Object>>> listRecentErrors(String projectName, int hours, String level,
+                                                                       boolean newOnly, List<Map<String, Object>> recentErrorList) {
         try {
-            String issuesJson = sentryDataFetcher.curlForSentryErrorDataByProject(organizationId, projectName);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode issues = mapper.readTree(issuesJson);
-            
             // Calculate cutoff timestamp based on specified hours
             long millisecondsAgo = System.currentTimeMillis() - (hours * 60L * 60L * 1000L);
             java.time.Instant cutoffTime = java.time.Instant.ofEpochMilli(millisecondsAgo);
             
-            List<Map<String, Object>> recentErrorList = new ArrayList<>();
-            for (JsonNode issue : issues) {
-                String firstSeenStr = issue.path("firstSeen").asText();
-                String lastSeenStr = issue.path("lastSeen").asText();
+            // Issues stream newest lastSeen first, and firstSeen <= lastSeen, so the first
+            // issue last seen before the cutoff ends the scan without fetching more pages
+            SentryPageIterator<SentryIssue> issues = sentryDataFetcher.iterateIssuesByProject(organizationId, projectName);
+            
+            while (issues.hasNext()) {
+                SentryIssue issue = issues.next();
+                String firstSeenStr = issue.firstSeen();
+                String lastSeenStr = issue.lastSeen();
                 
                 boolean includeError = false;
                 
@@ -478,36 +638,44 @@ public class SentryDataController {
                     try {
                         java.time.Instant lastSeenTime = java.time.Instant.parse(lastSeenStr);
                         if (lastSeenTime.isAfter(cutoffTime)) {
-                            includeError = true;
+                            includeError = !newOnly;
+                        } else {
+                            break; // Every remaining issue was last seen even earlier
                         }
                     } catch (java.time.format.DateTimeParseException e) {
-                        System.err.println("Failed to parse timestamps for issue: " + issue.path("id").asText());
+                        System.err.println("Failed to parse timestamps for issue: " + issue.id());
                         continue;
                     }
                 }
                 
                 // Include error if it has activity within the time period
-                if (includeError) {
-                    Map<String, Object> errorInfo = new HashMap<>();
-                    errorInfo.put("id", issue.path("id").asText());
-                    errorInfo.put("title", issue.path("title").asText());
-                    errorInfo.put("count", issue.path("count").asInt());
-                    errorInfo.put("userCount", issue.path("userCount").asInt());
-                    errorInfo.put("lastSeen", lastSeenStr);
-                    errorInfo.put("firstSeen", firstSeenStr);
-                    errorInfo.put("level", issue.path("level").asText());
-                    errorInfo.put("status", issue.path("status").asText());
-                    errorInfo.put("hoursSpecified", hours); // For debugging/confirmation
-                    recentErrorList.add(errorInfo);
+                if (includeError && (level == null || level.equals(issue.level()))) {
+                    recentErrorList.add(recentErrorInfo(issue.id(), issue.title(), issue.count(), issue.userCount(),
+                        lastSeenStr, firstSeenStr, issue.level(), issue.status(), hours));
                 }
             }
             
-            return ResponseEntity.ok(recentErrorList);
+            return ResponseEntity.ok(copyOf(recentErrorList));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).build();
         }
     }
+
+    private static Map<String, Object> recentErrorInfo(String id, String title, int count, int userCount, String lastSeen,
+                                                       String firstSeen, String level, String status, int hours) {
+        Map<String, Object> errorInfo = new HashMap<>();
+        errorInfo.put("id", id);
+        errorInfo.put("title", title);
+        errorInfo.put("count", count);
+        errorInfo.put("userCount", userCount);
+        errorInfo.put("lastSeen", lastSeen);
+        errorInfo.put("firstSeen", firstSeen);
+        errorInfo.put("level", level);
+        errorInfo.put("status", status);
+        errorInfo.put("hoursSpecified", hours); // For debugging/confirmation
+        return errorInfo;
+    }
     
     // GET REQUEST TO TEST DYNAMIC URL BUILDING
     // Format: http://localhost:8081/api/sentry-errors/test-dynamic-url?project={project}&module={module}&filename={filename}&line={line}
@@ -9,6 +9,13 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.example.sentrytestbackend.service.SentryDataFetcher;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +34,18 @@ import com.example.sentrytestbackend.service.BitbucketPrService;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PostMapping;
 import com.example.sentrytestbackend.service.RepoResolver;
+import com.example.sentrytestbackend.service.UpstreamLimiter;
+import com.example.sentrytestbackend.service.EndpointRunner;
+import com.example.sentrytestbackend.service.BatchStreamService;
+import com.example.sentrytestbackend.service.PipelineMetrics;
+import com.example.sentrytestbackend.service.BatchStreamService.BatchStream;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.StackTrace;
 
 @RestController
 @RequestMapping("/api/gemini-suggest") // Base Annotation for base URL paths (EX ~ )
@@ -58,66 +77,85 @@ public class SentryDataGeminiController {
     @Autowired
     private RepoResolver repoResolver;
 
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
+
+    @Autowired
+    private ExecutorService batchReviewExecutor;
+
+    @Autowired
+    private EndpointRunner endpointRunner;
+
+    @Autowired
+    private BatchStreamService batchStreamService;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
     // GET REQUEST TO GEMINI & SENTRY TO GET SUGGESTION FOR 1 ERROR BASED ON ID
     // Format: http://localhost:8081/api/gemini-suggest/project/{project}/errorId/{errorId}?useBitbucket={true FOR BITBUCKET false FOR GITHUB}
     // Example: http://localhost:8081/api/gemini-suggest/project/codemap-testing/errorId/6779537685?useBitbucket=true
+    // Unchanged errors are answered from the analysis cache; add &refresh=true to force a new Gemini review
+    // On timeout returns {"errorId", "error", "partial": true} plus the stack trace if it was built
     @GetMapping("/project/{project}/errorId/{errorId}")
-    public ResponseEntity<Map<String, Object>> reviewErrorById(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> reviewErrorById(
         @PathVariable String project,
         @PathVariable String errorId,
-        @RequestParam(value = "useBitbucket", defaultValue = "false") boolean useBitbucket) {
-
-        long startTotal = System.currentTimeMillis();
-
-        long startFetchError = System.currentTimeMillis();
-        JsonNode errorData = sentryDataFetcher.fetchEventsByProject(organizationId, project, errorId);
-        long endFetchError = System.currentTimeMillis();
-
-        long startEventIds = System.currentTimeMillis();
-        List<String> eventIds = sentryDataFetcher.getEventIds(errorId);
-        long endEventIds = System.currentTimeMillis();
-
-        if (eventIds.isEmpty()) {
-            throw new RuntimeException("No event IDs found for issue " + errorId);
-        }
-
-        long startStackTraceJson = System.currentTimeMillis();
-        JsonNode stackTraceJson = sentryDataFetcher.curlForStacktraceByEventId(errorId, eventIds.get(0));
-        long endStackTraceJson = System.currentTimeMillis();
-
-        long startExceptionNode = System.currentTimeMillis();
-        JsonNode exceptionNode = stackTraceController.getExceptionNode(stackTraceJson);
-        long endExceptionNode = System.currentTimeMillis();
+        @RequestParam(value = "useBitbucket", defaultValue = "false") boolean useBitbucket,
+        @RequestParam(value = "refresh", defaultValue = "false") boolean refresh) {
+        Map<String, Object> progress = Collections.synchronizedMap(new LinkedHashMap<>());
+        progress.put("errorId", errorId);
+        long timeoutSeconds = endpointRunner.timeoutSeconds("gemini-review", 90);
+        return endpointRunner.respond("gemini-review", timeoutSeconds,
+            () -> reviewError(project, errorId, refresh, progress),
+            () -> {
+                Map<String, Object> partial = EndpointRunner.snapshot(progress);
+                partial.put("error", "Gemini review timed out after " + timeoutSeconds + "s");
+                partial.put("partial", true);
+                return EndpointRunner.partial(partial);
+            });
+    }
 
-        long startStackTrace = System.currentTimeMillis();
-        String stackTrace;
-        String code;
-        if ("bitbucket".equalsIgnoreCase(codeHost)) {
+    private ResponseEntity<Map<String, Object>> reviewError(String project, String errorId, boolean refresh, Map<String, Object> progress) {
+        boolean useBitbucket = "bitbucket".equalsIgnoreCase(codeHost);
+        Fetched fetched = pipelineMetrics.time(PipelineMetrics.FETCH, () -> new Fetched(
+            sentryDataFetcher.fetchEventsByProject(organizationId, project, errorId),
+            sentryDataFetcher.fetchLatestEvent(errorId)
+        ));
+        JsonNode errorData = fetched.issue();
+        SentryEvent stackTraceJson = fetched.latestEvent();
+
+        StackTrace trace = pipelineMetrics.time(PipelineMetrics.TRACE, () -> {
+            SentryEvent.ExceptionValue exceptionNode = stackTraceController.getException(stackTraceJson);
             // Use per-project repo mapping and Android/backend detection for correct links and filtering
-            stackTrace = stackTraceController.buildStackTraceStringAuto(exceptionNode, bitbucketCodeFetcher, stackTraceJson, project);
+            return useBitbucket
+                ? stackTraceController.buildStackTraceAuto(exceptionNode, bitbucketCodeFetcher, stackTraceJson, project)
+                : stackTraceController.buildStackTrace(exceptionNode, true); // true = with GitHub links
+        });
+        String stackTrace = trace.render();
+        progress.put("stackTrace", stackTrace);
+
+        String code = pipelineMetrics.time(PipelineMetrics.SNIPPETS, () -> {
+            if (!useBitbucket) {
+                return CodeSnippet.render(githubCodeFetcher.getGithubCode(trace));
+            }
             // Fetch code snippets only for the project's source root
             String srcRootFilter = repoResolver.resolve(project).getSrcRoot();
-            code = bitbucketCodeFetcher.getBitbucketCodeFromStackTrace(stackTrace, 10, errorData.path("lastSeen").asText(), srcRootFilter);
-        } else {
-            stackTrace = stackTraceController.buildStackTraceString(exceptionNode, true); // true = with GitHub links
-            code = githubCodeFetcher.getGithubCode(stackTrace);
-        }
-        long endStackTrace = System.currentTimeMillis();
+            List<CodeSnippet> snippets = bitbucketCodeFetcher.getBitbucketCode(trace, 10, errorData.path("lastSeen").asText(), srcRootFilter);
+            return snippets.isEmpty() ? "No Bitbucket links found in stack trace." : CodeSnippet.render(snippets);
+        });
 
-        long startContext = System.currentTimeMillis();
         Map<String, Object> enhancedContext = sentryDataFetcher.extractEnhancedContext(errorData);
         System.out.println("[DEBUG] enhancedContext: " + enhancedContext);
-        long endContext = System.currentTimeMillis();
 
-        List<String> suggestions;
-        long startGemini = System.currentTimeMillis();
-        suggestions = aiAnalysisService.callGeminiForGithubCodeAnalysisWithContext(
+        // Prompt, llm and parse stages are timed inside AIAnalysisService
+        List<String> suggestions = aiAnalysisService.callGeminiForGithubCodeAnalysisWithContext(
             stackTrace,
             errorData.toString(),
             code,
-            enhancedContext
+            enhancedContext,
+            refresh
         );
-        long endGemini = System.currentTimeMillis();
 
         // Instead of formatting as markdown, parse as JSON
         String geminiRaw = String.join("\n", suggestions);
@@ -130,56 +168,151 @@ public class SentryDataGeminiController {
     // GET REQUEST TO GEMINI & SENTRY TO GET SUGGESTION MULTIPLE ERRORS BASED ON ID
     // Format: http://localhost:8081/api/gemini-suggest/batch/project/{project}/errors?ids={id1},{id2},{id3}
     // http://localhost:8081/api/gemini-suggest/batch/project/android/errors?ids=6744676878,6745069181
+    // Errors are reviewed concurrently; results keep the order of ids and a failed id yields {"errorId", "error"}
     @GetMapping("/batch/project/{project}/errors")
-    public ResponseEntity<List<Map<String, Object>>> reviewMultipleErrorsByID(
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> reviewMultipleErrorsByID(
         @PathVariable String project,
-        @RequestParam("ids") String idsCsv) {
-
-        Set<String> ids = Arrays.stream(idsCsv.split(","))
-            .map(String::trim)
-            .collect(Collectors.toSet());
+        @RequestParam("ids") String idsCsv,
+        @RequestParam(value = "refresh", defaultValue = "false") boolean refresh) {
 
-        List<Map<String, Object>> batchResults = new ArrayList<>();
+        Set<String> ids = parseIds(idsCsv);
 
-        for (String errorId : ids) {
-            JsonNode errorData = sentryDataFetcher.fetchEventsByProject(organizationId, project, errorId);
-            
-            // Get properly formatted stack trace with GitHub links for each error
-            List<String> eventIds = sentryDataFetcher.getEventIds(errorId);
-            if (eventIds.isEmpty()) {
-                // Skip this error if no event IDs found
-                continue;
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        try {
+            for (String errorId : ids) {
+                futures.add(CompletableFuture.supplyAsync(() -> reviewSingleError(project, errorId, refresh), batchReviewExecutor));
             }
-            JsonNode stackTraceJson = sentryDataFetcher.curlForStacktraceByEventId(errorId, eventIds.get(0));
-            JsonNode exceptionNode = stackTraceController.getExceptionNode(stackTraceJson);
-            String stackTrace = stackTraceController.buildStackTraceString(exceptionNode, true); // true = with GitHub links
-            
-            // Now fetch GitHub code using the formatted stack trace with links
-            String githubCode = githubCodeFetcher.getGithubCode(stackTrace);
-            
-            // Extract enhanced context for each error
-            Map<String, Object> enhancedContext = sentryDataFetcher.extractEnhancedContext(errorData);
-
-            List<String> suggestions = aiAnalysisService.callGeminiForGithubCodeAnalysisWithContext(
-                stackTrace,
-                errorData.toString(),
-                githubCode,
-                enhancedContext
-            );
-
-            Map<String, Object> result = new LinkedHashMap<>();
-            result.put("errorId", errorId);
-            result.put("suggestions", suggestions);
-            batchResults.add(result);
+        } catch (RejectedExecutionException e) {
+            // Batch pool and queue are full: drop the part already queued and shed the whole batch
+            futures.forEach(future -> future.cancel(true));
+            System.err.println("[Batch] Rejected batch of " + ids.size() + " for " + project + ": executor saturated");
+            return CompletableFuture.completedFuture(EndpointRunner.serviceUnavailable());
+        }
 
+        // Only waits on the batch pool, so no endpoint thread is held; on timeout the finished
+        // reviews are returned and the rest are reported as timed out
+        long timeoutSeconds = endpointRunner.timeoutSeconds("gemini-batch", 240);
+        CompletableFuture<ResponseEntity<List<Map<String, Object>>>> all = CompletableFuture
+            .allOf(futures.toArray(new CompletableFuture[0]))
+            .handle((ignored, error) -> ResponseEntity.ok(collectBatchResults(ids, futures, timeoutSeconds)));
+        return endpointRunner.withTimeout("gemini-batch", timeoutSeconds, all, () -> {
+            futures.forEach(future -> future.cancel(true)); // reviews still queued are skipped
+            return EndpointRunner.partial(collectBatchResults(ids, futures, timeoutSeconds));
+        });
+    }
+
+    private static List<Map<String, Object>> collectBatchResults(Set<String> ids, List<CompletableFuture<Map<String, Object>>> futures,
+                                                                 long timeoutSeconds) {
+        List<Map<String, Object>> batchResults = new ArrayList<>();
+        Iterator<String> idIterator = ids.iterator();
+        for (CompletableFuture<Map<String, Object>> future : futures) {
+            String errorId = idIterator.next();
             try {
-                Thread.sleep(500); // 500ms delay between Gemini requests
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                if (future.isDone() && !future.isCancelled()) {
+                    batchResults.add(future.join());
+                    continue;
+                }
+                Map<String, Object> timedOut = failedReview(errorId, "Timed out after " + timeoutSeconds + "s");
+                timedOut.put("partial", true);
+                batchResults.add(timedOut);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                System.err.println("[Batch] Review failed for " + errorId + ": " + cause.getMessage());
+                batchResults.add(failedReview(errorId, cause.getMessage()));
             }
         }
+        return batchResults;
+    }
+
+    // SSE VARIANT OF THE BATCH REVIEW //
+    // Format: http://localhost:8081/api/gemini-suggest/batch/project/{project}/errors/stream?ids={id1},{id2},{id3}
+    // Emits started, then one "result" event per error (same JSON as the batch items) as soon as its
+    // review finishes, with progress/heartbeat events in between, then done. Results arrive in
+    // completion order; nothing is held once it has been written.
+    @GetMapping(value = "/batch/project/{project}/errors/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMultipleErrorReviews(
+        @PathVariable String project,
+        @RequestParam("ids") String idsCsv,
+        @RequestParam(value = "refresh", defaultValue = "false") boolean refresh) {
+
+        Set<String> ids = parseIds(idsCsv);
+        BatchStream stream = batchStreamService.open("gemini-batch " + project, ids.size());
+
+        List<CompletableFuture<Void>> reviews = new ArrayList<>();
+        try {
+            for (String errorId : ids) {
+                reviews.add(CompletableFuture.runAsync(() -> {
+                    if (!stream.isOpen()) {
+                        return; // client went away; skip reviews that have not started
+                    }
+                    try {
+                        stream.result(reviewSingleError(project, errorId, refresh));
+                    } catch (RuntimeException e) {
+                        System.err.println("[Batch] Review failed for " + errorId + ": " + e.getMessage());
+                        stream.failure(failedReview(errorId, e.getMessage()));
+                    }
+                }, batchReviewExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            // Nothing has been written to the client yet, so the batch can still be refused with a 503
+            reviews.forEach(review -> review.cancel(true));
+            stream.completeWithError("Server busy, try again shortly");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Batch executor saturated");
+        }
+        CompletableFuture.allOf(reviews.toArray(new CompletableFuture[0]))
+            .whenComplete((ignored, error) -> stream.complete());
+        return stream.emitter();
+    }
+
+    private static Set<String> parseIds(String idsCsv) {
+        return Arrays.stream(idsCsv.split(","))
+            .map(String::trim)
+            .filter(id -> !id.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // The issue (sent to Gemini as is) and its latest event (for the stack trace), fetched as one stage
+    private record Fetched(JsonNode issue, SentryEvent latestEvent) {}
+
+    private static Map<String, Object> failedReview(String errorId, String message) {
+        Map<String, Object> failure = new LinkedHashMap<>();
+        failure.put("errorId", errorId);
+        failure.put("error", message);
+        return failure;
+    }
+
+    // One batch item; Sentry and code-host calls are bounded per upstream, Gemini is rate limited in AIAnalysisService
+    private Map<String, Object> reviewSingleError(String project, String errorId, boolean refresh) {
+        Fetched fetched = pipelineMetrics.time(PipelineMetrics.FETCH, () -> new Fetched(
+            upstreamLimiter.withSentry(() -> sentryDataFetcher.fetchEventsByProject(organizationId, project, errorId)),
+            upstreamLimiter.withSentry(() -> sentryDataFetcher.fetchLatestEvent(errorId))
+        ));
+        JsonNode errorData = fetched.issue();
+
+        // Get properly formatted stack trace with GitHub links for each error
+        StackTrace trace = pipelineMetrics.time(PipelineMetrics.TRACE, () ->
+            stackTraceController.buildStackTrace(stackTraceController.getException(fetched.latestEvent()), true)); // true = with GitHub links
+        String stackTrace = trace.render();
+
+        // Now fetch GitHub code for the linked frames (each download takes its own code-host permit)
+        String githubCode = pipelineMetrics.time(PipelineMetrics.SNIPPETS, () ->
+            CodeSnippet.render(githubCodeFetcher.getGithubCode(trace)));
+
+        // Extract enhanced context for each error
+        Map<String, Object> enhancedContext = sentryDataFetcher.extractEnhancedContext(errorData);
+
+        List<String> suggestions = aiAnalysisService.callGeminiForGithubCodeAnalysisWithContext(
+            stackTrace,
+            errorData.toString(),
+            githubCode,
+            enhancedContext,
+            refresh
+        );
 
-        return ResponseEntity.ok(batchResults);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("errorId", errorId);
+        result.put("suggestions", suggestions);
+        return result;
     }
 
     /**
@@ -188,15 +321,18 @@ public class SentryDataGeminiController {
      * Body: Gemini JSON from reviewErrorById
      */
     @PostMapping("/bitbucket-pr")
-    public ResponseEntity<?> createBitbucketPrFromGemini(
+    public CompletableFuture<ResponseEntity<Map<String, String>>> createBitbucketPrFromGemini(
             @RequestParam(value = "project", required = false) String project,
             @RequestBody Map<String, Object> geminiJson) {
-        String prResult;
-        try {
-            prResult = bitbucketPrService.createPullRequestFromGeminiJson(geminiJson, project);
-            return ResponseEntity.ok(Map.of("bitbucket_pr_result", prResult));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
-        }
+        return endpointRunner.respond("bitbucket-pr", 60, () -> {
+            try {
+                String prResult = bitbucketPrService.createPullRequestFromGeminiJson(geminiJson, project);
+                return ResponseEntity.ok(Map.of("bitbucket_pr_result", prResult));
+            } catch (Exception e) {
+                return ResponseEntity.status(500).body(Map.of("error", String.valueOf(e.getMessage())));
+            }
+        }, () -> ResponseEntity.status(504).body(Map.of(
+            "error", "Timed out creating the Bitbucket PR; it may still have been created"
+        )));
     }
 }
\ No newline at end of file
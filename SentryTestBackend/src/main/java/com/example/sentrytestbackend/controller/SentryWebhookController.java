@@ -0,0 +1,106 @@
+package com.example.sentrytestbackend.controller;
+
+import com.example.sentrytestbackend.service.ErrorPrewarmService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Receives Sentry integration webhooks and queues the announced issue for cache warm-up.
+ *
+ * Endpoint: POST http://localhost:8081/api/sentry-webhook
+ * Headers:  Sentry-Hook-Resource (issue | event_alert | error), Sentry-Hook-Signature
+ *
+ * Handled:
+ *   issue        action created / unresolved (new error or regression), data.issue.id
+ *   event_alert  action triggered, data.event.issue_id
+ *   error        action created, data.error.issue_id
+ * Anything else is acknowledged with 200 and ignored. The work happens in ErrorPrewarmService;
+ * this answers right away with 202, or 503 when the warm-up queue is full.
+ *
+ * Local test: scripts/send-sentry-webhook.sh signs and sends a payload.
+ */
+@RestController
+@RequestMapping("/api/sentry-webhook")
+public class SentryWebhookController {
+
+    @Autowired
+    private ErrorPrewarmService errorPrewarmService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> receive(
+            @RequestBody byte[] body,
+            @RequestHeader(value = "Sentry-Hook-Resource", required = false) String resource,
+            @RequestHeader(value = "Sentry-Hook-Signature", required = false) String signature) {
+        String resourceTag = resource == null ? "unknown" : resource;
+        if (!errorPrewarmService.isEnabled()) {
+            return ResponseEntity.status(503).body(outcome(resourceTag, "disabled", null));
+        }
+        if (!errorPrewarmService.verifySignature(body, signature)) {
+            System.err.println("[Webhook] Rejected " + resourceTag + " webhook with invalid signature");
+            return ResponseEntity.status(401).body(outcome(resourceTag, "invalid-signature", null));
+        }
+
+        String issueId;
+        try {
+            issueId = issueIdOf(resource, objectMapper.readTree(body));
+        } catch (IOException e) {
+            return ResponseEntity.status(400).body(outcome(resourceTag, "malformed", null));
+        }
+        if (issueId == null) {
+            return ResponseEntity.status(200).body(outcome(resourceTag, "ignored", null));
+        }
+
+        return switch (errorPrewarmService.submit(issueId)) {
+            case QUEUED -> ResponseEntity.status(202).body(outcome(resourceTag, "queued", issueId));
+            case DUPLICATE -> ResponseEntity.status(202).body(outcome(resourceTag, "duplicate", issueId));
+            case REJECTED -> {
+                System.err.println("[Webhook] Warm-up queue full, dropped issue " + issueId);
+                yield ResponseEntity.status(503).header("Retry-After", "30").body(outcome(resourceTag, "rejected", issueId));
+            }
+        };
+    }
+
+    // The issue to warm, or null for resources/actions that do not announce new activity
+    private static String issueIdOf(String resource, JsonNode payload) {
+        String action = payload.path("action").asText("");
+        JsonNode data = payload.path("data");
+        String issueId = null;
+        if ("issue".equals(resource) && ("created".equals(action) || "unresolved".equals(action))) {
+            issueId = data.path("issue").path("id").asText("");
+        } else if ("event_alert".equals(resource) && "triggered".equals(action)) {
+            issueId = data.path("event").path("issue_id").asText("");
+        } else if ("error".equals(resource) && "created".equals(action)) {
+            issueId = data.path("error").path("issue_id").asText("");
+        }
+        return issueId == null || issueId.isEmpty() ? null : issueId;
+    }
+
+    // Counts the webhook and builds the response body
+    private Map<String, Object> outcome(String resource, String status, String issueId) {
+        meterRegistry.counter("webhook.sentry.received", "resource", resource, "result", status).increment();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status);
+        if (issueId != null) {
+            body.put("issueId", issueId);
+        }
+        return body;
+    }
+}
@@ -17,7 +17,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.sentrytestbackend.service.AIAnalysisService;
-import com.example.sentrytestbackend.service.SentryReleaseService;
+import com.example.sentrytestbackend.service.ReleaseTracker;
 import io.sentry.Sentry;
 
 @RestController
@@ -30,7 +30,7 @@ public class TestController {
     private AIAnalysisService aiAnalysisService;
     
     @Autowired
-    private SentryReleaseService sentryReleaseService;
+    private ReleaseTracker releaseTracker;
     
     // GET REQUEST TO CHECK IF BACKEND RUNNING ~ Returns UP with Timestamp.
     // Makes sure Server works before running other tests
@@ -73,13 +73,8 @@ public class TestController {
     public ResponseEntity<Map<String, String>> testError() {
         Map<String, String> error = new HashMap<>();
         try {
-            // Auto-create Sentry release before throwing error
-            try {
-                String commitHash = sentryReleaseService.createOrEnsureSentryRelease();
-                System.out.println("[TestError] Ensured Sentry release exists: " + commitHash);
-            } catch (Exception releaseEx) {
-                System.err.println("[TestError] WARNING: Could not ensure Sentry release: " + releaseEx.getMessage());
-            }
+            // The release tracker keeps the Sentry release for the current commit in place
+            System.out.println("[TestError] Current Sentry release: " + releaseTracker.currentRelease());
             // Intentionally cause an error for testing
             throw new RuntimeException("This is a test error for Sentry!");
         } catch (RuntimeException e) {
@@ -95,13 +90,8 @@ public class TestController {
     @GetMapping("/divide-by-zero")
     public ResponseEntity<?> testDivideByZero() {
         try {
-            // Auto-create Sentry release before throwing error
-            try {
-                String commitHash = sentryReleaseService.createOrEnsureSentryRelease();
-                System.out.println("[DivideByZero] Ensured Sentry release exists: " + commitHash);
-            } catch (Exception releaseEx) {
-                System.err.println("[DivideByZero] WARNING: Could not ensure Sentry release: " + releaseEx.getMessage());
-            }
+            // The release tracker keeps the Sentry release for the current commit in place
+            System.out.println("[DivideByZero] Current Sentry release: " + releaseTracker.currentRelease());
 
             
             int x = 0;
@@ -141,13 +131,14 @@ public class TestController {
     }
 
     // GET REQUEST TO CREATE SENTRY RELEASE WITH BITBUCKET COMMIT
+    // Re-polls Bitbucket now instead of waiting for the release tracker's next poll
     // http://localhost:8081/api/create-release
     @GetMapping("/create-release")
     public ResponseEntity<Map<String, String>> createSentryRelease() {
         Map<String, String> response = new HashMap<>();
         
         try {
-            String commitHash = sentryReleaseService.createOrEnsureSentryRelease();
+            String commitHash = releaseTracker.refresh();
             
             if (commitHash != null) {
                 response.put("status", "SUCCESS");
@@ -177,17 +168,17 @@ public class TestController {
         Map<String, String> response = new HashMap<>();
         
         try {
-            String commitHash = sentryReleaseService.getCurrentReleaseForErrors();
+            String commitHash = releaseTracker.currentRelease();
             
             if (commitHash != null) {
                 response.put("status", "SUCCESS");
                 response.put("commitHash", commitHash);
-                response.put("source", "bitbucket-api");
-                response.put("message", "Current commit retrieved from Bitbucket");
+                response.put("source", "release-tracker");
+                response.put("message", "Current commit as last seen by the release tracker");
             } else {
                 response.put("status", "ERROR");
                 response.put("commitHash", "not-found");
-                response.put("message", "Could not retrieve current commit from Bitbucket");
+                response.put("message", "No current commit known yet (Bitbucket not polled successfully)");
             }
             
         } catch (Exception e) {
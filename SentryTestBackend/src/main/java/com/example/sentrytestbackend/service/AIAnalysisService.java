@@ -10,13 +10,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 import io.sentry.Sentry;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.*;
+import java.util.function.Predicate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
-import java.io.File;
-import java.io.FileWriter;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.sentrytestbackend.util.AnalysisFingerprint;
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.StackTrace;
 
 @Service
 public class AIAnalysisService {
@@ -27,6 +29,28 @@ public class AIAnalysisService {
     @Autowired
     private GitHubCodeFetcher githubCodeFetcher;
 
+    @Autowired
+    private AnalysisCache analysisCache;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PromptBuilder promptBuilder;
+
+    @Autowired
+    private PromptJournal promptJournal;
+
+    // Part of every analysis cache key along with PromptBuilder.budgetKey(); bump when
+    // createEnhancedCodeAnalysisPrompt or PromptBuilder changes
+    static final String ENHANCED_PROMPT_VERSION = "enhanced-code-analysis-v2";
+
     // Gemini API Configuration - now configurable via application.properties
     @Value("${gemini.api.key}")
     private String geminiApiKey;
@@ -66,9 +90,10 @@ public class AIAnalysisService {
     // Create a code analysis using github code, recent sentry error, and stacktrace from recent sentry error
     public List<String> generateGithubCodeAnalysis(StackTraceGenerator stackTraceGenerator){
         try {
-            String stackTrace = stackTraceGenerator.getMostRecentStackTraceWithGithubLinks();
+            StackTrace trace = stackTraceGenerator.getMostRecentTrace(true);
+            String stackTrace = trace != null ? trace.render() : "No stack trace found in the most recent Sentry event.";
             String sentryError = getMostRecentSentryError();
-            String githubCode = githubCodeFetcher.getGithubCode(stackTrace);
+            String githubCode = trace != null ? CodeSnippet.render(githubCodeFetcher.getGithubCode(trace)) : "";
             return callGeminiForGithubCodeAnalysis(stackTrace, sentryError, githubCode);
 
         } catch (Exception e) {
@@ -114,10 +139,16 @@ public class AIAnalysisService {
     // Call Gemini to Recieve x num of error and stack traces, and code snippets for review from those errors
     public List<List<String>> generateGithubCodeAnalysisForAll(StackTraceGenerator stackTraceGenerator, int maxErrors) {
         List<List<String>> allAnalyses = new ArrayList<>();
+        forEachGithubCodeAnalysis(stackTraceGenerator, maxErrors, analysis -> allAnalyses.add(analysis));
+        return allAnalyses;
+    }
+
+    // Same analyses as generateGithubCodeAnalysisForAll, handed to sink one at a time as each
+    // finishes; sink returns false to stop before the next one is started
+    public void forEachGithubCodeAnalysis(StackTraceGenerator stackTraceGenerator, int maxErrors, Predicate<List<String>> sink) {
         try {
             String allErrorsJson = getRawSentryErrorData();
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(allErrorsJson);
+            JsonNode rootNode = objectMapper.readTree(allErrorsJson);
             if (rootNode.isArray()) {
                 int errorCount = 0;
                 for (JsonNode event : rootNode) {
@@ -125,19 +156,21 @@ public class AIAnalysisService {
                         break;
                     }
                     String singleEventArray = "[" + event.toString() + "]";
-                    String stackTrace = stackTraceGenerator.getMostRecentStackTraceWithGithubLinks();
+                    StackTrace trace = stackTraceGenerator.getMostRecentTrace(true);
+                    String stackTrace = trace != null ? trace.render() : "No stack trace found in the most recent Sentry event.";
                     String sentryError = singleEventArray;
-                    String githubCode = githubCodeFetcher.getGithubCode(stackTrace);
+                    String githubCode = trace != null ? CodeSnippet.render(githubCodeFetcher.getGithubCode(trace)) : "";
                     List<String> analysis = callGeminiForGithubCodeAnalysis(stackTrace, sentryError, githubCode);
-                    allAnalyses.add(analysis);
+                    if (!sink.test(analysis)) {
+                        break;
+                    }
                     errorCount++;
                 }
             }
         } catch (Exception e) {
             Sentry.captureException(e);
-            allAnalyses.add(Arrays.asList("AI Analysis unavailable: " + e.getMessage()));
+            sink.test(Arrays.asList("AI Analysis unavailable: " + e.getMessage()));
         }
-        return allAnalyses;
     }
 
     // Call Gemini API for code analysis
@@ -154,14 +187,48 @@ public class AIAnalysisService {
 
     // Call Gemini API for code analysis with enhanced context (breadcrumbs, request details, error metadata)
     public List<String> callGeminiForGithubCodeAnalysisWithContext(String stackTraceData, String sentryError, String githubCode, Map<String, Object> enhancedContext){
+        return callGeminiForGithubCodeAnalysisWithContext(stackTraceData, sentryError, githubCode, enhancedContext, false);
+    }
+
+    // Same, served from AnalysisCache when the stack trace and code are unchanged; bypassCache
+    // forces a fresh Gemini call (whose answer then replaces the cached one). Failed or
+    // unparseable responses are never cached.
+    public List<String> callGeminiForGithubCodeAnalysisWithContext(String stackTraceData, String sentryError, String githubCode,
+                                                                   Map<String, Object> enhancedContext, boolean bypassCache){
+        // The prompt budget is part of the version: a budget change trims prompts differently
+        String fingerprint = AnalysisFingerprint.of(ENHANCED_PROMPT_VERSION + ";" + promptBuilder.budgetKey(),
+            stackTraceData, githubCode);
+        if (!bypassCache) {
+            List<String> cached = analysisCache.get(fingerprint);
+            meterRegistry.counter("upstream.cache", "upstream", "gemini", "operation", "generateContent",
+                "result", cached != null ? "hit" : "miss").increment();
+            if (cached != null) {
+                System.out.println("[AnalysisCache] Hit " + fingerprint.substring(0, 12) + ", skipping Gemini");
+                return cached;
+            }
+        }
         try{
-            String prompt = createEnhancedCodeAnalysisPrompt(stackTraceData, sentryError, githubCode, enhancedContext);
-            
-            // Log the full prompt to JSON file for debugging
-            logPromptToFile(prompt, stackTraceData, sentryError, githubCode, enhancedContext);
-            
-            String geminiResponse = callGeminiAPI(prompt);
-            return parseSuggestionsResponse(geminiResponse);
+            String prompt = pipelineMetrics.time(PipelineMetrics.PROMPT,
+                () -> createEnhancedCodeAnalysisPrompt(stackTraceData, sentryError, githubCode, enhancedContext));
+
+            // Journaled whether or not the call succeeds; a failed call is recorded with no response
+            String geminiResponse;
+            try {
+                geminiResponse = pipelineMetrics.time(PipelineMetrics.LLM, () -> callGeminiAPI(prompt));
+            } catch (RuntimeException e) {
+                promptJournal.record(fingerprint, geminiApiModel, prompt, null);
+                throw e;
+            }
+            promptJournal.record(fingerprint, geminiApiModel, prompt, geminiResponse);
+            List<String> suggestions = pipelineMetrics.time(PipelineMetrics.PARSE, () -> {
+                String suggestionsText = candidateText(geminiResponse);
+                return suggestionsText != null ? formatSuggestions(suggestionsText) : null;
+            });
+            if (suggestions == null) {
+                return Arrays.asList("🤖 GEMINI AI SUGGESTIONS:", "Unable to parse Gemini response");
+            }
+            analysisCache.put(fingerprint, suggestions);
+            return suggestions;
         } catch (Exception e){
             Sentry.captureException(e);
             return Arrays.asList("Gemini AI Code Review failed: " + e.getMessage());
@@ -219,15 +286,10 @@ public class AIAnalysisService {
         "{\n  \"cause\": \"\",\n  \"solution\": \"\",\n  \"pull_request\": {\n    \"title\": \"\",\n    \"description\": \"\",\n    \"commit_message\": \"\",\n    \"changes\": [\n      {\n        \"file\": \"\",\n        \"replacements\": [\n          {\n            \"start_line\": 0,\n            \"end_line\": 0,\n            \"replacement_code\": \"\"\n          }\n        ]\n      }\n    ]\n  }\n}\n";
     }
 
-    // Create enhanced code analysis prompt with context (breadcrumbs, request details, error metadata)
+    // Create enhanced code analysis prompt with context (breadcrumbs, request details, error metadata),
+    // fitted to the token budget by PromptBuilder
     private String createEnhancedCodeAnalysisPrompt(String stackTraceData, String sentryError, String githubCode, Map<String, Object> enhancedContext) {
-        return "You are an expert software engineer analyzing stack trace data, error data from Sentry, and additional context. Please analyze the following and provide a code review.\n\n" +
-        "Stack Trace:\n" + stackTraceData + "\n\n" +
-        "Sentry Error: \n" + sentryError + "\n\n" +
-        "Code from github: \n" + githubCode + "\n\n" +
-        "Enhanced Context: \n" + enhancedContext.toString() + "\n\n" +
-        "\nIMPORTANT: Please respond ONLY in the following JSON format (do not include any markdown, code block, or explanation):\n" +
-        "{\n  \"cause\": \"\",\n  \"solution\": \"\",\n  \"pull_request\": {\n    \"title\": \"\",\n    \"description\": \"\",\n    \"commit_message\": \"\",\n    \"changes\": [\n      {\n        \"file\": \"\",\n        \"replacements\": [\n          {\n            \"start_line\": 0,\n            \"end_line\": 0,\n            \"replacement_code\": \"\"\n          }\n        ]\n      }\n    ]\n  }\n}\n";
+        return promptBuilder.buildCodeAnalysisPrompt(stackTraceData, sentryError, githubCode, enhancedContext);
     }
 
 
@@ -286,6 +348,7 @@ public class AIAnalysisService {
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
             
+            // The Gemini token is taken by GeminiRateLimitInterceptor, only for calls not coalesced
             ResponseEntity<String> response = restTemplate.exchange(
                 geminiApiUrl, HttpMethod.POST, entity, String.class);
             
@@ -301,8 +364,7 @@ public class AIAnalysisService {
     // Parse Gemini Interpretations to make it readable
     private List<String> parseGeminiInterpretation(String geminiResponse) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(geminiResponse);
+            JsonNode rootNode = objectMapper.readTree(geminiResponse);
             JsonNode candidatesNode = rootNode.path("candidates");
             if (candidatesNode.isArray() && candidatesNode.size() > 0) {
                 JsonNode contentNode = candidatesNode.get(0).path("content");
@@ -338,30 +400,9 @@ public class AIAnalysisService {
     // Parse Gemini Suggestions to make it readable
     private List<String> parseSuggestionsResponse(String geminiResponse) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(geminiResponse);
-            
-            JsonNode candidatesNode = rootNode.path("candidates");
-            if (candidatesNode.isArray() && candidatesNode.size() > 0) {
-                JsonNode contentNode = candidatesNode.get(0).path("content");
-                JsonNode partsNode = contentNode.path("parts");
-                if (partsNode.isArray() && partsNode.size() > 0) {
-                    String suggestionsText = partsNode.get(0).path("text").asText();
-                    
-                    // Convert text to list format
-                    List<String> suggestions = new ArrayList<>();
-                    suggestions.add("🤖 GEMINI AI SUGGESTIONS:");
-                    suggestions.add("");
-                    
-                    String[] lines = suggestionsText.split("\n");
-                    for (String line : lines) {
-                        if (!line.trim().isEmpty()) {
-                            suggestions.add(line.trim());
-                        }
-                    }
-                    
-                    return suggestions;
-                }
+            String suggestionsText = candidateText(geminiResponse);
+            if (suggestionsText != null) {
+                return formatSuggestions(suggestionsText);
             }
             
             return Arrays.asList("🤖 GEMINI AI SUGGESTIONS:", "Unable to parse Gemini response");
@@ -371,11 +412,46 @@ public class AIAnalysisService {
         }
     }
 
+    // Text of the first candidate's first part, or null if the response has none
+    private String candidateText(String geminiResponse) {
+        JsonNode rootNode;
+        try {
+            rootNode = objectMapper.readTree(geminiResponse);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Gemini response is not JSON: " + e.getOriginalMessage(), e);
+        }
+        
+        JsonNode candidatesNode = rootNode.path("candidates");
+        if (candidatesNode.isArray() && candidatesNode.size() > 0) {
+            JsonNode contentNode = candidatesNode.get(0).path("content");
+            JsonNode partsNode = contentNode.path("parts");
+            if (partsNode.isArray() && partsNode.size() > 0) {
+                return partsNode.get(0).path("text").asText();
+            }
+        }
+        return null;
+    }
+
+    // Convert text to list format
+    private static List<String> formatSuggestions(String suggestionsText) {
+        List<String> suggestions = new ArrayList<>();
+        suggestions.add("🤖 GEMINI AI SUGGESTIONS:");
+        suggestions.add("");
+        
+        String[] lines = suggestionsText.split("\n");
+        for (String line : lines) {
+            if (!line.trim().isEmpty()) {
+                suggestions.add(line.trim());
+            }
+        }
+        
+        return suggestions;
+    }
+
     // Parse Gemini response for analysis
     private String parseGeminiResponse(String geminiResponse) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(geminiResponse);
+            JsonNode rootNode = objectMapper.readTree(geminiResponse);
             
             JsonNode candidatesNode = rootNode.path("candidates");
             if (candidatesNode.isArray() && candidatesNode.size() > 0) {
@@ -398,7 +474,6 @@ public class AIAnalysisService {
     public Map<String, Object> parseGeminiJsonResponse(String geminiResponse) {
         try {
             System.out.println("[DEBUG] Raw Gemini response:\n" + geminiResponse);
-            ObjectMapper mapper = new ObjectMapper();
             // Try to parse the first code block or the whole response as JSON
             String jsonText = geminiResponse;
             // If Gemini wraps JSON in markdown, extract it
@@ -409,7 +484,7 @@ public class AIAnalysisService {
                     jsonText = jsonText.substring(start, end).trim();
                 }
             }
-            return mapper.readValue(jsonText, Map.class);
+            return objectMapper.readValue(jsonText, Map.class);
         } catch (Exception e) {
             // Return a default structure if parsing fails
             Map<String, Object> fallback = new LinkedHashMap<>();
@@ -479,8 +554,7 @@ public class AIAnalysisService {
     public String getMostRecentSentryError() {
         try {
             String allErrorsJson = getRawSentryErrorData(); // gets raw JSON array from Sentry
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(allErrorsJson);
+            JsonNode rootNode = objectMapper.readTree(allErrorsJson);
             if (rootNode.isArray() && rootNode.size() > 0) {
                 JsonNode mostRecentEvent = rootNode.get(0);
                 String singleEventArray = "[" + mostRecentEvent.toString() + "]";
@@ -499,8 +573,7 @@ public class AIAnalysisService {
         errorData.append("=== REAL SENTRY ERROR DATA ===\n\n");
         
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(jsonResponse);
+            JsonNode rootNode = objectMapper.readTree(jsonResponse);
             
             Map<String, Integer> errorTypeCounts = new HashMap<>();
             List<String> errorMessages = new ArrayList<>();
@@ -582,29 +655,4 @@ public class AIAnalysisService {
         
         return "UnknownError";
     }
-
-    // Helper method to log the full prompt and context to a JSON file
-    private void logPromptToFile(String prompt, String stackTraceData, String sentryError, String githubCode, Map<String, Object> enhancedContext) {
-        try {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-            String fileName = "gemini_prompt_log_" + timestamp + ".json";
-            File file = new File(fileName);
-            FileWriter writer = new FileWriter(file);
-
-            Map<String, Object> logData = new HashMap<>();
-            logData.put("timestamp", timestamp);
-            logData.put("prompt", prompt);
-            logData.put("stackTraceData", stackTraceData);
-            logData.put("sentryError", sentryError);
-            logData.put("githubCode", githubCode);
-            logData.put("enhancedContext", enhancedContext);
-
-            writer.write(new ObjectMapper().writeValueAsString(logData));
-            writer.close();
-            System.out.println("Prompt and context logged to " + fileName);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            System.err.println("Failed to log prompt to file: " + e.getMessage());
-        }
-    }
 }
@@ -0,0 +1,242 @@
+package com.example.sentrytestbackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of Gemini code analyses keyed by AnalysisFingerprint.
+ *
+ *   1. heap - Caffeine, bounded by entry count
+ *   2. disk - one JSON file per fingerprint under analysis.cache.dir, survives restarts
+ * Entries expire analysis.cache.ttl-hours after Gemini produced them, in both tiers (a disk
+ * entry promoted to the heap keeps its original age). The disk tier is pruned back to
+ * analysis.cache.disk.max-entries, oldest first, at startup and every 100 writes.
+ *
+ *   analysis.cache.enabled=true
+ *   analysis.cache.dir=${java.io.tmpdir}/sentry-analysis-cache
+ *   analysis.cache.ttl-hours=168
+ *   analysis.cache.heap.max-entries=500
+ *   analysis.cache.disk.max-entries=5000
+ */
+@Service
+public class AnalysisCache {
+
+    private static final int PRUNE_EVERY_WRITES = 100;
+
+    @Value("${analysis.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analysis.cache.dir:${java.io.tmpdir}/sentry-analysis-cache}")
+    private String cacheDir;
+
+    @Value("${analysis.cache.ttl-hours:168}")
+    private long ttlHours;
+
+    @Value("${analysis.cache.heap.max-entries:500}")
+    private long heapMaxEntries;
+
+    @Value("${analysis.cache.disk.max-entries:5000}")
+    private int diskMaxEntries;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private final AtomicInteger writesSincePrune = new AtomicInteger();
+    private Cache<String, CachedAnalysis> heap;
+    private Path diskRoot;
+    private boolean diskEnabled;
+
+    private record CachedAnalysis(long createdAtMillis, List<String> suggestions) {
+    }
+
+    @PostConstruct
+    public void init() {
+        heap = Caffeine.newBuilder()
+                .maximumSize(heapMaxEntries)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, heap, "gemini.analyses");
+
+        diskRoot = Paths.get(cacheDir);
+        diskEnabled = enabled && diskMaxEntries > 0;
+        if (diskEnabled) {
+            try {
+                Files.createDirectories(diskRoot);
+                pruneDisk();
+            } catch (IOException e) {
+                System.err.println("[AnalysisCache] Disk tier disabled, cannot create " + diskRoot + ": " + e.getMessage());
+                diskEnabled = false;
+            }
+        }
+        System.out.println("[AnalysisCache] " + (enabled ? "ttl=" + ttlHours + "h, heap=" + heapMaxEntries
+                + " entries, disk=" + (diskEnabled ? diskRoot : "disabled") : "disabled"));
+    }
+
+    /**
+     * Cached suggestions for the fingerprint, or null on a miss (or when they have expired).
+     */
+    public List<String> get(String fingerprint) {
+        if (!enabled) {
+            return null;
+        }
+        CachedAnalysis cached = heap.getIfPresent(fingerprint);
+        if (cached == null) {
+            cached = readFromDisk(fingerprint);
+            if (diskEnabled) {
+                meterRegistry.counter("gemini.analyses.disk", "result", cached != null ? "hit" : "miss").increment();
+            }
+            if (cached != null) {
+                heap.put(fingerprint, cached);
+            }
+        }
+        if (cached == null || isExpired(cached)) {
+            return null;
+        }
+        return cached.suggestions();
+    }
+
+    public void put(String fingerprint, List<String> suggestions) {
+        if (!enabled) {
+            return;
+        }
+        CachedAnalysis entry = new CachedAnalysis(System.currentTimeMillis(), List.copyOf(suggestions));
+        heap.put(fingerprint, entry);
+        writeToDisk(fingerprint, entry);
+    }
+
+    private boolean isExpired(CachedAnalysis entry) {
+        return System.currentTimeMillis() - entry.createdAtMillis() > Duration.ofHours(ttlHours).toMillis();
+    }
+
+// DISK TIER //
+
+    private Path diskPath(String fingerprint) {
+        return diskRoot.resolve(fingerprint.substring(0, 2)).resolve(fingerprint + ".json");
+    }
+
+    private CachedAnalysis readFromDisk(String fingerprint) {
+        if (!diskEnabled) {
+            return null;
+        }
+        Path file = diskPath(fingerprint);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            JsonNode node = mapper.readTree(Files.readString(file, StandardCharsets.UTF_8));
+            List<String> suggestions = new ArrayList<>();
+            for (JsonNode line : node.path("suggestions")) {
+                suggestions.add(line.asText());
+            }
+            CachedAnalysis entry = new CachedAnalysis(node.path("createdAt").asLong(), List.copyOf(suggestions));
+            if (isExpired(entry)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return entry;
+        } catch (IOException e) {
+            System.err.println("[AnalysisCache] Failed to read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Write to a temp file and move it in place so readers never see a partial entry
+    private void writeToDisk(String fingerprint, CachedAnalysis entry) {
+        if (!diskEnabled) {
+            return;
+        }
+        Path file = diskPath(fingerprint);
+        try {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("fingerprint", fingerprint);
+            node.put("createdAt", entry.createdAtMillis());
+            ArrayNode lines = node.putArray("suggestions");
+            entry.suggestions().forEach(lines::add);
+
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "analysis", ".tmp");
+            Files.writeString(tmp, mapper.writeValueAsString(node), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[AnalysisCache] Failed to write " + file + ": " + e.getMessage());
+            return;
+        }
+        if (writesSincePrune.incrementAndGet() >= PRUNE_EVERY_WRITES) {
+            writesSincePrune.set(0);
+            pruneDisk();
+        }
+    }
+
+    // Drops expired entries, then the oldest ones beyond diskMaxEntries
+    private synchronized void pruneDisk() {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(diskRoot, 2)) {
+            files = walk.filter(path -> path.toString().endsWith(".json")).toList();
+        } catch (IOException e) {
+            System.err.println("[AnalysisCache] Failed to list " + diskRoot + ": " + e.getMessage());
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - Duration.ofHours(ttlHours).toMillis();
+        List<Path> kept = new ArrayList<>();
+        int removed = 0;
+        for (Path file : files) {
+            if (lastModified(file) < cutoff) {
+                removed += delete(file);
+            } else {
+                kept.add(file);
+            }
+        }
+        if (kept.size() > diskMaxEntries) {
+            kept.sort(Comparator.comparingLong(AnalysisCache::lastModified));
+            for (Path file : kept.subList(0, kept.size() - diskMaxEntries)) {
+                removed += delete(file);
+            }
+        }
+        if (removed > 0) {
+            System.out.println("[AnalysisCache] Pruned " + removed + " disk entries");
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static int delete(Path file) {
+        try {
+            return Files.deleteIfExists(file) ? 1 : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.sentrytestbackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event streams for batch analysis endpoints.
+ *
+ * A stream emits, in order:
+ *   started   {"total"}                           once, when the batch is accepted
+ *   result    one per item, as soon as it is done   (payload is the item's usual JSON)
+ *   progress  {"completed", "failed", "total"}     after every result
+ *   heartbeat {"completed", "total"}               every sse.heartbeat-seconds
+ *   done      {"completed", "failed", "total"}     then the stream closes
+ * Results are written to the response as they arrive and not kept, so memory per stream does
+ * not grow with the batch size. When the client disconnects isOpen() turns false and producers
+ * stop starting new work.
+ *
+ *   sse.batch.timeout-seconds=900
+ *   sse.heartbeat-seconds=15
+ */
+@Service
+public class BatchStreamService {
+
+    @Value("${sse.batch.timeout-seconds:900}")
+    private long timeoutSeconds;
+
+    @Value("${sse.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    private final ScheduledThreadPoolExecutor heartbeats = newHeartbeatScheduler();
+
+    /**
+     * Opens a stream for total items (-1 if not known up front) and sends the started event.
+     */
+    public BatchStream open(String name, int total) {
+        BatchStream stream = new BatchStream(name, new SseEmitter(timeoutSeconds * 1000L), total);
+        stream.heartbeat = heartbeats.scheduleAtFixedRate(stream::heartbeat,
+                heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        stream.emitter.onCompletion(stream::closed);
+        stream.emitter.onTimeout(stream::closed);
+        stream.emitter.onError(error -> stream.closed());
+        stream.send("started", counts(stream));
+        return stream;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    public static final class BatchStream {
+        private final String name;
+        private final SseEmitter emitter;
+        private final int total;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile boolean open = true;
+        private volatile ScheduledFuture<?> heartbeat;
+
+        private BatchStream(String name, SseEmitter emitter, int total) {
+            this.name = name;
+            this.emitter = emitter;
+            this.total = total;
+        }
+
+        public SseEmitter emitter() {
+            return emitter;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        /** Sends one finished item followed by a progress event. */
+        public void result(Object data) {
+            completed.incrementAndGet();
+            send("result", data);
+            send("progress", counts(this));
+        }
+
+        /** Sends an item that failed; it counts as completed and failed. */
+        public void failure(Object data) {
+            failed.incrementAndGet();
+            result(data);
+        }
+
+        /** Sends the done event and closes the stream. */
+        public synchronized void complete() {
+            if (!open) {
+                return;
+            }
+            send("done", counts(this));
+            closed();
+            emitter.complete();
+        }
+
+        public synchronized void completeWithError(String message) {
+            if (!open) {
+                return;
+            }
+            send("error", Map.of("error", message));
+            closed();
+            emitter.complete();
+        }
+
+        // SseEmitter writes must not interleave, so every send goes through this lock
+        private synchronized void send(String event, Object data) {
+            if (!open) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("[SSE] " + name + " client went away: " + e.getMessage());
+                closed();
+            }
+        }
+
+        private void heartbeat() {
+            if (!open) {
+                closed();
+                return;
+            }
+            Map<String, Object> beat = new LinkedHashMap<>();
+            beat.put("completed", completed.get());
+            beat.put("total", total);
+            send("heartbeat", beat);
+        }
+
+        private void closed() {
+            open = false;
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+            }
+        }
+    }
+
+    private static Map<String, Object> counts(BatchStream stream) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("completed", stream.completed.get());
+        counts.put("failed", stream.failed.get());
+        counts.put("total", stream.total);
+        return counts;
+    }
+
+    private static ScheduledThreadPoolExecutor newHeartbeatScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
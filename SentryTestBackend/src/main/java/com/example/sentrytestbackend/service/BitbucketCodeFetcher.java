@@ -5,13 +5,25 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import com.example.sentrytestbackend.util.BitbucketCommit;
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.CommitTimeline;
+import com.example.sentrytestbackend.util.SourceFile;
+import com.example.sentrytestbackend.util.StackTrace;
+import java.net.URI;
 
 @Service
 public class BitbucketCodeFetcher {
@@ -39,7 +51,37 @@ public class BitbucketCodeFetcher {
     private String bitbucketWorkspace;
     @Value("${bitbucket.repo.name}")
     private String bitbucketRepoName;
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Every API URL is built on this; the standin profile points it at a local stand-in
+    @Value("${bitbucket.api.base-url:https://api.bitbucket.org}")
+    private String bitbucketApiBaseUrl;
+    @Autowired
+    private RestTemplate restTemplate;
+
+    // Max simultaneous Bitbucket requests per workspace when fetching snippets for a trace
+    @Value("${bitbucket.fetch.max-concurrent-per-workspace:4}")
+    private int maxConcurrentPerWorkspace;
+
+    @Autowired
+    private ExecutorService snippetFetchExecutor;
+
+    private final ConcurrentHashMap<String, Semaphore> workspacePermits = new ConcurrentHashMap<>();
+
+    @Autowired
+    private SourceFileCache sourceFileCache;
+
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
+
+    private static final String SOURCE_HOST = "bitbucket";
+
+    @Autowired
+    private CommitTimelineService commitTimelineService;
+
+    @Autowired
+    private FilePathIndexService filePathIndexService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     
     /**
      * Searches for a file in a Bitbucket workspace using the search API
@@ -61,8 +103,8 @@ public class BitbucketCodeFetcher {
             }
             
             String searchUrl = String.format(
-                "https://api.bitbucket.org/2.0/workspaces/%s/search/code?search_query=%s",
-                workspace, 
+                "%s/2.0/workspaces/%s/search/code?search_query=%s",
+                bitbucketApiBaseUrl, workspace, 
                 java.net.URLEncoder.encode(searchQuery, "UTF-8")
             );
             
@@ -73,7 +115,8 @@ public class BitbucketCodeFetcher {
             headers.set("Authorization", createBasicAuthHeaderForWorkspace(workspace));
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(searchUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(searchUrl, HttpMethod.GET, entity, String.class));
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 return parseSearchResults(response.getBody(), filename);
@@ -93,8 +136,7 @@ public class BitbucketCodeFetcher {
      */
     private List<String> parseSearchResults(String jsonResponse, String targetFilename) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(jsonResponse);
+            JsonNode root = objectMapper.readTree(jsonResponse);
             JsonNode values = root.path("values");
             
             List<String> filePaths = new ArrayList<>();
@@ -142,8 +184,8 @@ public class BitbucketCodeFetcher {
             }
             
             String searchUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/search/code?search_query=%s",
-                workspace, repository,
+                "%s/2.0/repositories/%s/%s/search/code?search_query=%s",
+                bitbucketApiBaseUrl, workspace, repository,
                 java.net.URLEncoder.encode(searchQuery, "UTF-8")
             );
             
@@ -154,7 +196,8 @@ public class BitbucketCodeFetcher {
             headers.set("Authorization", createBasicAuthHeaderForWorkspace(workspace));
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(searchUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(searchUrl, HttpMethod.GET, entity, String.class));
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 return parseSearchResults(response.getBody(), filename);
@@ -184,8 +227,8 @@ public class BitbucketCodeFetcher {
         try {
             String browsePath = startPath != null ? startPath : "";
             String browseUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/src/%s/%s",
-                workspace, repository, branch, browsePath
+                "%s/2.0/repositories/%s/%s/src/%s/%s",
+                bitbucketApiBaseUrl, workspace, repository, branch, browsePath
             );
             
             System.out.println("[BitbucketCodeFetcher] Browsing repository path: " + browseUrl);
@@ -194,7 +237,8 @@ public class BitbucketCodeFetcher {
             headers.set("Authorization", createBasicAuthHeaderForWorkspace(workspace));
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(browseUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(browseUrl, HttpMethod.GET, entity, String.class));
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 return parseDirectoryContents(response.getBody(), workspace, repository, branch, browsePath, targetFilename);
@@ -214,8 +258,7 @@ public class BitbucketCodeFetcher {
      */
     private List<String> parseDirectoryContents(String jsonResponse, String workspace, String repository, String branch, String currentPath, String targetFilename) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(jsonResponse);
+            JsonNode root = objectMapper.readTree(jsonResponse);
             JsonNode values = root.path("values");
             
             List<String> foundPaths = new ArrayList<>();
@@ -251,6 +294,7 @@ public class BitbucketCodeFetcher {
     
     /**
      * ENHANCED FILE DISCOVERY - Combines multiple strategies for maximum success
+     * 0. Look the file up in the per-commit file-path index (no request once the index is built)
      * 1. Try repository-specific search first (fastest, most accurate)
      * 2. Fall back to workspace search if needed
      * 3. Fall back to directory browsing if search fails
@@ -263,13 +307,23 @@ public class BitbucketCodeFetcher {
      * @return Best matching file path or null if not found
      */
     public String discoverFileLocation(String workspace, String repository, String branch, String filename, String packageName) {
-        System.out.println("[BitbucketCodeFetcher] Starting enhanced file discovery for: " + filename);
+        // Strategy 0: File-path index pinned to the branch head
+        String head = sourceFileCache.resolveRef(SOURCE_HOST, workspace + "/" + repository, branch,
+            () -> getBranchHeadCommit(workspace, repository, branch));
+        String indexed = filePathIndexService.find(workspace, repository, branch, head, filename, packageName,
+            pageLoader(createBasicAuthHeaderForWorkspaceRepo(workspace, repository), JsonNode.class));
+        if (indexed != null) {
+            return indexed;
+        }
+
+        System.out.println("[BitbucketCodeFetcher] Index miss, starting enhanced file discovery for: " + filename);
         
         // Strategy 1: Repository-specific search (preferred)
         List<String> repoResults = searchFileInRepository(workspace, repository, filename, packageName);
         if (!repoResults.isEmpty()) {
             String bestMatch = repoResults.get(0); // Use first result
             System.out.println("[BitbucketCodeFetcher] Discovery successful via repository search: " + bestMatch);
+            filePathIndexService.remember(workspace, repository, branch, bestMatch);
             return bestMatch;
         }
         
@@ -286,6 +340,7 @@ public class BitbucketCodeFetcher {
         if (!browseResults.isEmpty()) {
             String bestMatch = browseResults.get(0);
             System.out.println("[BitbucketCodeFetcher] Discovery successful via browsing: " + bestMatch);
+            filePathIndexService.remember(workspace, repository, branch, bestMatch);
             return bestMatch;
         }
         
@@ -357,6 +412,14 @@ public class BitbucketCodeFetcher {
      * @return Bitbucket URL pointing to specific commit or branch
      */
     public String buildBitbucketLinkWithCommit(String module, String filename, int lineno, String commitHash) {
+        return buildBitbucketLocationWithCommit(module, filename, lineno, commitHash).url();
+    }
+
+    /**
+     * Structured form of buildBitbucketLinkWithCommit: the link plus the workspace, repo, ref,
+     * path and line it points at, so snippet fetching never has to parse the link back
+     */
+    public StackTrace.SourceLocation buildBitbucketLocationWithCommit(String module, String filename, int lineno, String commitHash) {
         int lastDot = module.lastIndexOf('.');
         String packagePath = lastDot != -1 ? module.substring(0, lastDot).replace('.', '/') : "";
         String srcRoot = bitbucketRepoSrcRoot;
@@ -400,7 +463,10 @@ public class BitbucketCodeFetcher {
             System.out.println("[DEBUG] Generated commit-specific link: " + bitbucketUrl);
         }
         
-        return bitbucketUrl;
+        // Workspace and repo come from the link itself, so the snippet is fetched from the repo the link shows
+        StackTrace.SourceLocation linked = StackTrace.SourceLocation.parseBitbucket(bitbucketUrl);
+        return new StackTrace.SourceLocation(bitbucketUrl, StackTrace.SourceLocation.BITBUCKET,
+            linked.owner(), linked.repo(), ref, dedupedPath.toString(), lineno != -1 ? lineno : -1);
     }
 
     /**
@@ -445,113 +511,218 @@ public class BitbucketCodeFetcher {
      * @return Code snippet as a String, or error message if link is invalid
      */
     public String mapToBitbucketCode(String bitbucketLink, int context, String errorTimestamp) {
-        Pattern pattern = Pattern.compile(
-            "bitbucket.org/([^/]+)/([^/]+)/src/([^/]+)/(.+?)#lines-(\\d+)");
-        Matcher matcher = pattern.matcher(bitbucketLink);
-
-        if (!matcher.find()) {
+        BitbucketFileRef fileRef = parseBitbucketLink(bitbucketLink);
+        if (fileRef == null) {
             System.out.println("[DEBUG] Invalid Bitbucket link: " + bitbucketLink);
             return "Invalid Bitbucket link";
         }
+        FileFetchResult file = fetchFileAtErrorTime(fileRef, errorTimestamp);
+        return file.file != null ? sliceSnippet(file.file, fileRef.lineNumber, context) : file.errorMessage;
+    }
+
+    /**
+     * Fetches code snippets for the linked frames of a stack trace.
+     * @param stackTrace Stack trace whose frames carry Bitbucket locations
+     * @param context Number of lines of context before and after the error line
+     * @param errorTimestamp ISO8601 timestamp of the error occurrence
+     * @return One snippet (or failure message) per linked frame, in stack-trace order
+     */
+    public List<CodeSnippet> getBitbucketCode(StackTrace stackTrace, int context, String errorTimestamp) {
+        return getBitbucketCode(stackTrace, context, errorTimestamp, bitbucketRepoSrcRoot);
+    }
+
+    /**
+     * Variant that only keeps frames whose link contains srcRootFilter (per-project filtering).
+     *
+     * Frames are resolved and downloaded concurrently (at most N requests in flight per
+     * workspace). A file referenced by several frames at the same ref is downloaded once.
+     * Snippets are returned in stack-trace order.
+     */
+    public List<CodeSnippet> getBitbucketCode(StackTrace stackTrace, int context, String errorTimestamp, String srcRootFilter) {
+        List<StackTrace.SourceLocation> locations = new ArrayList<>();
+        for (StackTrace.SourceLocation location : stackTrace.locations()) {
+            if (!StackTrace.SourceLocation.BITBUCKET.equals(location.host()) || !location.hasLine()) {
+                continue;
+            }
+            if (srcRootFilter == null || srcRootFilter.isEmpty() || location.url().contains(srcRootFilter)) {
+                locations.add(location);
+            }
+        }
+
+        // One download per distinct (workspace, repo, ref, path) within this trace
+        Map<String, CompletableFuture<FileFetchResult>> downloads = new HashMap<>();
+        for (StackTrace.SourceLocation location : locations) {
+            if (location.isResolved()) {
+                BitbucketFileRef fileRef = BitbucketFileRef.of(location);
+                downloads.computeIfAbsent(fileRef.fileKey(), key -> CompletableFuture.supplyAsync(
+                    () -> withWorkspacePermit(fileRef.workspace, () -> fetchFileAtErrorTime(fileRef, errorTimestamp)),
+                    snippetFetchExecutor));
+            }
+        }
 
-        String workspace = matcher.group(1);
-        String repo = matcher.group(2);
-        String refFromLink = matcher.group(3);
-        String filePath = matcher.group(4);
-        int lineNumber = Integer.parseInt(matcher.group(5));
+        List<CodeSnippet> snippets = new ArrayList<>(locations.size());
+        for (StackTrace.SourceLocation location : locations) {
+            if (!location.isResolved()) {
+                System.out.println("[DEBUG] Invalid Bitbucket link: " + location.url());
+                snippets.add(CodeSnippet.missing(location, "Invalid Bitbucket link"));
+                continue;
+            }
+            FileFetchResult file = downloads.get(BitbucketFileRef.of(location).fileKey()).join();
+            snippets.add(file.file != null
+                ? CodeSnippet.of(location, sliceSnippet(file.file, location.line(), context))
+                : CodeSnippet.missing(location, file.errorMessage));
+        }
+        return snippets;
+    }
+
+    /**
+     * Parsed form of https://bitbucket.org/{workspace}/{repo}/src/{ref}/{path}#lines-{line}
+     */
+    private static final class BitbucketFileRef {
+        final String workspace;
+        final String repo;
+        final String ref;
+        final String filePath;
+        final int lineNumber;
+
+        BitbucketFileRef(String workspace, String repo, String ref, String filePath, int lineNumber) {
+            this.workspace = workspace;
+            this.repo = repo;
+            this.ref = ref;
+            this.filePath = filePath;
+            this.lineNumber = lineNumber;
+        }
+
+        static BitbucketFileRef of(StackTrace.SourceLocation location) {
+            return new BitbucketFileRef(location.owner(), location.repo(), location.ref(), location.path(), location.line());
+        }
+
+        String fileKey() {
+            return workspace + "/" + repo + "/" + ref + "/" + filePath;
+        }
+    }
+
+    // Either the file or the user-facing message explaining why it is missing
+    private static final class FileFetchResult {
+        final SourceFile file;
+        final String errorMessage;
+
+        FileFetchResult(SourceFile file, String errorMessage) {
+            this.file = file;
+            this.errorMessage = errorMessage;
+        }
+    }
+
+    private BitbucketFileRef parseBitbucketLink(String bitbucketLink) {
+        StackTrace.SourceLocation location = StackTrace.SourceLocation.parseBitbucket(bitbucketLink);
+        return location.isResolved() && location.hasLine() ? BitbucketFileRef.of(location) : null;
+    }
+
+    // Resolves the commit as of the error (unless the link already pins one) and loads the file
+    // through SourceFileCache, so a file at a given commit is downloaded at most once
+    private FileFetchResult fetchFileAtErrorTime(BitbucketFileRef fileRef, String errorTimestamp) {
+        String workspace = fileRef.workspace;
+        String repo = fileRef.repo;
+        String filePath = fileRef.filePath;
 
         // Respect explicit commit hashes in the incoming link; only resolve when it's a branch name
-        String ref = refFromLink;
-        boolean looksLikeCommit = refFromLink.matches("^[a-fA-F0-9]{7,40}$");
-        if (!looksLikeCommit) {
+        String ref = fileRef.ref;
+        if (!SourceFileCache.looksLikeCommit(ref)) {
             String commitHash = getCommitHashForDate(workspace, repo, filePath, errorTimestamp);
             if (commitHash != null && !commitHash.isEmpty()) {
                 ref = commitHash;
+            } else {
+                // No commit touched the file before the error: pin the branch head instead
+                String branch = fileRef.ref;
+                String head = sourceFileCache.resolveRef(SOURCE_HOST, workspace + "/" + repo, branch,
+                    () -> getBranchHeadCommit(workspace, repo, branch));
+                if (head != null) {
+                    ref = head;
+                }
             }
         }
 
         String apiUrl = String.format(
-            "https://api.bitbucket.org/2.0/repositories/%s/%s/src/%s/%s",
-            workspace, repo, ref, filePath
+            "%s/2.0/repositories/%s/%s/src/%s/%s",
+            bitbucketApiBaseUrl, workspace, repo, ref, filePath
         );
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", createBasicAuthHeaderForWorkspaceRepo(workspace, repo));
-        HttpEntity<String> entity = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
-            System.out.println("[DEBUG] Bitbucket API URL: " + apiUrl);
-            System.out.println("[DEBUG] Bitbucket API HTTP status: " + response.getStatusCodeValue());
-            String fileContent = response.getBody();
-            String[] lines = fileContent.split("\n");
-
-            // Convert target lineNumber (1-based) to 0-based index
-            int targetIdx = Math.max(0, lineNumber - 1);
-            int startIdx = Math.max(0, targetIdx - context);
-            int endExclusive = Math.min(lines.length, targetIdx + context + 1);
-
-            StringBuilder snippet = new StringBuilder();
-            for (int i = startIdx; i < endExclusive; i++) {
-                snippet.append((i + 1)).append(": ").append(lines[i]).append("\n");
+            SourceFile file;
+            if (SourceFileCache.looksLikeCommit(ref)) {
+                file = sourceFileCache.get(SOURCE_HOST, workspace + "/" + repo, ref, filePath,
+                    () -> downloadFile(apiUrl, workspace, repo));
+            } else {
+                // Unresolvable branch: content may change, so it is not cached
+                file = new SourceFile(downloadFile(apiUrl, workspace, repo));
             }
-            return snippet.toString();
+            return new FileFetchResult(file, null);
         } catch (org.springframework.web.client.HttpClientErrorException e) {
             System.out.println("[DEBUG] Bitbucket API URL: " + apiUrl);
             System.out.println("[DEBUG] Bitbucket API HTTP status: " + e.getStatusCode().value());
             System.out.println("[DEBUG] Bitbucket API error body: " + e.getResponseBodyAsString());
-            return "Bitbucket file not found for one or more frames.";
+            return new FileFetchResult(null, "Bitbucket file not found for one or more frames.");
         } catch (Exception e) {
             System.out.println("[DEBUG] Bitbucket API URL: " + apiUrl);
             System.out.println("[DEBUG] Bitbucket API error: " + e.getMessage());
-            return "Error fetching Bitbucket code: " + e.getMessage();
+            return new FileFetchResult(null, "Error fetching Bitbucket code: " + e.getMessage());
         }
     }
 
-    /**
-     * Maps a Sentry stack trace containing Bitbucket links to code snippets for each frame.
-     * @param stackTrace Sentry stack trace with Bitbucket links
-     * @param context Number of lines of context before and after the error line
-     * @param errorTimestamp ISO8601 timestamp of the error occurrence
-     * @return Combined code snippets for all Bitbucket links in the stack trace
-     */
-    public String getBitbucketCodeFromStackTrace(String stackTrace, int context, String errorTimestamp) {
-        StringBuilder allSnippets = new StringBuilder();
-        Pattern linkPattern = Pattern.compile("https://bitbucket.org/[^\\s\\]]+#lines-\\d+");
-        Matcher matcher = linkPattern.matcher(stackTrace);
-        while (matcher.find()) {
-            String bitbucketLink = matcher.group();
-            // Only fetch code for files in your project root
-            if (bitbucketLink.contains(bitbucketRepoSrcRoot)) {
-                String snippet = mapToBitbucketCode(bitbucketLink, context, errorTimestamp);
-                allSnippets.append("Snippet for: ").append(bitbucketLink).append("\n");
-                allSnippets.append(snippet).append("\n\n");
-            }
-        }
-        if (allSnippets.length() == 0) {
-            return "No Bitbucket links found in stack trace.";
-        }
-        return allSnippets.toString();
+    private String downloadFile(String apiUrl, String workspace, String repo) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", createBasicAuthHeaderForWorkspaceRepo(workspace, repo));
+        HttpEntity<String> entity = new HttpEntity<>(headers);
+        ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+            () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
+        System.out.println("[DEBUG] Bitbucket API URL: " + apiUrl);
+        System.out.println("[DEBUG] Bitbucket API HTTP status: " + response.getStatusCodeValue());
+        return response.getBody();
     }
 
     /**
-     * Variant that filters snippets using a provided srcRoot (per-project filtering).
+     * Resolves a branch name to the full hash of its current HEAD, or null if unavailable.
      */
-    public String getBitbucketCodeFromStackTrace(String stackTrace, int context, String errorTimestamp, String srcRootFilter) {
-        StringBuilder allSnippets = new StringBuilder();
-        Pattern linkPattern = Pattern.compile("https://bitbucket.org/[^\\s\\]]+#lines-\\d+");
-        Matcher matcher = linkPattern.matcher(stackTrace);
-        while (matcher.find()) {
-            String bitbucketLink = matcher.group();
-            if (srcRootFilter == null || srcRootFilter.isEmpty() || bitbucketLink.contains(srcRootFilter)) {
-                String snippet = mapToBitbucketCode(bitbucketLink, context, errorTimestamp);
-                allSnippets.append("Snippet for: ").append(bitbucketLink).append("\n");
-                allSnippets.append(snippet).append("\n\n");
-            }
+    public String getBranchHeadCommit(String workspace, String repo, String branch) {
+        try {
+            String apiUrl = String.format(
+                "%s/2.0/repositories/%s/%s/refs/branches/%s",
+                bitbucketApiBaseUrl, workspace, repo, branch
+            );
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", createBasicAuthHeaderForWorkspaceRepo(workspace, repo));
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
+
+            String hash = objectMapper.readTree(response.getBody()).path("target").path("hash").asText("");
+            return hash.isEmpty() ? null : hash;
+        } catch (Exception e) {
+            System.out.println("[DEBUG] Branch head lookup failed for " + workspace + "/" + repo + "@" + branch + ": " + e.getMessage());
+            return null;
         }
-        if (allSnippets.length() == 0) {
-            return "No Bitbucket links found in stack trace.";
+    }
+
+    private String sliceSnippet(SourceFile file, int lineNumber, int context) {
+        // Convert target lineNumber (1-based) to 0-based index
+        int targetIdx = Math.max(0, lineNumber - 1);
+        return file.numberedLines(targetIdx - context, targetIdx + context + 1);
+    }
+
+    // Caps concurrent Bitbucket requests per workspace (shared by all traces being processed)
+    private <T> T withWorkspacePermit(String workspace, Supplier<T> call) {
+        Semaphore permits = workspacePermits.computeIfAbsent(workspace, ws -> new Semaphore(maxConcurrentPerWorkspace, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for Bitbucket workspace slot: " + workspace);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
         }
-        return allSnippets.toString();
     }
 
     /**
@@ -565,25 +736,11 @@ public class BitbucketCodeFetcher {
      */
     public String getCommitHashForFileAtTime(String workspace, String repo, String filePath, String errorTimestamp) {
         try {
-            // Get commits for this specific file, with date filtering
-            String apiUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/commits?path=%s&pagelen=50",
-                workspace, repo, filePath
-            );
-            
             System.out.println("[DEBUG] Getting commit for file: " + filePath + " at time: " + errorTimestamp);
             
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + selectTokenForWorkspaceRepo(workspace, repo));
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(response.getBody());
-            JsonNode commits = rootNode.path("values");
-            
-            // Find the commit that was active at the error timestamp
-            String bestCommit = findCommitByTimestamp(commits, errorTimestamp);
+            // Answered from the cached per-file commit timeline; only unseen history hits the API
+            String bestCommit = commitTimelineService.fileCommitAt(workspace, repo, filePath, errorTimestamp,
+                pageLoader("Bearer " + selectTokenForWorkspaceRepo(workspace, repo), BitbucketCommit.Page.class));
             if (bestCommit != null) {
                 System.out.println("[DEBUG] Found file-specific commit: " + bestCommit);
                 return bestCommit;
@@ -602,24 +759,11 @@ public class BitbucketCodeFetcher {
      */
     public String getBranchCommitAtTime(String workspace, String repo, String branch, String errorTimestamp) {
         try {
-            // Get all commits on branch, find the one active at timestamp
-            String apiUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/commits/%s?pagelen=100",
-                workspace, repo, branch
-            );
-            
             System.out.println("[DEBUG] Getting branch commit for: " + branch + " at time: " + errorTimestamp);
             
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + selectTokenForWorkspaceRepo(workspace, repo));
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(response.getBody());
-            JsonNode commits = rootNode.path("values");
-            
-            String bestCommit = findCommitByTimestamp(commits, errorTimestamp);
+            // Answered from the cached branch commit timeline; only unseen history hits the API
+            String bestCommit = commitTimelineService.branchCommitAt(workspace, repo, branch, errorTimestamp,
+                pageLoader("Bearer " + selectTokenForWorkspaceRepo(workspace, repo), BitbucketCommit.Page.class));
             if (bestCommit != null) {
                 System.out.println("[DEBUG] Found branch commit: " + bestCommit);
                 return bestCommit;
@@ -659,28 +803,18 @@ public class BitbucketCodeFetcher {
     }
     
     /**
-     * Helper: Find the best commit based on timestamp comparison
+     * Helper: Loads one page of a paginated Bitbucket API (commits, src listing, diffstat) as pageType.
+     * Pagination "next" links are already encoded, so they are passed as URIs as-is.
      */
-    private String findCommitByTimestamp(JsonNode commits, String errorTimestamp) {
-        try {
-            java.time.Instant errorTime = java.time.Instant.parse(errorTimestamp);
-            
-            for (JsonNode commit : commits) {
-                String commitDateStr = commit.path("date").asText();
-                java.time.Instant commitTime = java.time.Instant.parse(commitDateStr);
-                
-                // If this commit happened before or at the error time, it's a candidate
-                if (!commitTime.isAfter(errorTime)) {
-                    String commitHash = commit.path("hash").asText();
-                    System.out.println("[DEBUG] Found commit " + commitHash + " at " + commitDateStr + " (before error)");
-                    return commitHash;
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("[DEBUG] Timestamp parsing failed: " + e.getMessage());
-        }
-        
-        return null;
+    private <T> CommitTimeline.PageLoader<T> pageLoader(String authorization, Class<T> pageType) {
+        return url -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", authorization);
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(URI.create(url), HttpMethod.GET, entity, String.class));
+            return objectMapper.readValue(response.getBody(), pageType);
+        };
     }
     
     /**
@@ -688,21 +822,8 @@ public class BitbucketCodeFetcher {
      */
     public String getCommitHashForDate(String workspace, String repo, String filePath, String untilIsoDate) {
         try {
-            String apiUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/commits?path=%s&q=date<=\"%s\"&pagelen=1",
-                workspace, repo, filePath, untilIsoDate
-            );
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", createBasicAuthHeader());
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode commits = mapper.readTree(response.getBody()).path("values");
-            if (commits.isArray() && commits.size() > 0) {
-                return commits.get(0).path("hash").asText();
-            }
-            return null;
+            return commitTimelineService.fileCommitAt(workspace, repo, filePath, untilIsoDate,
+                pageLoader(createBasicAuthHeader(), BitbucketCommit.Page.class));
         } catch (Exception e) {
             return null;
         }
@@ -719,8 +840,8 @@ public class BitbucketCodeFetcher {
         try {
             // Get current HEAD of the detected branch from Bitbucket
             String apiUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/commits/%s?pagelen=1",
-                bitbucketWorkspace, bitbucketRepoName, currentBranch
+                "%s/2.0/repositories/%s/%s/commits/%s?pagelen=1",
+                bitbucketApiBaseUrl, bitbucketWorkspace, bitbucketRepoName, currentBranch
             );
             
             System.out.println("[BitbucketCodeFetcher] Checking Bitbucket API for branch HEAD: " + currentBranch);
@@ -731,17 +852,15 @@ public class BitbucketCodeFetcher {
             }
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
             
             if (response.getStatusCode().is2xxSuccessful()) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(response.getBody());
-                JsonNode commits = rootNode.path("values");
+                List<BitbucketCommit> commits = objectMapper.readValue(response.getBody(), BitbucketCommit.Page.class).commits();
                 
-                if (commits.isArray() && commits.size() > 0) {
-                    String commitHash = commits.get(0).path("hash").asText();
-                    String shortCommit = commitHash.length() > 7 ? commitHash.substring(0, 7) : commitHash;
-                    String commitDate = commits.get(0).path("date").asText();
+                if (!commits.isEmpty()) {
+                    String shortCommit = commits.get(0).shortHash();
+                    String commitDate = commits.get(0).date();
                     System.out.println("[BitbucketCodeFetcher] Found branch HEAD: " + shortCommit + " on branch: " + currentBranch + " dated: " + commitDate);
                     return shortCommit;
                 }
@@ -832,7 +951,7 @@ public class BitbucketCodeFetcher {
      */
     private String getRepositoryDefaultBranch() {
         try {
-            String apiUrl = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s", bitbucketWorkspace, bitbucketRepoName);
+            String apiUrl = String.format("%s/2.0/repositories/%s/%s", bitbucketApiBaseUrl, bitbucketWorkspace, bitbucketRepoName);
             
             HttpHeaders headers = new HttpHeaders();
             String token = selectTokenForWorkspaceRepo(bitbucketWorkspace, bitbucketRepoName);
@@ -841,11 +960,11 @@ public class BitbucketCodeFetcher {
             }
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
             
             if (response.getStatusCode().is2xxSuccessful()) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(response.getBody());
+                JsonNode rootNode = objectMapper.readTree(response.getBody());
                 JsonNode mainBranch = rootNode.path("mainbranch");
                 
                 if (!mainBranch.isMissingNode()) {
@@ -867,8 +986,8 @@ public class BitbucketCodeFetcher {
         
         try {
             String apiUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/commits/%s?pagelen=1",
-                bitbucketWorkspace, bitbucketRepoName, currentBranch
+                "%s/2.0/repositories/%s/%s/commits/%s?pagelen=1",
+                bitbucketApiBaseUrl, bitbucketWorkspace, bitbucketRepoName, currentBranch
             );
             
             System.out.println("[BitbucketCodeFetcher] Checking branch: " + currentBranch + " for current commit");
@@ -880,17 +999,15 @@ public class BitbucketCodeFetcher {
             }
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
             
             if (response.getStatusCode().is2xxSuccessful()) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(response.getBody());
-                JsonNode commits = rootNode.path("values");
+                List<BitbucketCommit> commits = objectMapper.readValue(response.getBody(), BitbucketCommit.Page.class).commits();
                 
-                if (commits.isArray() && commits.size() > 0) {
-                    String commitHash = commits.get(0).path("hash").asText();
-                    String shortCommit = commitHash.length() > 7 ? commitHash.substring(0, 7) : commitHash;
-                    String commitDate = commits.get(0).path("date").asText();
+                if (!commits.isEmpty()) {
+                    String shortCommit = commits.get(0).shortHash();
+                    String commitDate = commits.get(0).date();
                     System.out.println("[BitbucketCodeFetcher] Found commit " + shortCommit + " on branch " + currentBranch + " dated: " + commitDate);
                     return shortCommit;
                 }
@@ -907,21 +1024,46 @@ public class BitbucketCodeFetcher {
      * This is used for per-project commit detection (e.g., Android demo app vs backend).
      */
     public String getCurrentCommitForRepo(RepoConfig repo) {
-        if (repo == null || repo.getRepoUrl() == null || repo.getRepoUrl().isEmpty()) {
+        String[] coordinates = repoCoordinates(repo);
+        if (coordinates == null) {
             return null;
         }
+        BranchHead head = fetchBranchHead(coordinates[0], coordinates[1], coordinates[2], null);
+        return head != null ? head.commit() : null;
+    }
 
-        // Parse https://bitbucket.org/{workspace}/{repo}
+    /**
+     * {workspace, repoSlug, branch} of a RepoConfig (https://bitbucket.org/{workspace}/{repo}),
+     * falling back to the default repository settings, or null if the repo has no URL.
+     */
+    public String[] repoCoordinates(RepoConfig repo) {
+        if (repo == null || repo.getRepoUrl() == null || repo.getRepoUrl().isEmpty()) {
+            return null;
+        }
         String url = repo.getRepoUrl().replace("https://", "").replace("http://", "");
         String[] parts = url.split("/");
         String workspace = parts.length > 1 ? parts[1] : bitbucketWorkspace;
         String repoSlug = parts.length > 2 ? parts[2] : bitbucketRepoName;
         String branch = (repo.getBranch() != null && !repo.getBranch().isEmpty()) ? repo.getBranch() : bitbucketRepoBranch;
+        return new String[]{workspace, repoSlug, branch};
+    }
+
+    /**
+     * Branch HEAD as a short commit hash. notModified is true when the ETag passed in still
+     * matched, in which case commit is null and the caller keeps what it had.
+     */
+    public record BranchHead(String commit, String etag, boolean notModified) {}
 
+    /**
+     * Looks up the HEAD of a branch, sending If-None-Match when an ETag from an earlier lookup
+     * is given, so polling an unchanged branch costs a 304 without a body.
+     * Returns null when the lookup fails.
+     */
+    public BranchHead fetchBranchHead(String workspace, String repoSlug, String branch, String etag) {
         try {
             String apiUrl = String.format(
-                "https://api.bitbucket.org/2.0/repositories/%s/%s/commits/%s?pagelen=1",
-                workspace, repoSlug, branch
+                "%s/2.0/repositories/%s/%s/commits/%s?pagelen=1",
+                bitbucketApiBaseUrl, workspace, repoSlug, branch
             );
 
             HttpHeaders headers = new HttpHeaders();
@@ -929,20 +1071,25 @@ public class BitbucketCodeFetcher {
             if (token != null && !token.isEmpty()) {
                 headers.set("Authorization", createBasicAuthHeaderForWorkspaceRepo(workspace, repoSlug));
             }
+            if (etag != null && !etag.isEmpty()) {
+                headers.setIfNoneMatch(etag);
+            }
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
+            if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                return new BranchHead(null, etag, true);
+            }
             if (response.getStatusCode().is2xxSuccessful()) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(response.getBody());
-                JsonNode commits = rootNode.path("values");
-                if (commits.isArray() && commits.size() > 0) {
-                    String commitHash = commits.get(0).path("hash").asText();
-                    return commitHash.length() > 7 ? commitHash.substring(0, 7) : commitHash;
+                List<BitbucketCommit> commits = objectMapper.readValue(response.getBody(), BitbucketCommit.Page.class).commits();
+                if (!commits.isEmpty()) {
+                    String shortCommit = commits.get(0).shortHash();
+                    return new BranchHead(shortCommit, response.getHeaders().getETag(), false);
                 }
             }
         } catch (Exception e) {
-            System.err.println("[BitbucketCodeFetcher] API error getting commit for repo: " + repo.getRepoUrl() + " - " + e.getMessage());
+            System.err.println("[BitbucketCodeFetcher] API error getting HEAD of " + workspace + "/" + repoSlug + "@" + branch + " - " + e.getMessage());
         }
 
         return null;
@@ -14,12 +14,17 @@ import java.util.*;
 import java.util.Base64;
 import java.nio.charset.StandardCharsets;
 
+import com.example.sentrytestbackend.util.SourceFile;
+
 /**
  * Service for automating Bitbucket pull request creation using Gemini AI JSON output.
  * Handles branch creation, file patching, committing, and PR creation via Bitbucket REST API.
  */
 @Service
 public class BitbucketPrService {
+    @Value("${bitbucket.api.base-url:https://api.bitbucket.org}")
+    private String bitbucketApiBaseUrl;
+
     @Value("${bitbucket.workspace}")
     private String defaultWorkspace;
     @Value("${bitbucket.repo.name}")
@@ -33,12 +38,18 @@ public class BitbucketPrService {
     @Value("${bitbucket.sentry-demo-app.api.token:}")
     private String sentryDemoAppApiToken;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Autowired
     private RepoResolver repoResolver;
 
+    @Autowired
+    private SourceFileCache sourceFileCache;
+
     private static class RepoTarget {
         final String workspace;
         final String repoSlug;
@@ -89,8 +100,9 @@ public class BitbucketPrService {
         for (Map<String, Object> change : changes) {
             String filePath = (String) change.get("file");
             List<Map<String, Object>> replacements = (List<Map<String, Object>>) change.get("replacements");
+            // Read files at the commit the branch was created from (immutable, so cacheable)
             FileUpdateResult update = applyReplacementsToFileWithPathResolution(
-                target.workspace, target.repoSlug, target.mainBranch,
+                target.workspace, target.repoSlug, mainHash,
                 filePath, replacements, repoConfig, authHeaders
             );
             commitFileChange(target.workspace, target.repoSlug, branchName, commitMessage, update.path, update.updatedContent, authHeaders);
@@ -105,7 +117,7 @@ public class BitbucketPrService {
      * @throws Exception if the Bitbucket API call fails.
      */
     private String getMainBranchCommitHash(String workspace, String repoSlug, String mainBranch, HttpHeaders headers) throws Exception {
-        String url = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s/refs/branches/%s", workspace, repoSlug, mainBranch);
+        String url = String.format("%s/2.0/repositories/%s/%s/refs/branches/%s", bitbucketApiBaseUrl, workspace, repoSlug, mainBranch);
         ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Map.class);
         Map<String, Object> body = response.getBody();
         if (body == null || !body.containsKey("target")) throw new RuntimeException("Failed to get main branch hash");
@@ -119,7 +131,7 @@ public class BitbucketPrService {
      * @param targetHash The commit hash to branch from.
      */
     private void createBranch(String workspace, String repoSlug, String branchName, String targetHash, HttpHeaders headers) {
-        String url = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s/refs/branches", workspace, repoSlug);
+        String url = String.format("%s/2.0/repositories/%s/%s/refs/branches", bitbucketApiBaseUrl, workspace, repoSlug);
         Map<String, Object> payload = new HashMap<>();
         payload.put("name", branchName);
         Map<String, String> target = new HashMap<>();
@@ -137,7 +149,7 @@ public class BitbucketPrService {
      * @param newContent The new file content.
      */
     private void commitFileChange(String workspace, String repoSlug, String branch, String commitMessage, String filePath, String newContent, HttpHeaders headers) {
-        String url = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s/src", workspace, repoSlug);
+        String url = String.format("%s/2.0/repositories/%s/%s/src", bitbucketApiBaseUrl, workspace, repoSlug);
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
         MultiValueMap<String, Object> body = new org.springframework.util.LinkedMultiValueMap<>();
         body.add("branch", branch);
@@ -153,7 +165,7 @@ public class BitbucketPrService {
      * @return The PR result or link.
      */
     private String createPullRequest(String workspace, String repoSlug, String mainBranch, Map<String, Object> pr, String branchName, HttpHeaders headers) {
-        String url = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s/pullrequests", workspace, repoSlug);
+        String url = String.format("%s/2.0/repositories/%s/%s/pullrequests", bitbucketApiBaseUrl, workspace, repoSlug);
         Map<String, Object> payload = new HashMap<>();
         payload.put("title", pr.get("title"));
         payload.put("description", pr.get("description"));
@@ -196,7 +208,7 @@ public class BitbucketPrService {
      */
     private String applyReplacementsToFile(String workspace, String repoSlug, String mainBranch, String filePath, List<Map<String, Object>> replacements, HttpHeaders headers) throws Exception {
         // 1. Download the file from Bitbucket
-        String url = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s/src/%s/%s", workspace, repoSlug, mainBranch, filePath);
+        String url = String.format("%s/2.0/repositories/%s/%s/src/%s/%s", bitbucketApiBaseUrl, workspace, repoSlug, mainBranch, filePath);
         ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
         String content = response.getBody();
         if (content == null) throw new RuntimeException("Failed to fetch file content");
@@ -217,14 +229,15 @@ public class BitbucketPrService {
     }
 
     /**
-     * Attempts to download the file using multiple candidate paths, then applies replacements.
+     * Attempts to download the file at the given commit using multiple candidate paths, then applies replacements.
+     * File bodies are read through SourceFileCache, keyed by (repo, commit, path).
      * Candidates:
      * - If filePath has '/', use as-is
      * - If bare filename, try srcRoot + filename
      * - If bare filename, also try srcRoot + projectRootPath + "/" + filename
      */
     private FileUpdateResult applyReplacementsToFileWithPathResolution(
-            String workspace, String repoSlug, String mainBranch,
+            String workspace, String repoSlug, String commitHash,
             String filePath, List<Map<String, Object>> replacements, RepoConfig repoConfig, HttpHeaders headers) throws Exception {
 
         List<String> candidates = new ArrayList<>();
@@ -243,11 +256,15 @@ public class BitbucketPrService {
         }
 
         for (String candidate : candidates) {
-            String url = String.format("https://api.bitbucket.org/2.0/repositories/%s/%s/src/%s/%s", workspace, repoSlug, mainBranch, candidate);
+            String url = String.format("%s/2.0/repositories/%s/%s/src/%s/%s", bitbucketApiBaseUrl, workspace, repoSlug, commitHash, candidate);
             try {
-                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
-                String content = response.getBody();
-                if (content == null) continue;
+                String content;
+                try {
+                    content = sourceFileCache.get("bitbucket", workspace + "/" + repoSlug, commitHash, candidate,
+                        () -> restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class).getBody()).content();
+                } catch (IllegalStateException emptyBody) {
+                    continue;
+                }
                 String updated = applyReplacementsToContent(content, replacements);
                 return new FileUpdateResult(candidate, updated);
             } catch (HttpClientErrorException.NotFound nf) {
@@ -263,12 +280,20 @@ public class BitbucketPrService {
      * - Lines are treated as 1-based; 0 means insert at beginning.
      * - If end < start after normalization, perform insertion only.
      */
-    private String applyReplacementsToContent(String content, List<Map<String, Object>> replacements) {
-        List<String> lines = new ArrayList<>(Arrays.asList(content.split("\n", -1)));
+    public static String applyReplacementsToContent(String content, List<Map<String, Object>> replacements) {
+        // The working list holds line numbers, not line Strings: i >= 0 is physical line i of the
+        // original content, ~k is replacement k. The result is copied out once at the end.
+        SourceFile file = new SourceFile(content);
+        List<Integer> lines = new ArrayList<>(file.physicalLineCount());
+        for (int i = 0; i < file.physicalLineCount(); i++) {
+            lines.add(i);
+        }
+        List<String> inserted = new ArrayList<>(replacements.size());
         for (Map<String, Object> repl : replacements) {
             int startLine = ((Number) repl.get("start_line")).intValue();
             int endLine = ((Number) repl.get("end_line")).intValue();
-            String replacement = (String) repl.get("replacement_code");
+            inserted.add((String) repl.get("replacement_code"));
+            int replacement = ~(inserted.size() - 1);
 
             // Normalize to 0-based indices; allow 0 to mean index 0
             int startIdx = Math.max(0, startLine - 1);
@@ -280,16 +305,30 @@ public class BitbucketPrService {
 
             if (endIdx >= startIdx) {
                 // Replace inclusive range [startIdx, endIdx]
-                for (int i = endIdx; i >= startIdx; i--) {
-                    lines.remove(i);
-                }
+                lines.subList(startIdx, endIdx + 1).clear();
                 lines.add(startIdx, replacement);
             } else {
                 // Pure insertion at startIdx
                 lines.add(startIdx, replacement);
             }
         }
-        return String.join("\n", lines);
+        int insertedChars = 0;
+        for (String code : inserted) {
+            insertedChars += (code != null ? code.length() : 0) + 1;
+        }
+        StringBuilder result = new StringBuilder(content.length() + insertedChars);
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                result.append('\n');
+            }
+            int line = lines.get(i);
+            if (line >= 0) {
+                file.appendLine(result, line);
+            } else {
+                result.append(inserted.get(~line));
+            }
+        }
+        return result.toString();
     }
 
     /**
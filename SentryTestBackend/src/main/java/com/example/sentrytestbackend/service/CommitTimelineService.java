@@ -0,0 +1,113 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.BitbucketCommit;
+import com.example.sentrytestbackend.util.CommitTimeline;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Memoized "which commit was live at time T" for Bitbucket repositories.
+ *
+ * Keeps one CommitTimeline per (workspace, repo, branch) and, lazily, one per
+ * (workspace, repo, file) for file-level history. Errors from the same deploy window hit
+ * an already loaded part of the timeline and resolve without any API call. When a timeline
+ * cannot answer within its page budget (a gap after a long push, or history older than what
+ * is loaded), the commit is asked for directly with a q=date<="T" query instead, counted as
+ * bitbucket.commits.date-queries.
+ *
+ *   bitbucket.commits.refresh-seconds=60     (how often a branch head is re-checked)
+ *   bitbucket.commits.max-pages-per-lookup=5
+ *   bitbucket.commits.max-timelines=500
+ */
+@Service
+public class CommitTimelineService {
+
+    @Value("${bitbucket.api.base-url:https://api.bitbucket.org}")
+    private String bitbucketApiBaseUrl;
+
+    @Value("${bitbucket.commits.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    @Value("${bitbucket.commits.max-pages-per-lookup:5}")
+    private int maxPagesPerLookup;
+
+    @Value("${bitbucket.commits.max-timelines:500}")
+    private long maxTimelines;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, CommitTimeline> timelines;
+
+    @PostConstruct
+    public void init() {
+        timelines = Caffeine.newBuilder()
+                .maximumSize(maxTimelines)
+                .expireAfterAccess(Duration.ofHours(6))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, timelines, "bitbucket.commit-timelines");
+    }
+
+    /**
+     * Newest commit on the branch at or before the ISO-8601 timestamp, or null.
+     */
+    public String branchCommitAt(String workspace, String repo, String branch, String isoTimestamp,
+                                 CommitTimeline.PageLoader<BitbucketCommit.Page> loader) throws Exception {
+        String key = workspace + "/" + repo + "@" + branch;
+        String commitsUrl = String.format("%s/2.0/repositories/%s/%s/commits/%s", bitbucketApiBaseUrl, workspace, repo, branch);
+        CommitTimeline timeline = timelines.get(key, k -> newTimeline(commitsUrl + "?pagelen=100"));
+        return resolve(timeline, commitsUrl + "?", isoTimestamp, loader);
+    }
+
+    /**
+     * Newest commit that touched the file (default branch history) at or before the
+     * ISO-8601 timestamp, or null.
+     */
+    public String fileCommitAt(String workspace, String repo, String filePath, String isoTimestamp,
+                               CommitTimeline.PageLoader<BitbucketCommit.Page> loader) throws Exception {
+        String key = workspace + "/" + repo + ":" + filePath;
+        String commitsUrl = String.format("%s/2.0/repositories/%s/%s/commits?path=%s", bitbucketApiBaseUrl, workspace, repo,
+                URLEncoder.encode(filePath, StandardCharsets.UTF_8));
+        CommitTimeline timeline = timelines.get(key, k -> newTimeline(commitsUrl + "&pagelen=50"));
+        return resolve(timeline, commitsUrl + "&", isoTimestamp, loader);
+    }
+
+    // Asks the API for the commit directly when the timeline's loaded pages cannot answer
+    private String resolve(CommitTimeline timeline, String queryPrefix, String isoTimestamp,
+                           CommitTimeline.PageLoader<BitbucketCommit.Page> loader) throws Exception {
+        CommitTimeline.Lookup lookup = timeline.commitAt(toEpochMillis(isoTimestamp), loader);
+        if (lookup.complete()) {
+            return lookup.hash();
+        }
+        meterRegistry.counter("bitbucket.commits.date-queries").increment();
+        String query = URLEncoder.encode("date<=\"" + isoTimestamp + "\"", StandardCharsets.UTF_8);
+        List<BitbucketCommit> commits = loader.load(queryPrefix + "q=" + query + "&pagelen=1").commits();
+        if (commits.isEmpty() || commits.get(0).date() == null) {
+            return null;
+        }
+        // Guard against the filter being ignored and the head commit coming back instead
+        BitbucketCommit commit = commits.get(0);
+        return toEpochMillis(commit.date()) <= toEpochMillis(isoTimestamp) ? commit.hash() : null;
+    }
+
+    private CommitTimeline newTimeline(String headUrl) {
+        return new CommitTimeline(headUrl, Duration.ofSeconds(refreshSeconds).toMillis(), maxPagesPerLookup);
+    }
+
+    private static long toEpochMillis(String isoTimestamp) {
+        return OffsetDateTime.parse(isoTimestamp).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.sentrytestbackend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller handlers off the Tomcat worker threads, with a timeout per endpoint.
+ *
+ * Handlers return the CompletableFuture from respond(); the request thread is released at once
+ * and the work runs on the bounded endpointExecutor pool. If the work has not finished when
+ * the endpoint's timeout fires, the response is completed with the handler's partial result
+ * (whatever it has gathered so far) and the worker is interrupted. When the pool and its queue
+ * are full the request is answered with 503 instead of queueing without bound; so is work that
+ * fails because a pool it fans out to (batch reviews, snippet downloads) rejected it.
+ *
+ *   endpoint.timeout.default-seconds=25
+ *   endpoint.timeout.{endpoint}-seconds   (overrides the default passed by the handler)
+ */
+@Service
+public class EndpointRunner {
+
+    public static final String PARTIAL_HEADER = "X-Partial-Result";
+
+    @Autowired
+    private ExecutorService endpointExecutor;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${endpoint.timeout.default-seconds:25}")
+    private long defaultTimeoutSeconds;
+
+    private final ScheduledThreadPoolExecutor timeouts = newTimeoutScheduler();
+
+    /**
+     * Runs work on the endpoint pool. onTimeout builds the response sent if the work is still
+     * running after the endpoint's timeout; it is called on the timer thread while the work
+     * may still be writing, so it must only read thread-safe state (see snapshot()).
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> respond(String endpoint, Supplier<ResponseEntity<T>> work,
+                                                           Supplier<ResponseEntity<T>> onTimeout) {
+        return respond(endpoint, defaultTimeoutSeconds, work, onTimeout);
+    }
+
+    public <T> CompletableFuture<ResponseEntity<T>> respond(String endpoint, long defaultSeconds,
+                                                           Supplier<ResponseEntity<T>> work,
+                                                           Supplier<ResponseEntity<T>> onTimeout) {
+        CompletableFuture<ResponseEntity<T>> response = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = endpointExecutor.submit(() -> {
+                try {
+                    response.complete(work.get());
+                } catch (RejectedExecutionException e) {
+                    meterRegistry.counter("endpoint.rejected", "endpoint", endpoint).increment();
+                    response.complete(serviceUnavailable());
+                } catch (Throwable t) {
+                    response.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("endpoint.rejected", "endpoint", endpoint).increment();
+            System.err.println("[Endpoint] " + endpoint + " rejected: executor saturated");
+            return CompletableFuture.completedFuture(serviceUnavailable());
+        }
+        return withTimeout(endpoint, defaultSeconds, response, onTimeout, task);
+    }
+
+    /**
+     * Applies the endpoint timeout to work that is already asynchronous (e.g. a fan-out over
+     * another pool), without taking an endpoint thread.
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> withTimeout(String endpoint, long defaultSeconds,
+                                                               CompletableFuture<ResponseEntity<T>> response,
+                                                               Supplier<ResponseEntity<T>> onTimeout) {
+        return withTimeout(endpoint, defaultSeconds, response, onTimeout, null);
+    }
+
+    private <T> CompletableFuture<ResponseEntity<T>> withTimeout(String endpoint, long defaultSeconds,
+                                                                CompletableFuture<ResponseEntity<T>> response,
+                                                                Supplier<ResponseEntity<T>> onTimeout,
+                                                                Future<?> task) {
+        long seconds = timeoutSeconds(endpoint, defaultSeconds);
+        ScheduledFuture<?> timer = timeouts.schedule(() -> {
+            if (response.isDone()) {
+                return;
+            }
+            ResponseEntity<T> partial;
+            try {
+                partial = onTimeout.get();
+            } catch (RuntimeException e) {
+                partial = ResponseEntity.status(504).build();
+            }
+            if (response.complete(partial)) {
+                meterRegistry.counter("endpoint.timeouts", "endpoint", endpoint).increment();
+                System.err.println("[Endpoint] " + endpoint + " timed out after " + seconds + "s, returned partial result");
+                if (task != null) {
+                    task.cancel(true); // frees the worker; upstream calls see the interrupt
+                }
+            }
+        }, seconds, TimeUnit.SECONDS);
+        response.whenComplete((result, error) -> timer.cancel(false));
+        return response;
+    }
+
+    public long timeoutSeconds(String endpoint, long defaultSeconds) {
+        Long configured = environment.getProperty("endpoint.timeout." + endpoint + "-seconds", Long.class, null);
+        if (configured != null) {
+            return configured;
+        }
+        return defaultSeconds > 0 ? defaultSeconds : defaultTimeoutSeconds;
+    }
+
+    /**
+     * Copy of a map the worker is filling, for use in onTimeout. The map must be a
+     * Collections.synchronizedMap.
+     */
+    public static Map<String, Object> snapshot(Map<String, Object> progress) {
+        synchronized (progress) {
+            return new LinkedHashMap<>(progress);
+        }
+    }
+
+    public static <T> ResponseEntity<T> serviceUnavailable() {
+        return ResponseEntity.status(503).header("Retry-After", "5").body(null);
+    }
+
+    public static <T> ResponseEntity<T> partial(T body) {
+        return ResponseEntity.ok().header(PARTIAL_HEADER, "true").body(body);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeouts.shutdownNow();
+    }
+
+    private static ScheduledThreadPoolExecutor newTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "endpoint-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
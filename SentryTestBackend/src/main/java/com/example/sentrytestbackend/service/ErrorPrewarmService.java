@@ -0,0 +1,172 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.StackTrace;
+import com.example.sentrytestbackend.util.WebhookSignature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.sentry.Sentry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Warms the caches behind /api/gemini-suggest for issues announced by Sentry webhooks, so the
+ * first person to open a new error does not pay for the whole pipeline.
+ *
+ * For each issue a prewarm-* worker runs the same steps as a single review:
+ *   1. issue lookup (SentryResponseCache) and latest event
+ *   2. stack trace through StackTraceGenerator, code snippets through the code fetchers
+ *      (SourceFileCache, commit timelines)
+ *   3. optionally the Gemini review itself (AnalysisCache, same fingerprint as the endpoint)
+ * The queue is the bounded prewarmExecutor. An issue already queued, running or warmed within
+ * webhook.prewarm.dedupe-seconds is dropped, so an alert storm for one issue costs one warm-up.
+ *
+ *   webhook.sentry.client-secret=      (Sentry integration client secret; webhooks are refused while empty)
+ *   webhook.prewarm.gemini=false
+ *   webhook.prewarm.dedupe-seconds=300
+ */
+@Service
+public class ErrorPrewarmService {
+
+    public enum Outcome { QUEUED, DUPLICATE, REJECTED }
+
+    @Value("${webhook.sentry.client-secret:}")
+    private String clientSecret;
+
+    @Value("${webhook.prewarm.gemini:false}")
+    private boolean prewarmGemini;
+
+    @Value("${webhook.prewarm.dedupe-seconds:300}")
+    private long dedupeSeconds;
+
+    @Value("${code.host}")
+    private String codeHost;
+
+    @Autowired
+    private ExecutorService prewarmExecutor;
+
+    @Autowired
+    private SentryDataFetcher sentryDataFetcher;
+
+    @Autowired
+    private StackTraceGenerator stackTraceGenerator;
+
+    @Autowired
+    private BitbucketCodeFetcher bitbucketCodeFetcher;
+
+    @Autowired
+    private GitHubCodeFetcher githubCodeFetcher;
+
+    @Autowired
+    private RepoResolver repoResolver;
+
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
+
+    @Autowired
+    private AIAnalysisService aiAnalysisService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private Cache<String, Boolean> recentlyWarmed;
+
+    @PostConstruct
+    public void init() {
+        recentlyWarmed = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(dedupeSeconds))
+                .maximumSize(10_000)
+                .build();
+        meterRegistry.gauge("webhook.prewarm.pending", Tags.empty(), pending, Set::size);
+        System.out.println("[Prewarm] " + (clientSecret.isEmpty() ? "webhook disabled (no webhook.sentry.client-secret)"
+                : "gemini=" + prewarmGemini + ", dedupe=" + dedupeSeconds + "s"));
+    }
+
+    public boolean isEnabled() {
+        return !clientSecret.isEmpty();
+    }
+
+    /**
+     * Checks Sentry-Hook-Signature: hex HMAC-SHA256 of the raw body keyed with the client secret.
+     */
+    public boolean verifySignature(byte[] body, String signature) {
+        return WebhookSignature.matches(clientSecret, body, signature);
+    }
+
+    public Outcome submit(String issueId) {
+        if (recentlyWarmed.getIfPresent(issueId) != null || !pending.add(issueId)) {
+            meterRegistry.counter("webhook.prewarm.submitted", "result", "duplicate").increment();
+            return Outcome.DUPLICATE;
+        }
+        try {
+            prewarmExecutor.execute(() -> {
+                try {
+                    warm(issueId);
+                    recentlyWarmed.put(issueId, Boolean.TRUE);
+                } finally {
+                    pending.remove(issueId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(issueId);
+            meterRegistry.counter("webhook.prewarm.submitted", "result", "rejected").increment();
+            return Outcome.REJECTED;
+        }
+        meterRegistry.counter("webhook.prewarm.submitted", "result", "queued").increment();
+        return Outcome.QUEUED;
+    }
+
+    private void warm(String issueId) {
+        long start = System.currentTimeMillis();
+        try {
+            JsonNode issue = upstreamLimiter.withSentry(() -> sentryDataFetcher.fetchIssueById(issueId));
+            String project = issue.path("project").path("slug").asText("");
+            SentryEvent latestEvent = upstreamLimiter.withSentry(() -> sentryDataFetcher.fetchLatestEvent(issueId));
+            SentryEvent.ExceptionValue exceptionNode = stackTraceGenerator.getException(latestEvent);
+
+            // Same trace and snippets as SentryDataGeminiController.reviewError, so the review
+            // that follows finds them (and the Gemini answer) cached
+            String stackTrace;
+            String code;
+            if ("bitbucket".equalsIgnoreCase(codeHost)) {
+                StackTrace trace = stackTraceGenerator.buildStackTraceAuto(exceptionNode, bitbucketCodeFetcher, latestEvent, project);
+                stackTrace = trace.render();
+                String srcRootFilter = repoResolver.resolve(project).getSrcRoot();
+                List<CodeSnippet> snippets =
+                        bitbucketCodeFetcher.getBitbucketCode(trace, 10, issue.path("lastSeen").asText(), srcRootFilter);
+                code = snippets.isEmpty() ? "No Bitbucket links found in stack trace." : CodeSnippet.render(snippets);
+            } else {
+                StackTrace trace = stackTraceGenerator.buildStackTrace(exceptionNode, true);
+                stackTrace = trace.render();
+                code = CodeSnippet.render(githubCodeFetcher.getGithubCode(trace));
+            }
+
+            if (prewarmGemini) {
+                Map<String, Object> enhancedContext = sentryDataFetcher.extractEnhancedContext(issue);
+                aiAnalysisService.callGeminiForGithubCodeAnalysisWithContext(stackTrace, issue.toString(), code, enhancedContext, false);
+            }
+            meterRegistry.counter("webhook.prewarm.runs", "result", "success").increment();
+            System.out.println("[Prewarm] Warmed issue " + issueId + " (" + project + ") in "
+                    + (System.currentTimeMillis() - start) + " ms" + (prewarmGemini ? " including Gemini review" : ""));
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            meterRegistry.counter("webhook.prewarm.runs", "result", "failure").increment();
+            System.err.println("[Prewarm] Failed to warm issue " + issueId + ": " + e.getMessage());
+        }
+    }
+}
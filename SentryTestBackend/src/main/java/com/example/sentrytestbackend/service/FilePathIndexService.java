@@ -0,0 +1,208 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.CommitTimeline;
+import com.example.sentrytestbackend.util.FilePathIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-repository filename/package -> path index used for stack-trace URL building.
+ *
+ * Each (workspace, repo, branch) index is pinned to a commit:
+ *   - built once from the recursive tree listing (src/{commit}/?max_depth=N)
+ *   - when the branch head moves, patched from the diffstat between the two commits
+ *     (falls back to a full rebuild if the diffstat is unavailable or longer than max-pages)
+ *   - persisted under file.index.dir so restarts do not rebuild it
+ * Lookups are then plain map reads; the search/browse APIs are only used on a miss.
+ *
+ *   file.index.dir=${java.io.tmpdir}/sentry-file-index
+ *   file.index.max-depth=20
+ */
+@Service
+public class FilePathIndexService {
+
+    @Value("${bitbucket.api.base-url:https://api.bitbucket.org}")
+    private String bitbucketApiBaseUrl;
+
+    @Value("${file.index.dir:${java.io.tmpdir}/sentry-file-index}")
+    private String indexDir;
+
+    @Value("${file.index.max-depth:20}")
+    private int maxDepth;
+
+    // Guards against runaway listings of huge monorepos
+    @Value("${file.index.max-pages:500}")
+    private int maxPages;
+
+    private final ConcurrentHashMap<String, FilePathIndex> indexes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Object> updateLocks = new ConcurrentHashMap<>();
+
+    // One diffstat entry; an empty path means the file did not exist on that side
+    private record PathChange(String oldPath, String newPath) {}
+
+    /**
+     * Looks the file up in the index for the branch at headCommit, bringing the index up to
+     * date first if needed. Returns null when the file is not in the repository (or the index
+     * could not be built), in which case callers fall back to the search APIs.
+     */
+    public String find(String workspace, String repo, String branch, String headCommit,
+                       String filename, String packageName, CommitTimeline.PageLoader<JsonNode> loader) {
+        FilePathIndex index = indexAt(workspace, repo, branch, headCommit, loader);
+        if (index == null) {
+            return null;
+        }
+        synchronized (index) {
+            return index.find(filename, packageName);
+        }
+    }
+
+    /**
+     * Records a path discovered by the search APIs so the next lookup is served from memory.
+     */
+    public void remember(String workspace, String repo, String branch, String path) {
+        FilePathIndex index = indexes.get(key(workspace, repo, branch));
+        if (index != null) {
+            synchronized (index) {
+                index.add(path);
+            }
+        }
+    }
+
+    private FilePathIndex indexAt(String workspace, String repo, String branch, String headCommit, CommitTimeline.PageLoader<JsonNode> loader) {
+        String key = key(workspace, repo, branch);
+        FilePathIndex index = indexes.computeIfAbsent(key, k -> loadFromDisk(k));
+        if (index == null) {
+            index = new FilePathIndex(null);
+            FilePathIndex existing = indexes.putIfAbsent(key, index);
+            if (existing != null) {
+                index = existing;
+            }
+        }
+
+        synchronized (index) {
+            if (headCommit == null || headCommit.equals(index.commit())) {
+                return index.commit() != null ? index : null;
+            }
+        }
+
+        // Listings are read under the per-key update lock only; the index itself is locked just
+        // to swap the result in, so lookups and remember() never wait on the network
+        synchronized (updateLocks.computeIfAbsent(key, k -> new Object())) {
+            String current;
+            synchronized (index) {
+                current = index.commit();
+            }
+            if (headCommit.equals(current)) {
+                return index;
+            }
+            try {
+                List<PathChange> changes = current != null ? readDiff(workspace, repo, current, headCommit, loader) : null;
+                FilePathIndex fresh = changes == null ? build(workspace, repo, headCommit, loader) : null;
+                synchronized (index) {
+                    if (changes != null) {
+                        for (PathChange change : changes) {
+                            if (!change.oldPath().isEmpty() && !change.oldPath().equals(change.newPath())) {
+                                index.remove(change.oldPath());
+                            }
+                            index.add(change.newPath());
+                        }
+                        index.setCommit(headCommit);
+                        System.out.println("[FileIndex] Updated " + key + " " + shortHash(current)
+                                + " -> " + shortHash(headCommit) + " (" + changes.size() + " changed files)");
+                    } else {
+                        index.replaceWith(fresh);
+                    }
+                    index.writeTo(diskPath(key));
+                }
+            } catch (Exception e) {
+                System.err.println("[FileIndex] Failed to update index for " + key + ": " + e.getMessage());
+                return current != null ? index : null;
+            }
+            return index;
+        }
+    }
+
+    // Full listing of the repository at commit
+    private FilePathIndex build(String workspace, String repo, String commit, CommitTimeline.PageLoader<JsonNode> loader) throws IOException {
+        FilePathIndex fresh = new FilePathIndex(commit);
+        String url = String.format("%s/2.0/repositories/%s/%s/src/%s/?max_depth=%d&pagelen=100", bitbucketApiBaseUrl, workspace, repo, commit, maxDepth);
+        int pages = 0;
+        while (url != null && pages < maxPages) {
+            JsonNode page = loader.load(url);
+            for (JsonNode entry : page.path("values")) {
+                if ("commit_file".equals(entry.path("type").asText())) {
+                    fresh.add(entry.path("path").asText());
+                }
+            }
+            String next = page.path("next").asText("");
+            url = next.isEmpty() ? null : next;
+            pages++;
+        }
+
+        System.out.println("[FileIndex] Built " + workspace + "/" + repo + "@" + shortHash(commit)
+                + ": " + fresh.size() + " files from " + pages + " listing pages");
+        return fresh;
+    }
+
+    // Changed paths from previous to headCommit; null if the diff could not be read to the end
+    private List<PathChange> readDiff(String workspace, String repo, String previous, String headCommit, CommitTimeline.PageLoader<JsonNode> loader) {
+        // Bitbucket spec is {new}..{old}: changes in the new commit that the old one does not have
+        String url = String.format("%s/2.0/repositories/%s/%s/diffstat/%s..%s?pagelen=500", bitbucketApiBaseUrl, workspace, repo, headCommit, previous);
+        try {
+            List<PathChange> changes = new ArrayList<>();
+            int pages = 0;
+            while (url != null && pages < maxPages) {
+                JsonNode page = loader.load(url);
+                for (JsonNode change : page.path("values")) {
+                    changes.add(new PathChange(change.path("old").path("path").asText(""),
+                            change.path("new").path("path").asText("")));
+                }
+                String next = page.path("next").asText("");
+                url = next.isEmpty() ? null : next;
+                pages++;
+            }
+            if (url != null) {
+                // Moving the commit forward now would lose the unread changes for good
+                System.err.println("[FileIndex] Diffstat longer than " + maxPages + " pages, rebuilding");
+                return null;
+            }
+            return changes;
+        } catch (Exception e) {
+            System.err.println("[FileIndex] Diffstat unavailable, rebuilding: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private FilePathIndex loadFromDisk(String key) {
+        try {
+            FilePathIndex index = FilePathIndex.readFrom(diskPath(key));
+            if (index != null) {
+                System.out.println("[FileIndex] Loaded " + key + "@" + shortHash(index.commit()) + " from disk (" + index.size() + " files)");
+            }
+            return index;
+        } catch (IOException e) {
+            System.err.println("[FileIndex] Ignoring unreadable index for " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Path diskPath(String key) {
+        return Paths.get(indexDir).resolve(key.replaceAll("[^A-Za-z0-9._-]", "_") + ".idx");
+    }
+
+    private static String key(String workspace, String repo, String branch) {
+        return workspace + "/" + repo + "@" + branch;
+    }
+
+    private static String shortHash(String commit) {
+        return commit == null ? "none" : commit.substring(0, Math.min(7, commit.length()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.sentrytestbackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * RestTemplate interceptor that takes a Gemini token (UpstreamLimiter.acquireGemini) before a
+ * Gemini request goes out.
+ *
+ * It runs inside RequestCoalescingInterceptor, so only the leader of a coalesced call spends a
+ * token; callers that share its response never touch the bucket. Other upstreams pass through.
+ */
+@Component
+public class GeminiRateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if ("gemini".equals(UpstreamMetricsInterceptor.upstream(request.getURI()))) {
+            upstreamLimiter.acquireGemini();
+        }
+        return execution.execute(request, body);
+    }
+}
@@ -1,17 +1,19 @@
 
 package com.example.sentrytestbackend.service;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.Base64;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.TextNode;
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.SourceFile;
+import com.example.sentrytestbackend.util.StackTrace;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Service for fetching code snippets from GitHub using the GitHub API.
@@ -20,32 +22,39 @@ import com.fasterxml.jackson.databind.node.TextNode;
 @Service
 public class GitHubCodeFetcher {
     
+    // Overridden by the standin profile
+    @Value("${github.api.base-url:https://api.github.com}")
+    private String githubApiBaseUrl;
+
     @Value("${github.api.token}")
     private String githubApiToken;
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    // Testing Purposes // 
-    public static void main(String[] args){
-        GitHubCodeFetcher fetcher = new GitHubCodeFetcher();
-        String stackTrace = "[https://github.com/DoubtfulCoder/SentryTest/blob/backend/SentryTestBackend/src/main/java/com/example/sentrytestbackend/controller/TestController.java#L100] at jdk.internal.reflect.DirectMethodHandleAccessor.invoke(DirectMethodHandleAccessor.java:104)";
-        String result = fetcher.getGithubCode(stackTrace);
-        System.out.println(result);
-    }
+    @Autowired
+    private RestTemplate restTemplate;
+    @Autowired
+    private SourceFileCache sourceFileCache;
+    @Autowired
+    private UpstreamLimiter upstreamLimiter;
 
     // GETTER METHODS //
-    public String getGithubCode(String stackTrace){
-        ArrayNode githubLinks = fetchGithubLinks(stackTrace);
+    // One snippet per GitHub-linked frame with a line number, in stack-trace order
+    public List<CodeSnippet> getGithubCode(StackTrace stackTrace){
+        List<StackTrace.SourceLocation> githubLinks = new ArrayList<>();
+        for (StackTrace.SourceLocation location : stackTrace.locations()) {
+            if (StackTrace.SourceLocation.GITHUB.equals(location.host())) {
+                githubLinks.add(location);
+            }
+        }
         System.out.println("Found " + githubLinks.size() + " GitHub links in stack trace");
-        StringBuilder allCodeSnippets = new StringBuilder(); // Builds code into one large string
+        List<CodeSnippet> allCodeSnippets = new ArrayList<>();
 
-        for (int i = 0; i < githubLinks.size(); i++){
-            JsonNode linkNode = githubLinks.get(i);
-            String githubLink = linkNode.asText();
+        for (StackTrace.SourceLocation githubLink : githubLinks){
+            if (!githubLink.isResolved() || !githubLink.hasLine()) {
+                System.err.println("GitHub link has no repository path or line: " + githubLink.url());
+                continue;
+            }
             try {
                 String codeSnippet = mapToGithubCode(githubLink, 10); // 10 lines of code context
-                if (!"Invalid Github link".equals(codeSnippet)) {
-                    allCodeSnippets.append("Snippet for: ").append(githubLink).append("\n").append(codeSnippet).append("\n\n");
-                }
+                allCodeSnippets.add(CodeSnippet.of(githubLink, codeSnippet));
             } catch (org.springframework.web.client.HttpClientErrorException e) {
                 if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
                     // Ignore links that are not found
@@ -55,82 +64,91 @@ public class GitHubCodeFetcher {
                 }
             } catch (Exception e) {
                 // Log other exceptions and continue
-                System.err.println("Error fetching GitHub code for " + githubLink + ": " + e.getMessage());
+                System.err.println("Error fetching GitHub code for " + githubLink.url() + ": " + e.getMessage());
                 continue;
             }
         }
-    return allCodeSnippets.toString();
+    return allCodeSnippets;
 }
 
-    // HELPER METHODS //
-
-    // Fetches and parses StackTrace w/ Github Links
-    // Requires use of getMostRecentStackTraceWithGithubLinks() from StackTraceGenerator
-    // Returns JSONode of Github Links
-    private ArrayNode fetchGithubLinks(String stackTrace){
-
-        ObjectMapper mapper = new ObjectMapper();
-        ArrayNode linksArray = mapper.createArrayNode();
-
-        //Regex to find Github links inside brackets
-        Pattern pattern = Pattern.compile("\\[(https://github\\.com/[^\\]]+)\\]");
-        Matcher matcher = pattern.matcher(stackTrace);
-
+    // Text input (e.g. a trace pasted into /api/github/fetch-code): picks up the [github-link]
+    // annotations once and fetches them like frames of a typed trace
+    public List<CodeSnippet> getGithubCodeFromText(String stackTraceText){
+        List<StackTrace.Frame> frames = new ArrayList<>();
+        Matcher matcher = GITHUB_LINK.matcher(stackTraceText);
         while (matcher.find()){
-            String link = matcher.group(1); // 1 returns the link inside the brackets
-            linksArray.add(TextNode.valueOf(link));
+            StackTrace.SourceLocation location = new StackTrace.SourceLocation(matcher.group(),
+                StackTrace.SourceLocation.GITHUB, matcher.group(1), matcher.group(2), matcher.group(3),
+                matcher.group(4), Integer.parseInt(matcher.group(5)));
+            frames.add(new StackTrace.Frame("", "", location.path(), location.line(), null, location, 0));
         }
-        return linksArray;
+        return getGithubCode(new StackTrace("", "", frames, List.of()));
     }
 
+    // Example: https://github.com/owner/repo/blob/branch/path/File.java#L20
+    private static final Pattern GITHUB_LINK =
+        Pattern.compile("https://github\\.com/([^/\\s\\]]+)/([^/\\s\\]]+)/blob/([^/\\s\\]]+)/([^\\s\\]#]+)#L(\\d+)");
+
+    // HELPER METHODS //
+
     // Fetches code snippet from Github source code codebase
-    // Uses links to see where to look in github
+    // Uses the frame's location to see where to look in github
     // Context determines how many lines to return
-    private String mapToGithubCode(String githubLink, int context){
-        
-        // Example: https://github.com/owner/repo/blob/branch/path/File.java#L20
-
-        // Sets up a pattern to know where to look for Github links
-        Pattern pattern = Pattern.compile(
-            "https://github\\.com/([^/]+)/([^/]+)/blob/([^/]+)/(.+?)#L(\\d+)");
-        Matcher matcher = pattern.matcher(githubLink);
-
-        if (!matcher.find()){
-            System.err.println("Regex didn't match GitHub link: " + githubLink);
-            return "Invalid Github link";
-        }
-        // Matches the values to group found in parenthesis in pattern
-        String owner = matcher.group(1);
-        String repo = matcher.group(2);
-        String branch = matcher.group(3);
-        String filePath = matcher.group(4);
-        int lineNumber = Integer.parseInt(matcher.group(5));
-        String apiUrl = String.format("https://api.github.com/repos/%s/%s/contents/%s?ref=%s", owner, repo, filePath, branch);
+    private String mapToGithubCode(StackTrace.SourceLocation githubLink, int context){
+        String owner = githubLink.owner();
+        String repo = githubLink.repo();
+        String branch = githubLink.ref();
+        String filePath = githubLink.path();
+        int lineNumber = githubLink.line();
+        // Pin branch refs to a commit so the file body can be served from SourceFileCache
+        String commit = sourceFileCache.resolveRef("github", owner + "/" + repo, branch,
+            () -> resolveCommitSha(owner, repo, branch));
+        String ref = commit != null ? commit : branch;
+        String apiUrl = String.format("%s/repos/%s/%s/contents/%s?ref=%s", githubApiBaseUrl, owner, repo, filePath, ref);
+
+        SourceFile file = commit != null
+            ? sourceFileCache.get("github", owner + "/" + repo, commit, filePath, () -> downloadRawFile(apiUrl))
+            : new SourceFile(downloadRawFile(apiUrl));
+
+        // Calculate start and end lines for context
+        int start = Math.max(0, lineNumber - context); // Start at lines before error line
+        int end = Math.min(file.lineCount(), lineNumber + context); // End at lines after error line
+        String snippet = file.numberedLines(start, end);
+
+        System.out.println("Successfully fetched " + (end - start) + " lines of code from " + filePath + " around line " + lineNumber);
+        return snippet;
+    }
 
+    // Downloads a raw file body from the GitHub contents API
+    private String downloadRawFile(String apiUrl){
         // Sets up API endpoint to send to Github API to recieve code
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "token " + githubApiToken);
         headers.set("Accept", "application/vnd.github.v3.raw"); // Tells Github to give RAW file contents
-
-        HttpEntity<String> entity = new HttpEntity<>(headers); // <-- Move this line here
-
+        HttpEntity<String> entity = new HttpEntity<>(headers);
 
         // GEt request to get code lines
-        ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class); 
-        String fileContent = response.getBody();
-        String[] lines = fileContent.split("\n");
-
-        // Calculate start and end lines for context
-        int start = Math.max(0, lineNumber - context); // Start at lines before error line
-        int end = Math.min(lines.length, lineNumber + context); // End at lines after error line
+        ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+            () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
+        return response.getBody();
+    }
 
-        StringBuilder snippet = new StringBuilder();
-        for (int i = start; i < end; i++){
-            snippet.append((i + 1)).append(": ").append(lines[i]).append("\n");
+    // Resolves a branch (or any ref) to its commit SHA, or null if GitHub cannot resolve it
+    private String resolveCommitSha(String owner, String repo, String ref){
+        try {
+            String apiUrl = String.format("%s/repos/%s/%s/commits/%s", githubApiBaseUrl, owner, repo, ref);
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "token " + githubApiToken);
+            headers.set("Accept", "application/vnd.github.sha"); // Plain-text SHA instead of the full commit JSON
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+            ResponseEntity<String> response = upstreamLimiter.withCodeHost(
+                () -> restTemplate.exchange(apiUrl, HttpMethod.GET, entity, String.class));
+            String sha = response.getBody() != null ? response.getBody().trim() : "";
+            return sha.isEmpty() ? null : sha;
+        } catch (Exception e) {
+            System.err.println("Could not resolve GitHub ref " + owner + "/" + repo + "@" + ref + ": " + e.getMessage());
+            return null;
         }
-        
-        System.out.println("Successfully fetched " + (end - start) + " lines of code from " + filePath + " around line " + lineNumber);
-        return snippet.toString();
     }
 }
 
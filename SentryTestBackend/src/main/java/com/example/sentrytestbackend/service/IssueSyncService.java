@@ -0,0 +1,208 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.IssueStore;
+import com.example.sentrytestbackend.util.SentryIssue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.sentry.Sentry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps an IssueStore per configured project in step with Sentry, so the list endpoints in
+ * SentryDataController read local indexes instead of calling Sentry on the request path.
+ *
+ * Runs on the scheduler enabled by SentryReleaseInitializer. Each cycle, per project:
+ *   - full sync when the store is empty or every issue.sync.full-every cycles: stream every
+ *     issue (capped at issue.sync.max-issues) and replace the store, dropping resolved/deleted
+ *     issues
+ *   - otherwise incremental: stream issues newest lastSeen first and upsert them until one was
+ *     last seen before the store's cursor (minus issue.sync.overlap-seconds for clock skew and
+ *     ingestion delay), usually a single page
+ * Stores are written to issue.sync.dir after every cycle and loaded at startup.
+ *
+ * storeFor() only hands out a store synced within issue.sync.max-staleness-seconds; otherwise
+ * callers fall back to the live API.
+ *
+ *   issue.sync.enabled=true
+ *   issue.sync.projects=${sentry.default.project}
+ *   issue.sync.dir=${java.io.tmpdir}/sentry-issue-store
+ *   issue.sync.interval-ms=60000
+ *   issue.sync.initial-delay-ms=5000
+ *   issue.sync.max-issues=5000
+ *   issue.sync.full-every=60
+ *   issue.sync.overlap-seconds=120
+ *   issue.sync.max-staleness-seconds=600
+ */
+@Service
+public class IssueSyncService {
+
+    @Value("${issue.sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${issue.sync.projects:${sentry.default.project:}}")
+    private String projects;
+
+    @Value("${issue.sync.dir:${java.io.tmpdir}/sentry-issue-store}")
+    private String storeDir;
+
+    @Value("${issue.sync.max-issues:5000}")
+    private int maxIssues;
+
+    @Value("${issue.sync.full-every:60}")
+    private int fullEvery;
+
+    @Value("${issue.sync.overlap-seconds:120}")
+    private long overlapSeconds;
+
+    @Value("${issue.sync.max-staleness-seconds:600}")
+    private long maxStalenessSeconds;
+
+    @Value("${sentry.organization.id}")
+    private String organizationId;
+
+    @Autowired
+    private SentryDataFetcher sentryDataFetcher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, IssueStore> stores = new ConcurrentHashMap<>();
+    private List<String> syncedProjects = List.of();
+    private long cycles;
+
+    @PostConstruct
+    public void init() {
+        syncedProjects = Arrays.stream(projects.split(","))
+                .map(String::trim)
+                .filter(project -> !project.isEmpty())
+                .toList();
+        if (!enabled || syncedProjects.isEmpty()) {
+            System.out.println("[IssueSync] disabled" + (enabled ? " (no projects configured)" : ""));
+            return;
+        }
+        for (String project : syncedProjects) {
+            IssueStore store = load(project);
+            stores.put(project, store);
+            meterRegistry.gauge("issue.sync.store.size", Tags.of("project", project), store, IssueStore::size);
+            meterRegistry.gauge("issue.sync.age.seconds", Tags.of("project", project), store,
+                    s -> s.syncedAtMillis() == 0 ? Double.NaN : (System.currentTimeMillis() - s.syncedAtMillis()) / 1000.0);
+        }
+        System.out.println("[IssueSync] Syncing " + syncedProjects + " into " + storeDir);
+    }
+
+    /**
+     * The project's store if it was synced recently enough to answer reads, otherwise null.
+     */
+    public IssueStore storeFor(String project) {
+        IssueStore store = stores.get(project);
+        if (store == null || store.syncedAtMillis() == 0) {
+            return null;
+        }
+        long age = System.currentTimeMillis() - store.syncedAtMillis();
+        return age <= Duration.ofSeconds(maxStalenessSeconds).toMillis() ? store : null;
+    }
+
+    @Scheduled(fixedDelayString = "${issue.sync.interval-ms:60000}", initialDelayString = "${issue.sync.initial-delay-ms:5000}")
+    public void syncAll() {
+        if (!enabled || stores.isEmpty()) {
+            return;
+        }
+        boolean fullCycle = fullEvery > 0 && cycles++ % fullEvery == 0;
+        for (String project : syncedProjects) {
+            IssueStore store = stores.get(project);
+            boolean full = fullCycle || store.size() == 0;
+            long start = System.nanoTime();
+            try {
+                int read = full ? fullSync(store) : incrementalSync(store);
+                store.markSynced(System.currentTimeMillis(), full);
+                save(store);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                meterRegistry.counter("issue.sync.runs", "project", project, "mode", full ? "full" : "incremental",
+                        "result", "success").increment();
+                meterRegistry.counter("issue.sync.issues.read", "project", project).increment(read);
+                System.out.println("[IssueSync] " + (full ? "Full" : "Incremental") + " sync of " + project + ": read "
+                        + read + " issues, store has " + store.size() + " (" + millis + " ms)");
+            } catch (Exception e) {
+                Sentry.captureException(e);
+                meterRegistry.counter("issue.sync.runs", "project", project, "mode", full ? "full" : "incremental",
+                        "result", "failure").increment();
+                System.err.println("[IssueSync] Sync of " + project + " failed, keeping previous store: " + e.getMessage());
+            }
+        }
+    }
+
+    // Reads into a list first so readers keep seeing the old store until the new one is complete
+    private int fullSync(IssueStore store) {
+        SentryPageIterator<SentryIssue> issues = sentryDataFetcher.iterateIssuesByProject(organizationId, store.project());
+        List<IssueStore.Issue> all = new ArrayList<>();
+        while (all.size() < maxIssues && issues.hasNext()) {
+            all.add(IssueStore.Issue.from(issues.next()));
+        }
+        store.replaceAll(all);
+        store.setTruncated(issues.hasNext());
+        return all.size();
+    }
+
+    private int incrementalSync(IssueStore store) {
+        long stopBefore = store.lastSeenCursor() - Duration.ofSeconds(overlapSeconds).toMillis();
+        SentryPageIterator<SentryIssue> issues = sentryDataFetcher.iterateIssuesByProject(organizationId, store.project());
+        int read = 0;
+        while (read < maxIssues && issues.hasNext()) {
+            IssueStore.Issue issue = IssueStore.Issue.from(issues.next());
+            read++;
+            store.upsert(issue);
+            if (issue.lastSeenMillis() < stopBefore) {
+                break; // Every remaining issue was last seen even earlier and is already stored
+            }
+        }
+        store.trimTo(maxIssues);
+        return read;
+    }
+
+// PERSISTENCE //
+
+    private Path storePath(String project) {
+        return Paths.get(storeDir).resolve(project.replaceAll("[^A-Za-z0-9._-]", "_") + ".jsonl");
+    }
+
+    private IssueStore load(String project) {
+        Path file = storePath(project);
+        try {
+            IssueStore store = IssueStore.readFrom(file, objectMapper);
+            if (store != null && project.equals(store.project())) {
+                System.out.println("[IssueSync] Loaded " + store.size() + " issues of " + project + " from " + file);
+                return store;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[IssueSync] Ignoring unreadable store " + file + ": " + e.getMessage());
+        }
+        return new IssueStore(project);
+    }
+
+    private void save(IssueStore store) {
+        Path file = storePath(store.project());
+        try {
+            store.writeTo(file, objectMapper);
+        } catch (IOException e) {
+            System.err.println("[IssueSync] Failed to write " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.sentrytestbackend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timers for the stages of an error review, published as pipeline.stage{stage, outcome} with
+ * p50/p95/p99 and a percentile histogram (so Prometheus can aggregate quantiles across
+ * instances).
+ *
+ *   fetch     Sentry issue + latest event
+ *   trace     exception node + stack trace build
+ *   snippets  code snippets from Bitbucket/GitHub
+ *   prompt    prompt construction
+ *   llm       Gemini generateContent (including the wait for the rate limiter)
+ *   parse     extracting suggestions / JSON from the Gemini response
+ */
+@Service
+public class PipelineMetrics {
+
+    public static final String FETCH = "fetch";
+    public static final String TRACE = "trace";
+    public static final String SNIPPETS = "snippets";
+    public static final String PROMPT = "prompt";
+    public static final String LLM = "llm";
+    public static final String PARSE = "parse";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /** Runs work and records its duration under stage, with outcome=error if it throws. */
+    public <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = work.get();
+            failed = false;
+            return result;
+        } finally {
+            timer(stage, failed ? "error" : "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String stage, String outcome) {
+        return timers.computeIfAbsent(stage + "|" + outcome, k -> Timer.builder("pipeline.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.sentrytestbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Assembles the enhanced code-analysis prompt within gemini.prompt.max-tokens, estimated at
+ * gemini.prompt.chars-per-token characters per token.
+ *
+ * The instructions and response format are always sent. The rest is filled in this order
+ * until the budget is spent, and the prompt notes what was left out:
+ *   1. exception line and linked (application) frames of the stack trace
+ *   2. the snippet for the crashing frame, cut around its line if it alone is too large
+ *   3. the Sentry issue reduced to the fields that describe the error
+ *   4. error metadata and request details
+ *   5. the other snippets in frame order; repeated links and identical code are sent once
+ *   6. the last gemini.prompt.max-breadcrumbs breadcrumbs
+ *   7. the remaining (framework) frames, then user and environment info
+ * Sections keep their usual order in the prompt whatever order they were admitted in.
+ *
+ * gemini.prompt.tokens records the estimate of every prompt built, tagged truncated=true|false.
+ */
+@Service
+public class PromptBuilder {
+
+    private static final String INTRO = "You are an expert software engineer analyzing stack trace data, error data from Sentry, and additional context. Please analyze the following and provide a code review.\n\n";
+
+    private static final String RESPONSE_FORMAT =
+        "\nIMPORTANT: Please respond ONLY in the following JSON format (do not include any markdown, code block, or explanation):\n" +
+        "{\n  \"cause\": \"\",\n  \"solution\": \"\",\n  \"pull_request\": {\n    \"title\": \"\",\n    \"description\": \"\",\n    \"commit_message\": \"\",\n    \"changes\": [\n      {\n        \"file\": \"\",\n        \"replacements\": [\n          {\n            \"start_line\": 0,\n            \"end_line\": 0,\n            \"replacement_code\": \"\"\n          }\n        ]\n      }\n    ]\n  }\n}\n";
+
+    // Issue fields worth sending; stats, annotations, permalink, assignee etc. are dropped
+    private static final List<String> ISSUE_FIELDS = List.of("id", "shortId", "title", "culprit", "level", "status",
+            "platform", "type", "count", "userCount", "firstSeen", "lastSeen", "metadata");
+
+    // Section headings and left-out notes, reserved up front
+    private static final int SECTION_OVERHEAD = 256;
+
+    private static final String SNIPPET_MARKER = "Snippet for: ";
+    private static final Pattern LINE_ANCHOR = Pattern.compile("#lines-(\\d+)");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gemini.prompt.max-tokens:8000}")
+    private int maxTokens;
+
+    @Value("${gemini.prompt.max-breadcrumbs:10}")
+    private int maxBreadcrumbs;
+
+    @Value("${gemini.prompt.chars-per-token:4}")
+    private int charsPerToken;
+
+    public int estimateTokens(String text) {
+        return (text.length() + charsPerToken - 1) / charsPerToken;
+    }
+
+    /**
+     * The settings that decide how a prompt is trimmed; part of the analysis cache key, so
+     * answers to prompts built under another budget are not served after a change.
+     */
+    public String budgetKey() {
+        return "max-tokens=" + maxTokens + ",max-breadcrumbs=" + maxBreadcrumbs + ",chars-per-token=" + charsPerToken;
+    }
+
+    public String buildCodeAnalysisPrompt(String stackTraceData, String sentryError, String githubCode,
+                                          Map<String, Object> enhancedContext) {
+        Budget budget = new Budget(variableChars());
+
+        // STACK TRACE //
+        String[] traceLines = stackTraceData != null ? stackTraceData.split("\n") : new String[0];
+        boolean[] keepLine = new boolean[traceLines.length];
+        for (int i = 0; i < traceLines.length; i++) {
+            if (i == 0 || isLinkedFrame(traceLines[i])) {
+                keepLine[i] = budget.take(traceLines[i].length() + 1);
+            }
+        }
+
+        // SNIPPETS //
+        List<String> snippets = distinctSnippets(githubCode);
+        String[] keptSnippets = new String[snippets.size()];
+        if (!snippets.isEmpty()) {
+            keptSnippets[0] = budget.take(snippets.get(0).length())
+                    ? snippets.get(0) : cutSnippet(snippets.get(0), budget);
+        }
+
+        // ISSUE //
+        String issue = summarizeIssue(sentryError);
+        String keptIssue = budget.take(issue.length()) ? issue : null;
+
+        // ENHANCED CONTEXT //
+        Map<String, Object> context = enhancedContext != null ? enhancedContext : Map.of();
+        Map<String, Object> keptContext = new LinkedHashMap<>();
+        takeContext(context, "error", keptContext, budget);
+        takeContext(context, "request", keptContext, budget);
+
+        for (int i = 1; i < snippets.size(); i++) {
+            if (budget.take(snippets.get(i).length())) {
+                keptSnippets[i] = snippets.get(i);
+            }
+        }
+
+        Object breadcrumbs = context.get("breadcrumbs");
+        if (breadcrumbs instanceof List<?> all && !all.isEmpty()) {
+            List<?> recent = all.subList(Math.max(0, all.size() - maxBreadcrumbs), all.size());
+            // Newest first, so a tight budget keeps the crumbs closest to the crash
+            List<Object> kept = new ArrayList<>();
+            for (int i = recent.size() - 1; i >= 0 && budget.take(toJson(recent.get(i)).length() + 1); i--) {
+                kept.add(0, recent.get(i));
+            }
+            if (!kept.isEmpty()) {
+                keptContext.put("breadcrumbs", kept);
+            }
+            budget.dropped += recent.size() - kept.size();
+        }
+
+        for (int i = 1; i < traceLines.length; i++) {
+            if (!keepLine[i] && !isLinkedFrame(traceLines[i])) {
+                keepLine[i] = budget.take(traceLines[i].length() + 1);
+            }
+        }
+        takeContext(context, "user", keptContext, budget);
+        takeContext(context, "environment", keptContext, budget);
+
+        // ASSEMBLE //
+        StringBuilder prompt = new StringBuilder(INTRO.length() + RESPONSE_FORMAT.length() + (int) budget.used + 512);
+        prompt.append(INTRO);
+
+        prompt.append("Stack Trace:\n");
+        int linesLeftOut = 0;
+        for (int i = 0; i < traceLines.length; i++) {
+            if (keepLine[i]) {
+                prompt.append(traceLines[i]).append('\n');
+            } else {
+                linesLeftOut++;
+            }
+        }
+        if (linesLeftOut > 0) {
+            prompt.append("    [").append(linesLeftOut).append(" stack trace lines left out]\n");
+        }
+        prompt.append("\n");
+
+        prompt.append("Sentry Error: \n")
+              .append(keptIssue != null ? keptIssue : "[issue details left out]").append("\n\n");
+
+        prompt.append("Code from github: \n");
+        int snippetsLeftOut = 0;
+        for (String snippet : keptSnippets) {
+            if (snippet != null) {
+                prompt.append(snippet);
+            } else {
+                snippetsLeftOut++;
+            }
+        }
+        if (snippetsLeftOut > 0) {
+            prompt.append("[").append(snippetsLeftOut).append(" snippets for outer frames left out]\n");
+        }
+        prompt.append("\n");
+
+        prompt.append("Enhanced Context: \n").append(toJson(keptContext)).append("\n\n");
+        prompt.append(RESPONSE_FORMAT);
+
+        String result = prompt.toString();
+        boolean truncated = linesLeftOut > 0 || snippetsLeftOut > 0 || keptIssue == null || budget.dropped > 0;
+        int tokens = estimateTokens(result);
+        DistributionSummary.builder("gemini.prompt.tokens")
+                .description("Estimated tokens of each code-analysis prompt sent to Gemini")
+                .baseUnit("tokens")
+                .tag("truncated", String.valueOf(truncated))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(tokens);
+        if (truncated) {
+            System.out.println("[Prompt] ~" + tokens + " tokens (budget " + maxTokens + "), left out " + linesLeftOut
+                + " trace lines, " + snippetsLeftOut + " snippets, " + budget.dropped + " context entries");
+        }
+        return result;
+    }
+
+    // Characters left for the stack trace, issue, snippets and context once the fixed text is reserved
+    long variableChars() {
+        return (long) maxTokens * charsPerToken - INTRO.length() - RESPONSE_FORMAT.length() - SECTION_OVERHEAD;
+    }
+
+    private static boolean isLinkedFrame(String line) {
+        return line.startsWith("    at ") && line.endsWith("]");
+    }
+
+    // Splits rendered CodeSnippet blocks and drops repeated links and identical code
+    // (several frames in one method produce the same window)
+    static List<String> distinctSnippets(String code) {
+        List<String> snippets = new ArrayList<>();
+        if (code == null || code.isBlank()) {
+            return snippets;
+        }
+        if (!code.startsWith(SNIPPET_MARKER)) {
+            snippets.add(code.endsWith("\n") ? code : code + "\n");
+            return snippets;
+        }
+        Set<String> seenUrls = new HashSet<>();
+        Set<String> seenCode = new HashSet<>();
+        int start = 0;
+        while (start < code.length()) {
+            int next = code.indexOf("\n" + SNIPPET_MARKER, start);
+            int end = next < 0 ? code.length() : next + 1;
+            String block = code.substring(start, end);
+            int newline = block.indexOf('\n');
+            String url = newline < 0 ? block : block.substring(SNIPPET_MARKER.length(), newline);
+            String body = newline < 0 ? "" : block.substring(newline + 1).strip();
+            if (seenUrls.add(url) & seenCode.add(body)) {
+                snippets.add(block);
+            }
+            start = end;
+        }
+        return snippets;
+    }
+
+    // Keeps the lines of a snippet nearest its anchored line that still fit
+    private static String cutSnippet(String snippet, Budget budget) {
+        String[] lines = snippet.split("\n");
+        Matcher anchor = LINE_ANCHOR.matcher(lines[0]);
+        int target = anchor.find() ? Integer.parseInt(anchor.group(1)) : -1;
+        if (!budget.take(lines[0].length() + 1)) {
+            return null;
+        }
+        int center = 1;
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].startsWith(target + ": ")) {
+                center = i;
+                break;
+            }
+        }
+        int from = center;
+        int to = center;
+        if (center < lines.length && budget.take(lines[center].length() + 1)) {
+            to = center + 1;
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                if (from > 1 && budget.take(lines[from - 1].length() + 1)) {
+                    from--;
+                    grew = true;
+                }
+                if (to < lines.length && budget.take(lines[to].length() + 1)) {
+                    to++;
+                    grew = true;
+                }
+            }
+        }
+        StringBuilder cut = new StringBuilder(lines[0]).append('\n');
+        for (int i = from; i < to; i++) {
+            cut.append(lines[i]).append('\n');
+        }
+        return cut.append("[snippet cut to fit the prompt budget]\n\n").toString();
+    }
+
+    // Whitelists the issue fields that describe the error; unparseable input is sent as is
+    private String summarizeIssue(String sentryError) {
+        if (sentryError == null) {
+            return "";
+        }
+        try {
+            JsonNode issue = objectMapper.readTree(sentryError);
+            if (issue == null || !issue.isObject()) {
+                return sentryError;
+            }
+            ObjectNode summary = objectMapper.createObjectNode();
+            for (String field : ISSUE_FIELDS) {
+                JsonNode value = issue.get(field);
+                if (value != null && !value.isNull()) {
+                    summary.set(field, value);
+                }
+            }
+            if (issue.path("project").hasNonNull("slug")) {
+                summary.put("project", issue.path("project").path("slug").asText());
+            }
+            return summary.toString();
+        } catch (JsonProcessingException e) {
+            return sentryError;
+        }
+    }
+
+    private void takeContext(Map<String, Object> context, String key, Map<String, Object> kept, Budget budget) {
+        Object value = context.get(key);
+        if (value == null) {
+            return;
+        }
+        if (budget.take(key.length() + toJson(value).length() + 4)) {
+            kept.put(key, value);
+        } else {
+            budget.dropped++;
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(value);
+        }
+    }
+
+    // Characters left for the variable sections, and how many context entries missed out
+    private static final class Budget {
+        private final long limit;
+        private long used;
+        private int dropped;
+
+        Budget(long limit) {
+            this.limit = limit;
+        }
+
+        boolean take(long chars) {
+            if (used + chars > limit) {
+                return false;
+            }
+            used += chars;
+            return true;
+        }
+    }
+}
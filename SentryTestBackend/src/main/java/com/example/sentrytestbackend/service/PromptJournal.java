@@ -0,0 +1,294 @@
+package com.example.sentrytestbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.sentry.Sentry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Journal of the prompts sent to Gemini and the responses received, written off the request
+ * thread.
+ *
+ * record() samples the call and offers it to a bounded queue; when the queue is full the
+ * entry is dropped instead of waiting for the disk. One background thread drains the queue
+ * into gzip-compressed JSONL segments under prompt.journal.dir (one JSON object per line,
+ * readable with zcat). The open segment is named *.jsonl.gz.part and renamed to *.jsonl.gz
+ * once it reaches prompt.journal.segment.max-mb on disk or prompt.journal.segment.max-minutes
+ * of age. Closed segments older than prompt.journal.retention-hours, or beyond
+ * prompt.journal.retention.max-segments, are deleted oldest first.
+ *
+ *   prompt.journal.enabled=true
+ *   prompt.journal.dir=${java.io.tmpdir}/gemini-prompt-journal
+ *   prompt.journal.sample-rate=1.0
+ *   prompt.journal.queue-capacity=256
+ *   prompt.journal.segment.max-mb=16
+ *   prompt.journal.segment.max-minutes=60
+ *   prompt.journal.retention-hours=168
+ *   prompt.journal.retention.max-segments=100
+ */
+@Service
+public class PromptJournal {
+
+    private static final String SEGMENT_PREFIX = "prompts-";
+    private static final String SEGMENT_SUFFIX = ".jsonl.gz";
+    private static final String OPEN_SUFFIX = ".part";
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    @Value("${prompt.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${prompt.journal.dir:${java.io.tmpdir}/gemini-prompt-journal}")
+    private String journalDir;
+
+    @Value("${prompt.journal.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value("${prompt.journal.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${prompt.journal.segment.max-mb:16}")
+    private long segmentMaxMb;
+
+    @Value("${prompt.journal.segment.max-minutes:60}")
+    private long segmentMaxMinutes;
+
+    @Value("${prompt.journal.retention-hours:168}")
+    private long retentionHours;
+
+    @Value("${prompt.journal.retention.max-segments:100}")
+    private int maxSegments;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private BlockingQueue<Entry> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private Path root;
+
+    // Owned by the writer thread
+    private Path segmentPath;
+    private Writer segment;
+    private CountingOutputStream segmentBytes;
+    private long segmentOpenedAt;
+
+    /** One journal line; response is the raw generateContent body, null if the call failed. */
+    public record Entry(String timestamp, String fingerprint, String model, String prompt, String response) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            root = Paths.get(journalDir);
+            try {
+                Files.createDirectories(root);
+                closeLeftoverSegments();
+                applyRetention();
+            } catch (IOException e) {
+                System.err.println("[PromptJournal] Disabled, cannot create " + root + ": " + e.getMessage());
+                enabled = false;
+            }
+        }
+        if (!enabled) {
+            System.out.println("[PromptJournal] disabled");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gaugeCollectionSize("prompt.journal.queue", Tags.empty(), queue);
+        running = true;
+        writer = new Thread(this::drain, "prompt-journal");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("[PromptJournal] " + root + ", sample-rate=" + sampleRate + ", segments of "
+                + segmentMaxMb + "MB/" + segmentMaxMinutes + "min kept " + retentionHours + "h");
+    }
+
+    /**
+     * Queues a prompt and its response for the journal. Never blocks: entries that are not
+     * sampled, or that find the queue full, are counted and discarded.
+     */
+    public void record(String fingerprint, String model, String prompt, String response) {
+        if (!enabled) {
+            return;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            count("sampled_out");
+            return;
+        }
+        Entry entry = new Entry(Instant.now().toString(), fingerprint, model, prompt, response);
+        count(queue.offer(entry) ? "queued" : "dropped");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("prompt.journal.entries", "result", result).increment();
+    }
+
+// WRITER THREAD //
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry != null) {
+                    write(entry);
+                    // Flush once the backlog is written, so a crash loses at most the queue
+                    if (queue.isEmpty()) {
+                        segment.flush();
+                    }
+                }
+                if (segment != null && segmentFull()) {
+                    closeSegment();
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Sentry.captureException(e);
+                System.err.println("[PromptJournal] Write failed: " + e.getMessage());
+                count("failed");
+                closeQuietly();
+            }
+        }
+        closeQuietly();
+    }
+
+    private void write(Entry entry) throws IOException {
+        if (segment == null) {
+            openSegment();
+        }
+        segment.write(objectMapper.writeValueAsString(entry));
+        segment.write('\n');
+        count("written");
+    }
+
+    private boolean segmentFull() {
+        return segmentBytes.count >= segmentMaxMb * 1024 * 1024
+                || System.currentTimeMillis() - segmentOpenedAt >= Duration.ofMinutes(segmentMaxMinutes).toMillis();
+    }
+
+    private void openSegment() throws IOException {
+        String name = SEGMENT_PREFIX + LocalDateTime.now().format(SEGMENT_TIME) + SEGMENT_SUFFIX;
+        segmentPath = root.resolve(name + OPEN_SUFFIX);
+        segmentBytes = new CountingOutputStream(Files.newOutputStream(segmentPath));
+        segment = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(segmentBytes, 64 * 1024, true), StandardCharsets.UTF_8), 64 * 1024);
+        segmentOpenedAt = System.currentTimeMillis();
+    }
+
+    private void closeSegment() throws IOException {
+        Path open = segmentPath;
+        segment.close();
+        segment = null;
+        String name = open.getFileName().toString();
+        Files.move(open, open.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length())),
+                StandardCopyOption.ATOMIC_MOVE);
+        applyRetention();
+    }
+
+    private void closeQuietly() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            System.err.println("[PromptJournal] Could not close " + segmentPath + ": " + e.getMessage());
+            segment = null;
+        }
+    }
+
+    // Segments left open by a crash keep everything up to the last flush; zcat reads them
+    // and reports the missing gzip trailer
+    private void closeLeftoverSegments() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path open : files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX + OPEN_SUFFIX)).toList()) {
+                String name = open.getFileName().toString();
+                Files.move(open, open.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length())));
+            }
+        }
+    }
+
+    // Deletes closed segments past their age, then the oldest beyond the segment limit
+    private void applyRetention() throws IOException {
+        List<Path> closed = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(closed::add);
+        }
+        long cutoff = System.currentTimeMillis() - Duration.ofHours(retentionHours).toMillis();
+        int excess = closed.size() - maxSegments;
+        for (Path path : closed) {
+            if (excess > 0 || Files.getLastModifiedTime(path).toMillis() < cutoff) {
+                Files.deleteIfExists(path);
+                excess--;
+            }
+        }
+    }
+
+    // Compressed bytes written to the open segment
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.WebhookSignature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.sentry.Sentry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the branch HEADs the backend cares about, and therefore of the current
+ * Sentry release (the default repository's short HEAD commit).
+ *
+ * Request paths only read it (currentRelease(), headFor()) and never call Bitbucket or Sentry
+ * for release data. The HEADs are updated by:
+ *   - push webhooks (ReleaseWebhookController -> onPush), when release.webhook.secret is set
+ *   - a conditional poll (If-None-Match per branch) that backs off from
+ *     release.tracker.poll.min-seconds to release.tracker.poll.max-seconds while nothing
+ *     changes; once webhooks arrive it stays at the maximum as a safety net
+ * When the default HEAD moves, the matching Sentry release is ensured (SentryReleaseService
+ * remembers which releases exist) and the Sentry scope is tagged with it.
+ *
+ *   release.tracker.poll.min-seconds=60
+ *   release.tracker.poll.max-seconds=900
+ *   release.tracker.tick-ms=15000
+ *   release.webhook.secret=
+ */
+@Service
+public class ReleaseTracker {
+
+    private static final String DEFAULT_REPO = "default";
+
+    @Value("${release.tracker.poll.min-seconds:60}")
+    private long minPollSeconds;
+
+    @Value("${release.tracker.poll.max-seconds:900}")
+    private long maxPollSeconds;
+
+    @Value("${release.webhook.secret:}")
+    private String webhookSecret;
+
+    @Value("${bitbucket.workspace}")
+    private String bitbucketWorkspace;
+
+    @Value("${bitbucket.repo.name}")
+    private String bitbucketRepoName;
+
+    @Autowired
+    private BitbucketCodeFetcher bitbucketCodeFetcher;
+
+    @Autowired
+    private SentryReleaseService sentryReleaseService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // One branch whose HEAD is followed; commit and etag change together under the tracker's lock
+    private static final class TrackedHead {
+        final String workspace;
+        final String repoSlug;
+        final String branch;
+        volatile String commit;
+        volatile String etag;
+
+        TrackedHead(String workspace, String repoSlug, String branch) {
+            this.workspace = workspace;
+            this.repoSlug = repoSlug;
+            this.branch = branch;
+        }
+
+        boolean matches(String workspace, String repoSlug, String branch) {
+            return this.workspace.equalsIgnoreCase(workspace) && this.repoSlug.equalsIgnoreCase(repoSlug)
+                    && this.branch.equals(branch);
+        }
+    }
+
+    private final Map<String, TrackedHead> heads = new ConcurrentHashMap<>();
+    private volatile String currentRelease;
+    private volatile long pollIntervalSeconds;
+    private volatile long nextPollAtMillis;
+    private volatile long lastPushAtMillis;
+
+    /** The current release (default repository HEAD that exists in Sentry), or null if not known yet. */
+    public String currentRelease() {
+        return currentRelease;
+    }
+
+    /**
+     * Last known HEAD of the repo's branch, or null. An unknown repo is registered and picked up
+     * by the next tick, so only the first request for it goes without.
+     */
+    public String headFor(RepoConfig repo) {
+        String[] coordinates = bitbucketCodeFetcher.repoCoordinates(repo);
+        if (coordinates == null) {
+            return null;
+        }
+        String key = coordinates[0] + "/" + coordinates[1] + "@" + coordinates[2];
+        TrackedHead head = heads.get(key);
+        if (head == null) {
+            heads.putIfAbsent(key, new TrackedHead(coordinates[0], coordinates[1], coordinates[2]));
+            nextPollAtMillis = 0; // poll on the next tick instead of waiting out the backoff
+            return null;
+        }
+        return head.commit;
+    }
+
+    /**
+     * Resolves the default branch once and polls every tracked HEAD now. Called at startup and
+     * by the explicit create-release endpoint; never from request paths that only need the value.
+     */
+    public synchronized String refresh() {
+        if (!heads.containsKey(DEFAULT_REPO)) {
+            heads.put(DEFAULT_REPO, new TrackedHead(bitbucketWorkspace, bitbucketRepoName, bitbucketCodeFetcher.getCurrentBranch()));
+        }
+        pollHeads();
+        ensureCurrentRelease();
+        pollIntervalSeconds = minPollSeconds;
+        nextPollAtMillis = System.currentTimeMillis() + minPollSeconds * 1000L;
+        return currentRelease;
+    }
+
+    @Scheduled(fixedDelayString = "${release.tracker.tick-ms:15000}", initialDelayString = "${release.tracker.tick-ms:15000}")
+    public synchronized void tick() {
+        if (!heads.containsKey(DEFAULT_REPO)) {
+            refresh();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextPollAtMillis) {
+            return;
+        }
+        boolean changed = pollHeads();
+        ensureCurrentRelease(); // also retries a release that could not be created last time
+        if (changed) {
+            pollIntervalSeconds = minPollSeconds;
+        } else {
+            pollIntervalSeconds = Math.min(Math.max(pollIntervalSeconds, minPollSeconds) * 2, maxPollSeconds);
+        }
+        if (!webhookSecret.isEmpty() && lastPushAtMillis > 0) {
+            pollIntervalSeconds = maxPollSeconds; // webhooks deliver changes; polling only catches missed ones
+        }
+        nextPollAtMillis = now + pollIntervalSeconds * 1000L;
+    }
+
+    /**
+     * Applies a push reported by a webhook. Returns false if the branch is not tracked.
+     */
+    public synchronized boolean onPush(String workspace, String repoSlug, String branch, String commit) {
+        lastPushAtMillis = System.currentTimeMillis();
+        String shortCommit = commit.length() > 7 ? commit.substring(0, 7) : commit;
+        boolean tracked = false;
+        for (TrackedHead head : heads.values()) {
+            if (head.matches(workspace, repoSlug, branch)) {
+                head.commit = shortCommit;
+                head.etag = null; // the stored ETag describes the old HEAD
+                tracked = true;
+            }
+        }
+        if (tracked) {
+            meterRegistry.counter("release.tracker.updates", "source", "webhook").increment();
+            System.out.println("[ReleaseTracker] Push to " + workspace + "/" + repoSlug + "@" + branch + " -> " + shortCommit);
+            ensureCurrentRelease();
+        }
+        return tracked;
+    }
+
+    public boolean isWebhookEnabled() {
+        return !webhookSecret.isEmpty();
+    }
+
+    /** Checks X-Hub-Signature (sha256=hex HMAC of the raw body) against release.webhook.secret. */
+    public boolean verifySignature(byte[] body, String signature) {
+        return WebhookSignature.matches(webhookSecret, body, signature);
+    }
+
+    // Conditional GET per tracked branch; true if any HEAD moved
+    private boolean pollHeads() {
+        boolean changed = false;
+        for (TrackedHead head : heads.values()) {
+            BitbucketCodeFetcher.BranchHead result = bitbucketCodeFetcher.fetchBranchHead(head.workspace, head.repoSlug, head.branch, head.etag);
+            if (result == null) {
+                meterRegistry.counter("release.tracker.polls", "result", "failure").increment();
+                continue;
+            }
+            if (result.notModified()) {
+                meterRegistry.counter("release.tracker.polls", "result", "not-modified").increment();
+                continue;
+            }
+            head.etag = result.etag();
+            if (result.commit() != null && !result.commit().equals(head.commit)) {
+                System.out.println("[ReleaseTracker] " + head.workspace + "/" + head.repoSlug + "@" + head.branch
+                        + " HEAD " + head.commit + " -> " + result.commit());
+                head.commit = result.commit();
+                changed = true;
+                meterRegistry.counter("release.tracker.updates", "source", "poll").increment();
+            }
+            meterRegistry.counter("release.tracker.polls", "result", "modified").increment();
+        }
+        return changed;
+    }
+
+    // Makes the default HEAD the current release once Sentry has a release for it
+    private void ensureCurrentRelease() {
+        TrackedHead head = heads.get(DEFAULT_REPO);
+        String commit = head != null ? head.commit : null;
+        if (commit == null || commit.equals(currentRelease)) {
+            return;
+        }
+        if (!sentryReleaseService.ensureRelease(commit)) {
+            System.err.println("[ReleaseTracker] ERROR: Failed to create/verify Sentry release for commit: " + commit);
+            return;
+        }
+        currentRelease = commit;
+        Sentry.configureScope(scope -> {
+            scope.setTag("release", commit);
+            scope.setTag("commit_hash", commit);
+        });
+        System.out.println("[Sentry] Global release updated to: " + commit);
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.sentrytestbackend.service;
 
 import com.example.sentrytestbackend.util.BitbucketUrlParser;
+import com.example.sentrytestbackend.util.FrameClassifier;
+import com.example.sentrytestbackend.util.StackTrace;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,6 +33,11 @@ public class RepoConfig {
     // Configurable source roots for path mapping
     private final String[] sourceRoots;
     
+    // Per-project frame rules (project.{name}.frames.*), compiled once into a classifier
+    private List<String> extraFrameworkPrefixes = List.of();
+    private List<String> extraAppPrefixes = List.of();
+    private volatile FrameClassifier frameClassifier;
+    
     /**
      * Injects BitbucketCodeFetcher for dynamic file discovery
      */
@@ -37,6 +45,35 @@ public class RepoConfig {
         this.bitbucketCodeFetcher = bitbucketCodeFetcher;
     }
 
+    /**
+     * Sets project-specific frame classification rules on top of the defaults
+     * (framework packages and projectRoot)
+     */
+    public void setFrameRules(List<String> extraFrameworkPrefixes, List<String> extraAppPrefixes) {
+        this.extraFrameworkPrefixes = extraFrameworkPrefixes != null ? List.copyOf(extraFrameworkPrefixes) : List.of();
+        this.extraAppPrefixes = extraAppPrefixes != null ? List.copyOf(extraAppPrefixes) : List.of();
+        this.frameClassifier = null;
+    }
+
+    /**
+     * Returns the frame classifier for this project: default framework prefixes plus
+     * frames.framework-prefixes, and projectRoot plus frames.app-prefixes as application code
+     */
+    public FrameClassifier getFrameClassifier() {
+        FrameClassifier classifier = frameClassifier;
+        if (classifier == null) {
+            List<String> framework = new ArrayList<>(FrameClassifier.DEFAULT_FRAMEWORK_PREFIXES);
+            framework.addAll(extraFrameworkPrefixes);
+            List<String> app = new ArrayList<>(extraAppPrefixes);
+            if (projectRoot != null && !projectRoot.isEmpty()) {
+                app.add(projectRoot);
+            }
+            classifier = new FrameClassifier(framework, app, null, 20_000);
+            frameClassifier = classifier;
+        }
+        return classifier;
+    }
+
     /**
      * Legacy constructor for backward compatibility
      */
@@ -139,30 +176,41 @@ public class RepoConfig {
      * 2. Only fall back to static path building if dynamic discovery fails
      */
     public String buildFileUrl(String modulePackage, String filename, int lineNumber) {
+        StackTrace.SourceLocation location = resolveSourceLocation(modulePackage, filename, lineNumber);
+        return location != null ? location.url() : null;
+    }
+    
+    /**
+     * Same strategy as buildFileUrl, returning the structured location (workspace, repo,
+     * branch, path, line) so callers never have to parse the URL back
+     */
+    public StackTrace.SourceLocation resolveSourceLocation(String modulePackage, String filename, int lineNumber) {
         // PREFER DYNAMIC DISCOVERY - let the search APIs find the file
         if (bitbucketCodeFetcher != null && bitbucketComponents != null) {
             System.out.println("[RepoConfig] Using DYNAMIC DISCOVERY first for: " + filename);
-            String dynamicUrl = buildFileUrlWithDynamicDiscovery(modulePackage, filename, lineNumber);
+            StackTrace.SourceLocation dynamic = discoverSourceLocation(modulePackage, filename, lineNumber);
             
-            if (dynamicUrl != null) {
-                System.out.println("[RepoConfig] ✅ Dynamic discovery successful: " + dynamicUrl);
-                return dynamicUrl;
+            if (dynamic != null) {
+                System.out.println("[RepoConfig] ✅ Dynamic discovery successful: " + dynamic.url());
+                return dynamic;
             } else {
                 System.out.println("[RepoConfig] ⚠️ Dynamic discovery failed, falling back to static building");
             }
         }
         
         // FALLBACK: Try static URL building (assumes directory structure)
-        String staticUrl = null;
+        StackTrace.SourceLocation staticLocation = null;
         if (bitbucketComponents != null) {
-            staticUrl = buildEnhancedFileUrl(modulePackage, filename, lineNumber);
+            staticLocation = buildEnhancedFileLocation(modulePackage, filename, lineNumber);
         } else {
-            staticUrl = buildLegacyFileUrl(modulePackage, filename, lineNumber);
+            String legacyUrl = buildLegacyFileUrl(modulePackage, filename, lineNumber);
+            // Parsed back into workspace/repo/ref/path/line so snippet fetching can use it
+            staticLocation = StackTrace.SourceLocation.parseBitbucket(legacyUrl);
         }
         
-        if (staticUrl != null) {
-            System.out.println("[RepoConfig] ⚠️ Using static URL (may be incorrect): " + staticUrl);
-            return staticUrl;
+        if (staticLocation != null) {
+            System.out.println("[RepoConfig] ⚠️ Using static URL (may be incorrect): " + staticLocation.url());
+            return staticLocation;
         }
         
         System.err.println("[RepoConfig] ❌ Both dynamic and static URL building failed for: " + filename);
@@ -262,7 +310,7 @@ public class RepoConfig {
     /**
      * Strips the package root and maps 
      */
-    private String buildEnhancedFileUrl(String modulePackage, String filename, int lineNumber) {
+    private StackTrace.SourceLocation buildEnhancedFileLocation(String modulePackage, String filename, int lineNumber) {
         System.out.println("[RepoConfig] INTELLIGENT PATH MAPPING - modulePackage: " + modulePackage + ", filename: " + filename);
         
         // Step 1: Convert Java module to file path
@@ -288,22 +336,18 @@ public class RepoConfig {
             return null;
         }
         
-        // Step 3: Build clean Bitbucket URL
-        String fileUrl = String.format("https://bitbucket.org/%s/%s/src/%s/%s", 
+        // Step 3: Build clean Bitbucket location (line anchor only for positive line numbers)
+        StackTrace.SourceLocation location = StackTrace.SourceLocation.bitbucket(
             bitbucketComponents.getWorkspace(), 
             bitbucketComponents.getRepository(), 
             bitbucketComponents.getBranch(), 
-            relativePath);
-        
-        // Step 4: Add line number anchor
-        if (lineNumber > 0) {
-            fileUrl += "#lines-" + lineNumber;
-        }
+            relativePath,
+            lineNumber);
         
         System.out.println(String.format("[RepoConfig] INTELLIGENT MAPPING: stackTrace='%s' -> relative='%s' -> URL='%s'", 
-            stackTracePath, relativePath, fileUrl));
+            stackTracePath, relativePath, location.url()));
         
-        return fileUrl;
+        return location;
     }
     
     /**
@@ -416,6 +460,11 @@ public class RepoConfig {
      * @return Complete Bitbucket URL or null if discovery fails
      */
     public String buildFileUrlWithDynamicDiscovery(String modulePackage, String filename, int lineNumber) {
+        StackTrace.SourceLocation location = discoverSourceLocation(modulePackage, filename, lineNumber);
+        return location != null ? location.url() : null;
+    }
+    
+    private StackTrace.SourceLocation discoverSourceLocation(String modulePackage, String filename, int lineNumber) {
         if (bitbucketComponents == null || bitbucketCodeFetcher == null) {
             System.err.println("[RepoConfig] Dynamic discovery requires parsed Bitbucket URL and BitbucketCodeFetcher injection");
             return null;
@@ -446,19 +495,16 @@ public class RepoConfig {
         );
         
         if (discoveredPath != null) {
-            // Build complete URL with discovered path
-            String fileUrl = String.format("https://bitbucket.org/%s/%s/src/%s/%s", 
+            // Build complete location with discovered path
+            StackTrace.SourceLocation location = StackTrace.SourceLocation.bitbucket(
                 bitbucketComponents.getWorkspace(), 
                 bitbucketComponents.getRepository(), 
                 bitbucketComponents.getBranch(), 
-                discoveredPath);
-            
-            if (lineNumber > 0) {
-                fileUrl += "#lines-" + lineNumber;
-            }
+                discoveredPath,
+                lineNumber);
             
-            System.out.println("[RepoConfig] Dynamic discovery successful: " + fileUrl);
-            return fileUrl;
+            System.out.println("[RepoConfig] Dynamic discovery successful: " + location.url());
+            return location;
         } else {
             System.err.println("[RepoConfig] Dynamic discovery failed for: " + filename);
             return null;
@@ -6,7 +6,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,6 +18,8 @@ import java.util.Map;
  * - project.{projectName}.root=com.example.package
  * - project.{projectName}.bitbucket.url=https://bitbucket.org/workspace/repo/src/branch/path/
  * - project.{projectName}.source.path=src/main/java/
+ * - project.{projectName}.frames.framework-prefixes=io.reactivex.,okhttp3.   (optional)
+ * - project.{projectName}.frames.app-prefixes=com.example.shared.            (optional)
  * 
  * Example configuration for BlueFletch EMS Auth:
  * project.bf-ems-auth.root=com.example.bfemsauth
@@ -230,6 +234,11 @@ public class RepoResolver {
             projectSourceRootsArray   // project-specific or global source roots
         );
         
+        // Optional per-project frame rules for stack-trace filtering
+        config.setFrameRules(
+            splitList(environment.getProperty(prefix + "frames.framework-prefixes")),
+            splitList(environment.getProperty(prefix + "frames.app-prefixes")));
+        
         // INJECT BitbucketCodeFetcher for DYNAMIC DISCOVERY
         if (bitbucketCodeFetcher != null) {
             config.setBitbucketCodeFetcher(bitbucketCodeFetcher);
@@ -244,6 +253,18 @@ public class RepoResolver {
     
     // NO DEFAULT CONFIG METHOD - EXPLICIT CONFIGURATION REQUIRED
     
+    private static List<String> splitList(String property) {
+        List<String> values = new ArrayList<>();
+        if (property != null) {
+            for (String value : property.split(",")) {
+                if (!value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+    
     /**
      * Returns all cached configurations (for debugging/monitoring)
      */
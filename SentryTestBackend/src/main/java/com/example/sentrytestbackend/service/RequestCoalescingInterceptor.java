@@ -0,0 +1,206 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RestTemplate interceptor that turns identical concurrent upstream requests into one call.
+ *
+ * Sits under every service that uses the shared RestTemplate (SentryDataFetcher, the code
+ * fetchers, AIAnalysisService.callGeminiAPI). Requests are keyed by method, normalized URL
+ * (lower-case host, default port dropped, query parameters sorted), a SHA-256 of the body and
+ * the headers that change the answer (Authorization, conditional and Accept headers). The
+ * leader's response is buffered and every caller gets its own copy, so error handling and
+ * body parsing still happen per caller.
+ *
+ * GET/HEAD are always eligible; POST only for URLs containing one of http.coalesce.post-paths
+ * (Gemini generateContent is a pure function of its body). Other writes are never shared.
+ *
+ *   http.coalesce.enabled=true
+ *   http.coalesce.post-paths=:generateContent
+ */
+@Component
+public class RequestCoalescingInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final List<String> KEY_HEADERS = List.of(
+            HttpHeaders.AUTHORIZATION, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, "Accept", "Range");
+
+    @Value("${http.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${http.coalesce.post-paths::generateContent}")
+    private String postPaths;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final RequestCoalescer<BufferedResponse> coalescer = new RequestCoalescer<>();
+    private List<String> coalescablePostPaths;
+
+    @PostConstruct
+    public void init() {
+        coalescablePostPaths = Arrays.stream(postPaths.split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .toList();
+        meterRegistry.gauge("http.client.coalesce.in-flight", Tags.empty(), coalescer, RequestCoalescer::inFlight);
+        System.out.println("[Coalesce] " + (enabled ? "enabled, POST paths " + coalescablePostPaths : "disabled"));
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!enabled || !isCoalescable(request)) {
+            return execution.execute(request, body);
+        }
+        String host = request.getURI().getHost();
+        RequestCoalescer.Result<BufferedResponse> result = coalescer.execute(key(request, body),
+                () -> BufferedResponse.read(execution.execute(request, body)));
+        meterRegistry.counter("http.client.coalesce", "host", String.valueOf(host),
+                "result", result.shared() ? "coalesced" : "leader").increment();
+        if (result.shared()) {
+            System.out.println("[Coalesce] Shared in-flight " + request.getMethod().name() + " " + host + request.getURI().getPath());
+        }
+        return result.value().copy();
+    }
+
+    private boolean isCoalescable(HttpRequest request) {
+        HttpMethod method = request.getMethod();
+        if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) {
+            return true;
+        }
+        if (HttpMethod.POST.equals(method)) {
+            String url = request.getURI().toString();
+            for (String path : coalescablePostPaths) {
+                if (url.contains(path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String key(HttpRequest request, byte[] body) {
+        MessageDigest digest = sha256();
+        digest.update(body);
+        for (String header : KEY_HEADERS) {
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                digest.update((header + "=" + values + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return request.getMethod().name() + " " + normalizeUrl(request.getURI()) + " " + HexFormat.of().formatHex(digest.digest());
+    }
+
+    static String normalizeUrl(URI uri) {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || ("https".equals(scheme) && port == 443) || ("http".equals(scheme) && port == 80);
+        StringBuilder sb = new StringBuilder(scheme).append("://").append(host);
+        if (!defaultPort) {
+            sb.append(':').append(port);
+        }
+        sb.append(uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            String[] params = query.split("&");
+            Arrays.sort(params);
+            sb.append('?').append(String.join("&", params));
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Fully read upstream response; copy() hands each caller an independent view of it.
+     */
+    private static final class BufferedResponse implements ClientHttpResponse {
+        private final HttpStatusCode status;
+        private final String statusText;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        private BufferedResponse(HttpStatusCode status, String statusText, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.statusText = statusText;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        static BufferedResponse read(ClientHttpResponse response) throws IOException {
+            try (response) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.putAll(response.getHeaders());
+                byte[] body = new byte[0];
+                InputStream in = response.getBody();
+                if (in != null) {
+                    try (in) {
+                        body = in.readAllBytes();
+                    }
+                }
+                return new BufferedResponse(response.getStatusCode(), response.getStatusText(), headers, body);
+            }
+        }
+
+        BufferedResponse copy() {
+            HttpHeaders copy = new HttpHeaders();
+            copy.putAll(headers);
+            return new BufferedResponse(status, statusText, copy, body);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return statusText;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -7,10 +7,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 import java.util.*;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.sentry.Sentry;
+import io.micrometer.core.instrument.MeterRegistry;
 import com.example.sentrytestbackend.service.SentryErrorObject;
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.SentryIssue;
 
 // Methods used to Fetch Data from Sentry
 // Although other classes has data fetch methods, from now on
@@ -31,9 +35,22 @@ public class SentryDataFetcher {
     @Value("${sentry.organization.id}")
     private String sentryOrgId;
 
+    // Safety cap on how many pages a single iteration may follow
+    @Value("${sentry.pagination.max-pages:50}")
+    private int maxPages;
+
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private SentryResponseCache responseCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 // GETTER METHODS //
 // Collection of methods to recieve Data from Sentry
 
@@ -72,8 +89,7 @@ public class SentryDataFetcher {
 
             ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode data = mapper.readTree(response.getBody());
+            JsonNode data = objectMapper.readTree(response.getBody());
 
             List<Map<String, String>> projects = new ArrayList<>();
             for (JsonNode project : data) {
@@ -119,45 +135,80 @@ public class SentryDataFetcher {
 // Parameter ~ String project name
 // Parameter ~ String errorId
 // Returns String Sentry Event by Id
+// Served from the id index when the issue was fetched recently, otherwise one call to /issues/{id}/
     public JsonNode fetchEventsByProject(String organizationId, String projectSlug, String errorId){
+        JsonNode issue = fetchIssueById(errorId);
+        String issueProject = issue.path("project").path("slug").asText("");
+        if (!issueProject.isEmpty() && !issueProject.equals(projectSlug)) {
+            throw new RuntimeException("Event with id " + errorId + " not found in project " + projectSlug);
+        }
+        return issue;
+    }
+
+// Looks up one issue by id without touching the project's issue list
+    public JsonNode fetchIssueById(String issueId){
+        JsonNode cachedIssue = responseCache.getIssue(issueId);
+        meterRegistry.counter("upstream.cache", "upstream", "sentry", "operation", "issue",
+            "result", cachedIssue != null ? "hit" : "miss").increment();
+        if (cachedIssue != null) {
+            return cachedIssue;
+        }
         try {
-            String issuesJson = curlForSentryErrorDataByProject(organizationId, projectSlug);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode errorData = mapper.readTree(issuesJson); 
-
-            for (JsonNode event : errorData) {
-                if (event.path("id").asText().equals(errorId)) {
-                    return event;
-                }    
-            } 
-            throw new RuntimeException("Event with id " + errorId + " not found in project " + projectSlug);   
+            String url = String.format("%s/api/0/issues/%s/", sentryBaseUrl, issueId);
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "Bearer " + sentryApiToken);
+            headers.set("Content-Type", "application/json");
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+
+            JsonNode issue = objectMapper.readTree(response.getBody());
+            responseCache.putIssue(issue);
+            return issue;
         } catch (Exception e) {
             Sentry.captureException(e);
             throw new RuntimeException("Unable to fetch single error from Sentry");
-        }   
+        }
+    }
+
+// Fetches the newest event of an issue (including stacktrace) in one call
+// Replaces getEventIds(issueId, 1) + a fetch of that event by id
+// Only the fields in SentryEvent are read; the rest of the body is skipped while parsing
+    public SentryEvent fetchLatestEvent(String issueId){
+        try {
+            String url = String.format("%s/api/0/issues/%s/events/latest/", sentryBaseUrl, issueId);
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "Bearer " + sentryApiToken);
+            headers.set("Content-Type", "application/json");
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+
+            return objectMapper.readValue(response.getBody(), SentryEvent.class);
+        } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
+            throw new RuntimeException("No event IDs found for issue " + issueId);
+        } catch (Exception e) {
+            Sentry.captureException(e);
+            throw new RuntimeException("Unable to fetch latest event from Sentry");
+        }
     }
 
 // Fetches stack trace for specific issues
     public String fetchStackTrace(String organizationId, String projectSlug, String issueId){
-        List<String> eventId = getEventIds(issueId);
-        if (eventId.isEmpty()) {
-            throw new RuntimeException("No event IDs found for issue " + issueId);
+        try {
+            return objectMapper.writeValueAsString(fetchLatestEvent(issueId));
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new RuntimeException("Unable to serialize latest event for issue " + issueId);
         }
-        JsonNode stackTraceJson = curlForStacktraceByEventId(issueId, eventId.get(0));
-        return stackTraceJson.toString();
     }
 
     public Map<String, String> fetchMapIdWithErrorName(String organizationId, String projectSlug){
         try {
-            String issuesJson = curlForSentryErrorDataByProject(organizationId, projectSlug);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode data = mapper.readTree(issuesJson);
+            SentryPageIterator<SentryIssue> issues = iterateIssuesByProject(organizationId, projectSlug);
 
             Map<String, String> result = new HashMap<>();
-            for (JsonNode event : data) {
-                Map<String, String> map = new HashMap<>();
-                String id = "event_id: " + event.path("id").asText();
-                String name = "error_name: " + event.path("title").asText();
+            while (issues.hasNext()) {
+                SentryIssue event = issues.next();
+                String id = "event_id: " + event.id();
+                String name = "error_name: " + event.title();
                 result.put(id, name);
             }
             return result;
@@ -169,13 +220,11 @@ public class SentryDataFetcher {
 
     public Set<String> fetchErrorIdList(String organizationId, String projectSlug){
         try{
-            String issuesJson = curlForSentryErrorDataByProject(organizationId, projectSlug);
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode data = mapper.readTree(issuesJson);
+            SentryPageIterator<SentryIssue> issues = iterateIssuesByProject(organizationId, projectSlug);
 
             Set<String> result = new HashSet<>();
-            for (JsonNode event : data){
-                String eventId = event.path("id").asText();
+            while (issues.hasNext()) {
+                String eventId = issues.next().id();
                 result.add(eventId);
             }   
             return result;
@@ -190,60 +239,21 @@ public class SentryDataFetcher {
 // (i.e, generate random IDs, Parsing, Curling, Formatting)
 
 
-// Curls to recieve Sentry Errors
-// Only shows one unique error data per error name
-// Requires Orgnization_id & project_slug (project name)
-// Same as this endpoint: https://sentry.io/api/0/projects/noah-3t/android/issues/
-    public String curlForSentryErrorDataByProject(String organizationId, String projectSlug){
-        String url = String.format("%s/api/0/projects/%s/%s/issues/", sentryBaseUrl, organizationId, projectSlug);
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + sentryApiToken);
-        headers.set("Content-Type", "application/json");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-        String issuesJson = response.getBody();
-        return issuesJson; // Returns JSON string
-    }
-
-// Curls to recieve Event ID to get stacktrace
-// Requires Event issue ID and eventId (from getEventIds)
-    public JsonNode curlForStacktraceByEventId(String issueId, String eventId) {
-        try {
-            String url = String.format("%s/api/0/issues/%s/events/%s/", sentryBaseUrl, issueId, eventId);
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + sentryApiToken);
-            headers.set("Content-Type", "application/json");
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readTree(response.getBody()); // Returns the full event JSON (including stacktrace)
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new RuntimeException("Unable to fetch stacktrace from Sentry");
-        }
-    }
-
 // Returns eventId to get stacktrace
 // Unique id for individual errors
 // Requires issueId
+// Follows every page of /events/; use getEventIds(issueId, max) when only the newest are needed
     public List<String> getEventIds(String issueId){
-        try {
-            String url = String.format("%s/api/0/issues/%s/events/", sentryBaseUrl, issueId);
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + sentryApiToken);
-            headers.set("Content-Type", "application/json");
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+        return getEventIds(issueId, Integer.MAX_VALUE);
+    }
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode events = mapper.readTree(response.getBody());
+// Returns up to max eventIds (newest first), stopping pagination as soon as enough are read
+    public List<String> getEventIds(String issueId, int max){
+        try {
+            SentryPageIterator<String> events = iterateEventIds(issueId);
             List<String> eventIds = new ArrayList<>();
-            for (JsonNode event : events) {
-                String eventId = event.path("eventID").asText();
-                if (!eventId.isEmpty()) {
-                    eventIds.add(eventId);
-                }
+            while (eventIds.size() < max && events.hasNext()) {
+                eventIds.add(events.next());
             }
             return eventIds;
         } catch (Exception e) {
@@ -252,8 +262,40 @@ public class SentryDataFetcher {
         }
     }
 
+// STREAMING METHODS //
+// Follow Sentry's Link cursors lazily and parse each page with a JsonParser,
+// so memory is bounded by one page no matter how many issues a project has
+
+// Streams every issue of a project, most recently seen first (sort=date)
+// Stop iterating whenever enough issues were read; later pages are never requested
+// Each element is read straight into a SentryIssue, skipping the fields it does not hold
+    public SentryPageIterator<SentryIssue> iterateIssuesByProject(String organizationId, String projectSlug){
+        String url = String.format("%s/api/0/projects/%s/%s/issues/?sort=date", sentryBaseUrl, organizationId, projectSlug);
+        return new SentryPageIterator<>(restTemplate, objectMapper.getFactory(), sentryApiToken, url,
+            parser -> objectMapper.readValue(parser, SentryIssue.class), maxPages);
+    }
+
+// Streams the event ids of an issue, reading only the eventID field of each event
+    public SentryPageIterator<String> iterateEventIds(String issueId){
+        String url = String.format("%s/api/0/issues/%s/events/", sentryBaseUrl, issueId);
+        return new SentryPageIterator<>(restTemplate, objectMapper.getFactory(), sentryApiToken, url,
+            parser -> {
+                String eventId = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("eventID".equals(field)) {
+                        eventId = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return (eventId == null || eventId.isEmpty()) ? null : eventId;
+            }, maxPages);
+    }
+
     // Returns first event data (includes title, dateCreated, etc.) without needing additional API call
-    // This is much more efficient than getEventIds + curlForStacktraceByEventId
+    // This is much more efficient than getEventIds + a fetch of each event by id
     public JsonNode getFirstEventData(String issueId){
         try {
             String url = String.format("%s/api/0/issues/%s/events/", sentryBaseUrl, issueId);
@@ -263,8 +305,7 @@ public class SentryDataFetcher {
             HttpEntity<String> entity = new HttpEntity<>(headers);
             ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode events = mapper.readTree(response.getBody());
+            JsonNode events = objectMapper.readTree(response.getBody());
             
             // Return the first event if available
             if (events.isArray() && events.size() > 0) {
@@ -277,28 +318,6 @@ public class SentryDataFetcher {
         }
     }
 
-// Parses Sentry errors and Returns the titles
-// Params ~ JSON Erros from Sentry
-// Returns List<String> ArrayList of All Error Titles
-    public List<String> parseErrorTitles(String sentryErrors){
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode data = mapper.readTree(sentryErrors);
-
-            Set<String> uniqueTitles = new HashSet<>();
-            for (JsonNode event : data) {
-                String title = event.path("title").asText();
-                if (!title.isEmpty()) {
-                    uniqueTitles.add(title);
-                }
-            }
-            return new ArrayList<>(uniqueTitles);
-        } catch (Exception e) {
-            Sentry.captureException(e);
-            throw new RuntimeException("Unable to parse error titles from Sentry JSON");
-        }
-    }
-
 // Generate random ID for grouped errors
 public String randomUUID(){
     return UUID.randomUUID().toString();
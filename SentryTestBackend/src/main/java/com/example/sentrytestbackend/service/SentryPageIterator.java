@@ -0,0 +1,128 @@
+package com.example.sentrytestbackend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a paginated Sentry list endpoint (issues, events) one element at a time.
+ *
+ * Pages are requested lazily: the next page is only fetched once every element of the
+ * current one has been consumed, following the cursor in Sentry's Link header. Each page
+ * body is read token by token with a JsonParser, so at most one page of elements is held
+ * in memory. Callers stop early simply by no longer calling next().
+ */
+public class SentryPageIterator<T> implements Iterator<T> {
+
+    /**
+     * Reads one array element. The parser is positioned on the element's START_OBJECT and
+     * the reader must consume it up to the matching END_OBJECT. Returning null skips it.
+     */
+    @FunctionalInterface
+    public interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    // Sentry: <https://...&cursor=0:100:0>; rel="next"; results="true"; cursor="0:100:0"
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>;\\s*rel=\"next\";\\s*results=\"true\"");
+
+    private final RestTemplate restTemplate;
+    private final JsonFactory jsonFactory;
+    private final String apiToken;
+    private final ElementReader<T> reader;
+    private final int maxPages;
+
+    private final Deque<T> buffer = new ArrayDeque<>();
+    private String nextUrl;
+    private int pagesFetched = 0;
+
+    public SentryPageIterator(RestTemplate restTemplate, JsonFactory jsonFactory, String apiToken,
+                              String firstPageUrl, ElementReader<T> reader, int maxPages) {
+        this.restTemplate = restTemplate;
+        this.jsonFactory = jsonFactory;
+        this.apiToken = apiToken;
+        this.nextUrl = firstPageUrl;
+        this.reader = reader;
+        this.maxPages = maxPages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (buffer.isEmpty() && nextUrl != null) {
+            fetchNextPage();
+        }
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.poll();
+    }
+
+    public int getPagesFetched() {
+        return pagesFetched;
+    }
+
+    private void fetchNextPage() {
+        if (pagesFetched >= maxPages) {
+            System.err.println("[SentryPager] Page limit (" + maxPages + ") reached, not following: " + nextUrl);
+            nextUrl = null;
+            return;
+        }
+        String url = nextUrl;
+        nextUrl = null;
+        pagesFetched++;
+
+        // Link URLs are already encoded, so bypass RestTemplate's URI template expansion
+        restTemplate.execute(URI.create(url), HttpMethod.GET,
+            request -> {
+                request.getHeaders().set("Authorization", "Bearer " + apiToken);
+                request.getHeaders().set("Content-Type", "application/json");
+            },
+            response -> {
+                nextUrl = parseNextLink(response.getHeaders().getFirst("Link"));
+                readPage(response.getBody());
+                return null;
+            });
+    }
+
+    private void readPage(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                T element = reader.read(parser);
+                if (element != null) {
+                    buffer.add(element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the next-page URL from a Sentry Link header, or null when there are no more results.
+     */
+    public static String parseNextLink(String linkHeader) {
+        if (linkHeader == null || linkHeader.isEmpty()) {
+            return null;
+        }
+        Matcher matcher = NEXT_LINK.matcher(linkHeader);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -11,20 +11,22 @@ import io.sentry.Sentry;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service for creating and managing Sentry releases programmatically
- * Integrates with Bitbucket API to get commit hashes and creates corresponding Sentry releases
+ * Creates the Sentry release for a commit hash; which commit is current is ReleaseTracker's job
  */
 @Service
 public class SentryReleaseService {
 
     @Autowired
     private RestTemplate restTemplate;
-    
-    @Autowired
-    private BitbucketCodeFetcher bitbucketCodeFetcher;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     // Sentry API Configuration
     @Value("${sentry.api.url}")
     private String sentryBaseUrl;
@@ -45,42 +47,39 @@ public class SentryReleaseService {
     @Value("${bitbucket.repo.name}")
     private String bitbucketRepoName;
 
+    // Releases known to exist in Sentry; releases are never deleted, so no lookup is repeated
+    private final Set<String> knownReleases = ConcurrentHashMap.newKeySet();
+
     /**
-     * Creates or ensures a Sentry release exists for the current commit
-     * Gets commit hash from Bitbucket API and creates corresponding Sentry release
-     * @return The commit hash/release version, or null if failed
+     * Ensures a Sentry release exists for the commit hash, creating it if needed
+     * Only the first call per release goes to Sentry
+     * @param commitHash The commit hash / release version
+     * @return true if the release exists (or was created), false otherwise
      */
-    public String createOrEnsureSentryRelease() {
+    public boolean ensureRelease(String commitHash) {
+        if (commitHash == null || commitHash.isEmpty()) {
+            return false;
+        }
+        if (knownReleases.contains(commitHash)) {
+            return true;
+        }
         try {
-            // 1. Get current commit from Bitbucket API
-            String commitHash = bitbucketCodeFetcher.getCurrentCommitFromDetectedBranch();
-            if (commitHash == null || commitHash.isEmpty()) {
-                System.err.println("[SentryRelease] ERROR: Could not get commit hash from Bitbucket");
-                return null;
-            }
-
-            System.out.println("[SentryRelease] Using commit hash from Bitbucket: " + commitHash);
-
-            // 2. Check if release already exists
             if (checkReleaseExists(commitHash)) {
                 System.out.println("[SentryRelease] Release already exists for commit: " + commitHash);
-                return commitHash;
+                knownReleases.add(commitHash);
+                return true;
             }
-
-            // 3. Create new Sentry release
-            boolean created = createSentryRelease(commitHash);
-            if (created) {
+            if (createSentryRelease(commitHash)) {
                 System.out.println("[SentryRelease] Successfully created release for commit: " + commitHash);
-                return commitHash;
-            } else {
-                System.err.println("[SentryRelease] ERROR: Failed to create Sentry release for commit: " + commitHash);
-                return null;
+                knownReleases.add(commitHash);
+                return true;
             }
-
+            System.err.println("[SentryRelease] ERROR: Failed to create Sentry release for commit: " + commitHash);
+            return false;
         } catch (Exception e) {
             System.err.println("[SentryRelease] ERROR: Exception during release creation: " + e.getMessage());
             Sentry.captureException(e);
-            return null;
+            return false;
         }
     }
 
@@ -137,8 +136,7 @@ public class SentryReleaseService {
             ref.put("commit", commitHash);
             payload.put("refs", new Map[]{ref});
 
-            ObjectMapper mapper = new ObjectMapper();
-            String jsonPayload = mapper.writeValueAsString(payload);
+            String jsonPayload = objectMapper.writeValueAsString(payload);
 
             HttpHeaders headers = new HttpHeaders();
             headers.set("Authorization", "Bearer " + sentryApiToken);
@@ -165,44 +163,4 @@ public class SentryReleaseService {
             return false;
         }
     }
-
-    /**
-     * Gets the current active release (commit hash) for error tracking
-     * This can be called by controllers to get the current commit for error association
-     * @return Current commit hash or null if not available
-     */
-    public String getCurrentReleaseForErrors() {
-        // Try to get existing commit from Bitbucket
-        String commitHash = bitbucketCodeFetcher.getCurrentCommitFromDetectedBranch();
-        
-        if (commitHash != null && !commitHash.isEmpty()) {
-            System.out.println("[SentryRelease] Current release for errors: " + commitHash);
-            return commitHash;
-        } else {
-            System.err.println("[SentryRelease] ERROR: No current release available for error tracking");
-            return null;
-        }
-    }
-
-    /**
-     * Initializes Sentry release on application startup
-     * Call this from a startup listener or controller to ensure release exists
-     */
-    public void initializeReleaseOnStartup() {
-        System.out.println("[SentryRelease] Initializing Sentry release on application startup...");
-        String release = createOrEnsureSentryRelease();
-        
-        if (release != null) {
-            System.out.println("[SentryRelease] Application initialized with release: " + release);
-            
-            // Set the release in Sentry context for automatic association
-            Sentry.configureScope(scope -> {
-                scope.setTag("release", release);
-                scope.setTag("commit_hash", release);
-            });
-            
-        } else {
-            System.err.println("[SentryRelease] WARNING: Application started without Sentry release initialization");
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.example.sentrytestbackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Bounded in-memory cache in front of the Sentry REST API.
+ *
+ * Every issue fetched on its own (GET /issues/{id}/) is indexed by id as the full tree that
+ * is sent to Gemini, so repeated lookups of a hot issue cost no call. Metadata such as
+ * lastSeen and count may lag Sentry by up to the index TTL. List pages are read into
+ * SentryIssue projections, which are too thin to stand in for that tree, so they are not indexed.
+ *
+ * Project issue lists are not cached here: the list endpoints read IssueSyncService's store,
+ * or stream pages and stop early. Events are not cached either; the backend only asks for an
+ * issue's latest event, which changes whenever the issue recurs.
+ *
+ * Nothing is copied on the way in or out. Indexed issues are the parsed trees themselves,
+ * shared by every caller that gets them, so they must be treated as read-only (deepCopy()
+ * first to edit one).
+ *
+ * The index records statistics and is bound to the actuator as
+ * cache.gets / cache.evictions / cache.size with tag cache=sentry.issue-index.
+ */
+@Service
+public class SentryResponseCache {
+
+    // Issue metadata (lastSeen, count) may lag this much behind Sentry when served from the index
+    @Value("${sentry.cache.issue-index.ttl-seconds:300}")
+    private long issueIndexTtlSeconds;
+
+    @Value("${sentry.cache.issue-index.max-size:10000}")
+    private long issueIndexMaxSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, JsonNode> issuesById;
+
+    @PostConstruct
+    public void init() {
+        issuesById = Caffeine.newBuilder()
+                .maximumSize(issueIndexMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(issueIndexTtlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, issuesById, "sentry.issue-index");
+
+        System.out.println("[SentryCache] Issue index: ttl=" + issueIndexTtlSeconds + "s, max=" + issueIndexMaxSize);
+    }
+
+// ISSUE INDEX //
+
+    // Shared tree; read-only for callers
+    public JsonNode getIssue(String issueId) {
+        return issuesById.getIfPresent(issueId);
+    }
+
+    // Stored as-is; the caller must not edit the issue afterwards
+    public void putIssue(JsonNode issue) {
+        String id = issue.path("id").asText("");
+        if (!id.isEmpty()) {
+            issuesById.put(id, issue);
+        }
+    }
+}
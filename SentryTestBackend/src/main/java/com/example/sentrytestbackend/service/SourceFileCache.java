@@ -0,0 +1,304 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.RequestCoalescer;
+import com.example.sentrytestbackend.util.SourceFile;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier, content-addressed cache of source files keyed by (host, repo, commit, path).
+ *
+ * A file at a given commit never changes, so entries are only dropped to bound space:
+ *   1. heap  - size-bounded (by bytes) cache of SourceFile objects
+ *   2. disk  - one file per entry under source.cache.dir, survives restarts. Pruned in the
+ *              background to source.cache.disk.max-mb, least recently read first, and of
+ *              entries not read for source.cache.disk.max-age-days.
+ * The network loader only runs when both tiers miss. Concurrent requests for the same
+ * key wait for a single load, which runs on the first caller's thread outside the heap
+ * cache's locks, so a slow download only delays callers of that key. Lookups are counted
+ * as upstream.cache{result=hit|miss}.
+ *
+ * Branch names are not cacheable by themselves; callers first map them to a commit with
+ * resolveRef(), which memoizes branch -> commit for a short TTL.
+ *
+ *   source.cache.dir=${java.io.tmpdir}/sentry-source-cache
+ *   source.cache.heap.max-mb=64
+ *   source.cache.disk.enabled=true
+ *   source.cache.disk.max-mb=512
+ *   source.cache.disk.max-age-days=30
+ *   source.cache.ref-ttl-seconds=60
+ */
+@Service
+public class SourceFileCache {
+
+    @Value("${source.cache.dir:${java.io.tmpdir}/sentry-source-cache}")
+    private String cacheDir;
+
+    @Value("${source.cache.heap.max-mb:64}")
+    private long heapMaxMb;
+
+    @Value("${source.cache.disk.enabled:true}")
+    private boolean diskEnabled;
+
+    @Value("${source.cache.disk.max-mb:512}")
+    private long diskMaxMb;
+
+    @Value("${source.cache.disk.max-age-days:30}")
+    private long diskMaxAgeDays;
+
+    @Value("${source.cache.ref-ttl-seconds:60}")
+    private long refTtlSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final int PRUNE_EVERY_WRITES = 200;
+
+    private Cache<String, SourceFile> heap;
+    private Cache<String, String> refs;
+    private Path diskRoot;
+    private final RequestCoalescer<SourceFile> loads = new RequestCoalescer<>();
+    private final AtomicInteger writesSincePrune = new AtomicInteger();
+    private final AtomicBoolean pruning = new AtomicBoolean();
+    private final ExecutorService pruner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "source-cache-prune");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        heap = Caffeine.newBuilder()
+                .maximumWeight(heapMaxMb * 1024 * 1024)
+                .weigher((String key, SourceFile file) -> file.weightBytes())
+                .recordStats()
+                .build();
+        refs = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofSeconds(refTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, heap, "source.files");
+        CaffeineCacheMetrics.monitor(meterRegistry, refs, "source.refs");
+
+        diskRoot = Paths.get(cacheDir);
+        if (diskEnabled) {
+            try {
+                Files.createDirectories(diskRoot);
+                schedulePrune();
+            } catch (IOException e) {
+                System.err.println("[SourceCache] Disk tier disabled, cannot create " + diskRoot + ": " + e.getMessage());
+                diskEnabled = false;
+            }
+        }
+        System.out.println("[SourceCache] heap=" + heapMaxMb + "MB, disk=" + (diskEnabled
+                ? diskRoot + " (max " + diskMaxMb + "MB, " + diskMaxAgeDays + "d)" : "disabled"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pruner.shutdownNow();
+    }
+
+    /**
+     * Returns the file at an immutable commit, loading it through the disk tier and then
+     * the loader (network) only on a miss. Loader exceptions propagate and nothing is cached.
+     */
+    public SourceFile get(String host, String repo, String commit, String path, Supplier<String> loader) {
+        String key = host + "|" + repo + "|" + commit + "|" + path;
+        boolean[] loaded = {false};
+        SourceFile file = heap.getIfPresent(key);
+        if (file == null) {
+            file = loads.execute(key, () -> {
+                SourceFile current = heap.getIfPresent(key);
+                if (current != null) {
+                    return current;
+                }
+                String content = readFromDisk(key);
+                if (content == null) {
+                    loaded[0] = true;
+                    content = loader.get();
+                    if (content == null) {
+                        throw new IllegalStateException("Empty file body for " + path + "@" + commit);
+                    }
+                    writeToDisk(key, content);
+                }
+                SourceFile read = new SourceFile(content);
+                heap.put(key, read);
+                return read;
+            }).value();
+        }
+        // Same upstream/operation tags as UpstreamMetricsInterceptor's upstream.requests
+        meterRegistry.counter("upstream.cache", "upstream", host, "operation", "github".equals(host) ? "contents" : "src",
+                "result", loaded[0] ? "miss" : "hit").increment();
+        return file;
+    }
+
+    /**
+     * Maps a ref (branch name or commit) to a commit hash. Hex refs of 7-40 chars are
+     * treated as commits already; branches are resolved via the resolver and memoized.
+     * Returns null when the branch could not be resolved.
+     */
+    public String resolveRef(String host, String repo, String ref, Supplier<String> resolver) {
+        if (looksLikeCommit(ref)) {
+            return ref;
+        }
+        String key = host + "|" + repo + "|" + ref;
+        String cached = refs.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        String commit = resolver.get();
+        if (commit != null && !commit.isEmpty()) {
+            refs.put(key, commit);
+            return commit;
+        }
+        return null;
+    }
+
+    public static boolean looksLikeCommit(String ref) {
+        return ref != null && ref.matches("^[a-fA-F0-9]{7,40}$");
+    }
+
+// DISK TIER //
+
+    private Path diskPath(String key) {
+        String hash = sha256(key);
+        return diskRoot.resolve(hash.substring(0, 2)).resolve(hash + ".src");
+    }
+
+    private String readFromDisk(String key) {
+        if (!diskEnabled) {
+            return null;
+        }
+        Path file = diskPath(key);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            // Pruning goes by modification time, so a read keeps the entry alive
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return content;
+        } catch (IOException e) {
+            System.err.println("[SourceCache] Failed to read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Write to a temp file and move it in place so readers never see a partial entry
+    private void writeToDisk(String key, String content) {
+        if (!diskEnabled) {
+            return;
+        }
+        Path file = diskPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "src", ".tmp");
+            Files.writeString(tmp, content, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[SourceCache] Failed to write " + file + ": " + e.getMessage());
+        }
+        if (writesSincePrune.incrementAndGet() >= PRUNE_EVERY_WRITES) {
+            writesSincePrune.set(0);
+            schedulePrune();
+        }
+    }
+
+    // At most one prune runs or waits at a time; it never runs on a request thread
+    private void schedulePrune() {
+        if (pruning.compareAndSet(false, true)) {
+            try {
+                pruner.execute(() -> {
+                    try {
+                        pruneDisk();
+                    } finally {
+                        pruning.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pruning.set(false);
+            }
+        }
+    }
+
+    private record DiskEntry(Path path, long size, long modifiedMillis) {
+    }
+
+    // Drops entries not read for max-age-days, then the least recently read until under max-mb
+    private void pruneDisk() {
+        List<DiskEntry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(diskRoot)) {
+            files.filter(p -> p.getFileName().toString().endsWith(".src")).forEach(p -> {
+                try {
+                    entries.add(new DiskEntry(p, Files.size(p), Files.getLastModifiedTime(p).toMillis()));
+                } catch (IOException e) {
+                    // Removed concurrently
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("[SourceCache] Failed to scan " + diskRoot + ": " + e.getMessage());
+            return;
+        }
+        entries.sort(Comparator.comparingLong(DiskEntry::modifiedMillis));
+        long cutoff = System.currentTimeMillis() - Duration.ofDays(diskMaxAgeDays).toMillis();
+        long total = entries.stream().mapToLong(DiskEntry::size).sum();
+        long maxBytes = diskMaxMb * 1024 * 1024;
+        int deleted = 0;
+        for (DiskEntry entry : entries) {
+            if (entry.modifiedMillis() >= cutoff && total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.path());
+                total -= entry.size();
+                deleted++;
+            } catch (IOException e) {
+                System.err.println("[SourceCache] Failed to prune " + entry.path() + ": " + e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("[SourceCache] Pruned " + deleted + " disk entries, " + (total / 1024) + " KB left");
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
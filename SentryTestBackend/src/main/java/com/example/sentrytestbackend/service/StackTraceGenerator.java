@@ -1,13 +1,16 @@
 package com.example.sentrytestbackend.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.sentrytestbackend.util.FrameClassifier;
+import com.example.sentrytestbackend.util.SentryEvent;
+import com.example.sentrytestbackend.util.StackTrace;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.context.event.EventListener;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class StackTraceGenerator {
@@ -15,12 +18,16 @@ public class StackTraceGenerator {
     @Autowired
     private AIAnalysisService aiAnalysisService;
 
+    // Current release and per-repo HEADs, kept in memory so building a trace makes no release calls
     @Autowired
-    private SentryReleaseService sentryReleaseService;
+    private ReleaseTracker releaseTracker;
 
     @Autowired
     private RepoResolver repoResolver;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Variables to connect to github Repo
     @Value("${github.repo.url}")
     private String githubRepo;
@@ -47,83 +54,42 @@ public class StackTraceGenerator {
                 detectedAppName = "";
             }
         }
+        appFrameClassifier = new FrameClassifier(FrameClassifier.DEFAULT_FRAMEWORK_PREFIXES, null, detectedAppName, 20_000);
         System.out.println("[StackTrace] Detected application name for filtering: '" + detectedAppName + "'");
     }
-    private static final Set<String> ANDROID_FRAMEWORK_PREFIXES = Set.of(
-            "androidx.",
-            "android.",
-            "java.",
-            "kotlin.",
-            "kotlinx.",
-            "dalvik.",
-            "com.android.",
-            "sun.",
-            "org.jetbrains.kotlin"
-    );
-
-    private static boolean isAndroidFrameworkModule(String module) {
-        if (module == null) return false;
-        for (String p : ANDROID_FRAMEWORK_PREFIXES) {
-            if (module.startsWith(p)) return true;
-        }
-        return false;
-    }
 
-    private static boolean isSyntheticFrame(String functionOrModule) {
-        if (functionOrModule == null) return false;
-        return functionOrModule.contains("$$ExternalSyntheticLambda")
-                || functionOrModule.contains("$r8$lambda$")
-                || functionOrModule.contains("$$Lambda$")
-                || functionOrModule.contains("$$SyntheticClass")
-                || functionOrModule.contains("D8$$SyntheticClass")
-                || functionOrModule.contains("$$ExternalSynthetic");
-    }
-
-    private static boolean isObfuscatedFrame(JsonNode frame) {
-        String function = frame.has("function") ? frame.path("function").asText("") : "";
-        int lineno = frame.has("lineno") ? frame.path("lineno").asInt(-1) : (frame.has("lineNo") ? frame.path("lineNo").asInt(-1) : -1);
-        if (lineno == 0) return true;
-        return function.matches(".*\\$[a-zA-Z0-9_]{10,}.*") || function.matches("^[a-zA-Z]$");
-    }
+    // Frame rules for traces without a resolved RepoConfig: app frames are those naming the application
+    private FrameClassifier appFrameClassifier;
 
-    private static boolean looksAndroid(JsonNode exception, String projectRoot) {
-        JsonNode frames = exception.path("stacktrace").path("frames");
-        if (frames.isArray()) {
-            for (int i = frames.size() - 1; i >= 0; i--) {
-                JsonNode frame = frames.get(i);
-                String module = frame.path("module").asText("");
-                String filename = frame.path("filename").asText("");
-                // Heuristic: Kotlin .kt isn't enough for Android; require projectRoot hint if present
-                if (module.contains("androidx.") || module.startsWith("android.")) return true;
-                if (filename.endsWith(".kt") && projectRoot != null && projectRoot.startsWith("com.example.demologinapp")) return true;
-            }
+    private static boolean looksAndroid(SentryEvent.ExceptionValue exception, String projectRoot) {
+        List<SentryEvent.Frame> frames = exception.frames();
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            SentryEvent.Frame frame = frames.get(i);
+            String module = text(frame.module(), "");
+            String filename = text(frame.filename(), "");
+            // Heuristic: Kotlin .kt isn't enough for Android; require projectRoot hint if present
+            if (module.contains("androidx.") || module.startsWith("android.")) return true;
+            if (filename.endsWith(".kt") && projectRoot != null && projectRoot.startsWith("com.example.demologinapp")) return true;
         }
         return projectRoot != null && projectRoot.startsWith("com.example.demologinapp");
     }
 
     /**
-     * Auto-detects app type (Android vs Java backend) and builds a filtered stack trace string
-     * with Bitbucket links using per-project repository mapping.
+     * Auto-detects app type (Android vs Java backend) and builds a filtered stack trace
+     * with Bitbucket locations using per-project repository mapping.
      */
-    public String buildStackTraceStringAuto(JsonNode exception, BitbucketCodeFetcher bitbucketCodeFetcher, JsonNode eventData, String project) {
+    public StackTrace buildStackTraceAuto(SentryEvent.ExceptionValue exception, BitbucketCodeFetcher bitbucketCodeFetcher, SentryEvent eventData, String project) {
         RepoConfig repo = repoResolver.resolve(project);
         String commitHash = extractCommitHashFromEvent(eventData);
         if (commitHash == null || commitHash.isEmpty()) {
-            // Try per-project commit from Bitbucket for the resolved repo
-            try {
-                String repoCommit = bitbucketCodeFetcher != null ? bitbucketCodeFetcher.getCurrentCommitForRepo(repo) : null;
-                if (repoCommit != null && !repoCommit.isEmpty()) {
-                    commitHash = repoCommit;
-                }
-            } catch (Exception ignored) {}
-            // As a fallback, try creating/ensuring a Sentry release (may use default repo)
+            // Per-project HEAD of the resolved repo, as last seen by the release tracker
+            String repoCommit = releaseTracker.headFor(repo);
+            if (repoCommit != null && !repoCommit.isEmpty()) {
+                commitHash = repoCommit;
+            }
+            // As a fallback, the current release (default repo)
             if (commitHash == null || commitHash.isEmpty()) {
-                try {
-                    String newCommitHash = sentryReleaseService.createOrEnsureSentryRelease();
-                    if (newCommitHash != null && !newCommitHash.isEmpty()) {
-                        commitHash = newCommitHash;
-                    }
-                } catch (Exception ignored) {}
+                commitHash = releaseTracker.currentRelease();
             }
         }
 
@@ -133,147 +99,112 @@ public class StackTraceGenerator {
                 : buildBackendStyleTrace(exception, bitbucketCodeFetcher, repo, commitHash);
     }
 
-    private String buildBackendStyleTrace(JsonNode exception, BitbucketCodeFetcher bitbucketCodeFetcher, RepoConfig repo, String commitHash) {
-        String exceptionType = exception.has("type") ? exception.path("type").asText() : exception.path("name").asText("UnknownException");
-        String exceptionValue = exception.has("value") ? exception.path("value").asText() : "";
-        StringBuilder stackTrace = new StringBuilder();
-        stackTrace.append(exceptionType);
-        if (!exceptionValue.isEmpty()) stackTrace.append(": ").append(exceptionValue);
-        stackTrace.append("\n");
+    // The two builders below only depend on their arguments; public so the jmh benchmarks can call them directly
+    public StackTrace buildBackendStyleTrace(SentryEvent.ExceptionValue exception, BitbucketCodeFetcher bitbucketCodeFetcher, RepoConfig repo, String commitHash) {
+        FrameClassifier classifier = repo.getFrameClassifier();
+        List<StackTrace.Frame> shown = new ArrayList<>();
 
-        JsonNode frames = exception.path("stacktrace").path("frames");
-        if (frames.isArray()) {
-            for (int i = frames.size() - 1; i >= 0; i--) {
-                JsonNode frame = frames.get(i);
-                String module = frame.path("module").asText("");
-                String function = frame.path("function").asText("");
-                String filename = frame.path("filename").asText("UnknownFile.java");
-                int lineno = frame.has("lineno") ? frame.path("lineno").asInt(-1) : (frame.has("lineNo") ? frame.path("lineNo").asInt(-1) : -1);
-                // Filter: include frames whose module contains project root (backend)
-                if (repo.getProjectRoot() == null || repo.getProjectRoot().isEmpty() || module.startsWith(repo.getProjectRoot())) {
-                    stackTrace.append("    at ");
-                    if (!module.isEmpty()) stackTrace.append(module).append(".");
-                    stackTrace.append(function).append("(").append(filename);
-                    if (lineno != -1) stackTrace.append(":").append(lineno);
-                    stackTrace.append(")");
-                    // Use the enhanced RepoConfig.buildFileUrl method with intelligent fallback
-                    String link = repo.buildFileUrl(module, filename, lineno);
-                    stackTrace.append(" [").append(link).append("]\n");
-                }
+        List<SentryEvent.Frame> frames = exception.frames();
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            SentryEvent.Frame frame = frames.get(i);
+            String module = text(frame.module(), "");
+            String function = text(frame.function(), "");
+            String filename = text(frame.filename(), "UnknownFile.java");
+            int lineno = frame.line();
+            // Filter: include frames under the project root / app prefixes (backend)
+            FrameClassifier.Classification kind = classifier.classify(module, function, lineno);
+            if (!classifier.hasAppRules() || kind.app()) {
+                // Use the enhanced RepoConfig location lookup with intelligent fallback
+                StackTrace.SourceLocation location = repo.resolveSourceLocation(module, filename, lineno);
+                shown.add(new StackTrace.Frame(module, function, filename, lineno, kind, location, 0));
             }
         }
-        return stackTrace.toString();
+        return new StackTrace(exceptionType(exception), exceptionValue(exception), shown, List.of());
     }
 
-    private String buildAndroidStyleTrace(JsonNode exception, BitbucketCodeFetcher bitbucketCodeFetcher, RepoConfig repo, String commitHash) {
-        String exceptionType = exception.has("type") ? exception.path("type").asText() : exception.path("name").asText("UnknownException");
-        String exceptionValue = exception.has("value") ? exception.path("value").asText() : "";
-        StringBuilder cleanedTrace = new StringBuilder();
-        cleanedTrace.append(exceptionType);
-        if (!exceptionValue.isEmpty()) cleanedTrace.append(": ").append(exceptionValue);
-        cleanedTrace.append("\n");
+    public StackTrace buildAndroidStyleTrace(SentryEvent.ExceptionValue exception, BitbucketCodeFetcher bitbucketCodeFetcher, RepoConfig repo, String commitHash) {
+        FrameClassifier classifier = repo.getFrameClassifier();
+        List<StackTrace.Frame> shown = new ArrayList<>();
+        List<String> notes = new ArrayList<>();
 
-        JsonNode frames = exception.path("stacktrace").path("frames");
+        List<SentryEvent.Frame> frames = exception.frames();
         boolean foundApp = false;
         boolean skippingFramework = false;
         int skippedFramework = 0;
-        if (frames.isArray()) {
-            for (int i = frames.size() - 1; i >= 0; i--) {
-                JsonNode frame = frames.get(i);
-                String module = frame.path("module").asText("");
-                String function = frame.path("function").asText("");
-                String filename = frame.path("filename").asText("UnknownFile.kt");
-                int lineno = frame.has("lineno") ? frame.path("lineno").asInt(-1) : (frame.has("lineNo") ? frame.path("lineNo").asInt(-1) : -1);
-
-                boolean isFramework = isAndroidFrameworkModule(module);
-                boolean isSynthetic = isSyntheticFrame(module) || isSyntheticFrame(function);
-                boolean isObfuscated = isObfuscatedFrame(frame);
-                boolean isApp = module != null && repo.getProjectRoot() != null && module.startsWith(repo.getProjectRoot());
-
-                if (isApp && !isSynthetic && !isObfuscated) {
-                    if (skippingFramework && skippedFramework > 0) {
-                        cleanedTrace.append("    ... ").append(skippedFramework).append(" framework calls omitted ...\n");
-                        skippedFramework = 0;
-                    }
-                    skippingFramework = false;
-                    cleanedTrace.append("    at ");
-                    if (!module.isEmpty()) cleanedTrace.append(module).append(".");
-                    cleanedTrace.append(function).append("(").append(filename);
-                    if (lineno != -1) cleanedTrace.append(":").append(lineno);
-                    cleanedTrace.append(")");
-                    // Use the enhanced RepoConfig.buildFileUrl method with intelligent fallback
-                    String link = repo.buildFileUrl(module, filename, lineno);
-                    cleanedTrace.append(" [").append(link).append("]\n");
-                    foundApp = true;
-                } else if (isSynthetic || isObfuscated) {
-                    // drop
-                } else if (!skippingFramework && foundApp && isFramework) {
-                    cleanedTrace.append("    at ");
-                    if (!module.isEmpty()) cleanedTrace.append(module).append(".");
-                    cleanedTrace.append(function).append("(").append(filename);
-                    if (lineno != -1) cleanedTrace.append(":").append(lineno);
-                    cleanedTrace.append(")\n");
-                    skippingFramework = true;
-                } else if (skippingFramework && isFramework) {
-                    skippedFramework++;
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            SentryEvent.Frame frame = frames.get(i);
+            String module = text(frame.module(), "");
+            String function = text(frame.function(), "");
+            String filename = text(frame.filename(), "UnknownFile.kt");
+            int lineno = frame.line();
+
+            FrameClassifier.Classification kind = classifier.classify(module, function, lineno);
+            boolean isFramework = kind.framework();
+
+            if (kind.cleanApp()) {
+                if (skippingFramework && skippedFramework > 0) {
+                    markOmitted(shown, skippedFramework);
+                    skippedFramework = 0;
                 }
+                skippingFramework = false;
+                // Use the enhanced RepoConfig location lookup with intelligent fallback
+                StackTrace.SourceLocation location = repo.resolveSourceLocation(module, filename, lineno);
+                shown.add(new StackTrace.Frame(module, function, filename, lineno, kind, location, 0));
+                foundApp = true;
+            } else if (kind.noise()) {
+                // drop
+            } else if (!skippingFramework && foundApp && isFramework) {
+                shown.add(new StackTrace.Frame(module, function, filename, lineno, kind, null, 0));
+                skippingFramework = true;
+            } else if (skippingFramework && isFramework) {
+                skippedFramework++;
             }
         }
         if (skippingFramework && skippedFramework > 0) {
-            cleanedTrace.append("    ... ").append(skippedFramework).append(" framework calls omitted ...\n");
+            markOmitted(shown, skippedFramework);
         }
         if (!foundApp) {
-            cleanedTrace.append("    [Note: No application-specific code found in stack trace]\n");
+            notes.add("[Note: No application-specific code found in stack trace]");
         }
-        return cleanedTrace.toString();
+        return new StackTrace(exceptionType(exception), exceptionValue(exception), shown, notes);
+    }
+
+    // Collapsed framework frames are reported after the last frame shown
+    private static void markOmitted(List<StackTrace.Frame> shown, int count) {
+        StackTrace.Frame last = shown.get(shown.size() - 1);
+        shown.set(shown.size() - 1, new StackTrace.Frame(last.module(), last.function(), last.filename(),
+                last.lineno(), last.classification(), last.location(), count));
     }
 
     /**
-     * Builds a clean, filtered stack trace string from exception node, with Bitbucket links.
+     * Builds a clean, filtered stack trace from exception node, with Bitbucket links.
      * Only shows PROJECT frames, filters out verbose Spring/Java framework frames.
-     * @param exception The exception node from Sentry event data
+     * @param exception The exception value from Sentry event data
      * @param bitbucketCodeFetcher Service for building Bitbucket links
      * @param eventData Complete Sentry event data for commit hash extraction
-     * @return Stack trace string with commit-specific Bitbucket links
+     * @return Stack trace whose frames carry commit-specific Bitbucket locations
      */
-    public String buildStackTraceStringWithBitbucketLinks(JsonNode exception, BitbucketCodeFetcher bitbucketCodeFetcher, JsonNode eventData) {
+    public StackTrace buildStackTraceWithBitbucketLinks(SentryEvent.ExceptionValue exception, BitbucketCodeFetcher bitbucketCodeFetcher, SentryEvent eventData) {
         // Extract commit hash from Sentry event data
         String commitHash = extractCommitHashFromEvent(eventData);
         System.out.println("[StackTrace] Extracted commit hash: '" + commitHash + "'");
         
-        // Auto-create Sentry release if commit hash not found
+        // Fall back to the current release if the event carries no commit hash
         if (commitHash == null || commitHash.isEmpty() || "not-found".equals(commitHash)) {
-            System.out.println("[StackTrace] No commit hash found in event, attempting to create Sentry release...");
-            try {
-                String newCommitHash = sentryReleaseService.createOrEnsureSentryRelease();
-                if (newCommitHash != null && !newCommitHash.isEmpty()) {
-                    commitHash = newCommitHash;
-                    System.out.println("[StackTrace] Auto-created Sentry release with commit: " + commitHash);
-                } else {
-                    System.out.println("[StackTrace] WARNING: Auto-release creation failed, proceeding without commit hash");
-                }
-            } catch (Exception e) {
-                System.err.println("[StackTrace] ERROR: Auto-release creation failed: " + e.getMessage());
+            commitHash = releaseTracker.currentRelease();
+            if (commitHash != null) {
+                System.out.println("[StackTrace] No commit hash found in event, using current release: " + commitHash);
+            } else {
+                System.out.println("[StackTrace] WARNING: No current release known yet, proceeding without commit hash");
             }
         }
         
-        String exceptionType = exception.has("type")
-                ? exception.path("type").asText()
-                : exception.path("name").asText("UnknownException");
-        String exceptionValue = exception.has("value")
-                ? exception.path("value").asText()
-                : "";
-        StringBuilder stackTrace = new StringBuilder();
-        stackTrace.append(exceptionType);
-        if (!exceptionValue.isEmpty()) {
-            stackTrace.append(": ").append(exceptionValue);
-        }
-        stackTrace.append("\n");
+        List<StackTrace.Frame> shown = new ArrayList<>();
+        List<String> notes = new ArrayList<>();
         
         // Remove projectRoot config and use detectedAppName for filtering
-        JsonNode frames = exception.path("stacktrace").path("frames");
-        if (frames.isArray() && frames.size() > 0) {
-            boolean foundProjectFrame = false;
+        List<SentryEvent.Frame> frames = exception.frames();
+        if (!frames.isEmpty()) {
             // Store first project frame for potential fallback use
             String firstProjectModule = null;
             String firstProjectFunction = null;
@@ -281,13 +212,15 @@ public class StackTraceGenerator {
             int firstProjectLineno = -1;
             System.out.println("[StackTrace] Processing " + frames.size() + " frames with detected app name: " + detectedAppName);
             for (int i = frames.size() - 1; i >= 0; i--) {
-                JsonNode frame = frames.get(i);
-                String module = frame.has("module") ? frame.path("module").asText("") : "";
-                String function = frame.has("function") ? frame.path("function").asText("") : "";
-                String filename = frame.has("filename") ? frame.path("filename").asText("") : "UnknownFile.java";
-                int lineno = frame.has("lineno") ? frame.path("lineno").asInt(-1) : (frame.has("lineNo") ? frame.path("lineNo").asInt(-1) : -1);
+                SentryEvent.Frame frame = frames.get(i);
+                String module = text(frame.module(), "");
+                String function = text(frame.function(), "");
+                String filename = text(frame.filename(), "UnknownFile.java");
+                int lineno = frame.line();
                 System.out.println("[StackTrace] Frame " + i + ": " + module + "." + function + "(" + filename + ":" + lineno + ")");
-                if (firstProjectModule == null && !module.isEmpty() && (detectedAppName.isEmpty() || module.toLowerCase().contains(detectedAppName))) {
+                FrameClassifier.Classification kind = appFrameClassifier.classify(module, function, lineno);
+                boolean projectFrame = !appFrameClassifier.hasAppRules() || kind.app();
+                if (firstProjectModule == null && !module.isEmpty() && projectFrame) {
                     firstProjectModule = module;
                     firstProjectFunction = function;
                     firstProjectFilename = filename;
@@ -295,45 +228,45 @@ public class StackTraceGenerator {
                     System.out.println("[StackTrace] Found first project frame: " + module + "." + function + ":" + lineno);
                 }
                 // FILTER: Only include frames that contain the detected app name (or include all if not detected)
-                if (detectedAppName.isEmpty() || module.toLowerCase().contains(detectedAppName)) {
-                    foundProjectFrame = true;
-                    stackTrace.append("    at ");
-                    if (!module.isEmpty()) {
-                        stackTrace.append(module).append(".");
-                    }
-                    stackTrace.append(function).append("(").append(filename);
-                    if (lineno != -1) {
-                        stackTrace.append(":" ).append(lineno);
-                    }
-                    stackTrace.append(")");
-                    
-                    // Always add Bitbucket link for this frame - NEVER hardcode URLs, use commit hash
-                    String bitbucketUrl = (bitbucketCodeFetcher != null)
-                        ? bitbucketCodeFetcher.buildBitbucketLinkWithCommit(module, filename, lineno, commitHash)
-                        : "[Bitbucket URL unavailable - service not initialized]";
-                    stackTrace.append(" [").append(bitbucketUrl).append("]");
-                    stackTrace.append("\n");
+                if (projectFrame) {
+                    // Always link this frame to Bitbucket - NEVER hardcode URLs, use commit hash
+                    StackTrace.SourceLocation location = (bitbucketCodeFetcher != null)
+                        ? bitbucketCodeFetcher.buildBitbucketLocationWithCommit(module, filename, lineno, commitHash)
+                        : null;
+                    shown.add(new StackTrace.Frame(module, function, filename, lineno, kind, location, 0));
                     System.out.println("[StackTrace] Included frame: " + module + "." + function + ":" + lineno);
                 }
             }
             
             // If no project frame found in filtered results, show error message
-            if (!foundProjectFrame) {
+            if (shown.isEmpty()) {
                 if (firstProjectModule != null) {
                     System.out.println("[StackTrace] ERROR: No frames passed project root filter, but found project frame: " + firstProjectModule + "." + firstProjectFunction + ":" + firstProjectLineno);
-                    stackTrace.append("    [ERROR: No frames matched stacktrace.project.root filter '").append(detectedAppName).append("']\n");
-                    stackTrace.append("    [DEBUG: Found project frame but excluded by filter: ").append(firstProjectModule).append(".").append(firstProjectFunction).append("(").append(firstProjectFilename).append(":").append(firstProjectLineno).append(")]\n");
+                    notes.add("[ERROR: No frames matched stacktrace.project.root filter '" + detectedAppName + "']");
+                    notes.add("[DEBUG: Found project frame but excluded by filter: " + firstProjectModule + "." + firstProjectFunction + "(" + firstProjectFilename + ":" + firstProjectLineno + ")]");
                 } else {
                     System.out.println("[StackTrace] ERROR: No project frames found at all in stack trace");
-                    stackTrace.append("    [ERROR: No project frames found in stack trace - check if error occurred in project code]\n");
+                    notes.add("[ERROR: No project frames found in stack trace - check if error occurred in project code]");
                 }
             }
         } else {
             // Absolutely no frames provided by Sentry - this should be rare
             System.out.println("[StackTrace] ERROR: No frames provided by Sentry at all");
-            stackTrace.append("    [ERROR: No stack trace frames available from Sentry - exception may be synthetic or malformed]\n");
+            notes.add("[ERROR: No stack trace frames available from Sentry - exception may be synthetic or malformed]");
         }
-        return stackTrace.toString();
+        return new StackTrace(exceptionType(exception), exceptionValue(exception), shown, notes);
+    }
+
+    private static String exceptionType(SentryEvent.ExceptionValue exception) {
+        return text(exception.type(), "UnknownException");
+    }
+
+    private static String exceptionValue(SentryEvent.ExceptionValue exception) {
+        return text(exception.value(), "");
+    }
+
+    private static String text(String value, String absent) {
+        return value != null ? value : absent;
     }
 
     // Using Sentry Data from AiAnalysisService
@@ -341,14 +274,8 @@ public class StackTraceGenerator {
     // Must trigger an error before using
     public String getMostRecentStackTrace() {
     try {
-        JsonNode mostRecentEvent = getMostRecentSentryEvent();
-        if (mostRecentEvent != null) {
-            JsonNode exception = getExceptionNode(mostRecentEvent);
-            if (exception != null) {
-                return buildStackTraceString(exception, false);
-            }
-        }
-        return "No stack trace found in the most recent Sentry event.";
+        StackTrace trace = getMostRecentTrace(false);
+        return trace != null ? trace.render() : "No stack trace found in the most recent Sentry event.";
     } catch (Exception e) {
         return "Error fetching or parsing Sentry data: " + e.getMessage();
     }
@@ -360,109 +287,72 @@ public class StackTraceGenerator {
 // This Method maps the code to our Github Repo, for accurate lines
 public String getMostRecentStackTraceWithGithubLinks() {
     try {
-        JsonNode mostRecentEvent = getMostRecentSentryEvent();
-        if (mostRecentEvent != null) {
-            JsonNode exception = getExceptionNode(mostRecentEvent);
-            if (exception != null) {
-                return buildStackTraceString(exception, true);
-            }
-        }
-        return "No stack trace found in the most recent Sentry event.";
+        StackTrace trace = getMostRecentTrace(true);
+        return trace != null ? trace.render() : "No stack trace found in the most recent Sentry event.";
     } catch (Exception e) {
         return "Error fetching or parsing Sentry data: " + e.getMessage();
     }
 }
 
+// Typed form of the most recent stack trace, or null if the latest event has no exception
+public StackTrace getMostRecentTrace(boolean withGithubLinks) throws Exception {
+    SentryEvent mostRecentEvent = getMostRecentSentryEvent();
+    if (mostRecentEvent != null) {
+        SentryEvent.ExceptionValue exception = getException(mostRecentEvent);
+        if (exception != null) {
+            return buildStackTrace(exception, withGithubLinks);
+        }
+    }
+    return null;
+}
+
 
 // HELPER METHODS//
 
-private JsonNode getMostRecentSentryEvent() throws Exception {
+private SentryEvent getMostRecentSentryEvent() throws Exception {
     String jsonResponse = aiAnalysisService.getMostRecentSentryError();
-    ObjectMapper mapper = new ObjectMapper();
-    JsonNode rootNode = mapper.readTree(jsonResponse);
-    if (rootNode.isArray() && rootNode.size() > 0) {
-        return rootNode.get(0);
-    }
-    return null;
+    SentryEvent[] events = objectMapper.readValue(jsonResponse, SentryEvent[].class);
+    return events.length > 0 ? events[0] : null;
 }
 
-// Fetches the most recent Sentry Event as a JsonNode
+// Exception of a Sentry event (first exception entry value)
 // Return null if not found
-public JsonNode getExceptionNode(JsonNode event) {
-    JsonNode entries = event.path("entries");
-    if (entries.isArray()) {
-        for (JsonNode entry : entries) {
-            if ("exception".equals(entry.path("type").asText())) {
-                JsonNode values = entry.path("data").path("values");
-                if (values.isArray() && values.size() > 0) {
-                    return values.get(0);
-                }
-            }
-        }
-    }
-    return null;
+public SentryEvent.ExceptionValue getException(SentryEvent event) {
+    return event.exception();
 }
 
-// Builds a readable stack trace string from exception node
-// If user wants Github links, Githublinks are added.
-public String buildStackTraceString(JsonNode exception, boolean withGithubLinks) {
-    // Get exception type and value
-    String exceptionType = exception.has("type")
-            ? exception.path("type").asText()
-            : exception.path("name").asText("UnknownException");
-    String exceptionValue = exception.has("value")
-            ? exception.path("value").asText()
-            : "";
-    StringBuilder stackTrace = new StringBuilder();
-    stackTrace.append(exceptionType);
-    if (!exceptionValue.isEmpty()) {
-        stackTrace.append(": ").append(exceptionValue);
-    }
-    stackTrace.append("\n");
+// Builds a readable stack trace from exception node (all frames, unfiltered)
+// If user wants Github links, Github locations are added.
+public StackTrace buildStackTrace(SentryEvent.ExceptionValue exception, boolean withGithubLinks) {
     // Iterate through stack frames (method calls that led to exception)
     // Each frame contains info (i.e fule number, filename, line number,)
-    JsonNode frames = exception.path("stacktrace").path("frames");
-    if (frames.isArray()) {
-        for (int i = frames.size() - 1; i >= 0; i--) {
-            JsonNode frame = frames.get(i);
-            String module = frame.path("module").asText("");
-            String function = frame.path("function").asText("");
-            String filename = frame.path("filename").asText("");
-            int lineno = frame.has("lineno") ? frame.path("lineno").asInt(-1) : frame.path("lineNo").asInt(-1);
-
-            stackTrace.append("    at ");
-            if (!module.isEmpty()) {
-                stackTrace.append(module).append(".");
-            }
-            stackTrace.append(function).append("(").append(filename);
-            if (lineno != -1) {
-                stackTrace.append(":").append(lineno);
-            }
-            stackTrace.append(")");
-            // Optionally add Github link for this frame
-            if (withGithubLinks) {
-                String githubUrl = buildGithubLink(module, filename, lineno);
-                stackTrace.append(" [").append(githubUrl).append("]");
-            }
-            stackTrace.append("\n");
-        }
+    List<StackTrace.Frame> shown = new ArrayList<>();
+    List<SentryEvent.Frame> frames = exception.frames();
+    for (int i = frames.size() - 1; i >= 0; i--) {
+        SentryEvent.Frame frame = frames.get(i);
+        String module = text(frame.module(), "");
+        String function = text(frame.function(), "");
+        String filename = text(frame.filename(), "");
+        int lineno = frame.line();
+        // Optionally add Github link for this frame
+        StackTrace.SourceLocation location = withGithubLinks ? buildGithubLocation(module, filename, lineno) : null;
+        shown.add(new StackTrace.Frame(module, function, filename, lineno, null, location, 0));
     }
-    return stackTrace.toString();
+    return new StackTrace(exceptionType(exception), exceptionValue(exception), shown, List.of());
 }
 
     /**
      * Extracts commit hash from Sentry event data.
      * Looks for commit hash in release field, tags, or context.
-     * @param eventData Complete Sentry event JSON
+     * @param eventData Complete Sentry event
      * @return Commit hash string, or null if not found
      */
-    public String extractCommitHashFromEvent(JsonNode eventData) {
+    public String extractCommitHashFromEvent(SentryEvent eventData) {
         if (eventData == null) return null;
         
         // First, try to get from release field (this is set by pipeline)
-        JsonNode releaseNode = eventData.path("release");
-        if (!releaseNode.isMissingNode() && !releaseNode.asText().isEmpty()) {
-            String release = releaseNode.asText();
+        String release = eventData.releaseVersion();
+        if (!release.isEmpty()) {
             // Sentry release is set as first 7 chars of commit in pipeline
             if (release.matches("^[a-f0-9]{7}$")) {
                 return release;
@@ -470,13 +360,10 @@ public String buildStackTraceString(JsonNode exception, boolean withGithubLinks)
         }
         
         // Try to get from tags
-        JsonNode tagsNode = eventData.path("tags");
-        if (tagsNode.isArray()) {
-            for (JsonNode tag : tagsNode) {
-                JsonNode keyNode = tag.path("key");
-                JsonNode valueNode = tag.path("value");
-                if ("commit".equals(keyNode.asText()) || "commit_hash".equals(keyNode.asText())) {
-                    String commitValue = valueNode.asText();
+        if (eventData.tags() != null) {
+            for (SentryEvent.Tag tag : eventData.tags()) {
+                if ("commit".equals(tag.key()) || "commit_hash".equals(tag.key())) {
+                    String commitValue = text(tag.value(), "");
                     if (commitValue.length() >= 7) {
                         return commitValue.substring(0, 7); // Use first 7 chars
                     }
@@ -485,9 +372,8 @@ public String buildStackTraceString(JsonNode exception, boolean withGithubLinks)
         }
         
         // Try to get from context
-        JsonNode contextNode = eventData.path("contexts").path("app").path("build_version");
-        if (!contextNode.isMissingNode()) {
-            String buildVersion = contextNode.asText();
+        if (eventData.contexts() != null && eventData.contexts().app() != null) {
+            String buildVersion = text(eventData.contexts().app().buildVersion(), "");
             if (buildVersion.matches("^[a-f0-9]{7,}$")) {
                 return buildVersion.substring(0, 7);
             }
@@ -496,16 +382,32 @@ public String buildStackTraceString(JsonNode exception, boolean withGithubLinks)
         return null; // No commit hash found
     }
 
-    // Builds Github link for a given module, filename, and line number
+    // Builds Github location for a given module, filename, and line number
     // Used to map stack frames to source code repo
-    private String buildGithubLink(String module, String filename, int lineno) {
+    private StackTrace.SourceLocation buildGithubLocation(String module, String filename, int lineno) {
         int lastDot = module.lastIndexOf('.');
         String packagePath = lastDot != -1 ? module.substring(0, lastDot).replace('.', '/') : "";
-        String githubUrl = githubRepo + "/blob/" + branch + "/" + srcRoot + packagePath + "/" + filename;
+        String filePath = srcRoot + packagePath + "/" + filename;
+        String githubUrl = githubRepo + "/blob/" + branch + "/" + filePath;
         if (lineno != -1) {
             githubUrl += "#L" + lineno;
         }
-        return githubUrl;
+        String[] ownerRepo = githubOwnerRepo();
+        if (ownerRepo == null) {
+            return StackTrace.SourceLocation.unstructured(githubUrl, StackTrace.SourceLocation.GITHUB);
+        }
+        return new StackTrace.SourceLocation(githubUrl, StackTrace.SourceLocation.GITHUB, ownerRepo[0], ownerRepo[1],
+            branch, filePath, lineno);
+    }
+
+    // {owner, repo} from github.repo.url (https://github.com/owner/repo), or null if it is not a GitHub URL
+    private String[] githubOwnerRepo() {
+        String prefix = "https://github.com/";
+        if (githubRepo == null || !githubRepo.startsWith(prefix)) {
+            return null;
+        }
+        String[] parts = githubRepo.substring(prefix.length()).split("/");
+        return parts.length >= 2 && !parts[0].isEmpty() && !parts[1].isEmpty() ? new String[] {parts[0], parts[1]} : null;
     }
 
 }
@@ -0,0 +1,89 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.TokenBucketRateLimiter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide limits for calls to each upstream, shared by every request thread.
+ *
+ * Sentry and code-host (Bitbucket/GitHub) calls are bounded by a semaphore each, so a
+ * large batch cannot open more than N concurrent requests against one upstream. A permit
+ * is held for one HTTP request, not for a whole trace's worth of fetches; the code fetchers
+ * take it around each download themselves.
+ * Gemini calls go through a token bucket instead, because its quota is a request rate
+ * rather than a concurrency limit. GeminiRateLimitInterceptor takes the token after the
+ * coalescing check, so calls answered by another caller's in-flight request use none.
+ */
+@Service
+public class UpstreamLimiter {
+
+    @Value("${upstream.sentry.max-concurrent:8}")
+    private int sentryMaxConcurrent;
+
+    @Value("${upstream.code.max-concurrent:8}")
+    private int codeMaxConcurrent;
+
+    @Value("${upstream.gemini.permits-per-second:2}")
+    private double geminiPermitsPerSecond;
+
+    @Value("${upstream.gemini.burst:4}")
+    private int geminiBurst;
+
+    @Value("${upstream.acquire-timeout-seconds:120}")
+    private long acquireTimeoutSeconds;
+
+    private Semaphore sentryPermits;
+    private Semaphore codePermits;
+    private TokenBucketRateLimiter geminiLimiter;
+
+    @PostConstruct
+    public void init() {
+        sentryPermits = new Semaphore(sentryMaxConcurrent, true);
+        codePermits = new Semaphore(codeMaxConcurrent, true);
+        geminiLimiter = new TokenBucketRateLimiter(geminiPermitsPerSecond, geminiBurst);
+        System.out.println("[UpstreamLimiter] sentry=" + sentryMaxConcurrent + " concurrent, code=" + codeMaxConcurrent
+                + " concurrent, gemini=" + geminiPermitsPerSecond + "/s (burst " + geminiBurst + ")");
+    }
+
+    public <T> T withSentry(Supplier<T> call) {
+        return withPermit(sentryPermits, "Sentry", call);
+    }
+
+    public <T> T withCodeHost(Supplier<T> call) {
+        return withPermit(codePermits, "code host", call);
+    }
+
+    // Blocks until the Gemini token bucket allows another request
+    public void acquireGemini() {
+        try {
+            if (!geminiLimiter.tryAcquire(acquireTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Timed out waiting for Gemini rate limit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for Gemini rate limit");
+        }
+    }
+
+    private <T> T withPermit(Semaphore permits, String upstream, Supplier<T> call) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Timed out waiting for a " + upstream + " connection slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for a " + upstream + " connection slot");
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.sentrytestbackend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RestTemplate interceptor that times every outbound call as upstream.requests.
+ *
+ * Tags:
+ *   upstream   sentry | bitbucket | github | gemini | other (from the URL path, so self-hosted
+ *              Sentry and local stand-ins are classified too)
+ *   operation  e.g. issues, issue, events.latest, releases, src, commits, search, contents,
+ *              generateContent; a fixed set, so raw URLs never become tag values
+ *   host, method
+ *   status     HTTP status code, or IO_ERROR when no response arrived
+ *   cache      revalidated for a 304 to a conditional request, otherwise miss
+ * It runs inside RequestCoalescingInterceptor, so only calls that reach the network are timed.
+ * Lookups answered by the service-level caches never get here; they are counted as
+ * upstream.cache (same upstream/operation tags, result=hit|miss) where the cache is read.
+ */
+@Component
+public class UpstreamMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            status = String.valueOf(response.getStatusCode().value());
+            return response;
+        } finally {
+            URI uri = request.getURI();
+            String upstream = upstream(uri);
+            timer(upstream, operation(upstream, uri), String.valueOf(uri.getHost()), request.getMethod().name(), status)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String upstream, String operation, String host, String method, String status) {
+        String key = upstream + "|" + operation + "|" + host + "|" + method + "|" + status;
+        return timers.computeIfAbsent(key, k -> Timer.builder("upstream.requests")
+                .tag("upstream", upstream)
+                .tag("operation", operation)
+                .tag("host", host)
+                .tag("method", method)
+                .tag("status", status)
+                .tag("cache", "304".equals(status) ? "revalidated" : "miss")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    static String upstream(URI uri) {
+        String host = uri.getHost() == null ? "" : uri.getHost();
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        if (path.contains(":generateContent") || host.endsWith("googleapis.com")) {
+            return "gemini";
+        }
+        if (path.startsWith("/api/0/")) {
+            return "sentry";
+        }
+        if (path.startsWith("/2.0/") || host.contains("bitbucket")) {
+            return "bitbucket";
+        }
+        if (path.startsWith("/repos/") || host.contains("github")) {
+            return "github";
+        }
+        return "other";
+    }
+
+    static String operation(String upstream, URI uri) {
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        switch (upstream) {
+            case "gemini":
+                return "generateContent";
+            case "sentry":
+                if (path.contains("/events/latest")) return "events.latest";
+                if (path.contains("/events/")) return "events";
+                if (path.contains("/releases/")) return "releases";
+                if (path.matches("/api/0/projects/[^/]+/[^/]+/issues/?")) return "issues";
+                if (path.startsWith("/api/0/issues/")) return "issue";
+                if (path.contains("/projects/")) return "projects";
+                return "other";
+            case "bitbucket":
+                if (path.contains("/src/")) return "src";
+                if (path.contains("/commits") || path.contains("/commit/")) return "commits";
+                if (path.contains("/search/")) return "search";
+                if (path.contains("/pullrequests")) return "pullrequests";
+                if (path.contains("/refs/")) return "refs";
+                return "repository";
+            case "github":
+                if (path.contains("/contents/")) return "contents";
+                if (path.contains("/commits")) return "commits";
+                return "other";
+            default:
+                return "other";
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.sentrytestbackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Stable key for a Gemini code analysis: SHA-256 over the prompt template version, the
+ * normalized stack trace and the code snippets.
+ *
+ * Only inputs that decide the answer are hashed. Per-occurrence Sentry fields (count, lastSeen,
+ * userCount, breadcrumbs) change on every event and are left out, so the same error at the same
+ * code maps to the same fingerprint. The snippets carry their commit in the "Snippet for:" URL,
+ * so a new commit of the code gives a new fingerprint.
+ */
+public final class AnalysisFingerprint {
+
+    // JVM hidden-class suffixes, e.g. ErrorService$$Lambda$1214/0x000000080150d1b8
+    private static final Pattern LAMBDA_ADDRESS = Pattern.compile("\\$\\$Lambda\\$\\d+/0x[0-9a-fA-F]+");
+    // How many framework frames were collapsed varies with the call path, not the bug
+    private static final Pattern OMITTED_COUNT = Pattern.compile("\\.\\.\\. \\d+ framework calls omitted \\.\\.\\.");
+    private static final Pattern TRAILING_SPACE = Pattern.compile("[ \\t]+(?=\\n)");
+
+    private AnalysisFingerprint() {
+    }
+
+    public static String of(String templateVersion, String stackTrace, String code) {
+        MessageDigest digest = sha256();
+        update(digest, templateVersion);
+        update(digest, normalizeStackTrace(stackTrace));
+        update(digest, normalizeText(code));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static String normalizeStackTrace(String stackTrace) {
+        String text = normalizeText(stackTrace);
+        text = LAMBDA_ADDRESS.matcher(text).replaceAll("\\$\\$Lambda\\$");
+        return OMITTED_COUNT.matcher(text).replaceAll("... framework calls omitted ...");
+    }
+
+    static String normalizeText(String text) {
+        if (text == null) {
+            return "";
+        }
+        String unified = text.replace("\r\n", "\n");
+        return TRAILING_SPACE.matcher(unified).replaceAll("").strip();
+    }
+
+    // Length-prefixed so ("ab", "c") and ("a", "bc") hash differently
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
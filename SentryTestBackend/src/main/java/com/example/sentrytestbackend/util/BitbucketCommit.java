@@ -0,0 +1,27 @@
+package com.example.sentrytestbackend.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * A commit from Bitbucket's commits API, reduced to hash and date. Author, message, parents,
+ * links and the embedded repository of each commit are skipped while parsing.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BitbucketCommit(String hash, String date) {
+
+    /** First 7 characters of the hash, as used for releases and source URLs. */
+    public String shortHash() {
+        return hash != null && hash.length() > 7 ? hash.substring(0, 7) : hash;
+    }
+
+    /** One page of commits, newest first; next is the following page's URL or null on the last page. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Page(List<BitbucketCommit> values, String next) {
+
+        public List<BitbucketCommit> commits() {
+            return values != null ? values : List.of();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.sentrytestbackend.util;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Source code around one stack-trace frame, or the message explaining why it is missing.
+ *
+ * Returned by the code fetchers in frame order; render() produces the
+ * "Snippet for: {url}\n{code}\n\n" blocks sent to clients and prompts.
+ */
+public record CodeSnippet(StackTrace.SourceLocation location, String code, boolean found) {
+
+    public static CodeSnippet of(StackTrace.SourceLocation location, String code) {
+        return new CodeSnippet(location, code, true);
+    }
+
+    public static CodeSnippet missing(StackTrace.SourceLocation location, String message) {
+        return new CodeSnippet(location, message, false);
+    }
+
+    public String render() {
+        return "Snippet for: " + location.url() + "\n" + code + "\n\n";
+    }
+
+    public static String render(List<CodeSnippet> snippets) {
+        return render(snippets, snippet -> true);
+    }
+
+    public static String render(List<CodeSnippet> snippets, Predicate<CodeSnippet> include) {
+        StringBuilder sb = new StringBuilder();
+        for (CodeSnippet snippet : snippets) {
+            if (include.test(snippet)) {
+                sb.append(snippet.render());
+            }
+        }
+        return sb.toString();
+    }
+}
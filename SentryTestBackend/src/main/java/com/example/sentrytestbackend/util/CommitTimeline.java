@@ -0,0 +1,235 @@
+package com.example.sentrytestbackend.util;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Commit history of one branch (or of one file on a branch), kept as parallel arrays of
+ * commit time and hash sorted by time, and answering "which commit was live at time T"
+ * with a binary search.
+ *
+ * The history is filled incrementally from a paginated, newest-first commits API
+ * (Bitbucket's {"values": [{"hash", "date"}], "next": url}, read as BitbucketCommit.Page):
+ *   - the newest page is loaded on first use and refreshed at most once per
+ *     refreshIntervalMillis, and only when asked about a time after the newest known commit
+ *   - older pages are only followed when asked about a time before the oldest loaded commit
+ * So repeated lookups inside an already loaded window cost no API calls.
+ *
+ * Each lookup loads at most maxPagesPerLookup pages. When a head refresh runs out of pages
+ * before reaching known history, the commits between the old head and the oldest new page
+ * are a gap; later lookups in the gap keep paging into it. A lookup the loaded pages cannot
+ * answer (in the gap, or older than the loaded history) comes back incomplete, so the
+ * caller can ask the API directly instead of trusting a commit from the wrong side of it.
+ *
+ * Thread-safe; lookups on the same timeline are serialized.
+ */
+public final class CommitTimeline {
+
+    /** Fetches and parses one page of a paginated API (commits here; src listings and diffstats elsewhere). */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        T load(String url) throws IOException;
+    }
+
+    /** A lookup result; complete is false when the loaded history could not answer it. */
+    public record Lookup(String hash, boolean complete) {
+    }
+
+    private static final long[] NO_TIMES = new long[0];
+    private static final String[] NO_HASHES = new String[0];
+
+    private final String headUrl;
+    private final long refreshIntervalMillis;
+    private final int maxPagesPerLookup;
+
+    private long[] times = NO_TIMES;       // ascending epoch millis
+    private String[] hashes = NO_HASHES;   // hashes[i] committed at times[i]
+    private final Set<String> known = new HashSet<>();
+
+    private boolean initialized;
+    private String olderPageUrl;           // null once the start of history is reached
+    private long lastHeadRefreshMillis;
+    private long pagesLoaded;
+    private long lastPageOldestMillis;     // oldest commit time on the page loadPage just read
+
+    // Unloaded history between gapFromMillis (newest commit known below the gap) and
+    // gapToMillis (oldest commit known above it); gapPageUrl is null when there is no gap
+    private String gapPageUrl;
+    private long gapFromMillis;
+    private long gapToMillis;
+
+    public CommitTimeline(String headUrl, long refreshIntervalMillis, int maxPagesPerLookup) {
+        this.headUrl = headUrl;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.maxPagesPerLookup = maxPagesPerLookup;
+    }
+
+    /**
+     * Finds the newest commit made at or before epochMillis. The hash is null if the history
+     * has no such commit, or if the lookup is incomplete.
+     */
+    public synchronized Lookup commitAt(long epochMillis, PageLoader<BitbucketCommit.Page> loader) throws IOException {
+        int budget = maxPagesPerLookup;
+        if (!initialized) {
+            olderPageUrl = loadPage(headUrl, loader, false);
+            lastHeadRefreshMillis = System.currentTimeMillis();
+            initialized = true;
+            budget--;
+        } else if ((times.length == 0 || epochMillis > times[times.length - 1])
+                && System.currentTimeMillis() - lastHeadRefreshMillis > refreshIntervalMillis) {
+            budget -= refreshHead(loader, budget);
+        }
+
+        while (inGap(epochMillis) && budget > 0) {
+            fillGap(loader);
+            budget--;
+        }
+        while ((times.length == 0 || epochMillis < times[0]) && olderPageUrl != null && budget > 0) {
+            olderPageUrl = loadPage(olderPageUrl, loader, false);
+            budget--;
+        }
+
+        if (inGap(epochMillis) || (olderPageUrl != null && (times.length == 0 || epochMillis < times[0]))) {
+            return new Lookup(null, false);
+        }
+        int idx = floorIndex(epochMillis);
+        return new Lookup(idx >= 0 ? hashes[idx] : null, true);
+    }
+
+    /** True while part of the history between two loaded windows has not been loaded. */
+    public synchronized boolean hasGap() {
+        return gapPageUrl != null;
+    }
+
+    public synchronized int size() {
+        return times.length;
+    }
+
+    public synchronized long pagesLoaded() {
+        return pagesLoaded;
+    }
+
+    // Loads newest pages until a page overlaps what is already known; returns pages used.
+    // Running out of budget first leaves a gap below the pages loaded.
+    private int refreshHead(PageLoader<BitbucketCommit.Page> loader, int budget) throws IOException {
+        boolean hadHistory = times.length > 0;
+        long previousNewest = hadHistory ? times[times.length - 1] : 0;
+        int used = 0;
+        String url = headUrl;
+        while (url != null && used < budget) {
+            int before = known.size();
+            String next = loadPage(url, loader, true);
+            used++;
+            if (known.size() - before == 0 || next == null) {
+                url = null;
+                break;
+            }
+            url = next;
+        }
+        if (url != null) {
+            if (!hadHistory) {
+                olderPageUrl = url;
+            } else {
+                // A gap already open stays inside the new one
+                if (gapPageUrl == null) {
+                    gapFromMillis = previousNewest;
+                }
+                gapToMillis = lastPageOldestMillis;
+                gapPageUrl = url;
+            }
+        }
+        lastHeadRefreshMillis = System.currentTimeMillis();
+        return used;
+    }
+
+    private boolean inGap(long epochMillis) {
+        return gapPageUrl != null && epochMillis >= gapFromMillis && epochMillis < gapToMillis;
+    }
+
+    // Loads the next page down into the gap; it closes once a page reaches the history below it
+    private void fillGap(PageLoader<BitbucketCommit.Page> loader) throws IOException {
+        String next = loadPage(gapPageUrl, loader, false);
+        gapToMillis = Math.min(gapToMillis, lastPageOldestMillis);
+        gapPageUrl = next == null || gapToMillis <= gapFromMillis ? null : next;
+    }
+
+    /**
+     * Merges one page into the arrays; returns the page's "next" URL. When stopAtKnown is
+     * set, the returned URL is null if the page already contained a known commit.
+     */
+    private String loadPage(String url, PageLoader<BitbucketCommit.Page> loader, boolean stopAtKnown) throws IOException {
+        BitbucketCommit.Page page = loader.load(url);
+        pagesLoaded++;
+
+        List<long[]> newTimes = new ArrayList<>();
+        List<String> newHashes = new ArrayList<>();
+        boolean overlapped = false;
+        lastPageOldestMillis = Long.MAX_VALUE;
+        for (BitbucketCommit commit : page.commits()) {
+            String hash = commit.hash();
+            String date = commit.date();
+            if (hash == null || hash.isEmpty() || date == null || date.isEmpty()) {
+                continue;
+            }
+            long time = OffsetDateTime.parse(date).toInstant().toEpochMilli();
+            lastPageOldestMillis = Math.min(lastPageOldestMillis, time);
+            if (!known.add(hash)) {
+                overlapped = true;
+                continue;
+            }
+            newTimes.add(new long[] {time, newHashes.size()});
+            newHashes.add(hash);
+        }
+        merge(newTimes, newHashes);
+
+        String next = page.next();
+        if (next == null || next.isEmpty() || (stopAtKnown && overlapped)) {
+            return null;
+        }
+        return next;
+    }
+
+    private void merge(List<long[]> newTimes, List<String> newHashes) {
+        if (newHashes.isEmpty()) {
+            return;
+        }
+        int total = times.length + newHashes.size();
+        long[][] entries = new long[total][];
+        for (int i = 0; i < times.length; i++) {
+            entries[i] = new long[] {times[i], i, 0};
+        }
+        for (int i = 0; i < newTimes.size(); i++) {
+            long[] entry = newTimes.get(i);
+            entries[times.length + i] = new long[] {entry[0], entry[1], 1};
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+
+        long[] mergedTimes = new long[total];
+        String[] mergedHashes = new String[total];
+        for (int i = 0; i < total; i++) {
+            long[] entry = entries[i];
+            mergedTimes[i] = entry[0];
+            mergedHashes[i] = entry[2] == 0 ? hashes[(int) entry[1]] : newHashes.get((int) entry[1]);
+        }
+        times = mergedTimes;
+        hashes = mergedHashes;
+    }
+
+    // Index of the last entry with time <= t, or -1
+    private int floorIndex(long t) {
+        int idx = Arrays.binarySearch(times, t);
+        if (idx >= 0) {
+            // Several commits can share a timestamp; take the last one
+            while (idx + 1 < times.length && times[idx + 1] == t) {
+                idx++;
+            }
+            return idx;
+        }
+        return -idx - 2;
+    }
+}
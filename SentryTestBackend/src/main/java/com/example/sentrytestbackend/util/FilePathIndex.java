@@ -0,0 +1,151 @@
+package com.example.sentrytestbackend.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every file path of one repository at one commit, indexed by file name.
+ *
+ * find(filename, package) answers in memory what the search/browse APIs answer over the
+ * network: among the paths whose last segment is the filename, it prefers the one whose
+ * directory ends with the package path (com.example.foo -> .../com/example/foo/File.java).
+ *
+ * Not thread-safe; FilePathIndexService guards each instance.
+ */
+public final class FilePathIndex {
+
+    private static final String HEADER = "# file-path-index v1 commit=";
+
+    private String commit;
+    private final Map<String, List<String>> pathsByName = new HashMap<>();
+    private int size;
+
+    public FilePathIndex(String commit) {
+        this.commit = commit;
+    }
+
+    public String commit() {
+        return commit;
+    }
+
+    public void setCommit(String commit) {
+        this.commit = commit;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(String path) {
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        List<String> paths = pathsByName.computeIfAbsent(fileName(path), k -> new ArrayList<>(1));
+        if (!paths.contains(path)) {
+            paths.add(path);
+            size++;
+        }
+    }
+
+    public void remove(String path) {
+        if (path == null) {
+            return;
+        }
+        String name = fileName(path);
+        List<String> paths = pathsByName.get(name);
+        if (paths != null && paths.remove(path)) {
+            size--;
+            if (paths.isEmpty()) {
+                pathsByName.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Replaces this index's contents and commit with other's, keeping the instance (and
+     * anyone holding it) in place.
+     */
+    public void replaceWith(FilePathIndex other) {
+        pathsByName.clear();
+        for (Map.Entry<String, List<String>> entry : other.pathsByName.entrySet()) {
+            pathsByName.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        size = other.size;
+        commit = other.commit;
+    }
+
+    /**
+     * Best path for the filename, preferring one under the package directory; null if the
+     * repository has no file with that name.
+     */
+    public String find(String filename, String packageName) {
+        List<String> paths = pathsByName.get(filename);
+        if (paths == null || paths.isEmpty()) {
+            return null;
+        }
+        if (packageName != null && !packageName.isEmpty()) {
+            String suffix = packageName.replace('.', '/') + "/" + filename;
+            for (String path : paths) {
+                if (path.endsWith("/" + suffix) || path.equals(suffix)) {
+                    return path;
+                }
+            }
+        }
+        return paths.get(0);
+    }
+
+// PERSISTENCE //
+// Plain text: a header line with the commit, then one path per line
+
+    public void writeTo(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), "idx", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + commit);
+            writer.newLine();
+            for (Collection<String> paths : pathsByName.values()) {
+                for (String path : paths) {
+                    writer.write(path);
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by writeTo, or returns null if the file is missing or not an index.
+     */
+    public static FilePathIndex readFrom(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER)) {
+                return null;
+            }
+            FilePathIndex index = new FilePathIndex(header.substring(HEADER.length()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                index.add(line);
+            }
+            return index;
+        }
+    }
+
+    private static String fileName(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(slash + 1) : path;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.sentrytestbackend.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies stack-trace frames as application / framework / synthetic / obfuscated in one pass.
+ *
+ * Built once per set of rules (global defaults plus a project's RepoConfig rules):
+ *   - framework and application package prefixes live in a single character trie, so one walk
+ *     over the module name answers both "is framework" and "is app"
+ *   - synthetic markers (D8/R8 lambdas, synthetic classes) are found by checking the marker
+ *     list only at '$' positions instead of six contains() scans
+ *   - the obfuscation pattern is compiled once
+ * Module and function results are memoized separately (the module answer does not depend on
+ * the function and vice versa), so a frame seen before costs two map reads.
+ *
+ * Thread-safe.
+ */
+public final class FrameClassifier {
+
+    public static final Collection<String> DEFAULT_FRAMEWORK_PREFIXES = Arrays.asList(
+            "androidx.",
+            "android.",
+            "java.",
+            "kotlin.",
+            "kotlinx.",
+            "dalvik.",
+            "com.android.",
+            "sun.",
+            "org.jetbrains.kotlin"
+    );
+
+    // "$$ExternalSynthetic" also covers "$$ExternalSyntheticLambda"; "$$SyntheticClass" covers "D8$$SyntheticClass"
+    private static final String[] SYNTHETIC_MARKERS = {
+            "$$ExternalSynthetic",
+            "$r8$lambda$",
+            "$$Lambda$",
+            "$$SyntheticClass"
+    };
+
+    // R8/ProGuard-style mangled member suffix, e.g. lambda$onCreate$0$a1b2c3d4e5
+    private static final Pattern OBFUSCATED_SUFFIX = Pattern.compile("\\$[a-zA-Z0-9_]{10,}");
+
+    private static final int APP = 1;
+    private static final int FRAMEWORK = 2;
+    private static final int SYNTHETIC = 4;
+    private static final int OBFUSCATED = 8;
+
+    private static final Classification[] BY_BITS = new Classification[16];
+    static {
+        for (int bits = 0; bits < BY_BITS.length; bits++) {
+            BY_BITS[bits] = new Classification((bits & APP) != 0, (bits & FRAMEWORK) != 0,
+                    (bits & SYNTHETIC) != 0, (bits & OBFUSCATED) != 0);
+        }
+    }
+
+    /**
+     * Result of classifying one frame. Instances are shared; compare fields, not identity.
+     */
+    public record Classification(boolean app, boolean framework, boolean synthetic, boolean obfuscated) {
+        /** Application frame worth showing: app code that is neither synthetic nor obfuscated. */
+        public boolean cleanApp() {
+            return app && !synthetic && !obfuscated;
+        }
+
+        /** Frames that are dropped from cleaned traces. */
+        public boolean noise() {
+            return synthetic || obfuscated;
+        }
+    }
+
+    private final PrefixTrie prefixes = new PrefixTrie();
+    private final boolean hasAppRules;
+    private final String appMarker;
+    private final int maxCacheEntries;
+
+    private final ConcurrentHashMap<String, Integer> moduleBits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> functionBits = new ConcurrentHashMap<>();
+
+    /**
+     * @param frameworkPrefixes module prefixes counted as framework code
+     * @param appPrefixes       module prefixes counted as application code (e.g. the project root)
+     * @param appMarker         optional case-insensitive substring that also marks a module as app
+     *                          code (used when only an application name is known); null for none
+     * @param maxCacheEntries   memo size per map before it is reset; 0 disables memoization
+     */
+    public FrameClassifier(Collection<String> frameworkPrefixes, Collection<String> appPrefixes,
+                           String appMarker, int maxCacheEntries) {
+        boolean anyApp = false;
+        if (frameworkPrefixes != null) {
+            for (String prefix : frameworkPrefixes) {
+                prefixes.add(prefix, FRAMEWORK);
+            }
+        }
+        if (appPrefixes != null) {
+            for (String prefix : appPrefixes) {
+                if (prefix != null && !prefix.isEmpty()) {
+                    prefixes.add(prefix, APP);
+                    anyApp = true;
+                }
+            }
+        }
+        this.appMarker = appMarker == null || appMarker.isEmpty() ? null : appMarker.toLowerCase(Locale.ROOT);
+        this.hasAppRules = anyApp || this.appMarker != null;
+        this.maxCacheEntries = maxCacheEntries;
+    }
+
+    /**
+     * True if any application prefix or marker is configured. Callers that show "all frames
+     * when no project root is set" check this instead of the classification's app flag.
+     */
+    public boolean hasAppRules() {
+        return hasAppRules;
+    }
+
+    public Classification classify(String module, String function, int lineno) {
+        int bits = moduleBits(module == null ? "" : module) | functionBits(function == null ? "" : function);
+        if (lineno == 0) {
+            bits |= OBFUSCATED;
+        }
+        return BY_BITS[bits];
+    }
+
+    private int moduleBits(String module) {
+        if (maxCacheEntries <= 0) {
+            return computeModuleBits(module);
+        }
+        Integer cached = moduleBits.get(module);
+        if (cached != null) {
+            return cached;
+        }
+        int bits = computeModuleBits(module);
+        remember(moduleBits, module, bits);
+        return bits;
+    }
+
+    private int functionBits(String function) {
+        if (maxCacheEntries <= 0) {
+            return computeFunctionBits(function);
+        }
+        Integer cached = functionBits.get(function);
+        if (cached != null) {
+            return cached;
+        }
+        int bits = computeFunctionBits(function);
+        remember(functionBits, function, bits);
+        return bits;
+    }
+
+    private void remember(ConcurrentHashMap<String, Integer> memo, String key, int bits) {
+        // Module/function names are a small, stable vocabulary; a reset only guards against
+        // unbounded growth from generated names
+        if (memo.size() >= maxCacheEntries) {
+            memo.clear();
+        }
+        memo.put(key, bits);
+    }
+
+    private int computeModuleBits(String module) {
+        int bits = prefixes.match(module);
+        if (appMarker != null && (bits & APP) == 0 && containsIgnoreCase(module, appMarker)) {
+            bits |= APP;
+        }
+        if (hasSyntheticMarker(module)) {
+            bits |= SYNTHETIC;
+        }
+        return bits;
+    }
+
+    private static int computeFunctionBits(String function) {
+        int bits = 0;
+        if (hasSyntheticMarker(function)) {
+            bits |= SYNTHETIC;
+        }
+        if ((function.length() == 1 && Character.isLetter(function.charAt(0)) && function.charAt(0) < 128)
+                || (function.indexOf('$') >= 0 && OBFUSCATED_SUFFIX.matcher(function).find())) {
+            bits |= OBFUSCATED;
+        }
+        return bits;
+    }
+
+    private static boolean hasSyntheticMarker(String s) {
+        int at = s.indexOf('$');
+        while (at >= 0) {
+            for (String marker : SYNTHETIC_MARKERS) {
+                if (s.startsWith(marker, at)) {
+                    return true;
+                }
+            }
+            at = s.indexOf('$', at + 1);
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String s, String lowerNeedle) {
+        int max = s.length() - lowerNeedle.length();
+        for (int i = 0; i <= max; i++) {
+            if (s.regionMatches(true, i, lowerNeedle, 0, lowerNeedle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+// PREFIX TRIE //
+// Character trie; each node carries the bits of the prefixes that end there, and a match ORs
+// together every terminal passed while walking the input (startsWith semantics for all prefixes)
+
+    private static final class PrefixTrie {
+        private final Node root = new Node();
+
+        void add(String prefix, int bits) {
+            if (prefix == null || prefix.isEmpty()) {
+                return;
+            }
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.bits |= bits;
+        }
+
+        int match(String s) {
+            int bits = 0;
+            Node node = root;
+            for (int i = 0; i < s.length() && node != null; i++) {
+                node = node.child(s.charAt(i));
+                if (node != null) {
+                    bits |= node.bits;
+                }
+            }
+            return bits;
+        }
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int bits;
+
+        Node child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.sentrytestbackend.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local copy of one Sentry project's issues, kept current by IssueSyncService.
+ *
+ * The project is the partition key (one store per project). Within it, issues are indexed by
+ * id, lastSeen and firstSeen (newest first), title and level, so the list endpoints are
+ * answered with an index walk instead of a Sentry round trip. lastSeenCursor() is the newest
+ * lastSeen stored; an incremental sync only reads issues seen after it.
+ *
+ * Persisted as a header line plus one JSON issue per line, written to a temp file and moved
+ * into place with the caller's (shared) ObjectMapper. Thread-safe (read/write lock).
+ */
+public final class IssueStore {
+
+    private static final String HEADER = "# issue-store v1 ";
+
+    // Newest first; id breaks ties so distinct issues with equal timestamps are all kept
+    private static final Comparator<Issue> BY_LAST_SEEN = Comparator.comparingLong(Issue::lastSeenMillis).reversed()
+            .thenComparing(Issue::id);
+    private static final Comparator<Issue> BY_FIRST_SEEN = Comparator.comparingLong(Issue::firstSeenMillis).reversed()
+            .thenComparing(Issue::id);
+
+    /**
+     * The issue fields the list endpoints return. Timestamps are kept both as Sentry sent
+     * them (returned unchanged) and as epoch millis (for the indexes; 0 when absent).
+     */
+    public record Issue(String id, String title, String level, String status, String projectId,
+                        int count, int userCount, String firstSeen, String lastSeen,
+                        long firstSeenMillis, long lastSeenMillis) {
+
+        public static Issue from(SentryIssue issue) {
+            return new Issue(issue.id(), issue.title(), issue.level(), issue.status(), issue.projectId(),
+                    issue.count(), issue.userCount(), issue.firstSeen(), issue.lastSeen(),
+                    toMillis(issue.firstSeen()), toMillis(issue.lastSeen()));
+        }
+    }
+
+    private final String project;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Issue> byId = new HashMap<>();
+    private final NavigableSet<Issue> byLastSeen = new TreeSet<>(BY_LAST_SEEN);
+    private final NavigableSet<Issue> byFirstSeen = new TreeSet<>(BY_FIRST_SEEN);
+    private final Map<String, NavigableSet<Issue>> byTitle = new HashMap<>();
+    private final Map<String, NavigableSet<Issue>> byLevel = new HashMap<>();
+    private volatile long fullSyncAtMillis;
+    private volatile long syncedAtMillis;
+    private volatile boolean truncated;
+
+    public IssueStore(String project) {
+        this.project = project;
+    }
+
+    public String project() {
+        return project;
+    }
+
+    /** When the store last held every issue of the project (0 = never). */
+    public long fullSyncAtMillis() {
+        return fullSyncAtMillis;
+    }
+
+    /** When the last full or incremental sync finished (0 = never). */
+    public long syncedAtMillis() {
+        return syncedAtMillis;
+    }
+
+    public void markSynced(long atMillis, boolean full) {
+        syncedAtMillis = atMillis;
+        if (full) {
+            fullSyncAtMillis = atMillis;
+        }
+    }
+
+    /** True when older issues were left out (sync capped); queries reaching past them need Sentry. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * Whether every issue last seen after cutoff is in the store, i.e. seenSince(cutoff) is
+     * the same answer Sentry would give.
+     */
+    public boolean coversSince(Instant cutoff) {
+        lock.readLock().lock();
+        try {
+            return !truncated || (!byLastSeen.isEmpty() && byLastSeen.last().lastSeenMillis() <= cutoff.toEpochMilli());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long lastSeenCursor() {
+        lock.readLock().lock();
+        try {
+            return byLastSeen.isEmpty() ? 0L : byLastSeen.first().lastSeenMillis();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsert(Issue issue) {
+        lock.writeLock().lock();
+        try {
+            Issue previous = byId.put(issue.id(), issue);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(issue);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Swaps the whole content, e.g. after a full sync (drops issues Sentry no longer lists). */
+    public void replaceAll(Collection<Issue> issues) {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byLastSeen.clear();
+            byFirstSeen.clear();
+            byTitle.clear();
+            byLevel.clear();
+            for (Issue issue : issues) {
+                Issue previous = byId.put(issue.id(), issue);
+                if (previous != null) {
+                    unindex(previous);
+                }
+                index(issue);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drops the least recently seen issues beyond maxIssues and marks the store truncated. */
+    public int trimTo(int maxIssues) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            while (byId.size() > maxIssues) {
+                Issue oldest = byLastSeen.last();
+                byId.remove(oldest.id());
+                unindex(oldest);
+                removed++;
+            }
+            if (removed > 0) {
+                truncated = true;
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+// QUERIES //
+
+    /** The limit most recently seen issues, newest first. */
+    public List<Issue> latest(int limit) {
+        lock.readLock().lock();
+        try {
+            List<Issue> result = new ArrayList<>(Math.min(limit, byLastSeen.size()));
+            for (Issue issue : byLastSeen) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(issue);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Issues first seen or last seen after cutoff, newest lastSeen first, optionally of one
+     * level. firstSeen <= lastSeen, so walking the lastSeen index until it passes the cutoff
+     * finds both kinds.
+     */
+    public List<Issue> seenSince(Instant cutoff, String level) {
+        long cutoffMillis = cutoff.toEpochMilli();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Issue> source = level == null ? byLastSeen : byLevel.get(level);
+            List<Issue> result = new ArrayList<>();
+            if (source == null) {
+                return result;
+            }
+            for (Issue issue : source) {
+                if (issue.lastSeenMillis() <= cutoffMillis) {
+                    break;
+                }
+                result.add(issue);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Issues first seen after cutoff (new errors only), newest first. */
+    public List<Issue> firstSeenSince(Instant cutoff) {
+        long cutoffMillis = cutoff.toEpochMilli();
+        lock.readLock().lock();
+        try {
+            List<Issue> result = new ArrayList<>();
+            for (Issue issue : byFirstSeen) {
+                if (issue.firstSeenMillis() <= cutoffMillis) {
+                    break;
+                }
+                result.add(issue);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** For every title, the id of its most recently seen issue -> title. */
+    public Map<String, String> mostRecentIdByTitle() {
+        lock.readLock().lock();
+        try {
+            Map<String, String> result = new LinkedHashMap<>();
+            for (Map.Entry<String, NavigableSet<Issue>> entry : byTitle.entrySet()) {
+                result.put(entry.getValue().first().id(), entry.getKey());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Issue issue) {
+        byLastSeen.add(issue);
+        byFirstSeen.add(issue);
+        byTitle.computeIfAbsent(issue.title(), k -> new TreeSet<>(BY_LAST_SEEN)).add(issue);
+        byLevel.computeIfAbsent(issue.level(), k -> new TreeSet<>(BY_LAST_SEEN)).add(issue);
+    }
+
+    private void unindex(Issue issue) {
+        byLastSeen.remove(issue);
+        byFirstSeen.remove(issue);
+        removeFrom(byTitle, issue.title(), issue);
+        removeFrom(byLevel, issue.level(), issue);
+    }
+
+    private static void removeFrom(Map<String, NavigableSet<Issue>> index, String key, Issue issue) {
+        NavigableSet<Issue> issues = index.get(key);
+        if (issues != null) {
+            issues.remove(issue);
+            if (issues.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+// PERSISTENCE //
+
+    public void writeTo(Path file, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), "issues", ".tmp");
+        lock.readLock().lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "project=" + project + " fullSyncAt=" + fullSyncAtMillis + " syncedAt=" + syncedAtMillis
+                    + " truncated=" + truncated);
+            writer.newLine();
+            for (Issue issue : byLastSeen) {
+                writer.write(objectMapper.writeValueAsString(issue));
+                writer.newLine();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a store written by writeTo, or returns null if the file is missing or not a store.
+     */
+    public static IssueStore readFrom(Path file, ObjectMapper objectMapper) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER)) {
+                return null;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (String pair : header.substring(HEADER.length()).split(" ")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    fields.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+            IssueStore store = new IssueStore(fields.getOrDefault("project", ""));
+            store.fullSyncAtMillis = Long.parseLong(fields.getOrDefault("fullSyncAt", "0"));
+            store.syncedAtMillis = Long.parseLong(fields.getOrDefault("syncedAt", "0"));
+            store.truncated = Boolean.parseBoolean(fields.getOrDefault("truncated", "false"));
+            List<Issue> issues = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    issues.add(objectMapper.readValue(line, Issue.class));
+                }
+            }
+            store.replaceAll(issues);
+            return store;
+        }
+    }
+
+    private static long toMillis(String timestamp) {
+        if (timestamp == null || timestamp.isEmpty() || "null".equals(timestamp)) {
+            return 0L;
+        }
+        try {
+            return Instant.parse(timestamp).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.sentrytestbackend.util;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Single-flight execution: concurrent calls with the same key share one in-flight call.
+ *
+ * The first caller for a key (the leader) runs the call on its own thread; callers arriving
+ * while it runs wait for the same result (or exception). The key is released as soon as the
+ * call finishes, so nothing is cached: a caller arriving afterwards starts a new call.
+ *
+ * A leader that fails because it was interrupted or cancelled (its own caller timed out) does
+ * not pass that failure on: its followers retry, one of them becoming the new leader. A
+ * follower interrupted while waiting gets a CancellationException with its interrupt flag set.
+ *
+ * Thread-safe.
+ */
+public final class RequestCoalescer<T> {
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /** The shared value and whether this caller joined another caller's call. */
+    public record Result<T>(T value, boolean shared) {
+    }
+
+    // Completes a leader's future when its failure belongs to the leader's caller only
+    private static final class LeaderInterrupted extends RuntimeException {
+        LeaderInterrupted(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    public <E extends Exception> Result<T> execute(String key, Call<T, E> call) throws E {
+        while (true) {
+            CompletableFuture<T> mine = new CompletableFuture<>();
+            CompletableFuture<T> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                try {
+                    return new Result<>(await(existing), true);
+                } catch (LeaderInterrupted e) {
+                    inFlight.remove(key, existing);
+                    continue;
+                }
+            }
+            try {
+                T value = call.run();
+                mine.complete(value);
+                return new Result<>(value, false);
+            } catch (Throwable t) {
+                mine.completeExceptionally(Thread.currentThread().isInterrupted() || isInterruption(t)
+                        ? new LeaderInterrupted(t) : t);
+                throw t;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    // Rethrows the leader's exception in the follower (unchecked ones as-is, checked ones via sneaky throw)
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("Interrupted waiting for a shared upstream call");
+            cancelled.initCause(e);
+            throw cancelled;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LeaderInterrupted leaderInterrupted) {
+                throw leaderInterrupted;
+            }
+            throw RequestCoalescer.<RuntimeException>sneakyThrow(e.getCause());
+        }
+    }
+
+    // Interrupts and cancellations anywhere in the cause chain; socket timeouts are real upstream failures
+    private static boolean isInterruption(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof CancellationException
+                    || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E sneakyThrow(Throwable t) throws E {
+        throw (E) t;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.sentrytestbackend.util;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a Sentry event (GET /issues/{id}/events/latest/, /issues/{id}/events/{eventId}/)
+ * that the backend reads: the exception with its frames, breadcrumbs, the request, tags and
+ * the commit hints. Everything else in the payload (raw stacktraces, frame vars and context
+ * lines, debug meta, sdk, most contexts) is skipped by the parser without being built.
+ *
+ * Entries arrive as {"data": ..., "type": ...}, usually with data first, so their data is
+ * read into one shape (EntryData / EntryValue) that covers the entry types used here, and
+ * exception() / breadcrumbs() / request() turn it into the typed records.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SentryEvent(String eventID, String groupID, String title, String message, String culprit,
+                          String platform, String dateCreated, JsonNode release, Metadata metadata,
+                          List<Entry> entries, List<Tag> tags, User user, Contexts contexts) {
+
+    /** First exception value of the event (the thrown one), or null if the event has none. */
+    public ExceptionValue exception() {
+        Entry entry = entry("exception");
+        if (entry == null || entry.data() == null || entry.data().values() == null || entry.data().values().isEmpty()) {
+            return null;
+        }
+        EntryValue value = entry.data().values().get(0);
+        List<Frame> frames = value.stacktrace() != null && value.stacktrace().frames() != null
+                ? value.stacktrace().frames() : List.of();
+        return new ExceptionValue(value.type(), value.value(), value.module(), frames);
+    }
+
+    public List<Breadcrumb> breadcrumbs() {
+        Entry entry = entry("breadcrumbs");
+        if (entry == null || entry.data() == null || entry.data().values() == null) {
+            return List.of();
+        }
+        List<Breadcrumb> breadcrumbs = new ArrayList<>(entry.data().values().size());
+        for (EntryValue crumb : entry.data().values()) {
+            BreadcrumbData data = crumb.data();
+            breadcrumbs.add(new Breadcrumb(crumb.timestamp(), crumb.level(), crumb.message(), crumb.category(),
+                    crumb.type(), data != null ? data.method() : null, data != null ? data.url() : null));
+        }
+        return breadcrumbs;
+    }
+
+    /** Data of the request entry, or null. */
+    public EntryData request() {
+        Entry entry = entry("request");
+        return entry != null ? entry.data() : null;
+    }
+
+    /** Release version; Sentry sends either the version string or a release object. */
+    public String releaseVersion() {
+        if (release == null || release.isNull()) {
+            return "";
+        }
+        return release.isObject() ? release.path("version").asText("") : release.asText("");
+    }
+
+    public String tag(String key) {
+        if (tags != null) {
+            for (Tag tag : tags) {
+                if (key.equals(tag.key())) {
+                    return tag.value();
+                }
+            }
+        }
+        return null;
+    }
+
+    private Entry entry(String type) {
+        if (entries != null) {
+            for (Entry entry : entries) {
+                if (type.equals(entry.type())) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Exception type, message and frames (oldest first, as Sentry sends them). */
+    public record ExceptionValue(String type, String value, String module, List<Frame> frames) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Frame(String module, String function, String filename,
+                        @JsonAlias("lineno") Integer lineNo, Boolean inApp) {
+
+        public int line() {
+            return lineNo != null ? lineNo : -1;
+        }
+    }
+
+    public record Breadcrumb(String timestamp, String level, String message, String category, String type,
+                             String method, String url) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Entry(String type, EntryData data) {}
+
+    /** values for exception and breadcrumbs entries; method/url/query/headers for the request entry. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record EntryData(List<EntryValue> values, String method, String url, JsonNode query,
+                            List<List<String>> headers) {}
+
+    /** An exception value or a breadcrumb, depending on the entry it belongs to. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record EntryValue(String type, String value, String module, Stacktrace stacktrace,
+                             String timestamp, String level, String message, String category, BreadcrumbData data) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Stacktrace(List<Frame> frames) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record BreadcrumbData(String method, String url) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Metadata(String type, String value, String filename, String function) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Tag(String key, String value) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record User(@JsonProperty("ip_address") String ipAddress, Geo geo) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Geo(@JsonProperty("country_code") String countryCode, String city) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Contexts(App app) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record App(@JsonProperty("build_version") String buildVersion) {}
+}
@@ -0,0 +1,36 @@
+package com.example.sentrytestbackend.util;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The fields of a Sentry issue list element (GET /projects/{org}/{project}/issues/) that the
+ * list endpoints and the issue sync read. Pages are parsed straight into these records; stats,
+ * annotations, metadata and the rest are skipped by the parser without being built.
+ *
+ * Sentry sends count as a string; it is coerced to an int while parsing. Missing strings read
+ * as "" (as JsonNode.asText() did), so callers need no null checks.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SentryIssue(String id, String shortId, String title, String culprit, String level, String status,
+                          int count, int userCount, String firstSeen, String lastSeen, Project project) {
+
+    public SentryIssue {
+        id = orEmpty(id);
+        title = orEmpty(title);
+        level = orEmpty(level);
+        status = orEmpty(status);
+        firstSeen = orEmpty(firstSeen);
+        lastSeen = orEmpty(lastSeen);
+    }
+
+    public String projectId() {
+        return project != null && project.id() != null ? project.id() : "";
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Project(String id, String slug, String name) {}
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.sentrytestbackend.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable body of one source file at one commit, as cached by SourceFileCache.
+ *
+ * Alongside the content it keeps an int[] of line-start offsets, built once when the file
+ * is loaded. Snippets and individual lines are then sliced straight out of the content by
+ * offset instead of splitting the whole file into one String per line on every request.
+ */
+public final class SourceFile {
+
+    private final String content;
+    // lineStarts[i] = offset of the first char of physical line i (lines separated by '\n')
+    private final int[] lineStarts;
+    // Line count as String.split("\n") reports it (trailing empty lines dropped)
+    private final int lineCount;
+
+    public SourceFile(String content) {
+        this.content = content != null ? content : "";
+        this.lineStarts = indexLines(this.content);
+        this.lineCount = countNonTrailingLines();
+    }
+
+    public String content() {
+        return content;
+    }
+
+    /**
+     * Number of lines, matching content.split("\n").length (trailing empty lines are not counted).
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Number of lines, matching content.split("\n", -1).length (every '\n' starts a new line).
+     */
+    public int physicalLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * Appends physical line i (0-based), without its '\n', copying straight from the content.
+     */
+    public StringBuilder appendLine(StringBuilder out, int i) {
+        return out.append(content, lineStarts[i], lineEnd(i));
+    }
+
+    /**
+     * Returns lines [fromLine, toLineExclusive) (0-based, clamped to the file) formatted as
+     * "{1-based line number}: {text}\n".
+     */
+    public String numberedLines(int fromLine, int toLineExclusive) {
+        int start = Math.max(0, fromLine);
+        int end = Math.min(lineCount, toLineExclusive);
+
+        StringBuilder snippet = new StringBuilder(Math.max(0, end - start) * 48);
+        for (int i = start; i < end; i++) {
+            snippet.append(i + 1).append(": ").append(content, lineStarts[i], lineEnd(i)).append('\n');
+        }
+        return snippet.toString();
+    }
+
+    // Approximate heap footprint, used as the cache weight
+    public int weightBytes() {
+        return 64 + content.length() * 2 + lineStarts.length * 4;
+    }
+
+    private int lineEnd(int i) {
+        return i + 1 < lineStarts.length ? lineStarts[i + 1] - 1 : content.length();
+    }
+
+    // indexOf is an intrinsic, much faster on long content than a charAt loop
+    private static int[] indexLines(String content) {
+        int[] starts = new int[Math.max(16, content.length() / 32)];
+        int lines = 1;
+        for (int nl = content.indexOf('\n'); nl >= 0; nl = content.indexOf('\n', nl + 1)) {
+            if (lines == starts.length) {
+                starts = Arrays.copyOf(starts, lines * 2);
+            }
+            starts[lines++] = nl + 1;
+        }
+        return Arrays.copyOf(starts, lines);
+    }
+
+    private int countNonTrailingLines() {
+        if (content.isEmpty()) {
+            return 1;
+        }
+        int count = lineStarts.length;
+        while (count > 0 && lineStarts[count - 1] == lineEnd(count - 1)) {
+            count--;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.sentrytestbackend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, typed stack trace: the exception plus the frames selected for display, each
+ * with its classification and (when linked) its resolved source location.
+ *
+ * StackTraceGenerator builds it once per event; the code fetchers read frame locations from it
+ * directly, and text is only produced by render() at the API / prompt edge. The rendered form
+ * is the classic Java layout with " [url]" after linked frames.
+ */
+public record StackTrace(String exceptionType, String exceptionValue, List<Frame> frames, List<String> notes) {
+
+    public StackTrace {
+        frames = List.copyOf(frames);
+        notes = List.copyOf(notes);
+    }
+
+    /**
+     * One displayed frame. classification is null for unfiltered traces, location is null for
+     * frames shown without a link, and omittedAfter counts framework frames collapsed after it.
+     */
+    public record Frame(String module, String function, String filename, int lineno,
+                        FrameClassifier.Classification classification, SourceLocation location,
+                        int omittedAfter) {
+    }
+
+    /**
+     * A file at a ref in a hosted repository, with the link rendered for it. The structured
+     * fields are null when the link is not in a recognised shape;
+     * line is -1 when the link carries no line anchor.
+     */
+    public record SourceLocation(String url, String host, String owner, String repo, String ref,
+                                 String path, int line) {
+
+        public static final String BITBUCKET = "bitbucket";
+        public static final String GITHUB = "github";
+
+        private static final Pattern BITBUCKET_LINK =
+            Pattern.compile("bitbucket\\.org/([^/]+)/([^/]+)/src/([^/]+)/([^#]+)(?:#lines-(\\d+))?");
+
+        /** https://bitbucket.org/{workspace}/{repo}/src/{ref}/{path}#lines-{line}, anchor only for line > 0 */
+        public static SourceLocation bitbucket(String workspace, String repo, String ref, String path, int line) {
+            String url = String.format("https://bitbucket.org/%s/%s/src/%s/%s", workspace, repo, ref, path);
+            if (line > 0) {
+                url += "#lines-" + line;
+            }
+            return new SourceLocation(url, BITBUCKET, workspace, repo, ref, path, line > 0 ? line : -1);
+        }
+
+        /**
+         * Parses https://bitbucket.org/{workspace}/{repo}/src/{ref}/{path}[#lines-{line}] back
+         * into its parts; links in any other shape stay unstructured
+         */
+        public static SourceLocation parseBitbucket(String url) {
+            Matcher matcher = url != null ? BITBUCKET_LINK.matcher(url) : null;
+            if (matcher == null || !matcher.find()) {
+                return unstructured(url, BITBUCKET);
+            }
+            int line = matcher.group(5) != null ? Integer.parseInt(matcher.group(5)) : -1;
+            return new SourceLocation(url, BITBUCKET, matcher.group(1), matcher.group(2), matcher.group(3),
+                matcher.group(4), line);
+        }
+
+        /** Location known only by its link text */
+        public static SourceLocation unstructured(String url, String host) {
+            return new SourceLocation(url, host, null, null, null, null, -1);
+        }
+
+        public boolean isResolved() {
+            return owner != null && repo != null && ref != null && path != null;
+        }
+
+        public boolean hasLine() {
+            return line >= 0;
+        }
+
+        public String repoKey() {
+            return owner + "/" + repo;
+        }
+    }
+
+    /**
+     * Locations of the linked frames, in display order.
+     */
+    public List<SourceLocation> locations() {
+        List<SourceLocation> locations = new ArrayList<>();
+        for (Frame frame : frames) {
+            if (frame.location() != null) {
+                locations.add(frame.location());
+            }
+        }
+        return locations;
+    }
+
+    public String render() {
+        StringBuilder sb = new StringBuilder(64 + frames.size() * 160);
+        sb.append(exceptionType);
+        if (exceptionValue != null && !exceptionValue.isEmpty()) {
+            sb.append(": ").append(exceptionValue);
+        }
+        sb.append("\n");
+        for (Frame frame : frames) {
+            sb.append("    at ");
+            if (!frame.module().isEmpty()) {
+                sb.append(frame.module()).append(".");
+            }
+            sb.append(frame.function()).append("(").append(frame.filename());
+            if (frame.lineno() != -1) {
+                sb.append(":").append(frame.lineno());
+            }
+            sb.append(")");
+            if (frame.location() != null) {
+                sb.append(" [").append(frame.location().url()).append("]");
+            }
+            sb.append("\n");
+            if (frame.omittedAfter() > 0) {
+                sb.append("    ... ").append(frame.omittedAfter()).append(" framework calls omitted ...\n");
+            }
+        }
+        for (String note : notes) {
+            sb.append("    ").append(note).append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+}
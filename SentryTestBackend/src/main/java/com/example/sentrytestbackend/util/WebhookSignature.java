@@ -0,0 +1,46 @@
+package com.example.sentrytestbackend.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * HMAC-SHA256 webhook signatures as sent by Sentry (Sentry-Hook-Signature: hex) and Bitbucket
+ * (X-Hub-Signature: sha256=hex): a hex digest of the raw request body keyed with the shared
+ * secret.
+ */
+public final class WebhookSignature {
+
+    private WebhookSignature() {
+    }
+
+    public static String hmacSha256Hex(String secret, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Whether signature (hex, optionally prefixed "sha256=") is the body's HMAC under secret.
+     * False when either is missing. Compared in constant time so it cannot be guessed byte by byte.
+     */
+    public static boolean matches(String secret, byte[] body, String signature) {
+        if (secret == null || secret.isEmpty() || signature == null || signature.isBlank()) {
+            return false;
+        }
+        String hex = signature.trim().toLowerCase(Locale.ROOT);
+        if (hex.startsWith("sha256=")) {
+            hex = hex.substring("sha256=".length());
+        }
+        byte[] expected = hmacSha256Hex(secret, body).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, hex.getBytes(StandardCharsets.US_ASCII));
+    }
+}
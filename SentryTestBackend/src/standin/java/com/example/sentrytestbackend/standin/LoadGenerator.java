@@ -0,0 +1,160 @@
+package com.example.sentrytestbackend.standin;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open-loop load generator for the backend's controllers. Requests are started at a fixed rate
+ * whether or not earlier ones have finished, and latency is measured from the moment a request
+ * was due, so a stalled backend shows up as latency instead of as a lower request rate.
+ *
+ * Each request takes the next path (round robin) with {id} replaced by the next id. Prints one
+ * latency histogram per path and one overall, plus status counts.
+ *
+ *   load.base-url=http://localhost:8081
+ *   load.paths=/api/gemini-suggest/project/standin-backend/errorId/{id}   (comma-separated)
+ *   load.ids=1001,1002,1003,1004,1005
+ *   load.rate=5                   requests per second
+ *   load.duration-seconds=60
+ *   load.warmup-seconds=10        requests started earlier are not recorded
+ *   load.timeout-seconds=120
+ *   load.max-in-flight=500        requests due while this many are open are counted as dropped
+ *   load.report=                  optional file the report is also written to
+ */
+public class LoadGenerator {
+
+    private final String baseUrl = System.getProperty("load.base-url", "http://localhost:8081").replaceAll("/+$", "");
+    private final List<String> paths = split(System.getProperty("load.paths", "/api/gemini-suggest/project/standin-backend/errorId/{id}"));
+    private final List<String> ids = split(System.getProperty("load.ids", "1001,1002,1003,1004,1005"));
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "5"));
+    private final long durationSeconds = Long.getLong("load.duration-seconds", 60);
+    private final long warmupSeconds = Long.getLong("load.warmup-seconds", 10);
+    private final long timeoutSeconds = Long.getLong("load.timeout-seconds", 120);
+    private final int maxInFlight = Integer.getInteger("load.max-in-flight", 500);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newCachedThreadPool())
+            .build();
+    private final LatencyHistogram overall = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> byPath = new LinkedHashMap<>();
+    private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator().run();
+    }
+
+    private void run() throws InterruptedException, IOException {
+        paths.forEach(path -> byPath.put(path, new LatencyHistogram()));
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long total = (long) (rate * (warmupSeconds + durationSeconds));
+        System.out.printf(Locale.ROOT, "[Load] %s at %.1f req/s for %ds (+%ds warm-up), %d paths x %d ids%n",
+                baseUrl, rate, durationSeconds, warmupSeconds, paths.size(), ids.size());
+
+        long start = System.nanoTime();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        ticker.scheduleAtFixedRate(() -> {
+            long n = sequence.getAndIncrement();
+            if (n < total) {
+                fire(n, start + n * periodNanos, n >= rate * warmupSeconds);
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        long deadline = start + TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(10_000, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) + 1));
+            System.out.printf(Locale.ROOT, "[Load] %ds: %d sent, %d in flight, %d dropped%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), Math.min(sequence.get(), total), inFlight.get(), dropped.sum());
+        }
+        ticker.shutdownNow();
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(100);
+        }
+
+        String report = report();
+        System.out.print(report);
+        String reportFile = System.getProperty("load.report", "");
+        if (!reportFile.isEmpty()) {
+            Path file = Path.of(reportFile);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, report, StandardCharsets.UTF_8);
+            System.out.println("[Load] Report written to " + file.toAbsolutePath());
+        }
+        System.exit(0);
+    }
+
+    // Starts request n; latency counts from dueNanos, not from when the client got to it
+    private void fire(long n, long dueNanos, boolean measured) {
+        if (inFlight.get() >= maxInFlight) {
+            dropped.increment();
+            return;
+        }
+        String path = paths.get((int) (n % paths.size()));
+        String id = ids.get((int) ((n / paths.size()) % ids.size()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path.replace("{id}", id)))
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .GET()
+                .build();
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long latency = System.nanoTime() - dueNanos;
+            inFlight.decrementAndGet();
+            if (!measured) {
+                return;
+            }
+            String status = error != null ? error.getClass().getSimpleName() : String.valueOf(response.statusCode());
+            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+            overall.record(latency);
+            byPath.get(path).record(latency);
+        });
+    }
+
+    private String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%n== Load test: %s, %.1f req/s for %ds ==%n", baseUrl, rate, durationSeconds));
+        out.append(String.format(Locale.ROOT, "throughput: %.2f completed/s, dropped: %d%n",
+                overall.count() / (double) durationSeconds, dropped.sum()));
+        out.append("status: ").append(new TreeMap<>(statuses)).append(System.lineSeparator());
+        for (Map.Entry<String, LatencyHistogram> entry : byPath.entrySet()) {
+            out.append(System.lineSeparator()).append(entry.getKey()).append(System.lineSeparator());
+            out.append("  ").append(entry.getValue().summary()).append(System.lineSeparator());
+            out.append(entry.getValue().render());
+        }
+        if (byPath.size() > 1) {
+            out.append(System.lineSeparator()).append("overall").append(System.lineSeparator());
+            out.append("  ").append(overall.summary()).append(System.lineSeparator());
+            out.append(overall.render());
+        }
+        return out.toString();
+    }
+
+    private static List<String> split(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.sentrytestbackend.standin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps the requests the backend makes to a fixture. The upstream/operation names are the
+ * ones UpstreamMetricsInterceptor tags upstream.requests with, so stand-in latency settings
+ * and the backend's metrics line up.
+ *
+ * Fixture names refer to files under the fixtures directory; "source:" fixtures are served
+ * as raw file bodies (FixtureStore.source), "commit-sha" as the plain commit hash.
+ */
+final class StandinRoutes {
+
+    record Match(String upstream, String operation, String fixture, int status, Map<String, String> vars) {}
+
+    private record Route(String method, String upstream, String operation, Pattern path, String fixture, int status, String... groups) {}
+
+    private static final String REPO = "/2.0/repositories/([^/]+)/([^/]+)";
+
+    private static final List<Route> ROUTES = new ArrayList<>();
+
+    static {
+        // Sentry
+        add("GET", "sentry", "projects", "/api/0/projects/", "sentry/projects.json", 200);
+        add("GET", "sentry", "issues", "/api/0/projects/([^/]+)/([^/]+)/issues/", "sentry/issues.json", 200, "org", "project");
+        add("GET", "sentry", "events", "/api/0/projects/([^/]+)/([^/]+)/events/", "sentry/project-events.json", 200, "org", "project");
+        add("GET", "sentry", "issue", "/api/0/issues/([^/]+)/", "sentry/issue.json", 200, "issueId");
+        add("GET", "sentry", "events.latest", "/api/0/issues/([^/]+)/events/latest/", "sentry/event.json", 200, "issueId");
+        add("GET", "sentry", "events", "/api/0/issues/([^/]+)/events/", "sentry/events.json", 200, "issueId");
+        add("GET", "sentry", "events", "/api/0/issues/([^/]+)/events/([^/]+)/", "sentry/event.json", 200, "issueId", "eventId");
+        add("GET", "sentry", "releases", "/api/0/organizations/([^/]+)/releases/([^/]+)/", "sentry/release.json", 200, "org", "version");
+        add("POST", "sentry", "releases", "/api/0/organizations/([^/]+)/releases/", "sentry/release.json", 201, "org");
+
+        // Bitbucket
+        add("GET", "bitbucket", "repository", REPO + "/?", "bitbucket/repository.json", 200, "workspace", "repo");
+        add("GET", "bitbucket", "refs", REPO + "/refs/branches/([^/]+)", "bitbucket/branch.json", 200, "workspace", "repo", "branch");
+        add("GET", "bitbucket", "commits", REPO + "/commits(?:/[^/]*)?", "bitbucket/commits.json", 200, "workspace", "repo");
+        add("GET", "bitbucket", "search", REPO + "/search/code", "bitbucket/search.json", 200, "workspace", "repo");
+        add("GET", "bitbucket", "search", "/2.0/workspaces/([^/]+)/search/code", "bitbucket/search.json", 200, "workspace");
+        add("GET", "bitbucket", "diffstat", REPO + "/diffstat/.+", "bitbucket/diffstat.json", 200, "workspace", "repo");
+        add("GET", "bitbucket", "src", REPO + "/src/([^/]+)/", "bitbucket/src-listing.json", 200, "workspace", "repo", "ref");
+        add("GET", "bitbucket", "src", REPO + "/src/([^/]+)/(.+)", "source:", 200, "workspace", "repo", "ref", "path");
+        add("POST", "bitbucket", "refs", REPO + "/refs/branches", "bitbucket/branch.json", 201, "workspace", "repo");
+        add("POST", "bitbucket", "src", REPO + "/src", "bitbucket/empty.json", 201, "workspace", "repo");
+        add("POST", "bitbucket", "pullrequests", REPO + "/pullrequests", "bitbucket/pullrequest.json", 201, "workspace", "repo");
+
+        // GitHub
+        add("GET", "github", "contents", "/repos/([^/]+)/([^/]+)/contents/(.+)", "source:", 200, "owner", "repo", "path");
+        add("GET", "github", "commits", "/repos/([^/]+)/([^/]+)/commits/([^/]+)", "commit-sha", 200, "owner", "repo", "ref");
+
+        // Gemini
+        add("POST", "gemini", "generateContent", "/.*/models/([^/:]+):generateContent", "gemini/generateContent.json", 200, "model");
+    }
+
+    private StandinRoutes() {}
+
+    private static void add(String method, String upstream, String operation, String path, String fixture, int status, String... groups) {
+        ROUTES.add(new Route(method, upstream, operation, Pattern.compile(path), fixture, status, groups));
+    }
+
+    /** The first route matching method and path (without query), or null. */
+    static Match match(String method, String path) {
+        for (Route route : ROUTES) {
+            if (!route.method().equals(method)) {
+                continue;
+            }
+            Matcher m = route.path().matcher(path);
+            if (m.matches()) {
+                Map<String, String> vars = new LinkedHashMap<>();
+                for (int i = 0; i < route.groups().length; i++) {
+                    vars.put(route.groups()[i], m.group(i + 1));
+                }
+                return new Match(route.upstream(), route.operation(), route.fixture(), route.status(), vars);
+            }
+        }
+        return null;
+    }
+
+    /** Upstream of an unmatched path, so record mode knows where to forward it. */
+    static String upstreamOf(String path) {
+        if (path.contains(":generateContent")) return "gemini";
+        if (path.startsWith("/api/0/")) return "sentry";
+        if (path.startsWith("/2.0/")) return "bitbucket";
+        if (path.startsWith("/repos/")) return "github";
+        return "other";
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.sentrytestbackend.standin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for every upstream the backend calls: Sentry, Bitbucket, GitHub and Gemini on
+ * one port. Run the backend with the standin profile to point it here, then drive it with
+ * LoadGenerator to measure throughput without live accounts.
+ *
+ * Responses come from FixtureStore: a recorded response for the exact request (body included) if there is one,
+ * otherwise the route's template (StandinRoutes). In record mode (standin.record.<upstream> set
+ * to the real base URL) a request without a recording is forwarded with its Authorization header
+ * and the answer is saved, so the next run replays it.
+ *
+ * Per upstream (sentry, bitbucket, github, gemini), set with -D or ./gradlew standin -P...:
+ *   standin.<upstream>.latency-ms     mean added latency
+ *   standin.<upstream>.jitter-ms      uniform +/- spread around it
+ *   standin.<upstream>.error-rate     fraction of requests answered with error-status (0..1)
+ *   standin.<upstream>.error-status=503
+ *   standin.record.<upstream>         real base URL, enables record mode for that upstream
+ * Global:
+ *   standin.port=9099
+ *   standin.fixtures=src/standin/fixtures
+ *   standin.recordings=src/standin/fixtures/recorded
+ *   standin.commit=<40-char hash served as every branch HEAD>
+ *   standin.org=standin, standin.project=standin-backend   (for fixtures not addressed by project)
+ *   standin.verbose=false             log every request
+ */
+public class StandinServer {
+
+    private static final List<String> UPSTREAMS = List.of("sentry", "bitbucket", "github", "gemini", "other");
+    private static final Map<String, long[]> DEFAULT_LATENCY = Map.of( // {latency, jitter} in ms
+            "sentry", new long[] {120, 40},
+            "bitbucket", new long[] {150, 50},
+            "github", new long[] {100, 30},
+            "gemini", new long[] {2500, 1000},
+            "other", new long[] {0, 0});
+
+    // Latency and error injection for one upstream
+    private record Injection(long latencyMs, long jitterMs, double errorRate, int errorStatus) {
+
+        static Injection fromProperties(String upstream) {
+            long[] defaults = DEFAULT_LATENCY.get(upstream);
+            return new Injection(
+                    Long.getLong("standin." + upstream + ".latency-ms", defaults[0]),
+                    Long.getLong("standin." + upstream + ".jitter-ms", defaults[1]),
+                    Double.parseDouble(System.getProperty("standin." + upstream + ".error-rate", "0")),
+                    Integer.getInteger("standin." + upstream + ".error-status", 503));
+        }
+
+        long delayMs() {
+            if (jitterMs <= 0) {
+                return latencyMs;
+            }
+            return Math.max(0, latencyMs + ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1));
+        }
+
+        boolean fails() {
+            return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+        }
+    }
+
+    private final FixtureStore store;
+    private final Map<String, Injection> injections = new HashMap<>();
+    private final Map<String, String> recordTargets = new HashMap<>();
+    private final String commit;
+    private final boolean verbose;
+    private final HttpClient forwardClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final Map<String, LongAdder> served = new ConcurrentHashMap<>();
+
+    StandinServer(FixtureStore store, String commit, boolean verbose) {
+        this.store = store;
+        this.commit = commit;
+        this.verbose = verbose;
+        for (String upstream : UPSTREAMS) {
+            injections.put(upstream, Injection.fromProperties(upstream));
+            String target = System.getProperty("standin.record." + upstream, "");
+            if (!target.isEmpty()) {
+                recordTargets.put(upstream, target.replaceAll("/+$", ""));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger("standin.port", 9099);
+        String commit = System.getProperty("standin.commit", "5e1f0c2a9b7d4e3f8a6c1b2d3e4f5a6b7c8d9e0f");
+        // Fallbacks for {{name}} placeholders the route does not bind (e.g. the project of /issues/{id}/)
+        Map<String, String> globals = Map.of(
+                "commit", commit,
+                "shortCommit", commit.substring(0, 7),
+                "startedAt", Instant.now().toString(),
+                "port", String.valueOf(port),
+                "org", System.getProperty("standin.org", "standin"),
+                "project", System.getProperty("standin.project", "standin-backend"));
+        FixtureStore store = new FixtureStore(
+                Path.of(System.getProperty("standin.fixtures", "src/standin/fixtures")),
+                Path.of(System.getProperty("standin.recordings", "src/standin/fixtures/recorded")),
+                globals);
+        StandinServer standin = new StandinServer(store, commit, Boolean.getBoolean("standin.verbose"));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", standin::handle);
+        // Injected latency is a sleep on the handling thread, so threads must not be the bottleneck
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(standin::printSummary));
+
+        System.out.println("[Standin] Listening on http://localhost:" + port);
+        for (String upstream : UPSTREAMS) {
+            Injection injection = standin.injections.get(upstream);
+            System.out.println("[Standin]   " + upstream + ": " + injection.latencyMs() + " +/- " + injection.jitterMs() + " ms, error-rate="
+                    + injection.errorRate() + (standin.recordTargets.containsKey(upstream) ? ", recording from " + standin.recordTargets.get(upstream) : ""));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            URI uri = exchange.getRequestURI();
+            String path = uri.getRawPath();
+            String pathAndQuery = uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+
+            StandinRoutes.Match match = StandinRoutes.match(method, path);
+            String upstream = match != null ? match.upstream() : StandinRoutes.upstreamOf(path);
+            Injection injection = injections.get(upstream);
+            sleep(injection.delayMs());
+
+            FixtureStore.Response response;
+            if (injection.fails()) {
+                response = json(injection.errorStatus(), "{\"detail\":\"stand-in injected error\"}");
+            } else {
+                response = store.recorded(upstream, method, pathAndQuery, requestBody);
+                if (response == null && recordTargets.containsKey(upstream)) {
+                    response = forward(exchange, upstream, method, pathAndQuery, requestBody);
+                } else if (response == null) {
+                    response = match != null ? fromFixture(exchange, match)
+                            : json(404, "{\"detail\":\"no stand-in route for " + method + " " + path + "\"}");
+                }
+            }
+            send(exchange, method, response);
+            served.computeIfAbsent(upstream + " " + (match != null ? match.operation() : "unmatched") + " " + response.status(),
+                    k -> new LongAdder()).increment();
+            if (verbose) {
+                System.out.println("[Standin] " + method + " " + FixtureStore.withoutSecrets(pathAndQuery) + " -> " + response.status());
+            }
+        } catch (Exception e) {
+            System.err.println("[Standin] Failed to answer " + exchange.getRequestURI().getRawPath() + ": " + e);
+            send(exchange, "GET", json(500, "{\"detail\":\"stand-in failure\"}"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private FixtureStore.Response fromFixture(HttpExchange exchange, StandinRoutes.Match match) throws IOException {
+        if ("source:".equals(match.fixture())) {
+            return new FixtureStore.Response(200, "text/plain; charset=utf-8",
+                    store.source(match.vars().get("path")).getBytes(StandardCharsets.UTF_8));
+        }
+        if ("commit-sha".equals(match.fixture())) {
+            String accept = String.valueOf(exchange.getRequestHeaders().getFirst("Accept"));
+            return accept.contains("sha")
+                    ? new FixtureStore.Response(200, "text/plain", commit.getBytes(StandardCharsets.UTF_8))
+                    : json(200, "{\"sha\":\"" + commit + "\"}");
+        }
+        String body = store.render(match.fixture(), match.vars());
+        if (body == null) {
+            return json(404, "{\"detail\":\"missing fixture " + match.fixture() + "\"}");
+        }
+        return json(match.status(), body);
+    }
+
+    // Record mode: ask the real upstream and keep what it said (errors too, so they replay as well)
+    private FixtureStore.Response forward(HttpExchange exchange, String upstream, String method, String pathAndQuery,
+                                          byte[] body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(recordTargets.get(upstream) + pathAndQuery))
+                .timeout(Duration.ofSeconds(120))
+                .method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String header : List.of("Authorization", "Accept", "Content-Type")) {
+            String value = exchange.getRequestHeaders().getFirst(header);
+            if (value != null) {
+                request.header(header, value);
+            }
+        }
+        HttpResponse<byte[]> upstreamResponse = forwardClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        FixtureStore.Response response = new FixtureStore.Response(upstreamResponse.statusCode(),
+                upstreamResponse.headers().firstValue("Content-Type").orElse("application/json"), upstreamResponse.body());
+        store.record(upstream, method, pathAndQuery, body, response);
+        System.out.println("[Standin] Recorded " + method + " " + FixtureStore.withoutSecrets(pathAndQuery) + " -> " + response.status());
+        return response;
+    }
+
+    // Sends the response; GETs carry an ETag and a matching If-None-Match gets 304, like Sentry and Bitbucket
+    private static void send(HttpExchange exchange, String method, FixtureStore.Response response) throws IOException {
+        byte[] body = response.body();
+        if ("GET".equals(method) && response.status() == 200) {
+            String etag = "\"" + FixtureStore.sha1(new String(body, StandardCharsets.ISO_8859_1)).substring(0, 16) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.sendResponseHeaders(response.status(), body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static FixtureStore.Response json(int status, String body) {
+        return new FixtureStore.Response(status, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private void printSummary() {
+        System.out.println("[Standin] Requests served (upstream operation status):");
+        new TreeMap<>(served).forEach((key, count) -> System.out.println("[Standin]   " + key + ": " + count.sum()));
+    }
+}
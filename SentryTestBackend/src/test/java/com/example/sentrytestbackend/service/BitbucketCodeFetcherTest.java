@@ -0,0 +1,84 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.CodeSnippet;
+import com.example.sentrytestbackend.util.SourceFile;
+import com.example.sentrytestbackend.util.StackTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BitbucketCodeFetcherTest {
+
+    private static final String COMMIT = "0123456789abcdef0123456789abcdef01234567";
+    private static final String PATH = "src/main/java/com/acme/cart/Cart.java";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final CommitTimelineService commitTimelineService = mock(CommitTimelineService.class);
+    private final SourceFileCache sourceFileCache = mock(SourceFileCache.class);
+    private final BitbucketCodeFetcher fetcher = new BitbucketCodeFetcher();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(fetcher, "bitbucketRepoUrl", "https://bitbucket.org/acme/shop");
+        ReflectionTestUtils.setField(fetcher, "bitbucketRepoBranch", "main");
+        ReflectionTestUtils.setField(fetcher, "bitbucketRepoSrcRoot", "src/main/java/");
+        ReflectionTestUtils.setField(fetcher, "bitbucketWorkspace", "other-workspace");
+        ReflectionTestUtils.setField(fetcher, "bitbucketRepoName", "other-repo");
+        ReflectionTestUtils.setField(fetcher, "maxConcurrentPerWorkspace", 4);
+        ReflectionTestUtils.setField(fetcher, "snippetFetchExecutor", executor);
+        ReflectionTestUtils.setField(fetcher, "commitTimelineService", commitTimelineService);
+        ReflectionTestUtils.setField(fetcher, "sourceFileCache", sourceFileCache);
+
+        when(commitTimelineService.fileCommitAt(eq("acme"), eq("shop"), eq(PATH), anyString(), any()))
+                .thenReturn(COMMIT);
+        when(sourceFileCache.get(eq("bitbucket"), eq("acme/shop"), eq(COMMIT), eq(PATH), any()))
+                .thenReturn(new SourceFile("one\ntwo\nthree\nfour\nfive\n"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void legacyConfigFrameStillProducesSnippet() {
+        RepoConfig legacy = new RepoConfig("https://bitbucket.org/acme/shop", "main", "src/main/java/", "com.acme");
+        StackTrace.SourceLocation location = legacy.resolveSourceLocation("com.acme.cart.Cart", "Cart.java", 3);
+
+        List<CodeSnippet> snippets = fetcher.getBitbucketCode(trace(location), 1, "2024-05-01T10:00:00Z");
+
+        assertEquals(1, snippets.size());
+        assertTrue(snippets.get(0).found(), snippets.get(0).code());
+        assertEquals("2: two\n3: three\n4: four\n", snippets.get(0).code());
+    }
+
+    @Test
+    void locationTakesWorkspaceAndRepoFromTheRepoUrl() {
+        StackTrace.SourceLocation location =
+                fetcher.buildBitbucketLocationWithCommit("com.acme.cart.Cart", "Cart.java", 3, null);
+
+        assertEquals("https://bitbucket.org/acme/shop/src/main/" + PATH + "#lines-3", location.url());
+        assertEquals("acme", location.owner());
+        assertEquals("shop", location.repo());
+        assertEquals(PATH, location.path());
+        assertEquals(3, location.line());
+    }
+
+    private static StackTrace trace(StackTrace.SourceLocation location) {
+        StackTrace.Frame frame = new StackTrace.Frame("com.acme.cart.Cart", "total", "Cart.java", 3, null, location, 0);
+        return new StackTrace("java.lang.IllegalStateException", "boom", List.of(frame), List.of());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.sentrytestbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BitbucketPrServiceTest {
+
+    private static final String CONTENT = "one\ntwo\nthree\nfour\n";
+
+    private static Map<String, Object> replace(int start, int end, String code) {
+        return Map.of("start_line", start, "end_line", end, "replacement_code", code);
+    }
+
+    @Test
+    void replacesInclusiveLineRange() {
+        assertEquals("one\nTWO\nfour\n",
+                BitbucketPrService.applyReplacementsToContent(CONTENT, List.of(replace(2, 3, "TWO"))));
+    }
+
+    @Test
+    void insertsWhenEndIsBeforeStart() {
+        assertEquals("zero\none\ntwo\nthree\nfour\n",
+                BitbucketPrService.applyReplacementsToContent(CONTENT, List.of(replace(0, 0, "zero"))));
+    }
+
+    @Test
+    void laterReplacementsCountAnEarlierReplacementAsOneLine() {
+        assertEquals("a\nb\nthree\nc\n", BitbucketPrService.applyReplacementsToContent(CONTENT,
+                List.of(replace(1, 2, "a\nb"), replace(3, 3, "c"))));
+    }
+
+    @Test
+    void clampsRangesPastTheEndOfTheFile() {
+        assertEquals("one\ntwo\nthree\nfour\nend",
+                BitbucketPrService.applyReplacementsToContent(CONTENT, List.of(replace(5, 40, "end"))));
+    }
+}
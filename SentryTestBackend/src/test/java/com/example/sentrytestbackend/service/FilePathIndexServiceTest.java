@@ -0,0 +1,106 @@
+package com.example.sentrytestbackend.service;
+
+import com.example.sentrytestbackend.util.CommitTimeline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilePathIndexServiceTest {
+
+    private static final String OLD = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    private static final String NEW = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FilePathIndexService service = new FilePathIndexService();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<String> requested = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(service, "bitbucketApiBaseUrl", "https://api.test");
+        ReflectionTestUtils.setField(service, "indexDir", Files.createTempDirectory("file-index").toString());
+        ReflectionTestUtils.setField(service, "maxDepth", 20);
+        ReflectionTestUtils.setField(service, "maxPages", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void truncatedDiffRebuildsInsteadOfMovingTheCommit() {
+        service.find("acme", "shop", "main", OLD, "Cart.java", null, listing("src/Cart.java"));
+
+        // A second diffstat page is never read at max-pages=1
+        String found = service.find("acme", "shop", "main", NEW, "Checkout.java", null, url -> {
+            requested.add(url);
+            if (url.contains("/diffstat/")) {
+                return json("{\"values\": [{\"old\": null, \"new\": {\"path\": \"src/Checkout.java\"}}], \"next\": \"https://api.test/more\"}");
+            }
+            return json("{\"values\": [{\"type\": \"commit_file\", \"path\": \"src/Checkout.java\"}]}");
+        });
+
+        assertEquals("src/Checkout.java", found);
+        assertNull(service.find("acme", "shop", "main", NEW, "Cart.java", null, url -> { throw new IOException("no calls expected"); }));
+        assertTrue(requested.stream().anyMatch(url -> url.contains("/src/" + NEW + "/")), requested.toString());
+    }
+
+    @Test
+    void lookupsDoNotWaitForAnUpdateInProgress() throws Exception {
+        service.find("acme", "shop", "main", OLD, "Cart.java", null, listing("src/Cart.java"));
+        CountDownLatch diffStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> update = executor.submit(() -> service.find("acme", "shop", "main", NEW, "Cart.java", null, url -> {
+            diffStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return json("{\"values\": []}");
+        }));
+        diffStarted.await();
+
+        assertEquals("src/Cart.java", service.find("acme", "shop", "main", OLD, "Cart.java", null, listing()));
+        service.remember("acme", "shop", "main", "src/Order.java");
+
+        release.countDown();
+        assertEquals("src/Cart.java", update.get(5, TimeUnit.SECONDS));
+        assertEquals("src/Order.java", service.find("acme", "shop", "main", NEW, "Order.java", null, listing()));
+    }
+
+    // Single-page tree listing with the given files
+    private CommitTimeline.PageLoader<JsonNode> listing(String... paths) {
+        StringBuilder values = new StringBuilder();
+        for (String path : paths) {
+            values.append(values.length() > 0 ? "," : "")
+                  .append("{\"type\": \"commit_file\", \"path\": \"").append(path).append("\"}");
+        }
+        String body = "{\"values\": [" + values + "]}";
+        return url -> json(body);
+    }
+
+    private JsonNode json(String body) throws IOException {
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.sentrytestbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptBuilderTest {
+
+    private static final String TRACE_HEAD = "java.lang.IllegalStateException: boom";
+    private static final String LINKED_FRAME = "    at com.acme.cart.Cart.total(Cart.java:5) [https://bitbucket.org/acme/shop/src/main/Cart.java#lines-5]";
+    private static final String FRAMEWORK_FRAME = "    at org.springframework.web.servlet.DispatcherServlet.doDispatch(DispatcherServlet.java:1089)";
+
+    private final PromptBuilder builder = new PromptBuilder();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(builder, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(builder, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(builder, "maxTokens", 8000);
+        ReflectionTestUtils.setField(builder, "maxBreadcrumbs", 10);
+        ReflectionTestUtils.setField(builder, "charsPerToken", 1);
+    }
+
+    @Test
+    void distinctSnippetsDropsRepeatedLinksAndIdenticalCode() {
+        String a = snippet("A.java", 3, 3, 3);
+        String sameLink = snippet("A.java", 3, 4, 4);
+        String sameCode = "Snippet for: B.java#lines-3\n3: line 3\n\n";
+        String c = snippet("C.java", 7, 7, 7);
+
+        assertEquals(List.of(a, c), PromptBuilder.distinctSnippets(a + sameLink + sameCode + c));
+    }
+
+    @Test
+    void oversizedSnippetIsCutAroundItsLine() {
+        String header = "Snippet for: Cart.java#lines-5";
+        // Header plus three "N: line N" lines
+        setVariableChars(header.length() + 1 + 3 * "5: line 5\n".length());
+
+        String prompt = builder.buildCodeAnalysisPrompt(null, null, snippet("Cart.java", 5, 1, 9), Map.of());
+
+        assertTrue(prompt.contains(header + "\n4: line 4\n5: line 5\n6: line 6\n[snippet cut to fit the prompt budget]\n"),
+                prompt);
+        assertFalse(prompt.contains("3: line 3"), prompt);
+        assertFalse(prompt.contains("7: line 7"), prompt);
+    }
+
+    @Test
+    void linkedFramesCrashingSnippetAndIssueComeBeforeOuterSnippetsAndFrameworkFrames() {
+        String first = snippet("Cart.java", 5, 4, 6);
+        String outer = snippet("Checkout.java", 20, 19, 21);
+        String issue = "{\"id\":\"42\",\"title\":\"boom\"}";
+        setVariableChars(TRACE_HEAD.length() + 1 + LINKED_FRAME.length() + 1 + first.length() + issue.length());
+
+        String prompt = builder.buildCodeAnalysisPrompt(TRACE_HEAD + "\n" + LINKED_FRAME + "\n" + FRAMEWORK_FRAME,
+                "{\"id\":\"42\",\"title\":\"boom\",\"permalink\":\"https://sentry.io/issues/42\"}", first + outer, Map.of());
+
+        assertTrue(prompt.contains("Stack Trace:\n" + TRACE_HEAD + "\n" + LINKED_FRAME + "\n    [1 stack trace lines left out]\n"),
+                prompt);
+        assertTrue(prompt.contains("Sentry Error: \n" + issue + "\n"), prompt);
+        assertTrue(prompt.contains("Code from github: \n" + first + "[1 snippets for outer frames left out]\n"), prompt);
+        assertFalse(prompt.contains(FRAMEWORK_FRAME), prompt);
+    }
+
+    @Test
+    void budgetKeyFollowsTheSettings() {
+        String key = builder.budgetKey();
+        ReflectionTestUtils.setField(builder, "maxBreadcrumbs", 20);
+
+        assertNotEquals(key, builder.budgetKey());
+    }
+
+    // Sets max-tokens so exactly this many characters are left for the variable sections
+    private void setVariableChars(long chars) {
+        ReflectionTestUtils.setField(builder, "maxTokens", 0);
+        ReflectionTestUtils.setField(builder, "maxTokens", (int) (chars - builder.variableChars()));
+    }
+
+    // A rendered CodeSnippet block anchored at the given line
+    private static String snippet(String url, int anchor, int from, int to) {
+        StringBuilder block = new StringBuilder("Snippet for: ").append(url).append("#lines-").append(anchor).append('\n');
+        for (int line = from; line <= to; line++) {
+            block.append(line).append(": line ").append(line).append('\n');
+        }
+        return block.append('\n').toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.sentrytestbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommitTimelineTest {
+
+    private final Map<String, BitbucketCommit.Page> pages = new HashMap<>();
+    private final CommitTimeline.PageLoader<BitbucketCommit.Page> loader = pages::get;
+
+    @Test
+    void resolvesInsideLoadedWindowWithoutMoreCalls() throws Exception {
+        pages.put("head", page("p2", 100, 90));
+        pages.put("p2", page(null, 80, 70));
+        CommitTimeline timeline = new CommitTimeline("head", Long.MAX_VALUE, 5);
+
+        assertEquals(new CommitTimeline.Lookup("c90", true), timeline.commitAt(95, loader));
+        assertEquals(1, timeline.pagesLoaded());
+        assertEquals(new CommitTimeline.Lookup("c70", true), timeline.commitAt(75, loader));
+        assertEquals(new CommitTimeline.Lookup(null, true), timeline.commitAt(10, loader));
+        assertEquals(2, timeline.pagesLoaded());
+    }
+
+    @Test
+    void lookupOlderThanBudgetIsIncomplete() throws Exception {
+        pages.put("head", page("p2", 100, 90));
+        pages.put("p2", page("p3", 80, 70));
+        pages.put("p3", page(null, 60, 50));
+        CommitTimeline timeline = new CommitTimeline("head", Long.MAX_VALUE, 2);
+
+        CommitTimeline.Lookup lookup = timeline.commitAt(55, loader);
+        assertFalse(lookup.complete());
+        assertNull(lookup.hash());
+        assertEquals(new CommitTimeline.Lookup("c50", true), timeline.commitAt(55, loader));
+    }
+
+    @Test
+    void headRefreshOutOfBudgetLeavesGapThatLaterLookupsFill() throws Exception {
+        pages.put("head", page(null, 100, 90));
+        CommitTimeline timeline = new CommitTimeline("head", 0, 1);
+        timeline.commitAt(100, loader);
+
+        pages.put("head", page("h2", 300, 290));
+        pages.put("h2", page("h3", 280, 270));
+        pages.put("h3", page(null, 200, 100));
+        Thread.sleep(1);
+        assertEquals(new CommitTimeline.Lookup("c300", true), timeline.commitAt(310, loader));
+        assertTrue(timeline.hasGap());
+
+        // One page into the gap is not enough to reach 150
+        assertFalse(timeline.commitAt(150, loader).complete());
+        assertEquals(new CommitTimeline.Lookup("c280", true), timeline.commitAt(285, loader));
+
+        assertEquals(new CommitTimeline.Lookup("c100", true), timeline.commitAt(150, loader));
+        assertFalse(timeline.hasGap());
+        assertEquals(7, timeline.size());
+    }
+
+    // Newest-first page of commits "c<t>" made at epoch millis t
+    private static BitbucketCommit.Page page(String next, long... times) {
+        List<BitbucketCommit> commits = new ArrayList<>();
+        for (long t : times) {
+            commits.add(new BitbucketCommit("c" + t, Instant.ofEpochMilli(t).toString()));
+        }
+        return new BitbucketCommit.Page(commits, next);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.sentrytestbackend.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private final RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch never = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void followerSharesLeaderValue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<RequestCoalescer.Result<String>> leader = executor.submit(() -> coalescer.execute("k", () -> {
+            leaderStarted.countDown();
+            release.await();
+            return "value";
+        }));
+        leaderStarted.await();
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        Future<RequestCoalescer.Result<String>> follower = executor.submit(() -> {
+            followerThread.set(Thread.currentThread());
+            return coalescer.execute("k", () -> "own call");
+        });
+        awaitWaiting(followerThread);
+        release.countDown();
+
+        assertEquals(new RequestCoalescer.Result<>("value", false), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(new RequestCoalescer.Result<>("value", true), follower.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void followerRetriesWhenLeaderIsCancelled() throws Exception {
+        Future<RequestCoalescer.Result<String>> leader = executor.submit(() -> coalescer.execute("k", () -> {
+            leaderStarted.countDown();
+            never.await();
+            return "never";
+        }));
+        leaderStarted.await();
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        Future<RequestCoalescer.Result<String>> follower = executor.submit(() -> {
+            followerThread.set(Thread.currentThread());
+            return coalescer.execute("k", () -> "value");
+        });
+        awaitWaiting(followerThread);
+
+        // What EndpointRunner does when the leader's own request times out
+        leader.cancel(true);
+
+        assertEquals(new RequestCoalescer.Result<>("value", false), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(0, coalescer.inFlight());
+    }
+
+    @Test
+    void interruptedFollowerGetsCancellation() throws Exception {
+        executor.submit(() -> coalescer.execute("k", () -> {
+            leaderStarted.countDown();
+            never.await();
+            return "never";
+        }));
+        leaderStarted.await();
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        CompletableFuture<Boolean> interruptFlag = new CompletableFuture<>();
+        Future<RequestCoalescer.Result<String>> follower = executor.submit(() -> {
+            followerThread.set(Thread.currentThread());
+            try {
+                return coalescer.execute("k", () -> "own call");
+            } finally {
+                interruptFlag.complete(Thread.currentThread().isInterrupted());
+            }
+        });
+        awaitWaiting(followerThread);
+        followerThread.get().interrupt();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, failure.getCause());
+        assertTrue(interruptFlag.get(5, TimeUnit.SECONDS));
+        assertFalse(follower.isCancelled());
+    }
+
+    // Spins until the follower is parked waiting on the leader's result
+    private static void awaitWaiting(AtomicReference<Thread> follower) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (follower.get() == null || follower.get().getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("follower never started waiting");
+            }
+            Thread.sleep(1);
+        }
+    }
+}
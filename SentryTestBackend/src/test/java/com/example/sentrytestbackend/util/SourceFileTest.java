@@ -0,0 +1,59 @@
+package com.example.sentrytestbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SourceFileTest {
+
+    private static final String CONTENT = "package demo;\n\nclass A {\n    int x;\n}\n\n";
+
+    @Test
+    void lineCountsMatchSplit() {
+        SourceFile file = new SourceFile(CONTENT);
+        assertEquals(CONTENT.split("\n").length, file.lineCount());
+        assertEquals(CONTENT.split("\n", -1).length, file.physicalLineCount());
+    }
+
+    @Test
+    void lineCountsOfEmptyAndUnterminatedContent() {
+        assertEquals(1, new SourceFile("").lineCount());
+        assertEquals(1, new SourceFile(null).physicalLineCount());
+        assertEquals(2, new SourceFile("a\nb").lineCount());
+        assertEquals(2, new SourceFile("a\nb").physicalLineCount());
+    }
+
+    @Test
+    void numberedLinesUsesOneBasedNumbers() {
+        SourceFile file = new SourceFile(CONTENT);
+        assertEquals("3: class A {\n4:     int x;\n", file.numberedLines(2, 4));
+    }
+
+    @Test
+    void numberedLinesClampsToTheFile() {
+        SourceFile file = new SourceFile(CONTENT);
+        assertEquals("1: package demo;\n2: \n", file.numberedLines(-5, 2));
+        // Trailing empty lines are not part of lineCount(), so they are never sliced
+        assertEquals("5: }\n", file.numberedLines(4, 100));
+        assertEquals("", file.numberedLines(10, 20));
+    }
+
+    @Test
+    void appendLineCopiesOneLineWithoutItsNewline() {
+        SourceFile file = new SourceFile(CONTENT);
+        assertEquals("    int x;", file.appendLine(new StringBuilder(), 3).toString());
+        assertEquals("", file.appendLine(new StringBuilder(), 6).toString());
+    }
+
+    @Test
+    void indexGrowsPastItsInitialCapacity() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("\n");
+        }
+        content.append("last");
+        SourceFile file = new SourceFile(content.toString());
+        assertEquals(1001, file.physicalLineCount());
+        assertEquals("1001: last\n", file.numberedLines(1000, 1001));
+    }
+}